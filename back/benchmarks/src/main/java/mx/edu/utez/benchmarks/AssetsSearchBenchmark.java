@@ -0,0 +1,150 @@
+package mx.edu.utez.benchmarks;
+
+import mx.edu.utez.SirmaApplication;
+import mx.edu.utez.modules.core.assets.AssetsService;
+import mx.edu.utez.modules.core.assets.AssetsSpecifications;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>AssetsService.search</code> (GET /api/activos/search) sobre 500 000 activos en H2 (modo MySQL)
+ * con los índices de <code>db/005_activo_busqueda.sql</code>. Se mide la primera página de 20 de cada
+ * escenario, paginada (con COUNT) y por cursor; el objetivo es p95 &lt; 50 ms (SampleTime da los percentiles).
+ *
+ * <p>Levanta la aplicación completa con H2 y siembra los datos en el setup (tarda ~1 min).</p>
+ *
+ * @author Ithera Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class AssetsSearchBenchmark {
+
+    private static final int ACTIVOS = 500_000;
+    private static final int PAGINA = 20;
+
+    private static final String[] MARCAS = {"HP", "Dell", "Lenovo", "Epson", "Cisco", "Steelcase", "Logitech", "Acer"};
+    private static final String[] CUSTODIA = {"Disponible", "Resguardado"};
+    private static final String[] OPERATIVO = {"OK", "OK", "OK", "Reportado", "Mantenimiento"};
+
+    @Param({"etiqueta", "serie", "campus+custodia", "edificio", "espacio", "tipo+operativo", "marca"})
+    public String escenario;
+
+    private ConfigurableApplicationContext contexto;
+    private AssetsService assetsService;
+    private AssetsSpecifications.Filtros filtros;
+    private final Pageable pagina = PageRequest.of(0, PAGINA, Sort.by(Sort.Direction.DESC, "id"));
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // Como argumentos de línea de comandos para que ganen sobre application.properties
+        contexto = new SpringApplicationBuilder(SirmaApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:busqueda;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--app.qr.publicacion.habilitada=false",
+                // Sin .env: credenciales de mentira, el benchmark no manda correos ni sube a Cloudinary
+                "--spring.mail.username=bench", "--spring.mail.password=bench",
+                "--cloudinary.cloud-name=bench", "--cloudinary.api-key=bench", "--cloudinary.api-secret=bench",
+                "--logging.level.root=WARN");
+        assetsService = contexto.getBean(AssetsService.class);
+
+        DataSource dataSource = contexto.getBean(DataSource.class);
+        sembrar(new JdbcTemplate(dataSource));
+        try (Connection c = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(c, new ClassPathResource("db/005_activo_busqueda.sql"));
+        }
+        new JdbcTemplate(dataSource).execute("ANALYZE");
+
+        // Ids fijos: campus 2, edificio 7, espacio 33, tipo 10; el resto sale de los catálogos sembrados
+        filtros = switch (escenario) {
+            case "etiqueta" -> new AssetsSpecifications.Filtros("LAHPADU-01234", null, null, null, null, null, null, null, null);
+            case "serie" -> new AssetsSpecifications.Filtros(null, "SN-4F", null, null, null, null, null, null, null);
+            case "campus+custodia" -> new AssetsSpecifications.Filtros(null, null, null, null, 2L, null, null, "Resguardado", null);
+            case "edificio" -> new AssetsSpecifications.Filtros(null, null, null, null, null, 7L, null, null, null);
+            case "espacio" -> new AssetsSpecifications.Filtros(null, null, null, null, null, null, 33L, null, null);
+            case "tipo+operativo" -> new AssetsSpecifications.Filtros(null, null, 10L, null, null, null, null, null, "Mantenimiento");
+            case "marca" -> new AssetsSpecifications.Filtros(null, null, null, "Lenovo", null, null, null, null, null);
+            default -> throw new IllegalArgumentException(escenario);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Object paginada() {
+        return assetsService.search(filtros, pagina).getData();
+    }
+
+    @Benchmark
+    public Object cursor() {
+        return assetsService.search(filtros, "", PAGINA).getData();
+    }
+
+    /** 3 campus, 15 edificios, 75 espacios, 64 tipos (8 marcas) y 500 000 activos con semilla fija. */
+    private static void sembrar(JdbcTemplate jdbc) {
+        for (int c = 1; c <= 3; c++)
+            jdbc.update("INSERT INTO CAMPUS (id_campus, nombre, es_activo) VALUES (?, ?, true)", c, "Campus " + c);
+        for (int e = 1; e <= 15; e++)
+            jdbc.update("INSERT INTO EDIFICIO (id_edificio, id_campus, nombre, es_activo) VALUES (?, ?, ?, true)",
+                    e, 1 + (e - 1) / 5, "Edificio " + e);
+        for (int s = 1; s <= 75; s++)
+            jdbc.update("INSERT INTO ESPACIO (id_espacio, id_edificio, nombre_espacio, es_activo) VALUES (?, ?, ?, true)",
+                    s, 1 + (s - 1) / 5, "Espacio " + s);
+        for (int t = 1; t <= 64; t++)
+            jdbc.update("INSERT INTO TIPO_ACTIVO (id_tipo_activo, nombre, tipo_bien, marca, es_activo) VALUES (?, ?, 'Mueble', ?, true)",
+                    t, "Tipo " + t, MARCAS[(t - 1) % MARCAS.length]);
+
+        SplittableRandom r = new SplittableRandom(DatosSinteticos.SEMILLA);
+        Date alta = Date.valueOf(LocalDate.of(2025, 1, 1));
+        String sql = """
+                INSERT INTO ACTIVO (etiqueta, numero_serie, id_tipo_activo, id_espacio, estado_custodia,
+                                    estado_operativo, fecha_alta, es_activo)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+        List<Object[]> lote = new ArrayList<>(5_000);
+        for (int i = 1; i <= ACTIVOS; i++) {
+            lote.add(new Object[]{
+                    String.format("LAHPADU-%06d", i),
+                    // i * primo mód 2e9 no se repite: series únicas pero sin orden
+                    "SN-" + Long.toString(60_466_176L + i * 7_919L % 2_000_000_000L, 36).toUpperCase(),
+                    1 + r.nextInt(64),
+                    1 + r.nextInt(75),
+                    CUSTODIA[r.nextInt(CUSTODIA.length)],
+                    OPERATIVO[r.nextInt(OPERATIVO.length)],
+                    alta,
+                    r.nextInt(20) != 0});
+            if (lote.size() == 5_000) {
+                jdbc.batchUpdate(sql, lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) jdbc.batchUpdate(sql, lote);
+    }
+}
@@ -0,0 +1,98 @@
+package mx.edu.utez.benchmarks;
+
+import mx.edu.utez.modules.core.assets.AssetsDTO;
+import mx.edu.utez.modules.core.tipo_activos.TipoActivo;
+import mx.edu.utez.modules.location.campus.Campus;
+import mx.edu.utez.modules.location.edificios.Edificio;
+import mx.edu.utez.modules.location.espacios.Espacio;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generadores de entradas sintéticas para los benchmarks.
+ * Semilla fija: cada corrida mide exactamente los mismos datos.
+ *
+ * @author Ithera Team
+ */
+final class DatosSinteticos {
+
+    static final long SEMILLA = 20_260_301L;
+
+    /** Misma forma que la llave de producción (texto largo), pero de prueba. */
+    static final String JWT_SECRET = "BenchmarkSecretParaSirmaQueDebeSerLargoParaHmacSha256_0123456789";
+
+    private static final String[] TIPOS   = {"Laptop", "Monitor", "Impresora", "Proyector", "Escritorio", "Silla", "Mouse", "Switch"};
+    private static final String[] MARCAS  = {"HP", "Dell", "Lenovo", "Epson", "Cisco", "Steelcase", "Logitech", "Acer"};
+    private static final String[] CAMPUS  = {"UTEZ", "Norte", "Sur"};
+    private static final String[] EDIFICIOS = {"Docencia 1", "Docencia 2", "Rectoria", "Biblioteca", "Laboratorios"};
+    private static final String[] ESPACIOS  = {"Aula 1", "Aula 2", "Laboratorio A", "Sala de juntas", "Almacen"};
+
+    private DatosSinteticos() {}
+
+    static long[] idsActivos(int n) {
+        SplittableRandom r = new SplittableRandom(SEMILLA);
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) ids[i] = 1 + r.nextLong(5_000_000L);
+        return ids;
+    }
+
+    static String[] etiquetas(int n) {
+        SplittableRandom r = new SplittableRandom(SEMILLA);
+        String[] etiquetas = new String[n];
+        for (int i = 0; i < n; i++)
+            etiquetas[i] = "LAHPAD" + "U-" + Integer.toHexString(0x100000 + r.nextInt(0xEFFFFF)).toUpperCase();
+        return etiquetas;
+    }
+
+    /** DTOs con tipo, espacio, edificio y campus completos, como llegan al alta manual. */
+    static AssetsDTO[] activos(int n) {
+        SplittableRandom r = new SplittableRandom(SEMILLA);
+        AssetsDTO[] dtos = new AssetsDTO[n];
+        for (int i = 0; i < n; i++) {
+            TipoActivo tipo = new TipoActivo();
+            tipo.setNombre(TIPOS[r.nextInt(TIPOS.length)]);
+            tipo.setMarca(MARCAS[r.nextInt(MARCAS.length)]);
+
+            Campus campus = new Campus();
+            campus.setNombre(CAMPUS[r.nextInt(CAMPUS.length)]);
+            Edificio edificio = new Edificio();
+            edificio.setNombre(EDIFICIOS[r.nextInt(EDIFICIOS.length)]);
+            edificio.setCampus(campus);
+            Espacio espacio = new Espacio();
+            espacio.setNombreEspacio(ESPACIOS[r.nextInt(ESPACIOS.length)]);
+            espacio.setEdificio(edificio);
+
+            AssetsDTO dto = new AssetsDTO();
+            dto.setTipoActivo(tipo);
+            dto.setEspacio(espacio);
+            dtos[i] = dto;
+        }
+        return dtos;
+    }
+
+    /**
+     * Filas de la hoja de importación como las entrega el parser SAX: referencia de celda + valor.
+     * @return [fila][columna] = {cellRef, valor}
+     */
+    static String[][][] filasExcel(int n) {
+        SplittableRandom r = new SplittableRandom(SEMILLA);
+        String[][][] filas = new String[n][][];
+        for (int i = 0; i < n; i++) {
+            int fila = i + 2;
+            String[] valores = {
+                    "SN-" + Long.toString(r.nextLong(36L * 36 * 36 * 36 * 36 * 36), 36).toUpperCase(),
+                    CAMPUS[r.nextInt(CAMPUS.length)],
+                    TIPOS[r.nextInt(TIPOS.length)],
+                    MARCAS[r.nextInt(MARCAS.length)],
+                    r.nextBoolean() ? "Mueble" : "Inmueble",
+                    "Modelo " + r.nextInt(1000),
+                    EDIFICIOS[r.nextInt(EDIFICIOS.length)],
+                    " " + ESPACIOS[r.nextInt(ESPACIOS.length)] + " ",
+            };
+            filas[i] = new String[valores.length][];
+            for (int c = 0; c < valores.length; c++)
+                filas[i][c] = new String[]{String.valueOf((char) ('A' + c)) + fila, valores[c]};
+        }
+        return filas;
+    }
+}
@@ -0,0 +1,68 @@
+package mx.edu.utez.benchmarks;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import mx.edu.utez.security.jwt.JwtProvider;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validación de JWT que hace el filtro en cada petición autenticada
+ * (firma HMAC + claims de tipo, IP y User-Agent).
+ *
+ * @author Ithera Team
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtProviderBenchmark {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (X11; Linux x86_64) SIRMA-Benchmark";
+
+    private JwtProvider jwtProvider;
+    private String token;
+
+    @Setup
+    public void setup() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.15");
+        request.addHeader("User-Agent", USER_AGENT);
+
+        // Sin contexto de Spring: se inyectan los @Value y se corre el @PostConstruct a mano
+        jwtProvider = new JwtProvider(request);
+        ReflectionTestUtils.setField(jwtProvider, "secret", DatosSinteticos.JWT_SECRET);
+        ReflectionTestUtils.setField(jwtProvider, "expiration", 3_600_000);
+        ReflectionTestUtils.invokeMethod(jwtProvider, "inicializarLLave");
+
+        // Mismos claims que JwtProvider.generateToken
+        token = Jwts.builder()
+                .setSubject("admin@utez.edu.mx")
+                .claim("id", 1L)
+                .claim("nombre", "Administrador SIRMA")
+                .claim("role", "Administrador")
+                .claim("area", "Sistemas")
+                .claim("numeroEmpleado", "0001")
+                .claim("ip", "10.0.0.15")
+                .claim("userAgent", USER_AGENT)
+                .claim("type", "auth")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 86_400_000L))
+                .signWith(Keys.hmacShaKeyFor(DatosSinteticos.JWT_SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        if (!jwtProvider.validateToken(token))
+            throw new IllegalStateException("El token del benchmark no es válido");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtProvider.validateToken(token);
+    }
+}
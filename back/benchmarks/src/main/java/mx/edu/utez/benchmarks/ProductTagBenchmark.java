@@ -0,0 +1,39 @@
+package mx.edu.utez.benchmarks;
+
+import mx.edu.utez.modules.core.assets.AssetsDTO;
+import mx.edu.utez.modules.core.assets.EtiquetaAllocator;
+import mx.edu.utez.modules.core.assets.utils.AssetsUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación de la etiqueta de producto del alta manual (prefijo + consecutivo).
+ * El consecutivo sale de un contador local, igual que el camino rápido de {@link EtiquetaAllocator}
+ * cuando el bloque reservado aún tiene números.
+ *
+ * @author Ithera Team
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductTagBenchmark {
+
+    private static final int N = 1024;
+
+    private AssetsDTO[] activos;
+    private int i;
+    private long consecutivo;
+
+    @Setup
+    public void setup() {
+        activos = DatosSinteticos.activos(N);
+    }
+
+    @Benchmark
+    public String formatear() {
+        return EtiquetaAllocator.formatear(AssetsUtils.prefijoEtiqueta(activos[i++ & (N - 1)]), consecutivo++);
+    }
+}
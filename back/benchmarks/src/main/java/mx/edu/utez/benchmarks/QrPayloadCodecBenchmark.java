@@ -0,0 +1,45 @@
+package mx.edu.utez.benchmarks;
+
+import mx.edu.utez.util.QrPayloadCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cifrado y descifrado del payload opaco de los QR (AES/GCM).
+ * Se usa en cada QR generado y en cada escaneo que resuelve un activo.
+ *
+ * @author Ithera Team
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class QrPayloadCodecBenchmark {
+
+    private static final int N = 1024;
+
+    private QrPayloadCodec codec;
+    private long[] ids;
+    private String[] tokens;
+    private int i;
+
+    @Setup
+    public void setup() {
+        codec = new QrPayloadCodec(DatosSinteticos.JWT_SECRET);
+        ids = DatosSinteticos.idsActivos(N);
+        tokens = new String[N];
+        for (int k = 0; k < N; k++) tokens[k] = codec.encode(ids[k]);
+    }
+
+    @Benchmark
+    public String encode() {
+        return codec.encode(ids[i++ & (N - 1)]);
+    }
+
+    @Benchmark
+    public long decode() {
+        return codec.decode(tokens[i++ & (N - 1)]);
+    }
+}
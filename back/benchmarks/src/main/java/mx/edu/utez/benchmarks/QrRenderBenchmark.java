@@ -0,0 +1,64 @@
+package mx.edu.utez.benchmarks;
+
+import mx.edu.utez.modules.core.qr.QRService;
+import mx.edu.utez.util.QrPayloadCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render de QR: PNG con etiqueta, SVG vectorial y PDF A4. Los repositorios y Cloudinary no se tocan
+ * en estas rutas, por eso el servicio se arma sin ellos.
+ *
+ * @author Ithera Team
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QrRenderBenchmark {
+
+    private static final int N = 64;
+
+    @Param({"300"})
+    public int tamano;
+
+    private QRService qrService;
+    private String[] contenidos;
+    private String[] etiquetas;
+    private int i;
+
+    @Setup
+    public void setup() {
+        QrPayloadCodec codec = new QrPayloadCodec(DatosSinteticos.JWT_SECRET);
+        qrService = new QRService(null, null, null, codec, null, null, null);
+
+        long[] ids = DatosSinteticos.idsActivos(N);
+        etiquetas = DatosSinteticos.etiquetas(N);
+        contenidos = new String[N];
+        for (int k = 0; k < N; k++)
+            contenidos[k] = "{\"v\":2,\"p\":\"" + codec.encode(ids[k]) + "\"}";
+    }
+
+    @Benchmark
+    public byte[] pngConEtiqueta() throws Exception {
+        int k = i++ & (N - 1);
+        return qrService.generateQrByteArrayWithLabel(contenidos[k], tamano, tamano, etiquetas[k]);
+    }
+
+    @Benchmark
+    public byte[] pdf() throws Exception {
+        int k = i++ & (N - 1);
+        return qrService.generateQrPdf(contenidos[k], tamano, tamano, etiquetas[k]);
+    }
+
+    @Benchmark
+    public int svg() throws Exception {
+        int k = i++ & (N - 1);
+        StringWriter out = new StringWriter(8192);
+        qrService.generateQrSvg(contenidos[k], tamano, etiquetas[k], out);
+        return out.getBuffer().length();
+    }
+}
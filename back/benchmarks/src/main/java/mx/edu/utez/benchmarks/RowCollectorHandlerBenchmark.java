@@ -0,0 +1,45 @@
+package mx.edu.utez.benchmarks;
+
+import mx.edu.utez.modules.core.imports.RowCollectorHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificación de celdas del parser SAX de importación (letra de columna → índice, trim).
+ * Se mide una fila completa de 8 celdas: startRow + cell × 8 + endRow.
+ *
+ * @author Ithera Team
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RowCollectorHandlerBenchmark {
+
+    private static final int N = 4096;
+
+    private String[][][] filas;
+    private RowCollectorHandler handler;
+    private Blackhole bh;
+    private int i;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        this.bh = bh;
+        filas = DatosSinteticos.filasExcel(N);
+        handler = new RowCollectorHandler(row -> this.bh.consume(row));
+    }
+
+    @Benchmark
+    public void fila() {
+        int k = i++ & (N - 1);
+        String[][] celdas = filas[k];
+        handler.startRow(k + 1);
+        for (String[] celda : celdas)
+            handler.cell(celda[0], celda[1], null);
+        handler.endRow(k + 1);
+    }
+}
@@ -0,0 +1,110 @@
+package mx.edu.utez.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuración de los pools de hilos para trabajos en segundo plano.
+ * Cada pool es acotado (hilos y cola) para que una ráfaga de trabajos pesados
+ * no le robe hilos ni conexiones a las peticiones HTTP normales.
+ *
+ * @author Ithera Team
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Pool para las importaciones masivas de Excel.
+     * Propaga el contexto de seguridad del usuario que subió el archivo,
+     * así la bitácora sigue registrando al autor real de la importación.
+     *
+     * @param hilos Número de importaciones que pueden correr al mismo tiempo.
+     * @param cola  Importaciones que pueden esperar turno antes de rechazar nuevas.
+     * @return Executor acotado para las importaciones.
+     */
+    @Bean(name = "importExecutor")
+    public AsyncTaskExecutor importExecutor(@Value("${app.imports.hilos:2}") int hilos,
+                                            @Value("${app.imports.cola:10}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("import-");
+        // Si la cola se llena preferimos rechazar (el controlador responde 503) que bloquear a Tomcat
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return new DelegatingSecurityContextAsyncTaskExecutor(executor);
+    }
+
+    /**
+     * Pool de workers que persisten los lotes de las importaciones en paralelo al parser.
+     * Se dimensiona para que todas las importaciones simultáneas tengan sus workers;
+     * cada worker ocupa una conexión de BD mientras guarda su lote.
+     *
+     * @param hilos   Importaciones simultáneas (mismo valor que el pool de importaciones).
+     * @param workers Workers por importación.
+     * @return Executor acotado para los workers de importación.
+     */
+    @Bean(name = "importWorkerExecutor")
+    public AsyncTaskExecutor importWorkerExecutor(@Value("${app.imports.hilos:2}") int hilos,
+                                                  @Value("${app.imports.workers:3}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos * workers);
+        executor.setMaxPoolSize(hilos * workers);
+        // Sin cola: un worker que espera turno dejaría al parser lleno sin nadie que consuma
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("import-worker-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return new DelegatingSecurityContextAsyncTaskExecutor(executor);
+    }
+
+    /**
+     * Pool para codificar QRs de las hojas de etiquetas (CPU puro, no toca la BD).
+     * Si la cola se llena, el hilo que arma el PDF los codifica él mismo: así se frena solo
+     * en vez de rechazar la descarga.
+     *
+     * @param hilos Hilos de render (por defecto uno por núcleo).
+     * @return Executor acotado para el render de QRs.
+     */
+    @Bean(name = "qrRenderExecutor")
+    public AsyncTaskExecutor qrRenderExecutor(@Value("${app.qr.hilos-render:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(hilos * 64);
+        executor.setThreadNamePrefix("qr-render-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool de los trabajos de pregeneración masiva de QRs. Un solo hilo: cada trabajo ya reparte el
+     * render en el pool de render y la subida la hace el worker del outbox a su ritmo.
+     *
+     * @param cola Trabajos que pueden esperar turno; si se llena, el trabajo se retoma en la siguiente revisión.
+     * @return Executor acotado para la pregeneración.
+     */
+    @Bean(name = "qrPregeneracionExecutor")
+    public AsyncTaskExecutor qrPregeneracionExecutor(@Value("${app.qr.pregeneracion.cola:20}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("qr-pregen-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
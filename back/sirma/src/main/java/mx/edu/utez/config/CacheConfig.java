@@ -0,0 +1,105 @@
+package mx.edu.utez.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.kernel.cache.CacheInvalidacionRepository;
+import mx.edu.utez.kernel.cache.CacheManagerDistribuido;
+import mx.edu.utez.util.NodoLocal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Configuración del caché de la aplicación con Caffeine.
+ * Antes se usaba el <code>ConcurrentMapCacheManager</code> por default, que nunca suelta nada:
+ * cada QR (PNG o PDF) que alguien veía se quedaba en el heap para siempre.
+ *
+ * <p>Cada caché se acota por peso en bytes (no por número de entradas, porque un PDF pesa
+ * mucho más que un DTO), con caducidad absoluta y por inactividad, y registra estadísticas
+ * que se consultan en <code>GET /api/admin/caches</code>.</p>
+ *
+ * <p>Los cachés de <code>app.cache.invalidacion.caches</code> se invalidan en todos los nodos
+ * (ver {@link CacheManagerDistribuido}).</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Configuration
+@EnableConfigurationProperties(CacheConfig.CacheProperties.class)
+public class CacheConfig {
+
+    /** Lo que se le suma a cada entrada por la llave, el ApiResponse y la estructura del mapa. */
+    private static final int SOBRECARGA_ENTRADA = 256;
+
+    /**
+     * Límites de un caché.
+     * @param pesoMax     Peso máximo de todas las entradas (ej. <code>32MB</code>)
+     * @param ttl         Tiempo máximo de vida de una entrada desde que se escribió
+     * @param inactividad Tiempo sin accesos tras el cual se descarta
+     * @param pesoObjeto  Peso estimado de una entrada que no es <code>byte[]</code> (DTOs)
+     */
+    public record Spec(DataSize pesoMax, Duration ttl, Duration inactividad, DataSize pesoObjeto) {}
+
+    /**
+     * Propiedades <code>app.cache.*</code>. Los cachés que no aparezcan en <code>especificaciones</code>
+     * usan <code>default</code>.
+     */
+    @ConfigurationProperties(prefix = "app.cache")
+    public record CacheProperties(Spec defaults, Map<String, Spec> especificaciones) {}
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties props,
+                                     CacheInvalidacionRepository invalidacionRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.cache.invalidacion.habilitada:true}") boolean distribuido,
+                                     @Value("${app.cache.invalidacion.caches:assets,assets_page}") List<String> distribuidos) {
+        CacheManager local = caffeineCacheManager(props);
+        if (!distribuido) return local;
+        String nodo = NodoLocal.nombre() + "-" + UUID.randomUUID();
+        log.info("Invalidación de caché entre nodos para {} (nodo {})", distribuidos, nodo);
+        return new CacheManagerDistribuido(local, distribuidos, invalidacionRepository, transactionManager, nodo);
+    }
+
+    private static CacheManager caffeineCacheManager(CacheProperties props) {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        // Los cachés que se creen al vuelo (sin especificación) también quedan acotados
+        manager.setCaffeine(caffeine(props.defaults()));
+
+        if (props.especificaciones() != null) {
+            props.especificaciones().forEach((nombre, spec) -> {
+                manager.registerCustomCache(nombre, caffeine(spec).build());
+                log.info("Caché {}: máx {}, ttl {}, inactividad {}", nombre, spec.pesoMax(), spec.ttl(), spec.inactividad());
+            });
+        }
+        return manager;
+    }
+
+    private static Caffeine<Object, Object> caffeine(Spec spec) {
+        int pesoObjeto = (int) spec.pesoObjeto().toBytes();
+        return Caffeine.newBuilder()
+                .maximumWeight(spec.pesoMax().toBytes())
+                .weigher((llave, valor) -> peso(valor, pesoObjeto))
+                .expireAfterWrite(spec.ttl())
+                .expireAfterAccess(spec.inactividad())
+                .recordStats();
+    }
+
+    /** Peso aproximado en bytes: los binarios (PNG, PDF) por su largo, lo demás por estimación fija. */
+    static int peso(Object valor, int pesoObjeto) {
+        Object contenido = valor instanceof ApiResponse r ? r.getData() : valor;
+        if (contenido instanceof byte[] bytes) return bytes.length + SOBRECARGA_ENTRADA;
+        return pesoObjeto + SOBRECARGA_ENTRADA;
+    }
+}
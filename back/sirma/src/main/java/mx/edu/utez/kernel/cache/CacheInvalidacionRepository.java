@@ -0,0 +1,71 @@
+package mx.edu.utez.kernel.cache;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Acceso por JDBC a <code>CACHE_INVALIDACION</code>, la bitácora con la que los nodos se avisan
+ * qué entradas de caché invalidar. Las horas son siempre las de la BD, no las de cada nodo.
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class CacheInvalidacionRepository {
+
+    /**
+     * Invalidación registrada por algún nodo.
+     * @param llave <code>String.valueOf</code> de la llave, o null si es el caché completo
+     */
+    public record Invalidacion(long id, String cache, String llave, String nodo, LocalDateTime creadoEn) {}
+
+    private static final RowMapper<Invalidacion> MAPPER = (rs, i) -> new Invalidacion(
+            rs.getLong("id"),
+            rs.getString("cache"),
+            rs.getString("llave"),
+            rs.getString("nodo"),
+            rs.getTimestamp("creado_en").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Registra invalidaciones en un solo batch.
+     * @param filas <code>{cache, llave, nodo}</code> por fila; llave ya convertida a texto, o null para
+     *              todo el caché. El nodo es el que la origina (para que él mismo no la vuelva a aplicar)
+     */
+    public void registrar(List<Object[]> filas) {
+        jdbcTemplate.batchUpdate("INSERT INTO CACHE_INVALIDACION (cache, llave, nodo) VALUES (?, ?, ?)", filas);
+    }
+
+    /** @return La hora actual de la BD (mismo reloj que <code>creado_en</code>). */
+    public LocalDateTime ahora() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(3)", Timestamp.class).toLocalDateTime();
+    }
+
+    /**
+     * Invalidaciones registradas desde una hora.
+     * @param desde Hora mínima (inclusiva)
+     * @param limite Filas máximas a leer
+     * @return Filas en orden de registro
+     */
+    public List<Invalidacion> desde(LocalDateTime desde, int limite) {
+        return jdbcTemplate.query(
+                "SELECT id, cache, llave, nodo, creado_en FROM CACHE_INVALIDACION WHERE creado_en >= ? ORDER BY creado_en, id LIMIT ?",
+                MAPPER, Timestamp.valueOf(desde), limite);
+    }
+
+    /**
+     * Borra las filas que ya todos los nodos leyeron.
+     * @param antesDe Se borran las anteriores a esta hora
+     * @return Filas borradas
+     */
+    public int purgar(LocalDateTime antesDe) {
+        return jdbcTemplate.update("DELETE FROM CACHE_INVALIDACION WHERE creado_en < ?", Timestamp.valueOf(antesDe));
+    }
+}
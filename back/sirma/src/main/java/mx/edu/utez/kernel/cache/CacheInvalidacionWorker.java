@@ -0,0 +1,56 @@
+package mx.edu.utez.kernel.cache;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Sondea <code>CACHE_INVALIDACION</code> para aplicar aquí lo que invalidaron los otros nodos
+ * (ver {@link CacheManagerDistribuido}) y de vez en cuando borra lo viejo.
+ * Si la invalidación entre nodos está apagada, no hace nada.
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Component
+public class CacheInvalidacionWorker {
+
+    /** Más que suficiente para que todos los nodos hayan leído una fila. */
+    private static final Duration RETENCION = Duration.ofHours(1);
+
+    private final CacheManagerDistribuido cacheManager;
+    /** Para no llenar el log con el mismo error cada segundo mientras la BD no responde. */
+    private boolean fallando;
+
+    public CacheInvalidacionWorker(CacheManager cacheManager) {
+        this.cacheManager = cacheManager instanceof CacheManagerDistribuido d ? d : null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidacion.intervalo-ms:1000}")
+    public void sondear() {
+        if (cacheManager == null) return;
+        try {
+            int aplicadas = cacheManager.sondear();
+            if (aplicadas > 0) log.debug("{} invalidación(es) de caché de otros nodos aplicada(s)", aplicadas);
+            fallando = false;
+        } catch (DataAccessException e) {
+            if (!fallando) log.warn("No se pudieron leer las invalidaciones de caché de otros nodos: {}", e.getMessage());
+            fallando = true;
+        }
+    }
+
+    @Scheduled(initialDelay = 600_000, fixedDelay = 600_000)
+    public void purgar() {
+        if (cacheManager == null) return;
+        try {
+            int borradas = cacheManager.purgar(RETENCION);
+            if (borradas > 0) log.debug("{} invalidación(es) de caché vieja(s) borrada(s)", borradas);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo purgar la bitácora de invalidaciones de caché: {}", e.getMessage());
+        }
+    }
+}
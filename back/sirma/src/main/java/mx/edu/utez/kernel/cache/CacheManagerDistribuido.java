@@ -0,0 +1,286 @@
+package mx.edu.utez.kernel.cache;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Envuelve al <code>CacheManager</code> local (Caffeine) para que las invalidaciones de ciertos cachés
+ * lleguen a todos los nodos detrás del balanceador, usando solo la BD (sin Redis ni Kafka).
+ *
+ * <p>Cada <code>evict</code>/<code>clear</code> (los de <code>@CacheEvict</code> y los manuales) se aplica
+ * aquí de inmediato, como antes, y además se anota en <code>CACHE_INVALIDACION</code> al confirmarse la
+ * transacción: si se anotara antes, otro nodo podría volver a cachear el dato viejo entre su invalidación
+ * y el commit. Todo lo que invalide una misma transacción se escribe en un solo batch. Los demás nodos
+ * leen esa tabla cada segundo ({@link CacheInvalidacionWorker}) y aplican lo que no sea suyo.</p>
+ *
+ * <p>Si la anotación falla (BD caída), el otro nodo se queda con la entrada hasta su TTL; no se tumba
+ * la operación que invalidaba.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+public class CacheManagerDistribuido implements CacheManager {
+
+    /** Lo que se vuelve a leer hacia atrás en cada sondeo, por commits tardíos y relojes desfasados. */
+    static final Duration MARGEN = Duration.ofSeconds(5);
+
+    /** Filas por sondeo; si se llenan se limpian completos los cachés distribuidos para no perder nada. */
+    static final int LIMITE = 5_000;
+
+    /** Largo de la columna <code>llave</code>; las llaves más largas invalidan el caché completo. */
+    private static final int LARGO_LLAVE = 255;
+
+    /** Llaves de un caché por transacción; con más se anota el caché completo (una fila). */
+    static final int MAX_LLAVES = 1_000;
+
+    private final CacheManager local;
+    private final Set<String> distribuidos;
+    private final CacheInvalidacionRepository repository;
+    private final TransactionTemplate nuevaTx;
+    private final String nodo;
+    private final Map<String, Cache> envueltos = new ConcurrentHashMap<>();
+
+    /** Hora (de la BD) de la invalidación más nueva ya leída. */
+    private LocalDateTime cursor;
+    /** Ids leídos dentro del margen, para no aplicar dos veces la misma fila. */
+    private final Map<Long, LocalDateTime> vistos = new HashMap<>();
+
+    public CacheManagerDistribuido(CacheManager local,
+                                   Collection<String> distribuidos,
+                                   CacheInvalidacionRepository repository,
+                                   PlatformTransactionManager transactionManager,
+                                   String nodo) {
+        this.local = local;
+        this.distribuidos = Set.copyOf(distribuidos);
+        this.repository = repository;
+        this.nodo = nodo;
+        // Se escribe después del commit: ahí ya no se puede usar la transacción que invalidó
+        this.nuevaTx = new TransactionTemplate(transactionManager);
+        this.nuevaTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = local.getCache(name);
+        if (cache == null || !distribuidos.contains(name)) return cache;
+        return envueltos.computeIfAbsent(name, n -> new CacheDistribuido(cache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return local.getCacheNames();
+    }
+
+    /** @return Identificador de este nodo en la bitácora. */
+    public String getNodo() {
+        return nodo;
+    }
+
+    /**
+     * Lee las invalidaciones de los demás nodos desde el último sondeo y las aplica en local.
+     * @return Invalidaciones aplicadas
+     */
+    public synchronized int sondear() {
+        if (cursor == null) {
+            // Lo de antes de arrancar no importa: el caché local empezó vacío
+            cursor = repository.ahora();
+            return 0;
+        }
+
+        List<CacheInvalidacionRepository.Invalidacion> filas = repository.desde(cursor.minus(MARGEN), LIMITE);
+        // Se juntan por caché para recorrer cada uno una sola vez; un null en las llaves = caché completo
+        Map<String, Set<String>> porCache = new HashMap<>();
+        int aplicadas = 0;
+        for (CacheInvalidacionRepository.Invalidacion f : filas) {
+            if (f.creadoEn().isAfter(cursor)) cursor = f.creadoEn();
+            if (vistos.putIfAbsent(f.id(), f.creadoEn()) != null || nodo.equals(f.nodo())) continue;
+            porCache.computeIfAbsent(f.cache(), c -> new HashSet<>()).add(f.llave());
+            aplicadas++;
+        }
+        if (filas.size() == LIMITE) {
+            // Más de lo que cabe en un sondeo: se pudieron quedar filas sin leer
+            log.warn("Más de {} invalidaciones de caché en {}s; se limpian completos {}", LIMITE, MARGEN.toSeconds(), distribuidos);
+            distribuidos.forEach(n -> porCache.put(n, Collections.singleton(null)));
+        }
+        porCache.forEach(this::aplicarRemota);
+        LocalDateTime limite = cursor.minus(MARGEN);
+        vistos.values().removeIf(t -> t.isBefore(limite));
+        return aplicadas;
+    }
+
+    /**
+     * Borra de la bitácora lo que ya leyeron todos los nodos.
+     * @param antiguedad Edad a partir de la cual se borra
+     * @return Filas borradas
+     */
+    public int purgar(Duration antiguedad) {
+        return repository.purgar(repository.ahora().minus(antiguedad));
+    }
+
+    /** Aplica en local invalidaciones de otros nodos, sin volver a anotarlas. */
+    private void aplicarRemota(String nombre, Set<String> llaves) {
+        Cache cache = local.getCache(nombre);
+        if (cache == null) return;
+        if (llaves.contains(null)) {
+            cache.invalidate();
+            return;
+        }
+        // La llave viaja como texto: se busca la que se vea igual (Long 42 -> "42")
+        if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine)
+            caffeine.asMap().keySet().removeIf(k -> llaves.contains(String.valueOf(k)));
+        else
+            cache.invalidate();
+    }
+
+    private void anotar(String nombre, Object llave) {
+        String texto = llave == null ? null : String.valueOf(llave);
+        String fila = texto != null && texto.length() > LARGO_LLAVE ? null : texto;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            escribir(Collections.singletonList(new Object[]{nombre, fila, nodo}));
+            return;
+        }
+        // Se busca entre las sincronizaciones (no como recurso del hilo) para que una REQUIRES_NEW tenga las suyas
+        Pendientes pendientes = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(s -> s instanceof Pendientes p && p.manager() == this)
+                .map(Pendientes.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    Pendientes p = new Pendientes();
+                    TransactionSynchronizationManager.registerSynchronization(p);
+                    return p;
+                });
+        pendientes.agregar(nombre, fila);
+    }
+
+    private void escribir(List<Object[]> filas) {
+        try {
+            nuevaTx.executeWithoutResult(status -> repository.registrar(filas));
+        } catch (DataAccessException e) {
+            log.warn("No se pudo avisar a los demás nodos {} invalidación(es) de caché: {}", filas.size(), e.getMessage());
+        }
+    }
+
+    /** Invalidaciones de una transacción; se escriben juntas al confirmarse. Un null en las llaves = caché completo. */
+    private final class Pendientes implements TransactionSynchronization {
+
+        private final Map<String, Set<String>> porCache = new LinkedHashMap<>();
+
+        private CacheManagerDistribuido manager() {
+            return CacheManagerDistribuido.this;
+        }
+
+        private void agregar(String nombre, String llave) {
+            Set<String> llaves = porCache.computeIfAbsent(nombre, n -> new LinkedHashSet<>());
+            if (llaves.contains(null)) return;
+            if (llave == null || llaves.size() >= MAX_LLAVES) {
+                llaves.clear();
+                llaves.add(null);
+            } else {
+                llaves.add(llave);
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            List<Object[]> filas = new ArrayList<>();
+            porCache.forEach((nombre, llaves) -> llaves.forEach(llave -> filas.add(new Object[]{nombre, llave, nodo})));
+            escribir(filas);
+        }
+    }
+
+    /** Caché local que además anota sus invalidaciones; lo demás pasa directo. */
+    private final class CacheDistribuido implements Cache {
+
+        private final Cache delegado;
+
+        private CacheDistribuido(Cache delegado) {
+            this.delegado = delegado;
+        }
+
+        @Override
+        public String getName() {
+            return delegado.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return delegado.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return delegado.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return delegado.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return delegado.get(key, valueLoader);
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            return delegado.retrieve(key);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            return delegado.retrieve(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            delegado.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return delegado.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            delegado.evict(key);
+            anotar(getName(), key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean estaba = delegado.evictIfPresent(key);
+            anotar(getName(), key);
+            return estaba;
+        }
+
+        @Override
+        public void clear() {
+            delegado.clear();
+            anotar(getName(), null);
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean habia = delegado.invalidate();
+            anotar(getName(), null);
+            return habia;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package mx.edu.utez.kernel.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import mx.edu.utez.kernel.ApiResponse;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Estadísticas de los cachés (aciertos, fallos, desalojos y peso ocupado) para monitoreo.
+ * Acceso: solo administradores.
+ *
+ * @author Ithera Team
+ */
+@RestController
+@RequestMapping("/api/admin/caches")
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private final CacheManager cacheManager;
+
+    /**
+     * Foto de un caché.
+     * @param pesoBytes Peso estimado de lo que hay ahora
+     * @param pesoMaxBytes Tope de peso configurado
+     * @param tasaAciertos Aciertos / peticiones (1.0 si no ha habido peticiones)
+     */
+    public record EstadisticasCache(String nombre, long entradas, long pesoBytes, long pesoMaxBytes,
+                                    long aciertos, long fallos, double tasaAciertos,
+                                    long desalojos, long pesoDesalojado) {}
+
+    @GetMapping
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<ApiResponse> estadisticas() {
+        List<EstadisticasCache> stats = cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                // Por el nativo: los cachés distribuidos vienen envueltos (CacheManagerDistribuido)
+                .filter(c -> c.getNativeCache() instanceof Cache)
+                .map(c -> estadisticas(c.getName(), (Cache<Object, Object>) c.getNativeCache()))
+                .toList();
+        return ResponseEntity.ok(new ApiResponse("OK", stats, HttpStatus.OK));
+    }
+
+    private static EstadisticasCache estadisticas(String nombre, Cache<Object, Object> cache) {
+        CacheStats s = cache.stats();
+        Policy.Eviction<Object, Object> eviction = cache.policy().eviction().orElse(null);
+        long peso = eviction != null ? eviction.weightedSize().orElse(0L) : 0L;
+        long pesoMax = eviction != null ? eviction.getMaximum() : 0L;
+        return new EstadisticasCache(nombre, cache.estimatedSize(), peso, pesoMax,
+                s.hitCount(), s.missCount(), s.hitRate(), s.evictionCount(), s.evictionWeight());
+    }
+}
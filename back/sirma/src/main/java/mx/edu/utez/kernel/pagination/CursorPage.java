@@ -0,0 +1,79 @@
+package mx.edu.utez.kernel.pagination;
+
+import mx.edu.utez.util.CustomException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página por cursor (keyset): en lugar de <code>OFFSET</code> + <code>COUNT(*)</code>, cada página pide
+ * <code>WHERE id &lt; :cursor ORDER BY id DESC LIMIT n</code>, que cuesta lo mismo en la página 1 que
+ * en la 40 000. El cursor es opaco para el cliente: solo lo regresa tal cual en <code>?after=</code>.
+ *
+ * <p>Se pide una fila de más para saber si hay siguiente página sin contar la tabla.</p>
+ *
+ * @param content Elementos de la página (id descendente)
+ * @param size Tamaño pedido
+ * @param nextCursor Cursor para la siguiente página, o null si esta es la última
+ * @param hasNext Si hay más elementos después de esta página
+ * @author Ithera Team
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor, boolean hasNext) {
+
+    /** Tamaño máximo de página en modo cursor. */
+    public static final int MAX_SIZE = 200;
+
+    private static final String PREFIJO = "id:";
+
+    /**
+     * Arma la página a partir de las filas leídas con {@link #limite(int)} (una de más).
+     * @param filas Filas leídas, ya en orden de id descendente
+     * @param size Tamaño pedido
+     * @param id Cómo sacar el id de cada fila
+     */
+    public static <T> CursorPage<T> of(List<T> filas, int size, Function<T, Long> id) {
+        int tamano = tamano(size);
+        boolean hayMas = filas.size() > tamano;
+        List<T> contenido = hayMas ? filas.subList(0, tamano) : filas;
+        String siguiente = hayMas ? codificar(id.apply(contenido.getLast())) : null;
+        return new CursorPage<>(List.copyOf(contenido), tamano, siguiente, hayMas);
+    }
+
+    /** Mismo paginado con el contenido ya convertido (p. ej. a DTO). */
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(content.stream().map(mapper).toList(), size, nextCursor, hasNext);
+    }
+
+    /** Filas a pedir a la BD: el tamaño de página más una para saber si hay siguiente. */
+    public static Limit limite(int size) {
+        return Limit.of(tamano(size) + 1);
+    }
+
+    /**
+     * Id a partir del cual seguir (exclusivo). Vacío = primera página.
+     * @throws CustomException 400 si el cursor no es uno que hayamos emitido
+     */
+    public static long decodificar(String after) {
+        if (after == null || after.isBlank()) return Long.MAX_VALUE;
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+            if (!texto.startsWith(PREFIJO)) throw new IllegalArgumentException();
+            return Long.parseLong(texto.substring(PREFIJO.length()));
+        } catch (IllegalArgumentException e) {
+            throw new CustomException("Cursor de paginación inválido", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    public static String codificar(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIJO + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int tamano(int size) {
+        return Math.clamp(size, 1, MAX_SIZE);
+    }
+}
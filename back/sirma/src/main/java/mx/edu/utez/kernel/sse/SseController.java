@@ -12,8 +12,9 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
  * Los clientes web se suscriben aquí y reciben eventos cuando
  * cambia el estado de activos, reportes o mantenimientos.
  *
- * Acceso: público (el evento solo indica "algo cambió", no expone datos sensibles).
- * Los clientes con token válido vuelven a llamar al API para obtener los datos.
+ * Acceso: público (el evento solo indica "algo cambió", no expone datos sensibles; los de
+ * trabajos largos llevan solo el id del trabajo). Los clientes con token válido vuelven a
+ * llamar al API para obtener los datos.
  */
 @RestController
 @RequestMapping("/api/eventos")
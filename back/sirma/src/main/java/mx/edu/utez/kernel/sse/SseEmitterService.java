@@ -9,6 +9,7 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -46,13 +47,34 @@ public class SseEmitterService {
      * @param evento Nombre del evento SSE (ej. "inventario")
      */
     public void notificar(String evento) {
+        notificar(evento, System.currentTimeMillis());
+    }
+
+    /**
+     * Aviso de que un trabajo largo (importación, pregeneración de QRs) avanzó o terminó, solo con su id.
+     * El canal es público, así que el avance en sí (archivo, conteos, errores) no viaja aquí: el admin
+     * que lo está siguiendo lo pide al endpoint del trabajo, que sí exige su rol.
+     * @param evento Nombre del evento SSE (ej. "importacion")
+     * @param id     Identificador del trabajo
+     */
+    public void notificarTrabajo(String evento, String id) {
+        notificar(evento, Map.of("id", id));
+    }
+
+    /**
+     * Envía un evento con un cuerpo propio a todos los clientes conectados.
+     * Lo recibe cualquiera que esté suscrito: no debe llevar datos que no verían por el API.
+     * @param evento Nombre del evento SSE (ej. "inventario")
+     * @param data   Objeto que se serializa como JSON en el evento
+     */
+    public void notificar(String evento, Object data) {
         if (emitters.isEmpty()) return;
         List<SseEmitter> muertos = new ArrayList<>();
         for (SseEmitter emitter : emitters) {
             try {
                 emitter.send(SseEmitter.event()
                         .name(evento)
-                        .data(System.currentTimeMillis()));
+                        .data(data));
             } catch (Exception e) {
                 muertos.add(emitter);
             }
@@ -0,0 +1,298 @@
+package mx.edu.utez.modules.core.assets;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.modules.core.assets.projections.AssetsProjection;
+import mx.edu.utez.modules.core.assets.utils.AssetEstados;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Contadores de activos vigentes en <code>ACTIVO_CONTADOR</code> (global, por tipo y por campus) para que
+ * el dashboard y el catálogo de tipos lean una fila en vez de agrupar toda la tabla <code>ACTIVO</code>.
+ *
+ * <p>Cada cambio de estado, ubicación, tipo o vigencia pasa por {@link #registrar}: se lee lo que aportaban
+ * los activos tocados antes del cambio, se aplica, se vuelve a leer y solo la diferencia se suma a los
+ * contadores, en la misma transacción. Así no importa si el cambio fue un UPDATE puntual, uno en bloque
+ * o un <code>save</code> de la entidad.</p>
+ *
+ * <p>Lo que no pasa por aquí (p. ej. mover un edificio de campus) lo corrige {@link #reconciliar()},
+ * que los vuelve a derivar de <code>ACTIVO</code> una vez al día.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Component
+public class ActivoContadores {
+
+    /** Nivel al que se cuenta: todo el inventario, un tipo de activo o un campus. */
+    public enum Ambito { GLOBAL, TIPO, CAMPUS }
+
+    /** Contadores de un ámbito; también sirve como {@link AssetsProjection} para el dashboard. */
+    public record Totales(long total, long disponibles, long resguardados, long enMantenimiento, long reportados)
+            implements AssetsProjection {
+
+        public static final Totales CERO = new Totales(0, 0, 0, 0, 0);
+
+        /** Copia null-safe de una proyección de la BD. */
+        public static Totales de(AssetsProjection p) {
+            return new Totales(valor(p.getTotal()), valor(p.getDisponibles()), valor(p.getResguardados()),
+                    valor(p.getEnMantenimiento()), valor(p.getReportados()));
+        }
+
+        public Totales mas(Totales o) {
+            return new Totales(total + o.total, disponibles + o.disponibles, resguardados + o.resguardados,
+                    enMantenimiento + o.enMantenimiento, reportados + o.reportados);
+        }
+
+        public Totales menos(Totales o) {
+            return new Totales(total - o.total, disponibles - o.disponibles, resguardados - o.resguardados,
+                    enMantenimiento - o.enMantenimiento, reportados - o.reportados);
+        }
+
+        public boolean esCero() {
+            return equals(CERO);
+        }
+
+        @Override public Long getTotal() { return total; }
+        @Override public Long getDisponibles() { return disponibles; }
+        @Override public Long getResguardados() { return resguardados; }
+        @Override public Long getEnMantenimiento() { return enMantenimiento; }
+        @Override public Long getReportados() { return reportados; }
+
+        private static long valor(Long v) {
+            return v == null ? 0L : v;
+        }
+    }
+
+    /** Fila de <code>ACTIVO_CONTADOR</code>; el orden natural es el orden en que se bloquean. */
+    private record Clave(Ambito ambito, long id) implements Comparable<Clave> {
+        @Override
+        public int compareTo(Clave o) {
+            int c = ambito.compareTo(o.ambito);
+            return c != 0 ? c : Long.compare(id, o.id);
+        }
+    }
+
+    /** Orden de {@link #inicializar()} entre los listeners de arranque; los que leen contadores van después. */
+    static final int ORDEN_INICIALIZAR = 0;
+
+    /** Ids por consulta al leer el aporte de muchos activos (el IN no debe crecer sin tope). */
+    private static final int BLOQUE_IDS = 1_000;
+
+    /**
+     * Aporte de los activos vigentes que cumplan la condición, agrupado por todo lo que decide
+     * a qué filas y columnas suman. Sin espacio (o sin edificio) no aportan a ningún campus.
+     */
+    private static final String APORTE = """
+            SELECT a.id_tipo_activo, ed.id_campus, a.estado_custodia, a.estado_operativo, COUNT(*) AS n
+            FROM ACTIVO a
+            LEFT JOIN ESPACIO es ON es.id_espacio = a.id_espacio
+            LEFT JOIN EDIFICIO ed ON ed.id_edificio = es.id_edificio
+            WHERE a.es_activo = true AND %s
+            GROUP BY a.id_tipo_activo, ed.id_campus, a.estado_custodia, a.estado_operativo""";
+
+    private static final String SUMAR = """
+            INSERT INTO ACTIVO_CONTADOR (ambito, id_ambito, total, disponibles, resguardados, en_mantenimiento, reportados)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE total = total + ?, disponibles = disponibles + ?, resguardados = resguardados + ?,
+                                    en_mantenimiento = en_mantenimiento + ?, reportados = reportados + ?""";
+
+    private static final String COLUMNAS = """
+            SELECT ambito, id_ambito, total, disponibles, resguardados, en_mantenimiento, reportados
+            FROM ACTIVO_CONTADOR""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate reconciliacionTx;
+
+    public ActivoContadores(JdbcTemplate jdbcTemplate,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        // READ COMMITTED: el recálculo debe ver lo confirmado después de bloquear los contadores,
+        // no la foto del inicio de la transacción
+        this.reconciliacionTx = new TransactionTemplate(transactionManager);
+        this.reconciliacionTx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    /**
+     * Aplica un cambio sobre esos activos y ajusta los contadores con lo que movió.
+     * Debe llamarse dentro de la transacción del cambio y antes de que la entidad modificada
+     * se haya guardado (la lectura de "antes" va directo a la BD).
+     *
+     * @param ids Activos que toca el cambio
+     * @param cambio UPDATE o <code>save</code> a aplicar
+     */
+    public void registrar(Collection<Long> ids, Runnable cambio) {
+        if (ids.isEmpty()) {
+            cambio.run();
+            return;
+        }
+        Map<Clave, Totales> antes = leer(ids);
+        cambio.run();
+        entityManager.flush();
+        aplicar(diferencia(leer(ids), antes));
+    }
+
+    /**
+     * Igual que {@link #registrar(Collection, Runnable)} para un cambio en bloque sobre todo un tipo de activo.
+     * @param tipoActivoId Tipo cuyos activos se modifican
+     * @param cambio UPDATE a aplicar
+     */
+    public void registrarPorTipo(Long tipoActivoId, Runnable cambio) {
+        Map<Clave, Totales> antes = leer("a.id_tipo_activo = ?", tipoActivoId);
+        cambio.run();
+        entityManager.flush();
+        aplicar(diferencia(leer("a.id_tipo_activo = ?", tipoActivoId), antes));
+    }
+
+    /**
+     * Suma a los contadores activos recién insertados o reactivados (antes no aportaban nada).
+     * @param ids Activos ya guardados
+     */
+    public void sumar(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        entityManager.flush();
+        aplicar(leer(ids));
+    }
+
+    /**
+     * Contadores globales.
+     * @return Totales, o null si la tabla aún no se ha llenado
+     */
+    public Totales global() {
+        return leerAmbito(Ambito.GLOBAL, List.of(0L)).get(0L);
+    }
+
+    /**
+     * Contadores de varios tipos o campus.
+     * @param ambito TIPO o CAMPUS
+     * @param ids Ids de los tipos o campus
+     * @return Totales por id (los que no tengan fila no vienen)
+     */
+    public Map<Long, Totales> leerAmbito(Ambito ambito, Collection<Long> ids) {
+        if (ids.isEmpty()) return Map.of();
+        String marcas = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(ambito.name());
+        args.addAll(ids);
+
+        Map<Long, Totales> totales = new HashMap<>();
+        jdbcTemplate.query(COLUMNAS + " WHERE ambito = ? AND id_ambito IN (" + marcas + ")",
+                rs -> {
+                    totales.put(rs.getLong("id_ambito"), new Totales(rs.getLong("total"), rs.getLong("disponibles"),
+                            rs.getLong("resguardados"), rs.getLong("en_mantenimiento"), rs.getLong("reportados")));
+                },
+                args.toArray());
+        return totales;
+    }
+
+    /**
+     * Al arrancar, si la tabla está vacía (recién creada), se llena desde <code>ACTIVO</code>.
+     * Va con orden fijo ({@link #ORDEN_INICIALIZAR}) para que lo que lee los contadores al arrancar corra después.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(ORDEN_INICIALIZAR)
+    public void inicializar() {
+        try {
+            if (global() == null) reconciliar();
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron revisar los contadores de activos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Vuelve a derivar los contadores de <code>ACTIVO</code> y corrige los que se hayan desfasado.
+     * Primero bloquea las filas de contadores: los cambios que lleguen mientras tanto esperan y suman su
+     * diferencia encima del recálculo, y los confirmados antes ya salen en él.
+     */
+    @Scheduled(cron = "${app.activos.contadores.reconciliacion:0 30 3 * * *}")
+    public void reconciliar() {
+        try {
+            Integer corregidos = reconciliacionTx.execute(status -> {
+                Map<Clave, Totales> guardados = new HashMap<>();
+                jdbcTemplate.query(COLUMNAS + " ORDER BY ambito, id_ambito FOR UPDATE", rs -> {
+                    guardados.put(new Clave(Ambito.valueOf(rs.getString("ambito")), rs.getLong("id_ambito")),
+                            new Totales(rs.getLong("total"), rs.getLong("disponibles"), rs.getLong("resguardados"),
+                                    rs.getLong("en_mantenimiento"), rs.getLong("reportados")));
+                });
+                Map<Clave, Totales> ajustes = diferencia(leer("1 = 1"), guardados);
+                // Que siempre exista la fila global, aunque no haya activos
+                if (!guardados.containsKey(new Clave(Ambito.GLOBAL, 0L)))
+                    ajustes.putIfAbsent(new Clave(Ambito.GLOBAL, 0L), Totales.CERO);
+                aplicar(ajustes);
+                return ajustes.size();
+            });
+            if (corregidos != null && corregidos > 0)
+                log.info("Contadores de activos: {} fila(s) corregida(s)", corregidos);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron reconciliar los contadores de activos: {}", e.getMessage());
+        }
+    }
+
+    private Map<Clave, Totales> leer(Collection<Long> ids) {
+        List<Long> lista = new ArrayList<>(ids);
+        Map<Clave, Totales> aporte = new TreeMap<>();
+        for (int i = 0; i < lista.size(); i += BLOQUE_IDS) {
+            List<Long> bloque = lista.subList(i, Math.min(i + BLOQUE_IDS, lista.size()));
+            String marcas = String.join(",", Collections.nCopies(bloque.size(), "?"));
+            leer("a.id_activo IN (" + marcas + ")", bloque.toArray()).forEach((k, v) -> aporte.merge(k, v, Totales::mas));
+        }
+        return aporte;
+    }
+
+    private Map<Clave, Totales> leer(String condicion, Object... args) {
+        Map<Clave, Totales> aporte = new TreeMap<>();
+        jdbcTemplate.query(APORTE.formatted(condicion), rs -> {
+            Totales t = aporte(rs.getString("estado_custodia"), rs.getString("estado_operativo"), rs.getLong("n"));
+            aporte.merge(new Clave(Ambito.GLOBAL, 0L), t, Totales::mas);
+            aporte.merge(new Clave(Ambito.TIPO, rs.getLong("id_tipo_activo")), t, Totales::mas);
+            long campus = rs.getLong("id_campus");
+            if (!rs.wasNull()) aporte.merge(new Clave(Ambito.CAMPUS, campus), t, Totales::mas);
+        }, args);
+        return aporte;
+    }
+
+    /** Mismas categorías que {@code AssetsRepository.findAssetsStatsGlobal}. */
+    private static Totales aporte(String custodia, String operativo, long n) {
+        return new Totales(n,
+                AssetEstados.CUSTODIA_DISPONIBLE.equalsIgnoreCase(custodia) ? n : 0,
+                AssetEstados.CUSTODIA_RESGUARDADO.equalsIgnoreCase(custodia) ? n : 0,
+                AssetEstados.OPERATIVO_MANTENIMIENTO.equalsIgnoreCase(operativo) ? n : 0,
+                AssetEstados.OPERATIVO_REPORTADO.equalsIgnoreCase(operativo) ? n : 0);
+    }
+
+    /** despues - antes por fila, sin las que quedaron igual; en orden de {@link Clave}. */
+    private static Map<Clave, Totales> diferencia(Map<Clave, Totales> despues, Map<Clave, Totales> antes) {
+        Map<Clave, Totales> delta = new TreeMap<>(despues);
+        antes.forEach((k, v) -> delta.merge(k, Totales.CERO.menos(v), Totales::mas));
+        delta.values().removeIf(Totales::esCero);
+        return delta;
+    }
+
+    /**
+     * Suma los ajustes con un upsert por fila. Siempre en el mismo orden (global, tipos, campus)
+     * para que dos transacciones que tocan las mismas filas no se bloqueen en cruz.
+     */
+    private void aplicar(Map<Clave, Totales> ajustes) {
+        if (ajustes.isEmpty()) return;
+        List<Object[]> filas = new ArrayList<>(ajustes.size());
+        new TreeMap<>(ajustes).forEach((k, t) -> filas.add(new Object[]{
+                k.ambito().name(), k.id(),
+                t.total(), t.disponibles(), t.resguardados(), t.enMantenimiento(), t.reportados(),
+                t.total(), t.disponibles(), t.resguardados(), t.enMantenimiento(), t.reportados()}));
+        jdbcTemplate.batchUpdate(SUMAR, filas);
+    }
+}
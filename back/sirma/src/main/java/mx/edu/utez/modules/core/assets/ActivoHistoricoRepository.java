@@ -0,0 +1,124 @@
+package mx.edu.utez.modules.core.assets;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Acceso por JDBC a <code>ACTIVO_HISTORICO</code>: la foto diaria de {@link ActivoContadores}.
+ * Todo lo que se lee de aquí es por rango de la llave (ámbito, id, fecha), sin tocar <code>ACTIVO</code>.
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class ActivoHistoricoRepository {
+
+    /** Contadores de un ámbito en una fecha. */
+    public record Punto(LocalDate fecha, ActivoContadores.Ambito ambito, long idAmbito,
+                        long total, long disponibles, long resguardados, long enMantenimiento, long reportados) {
+
+        public ActivoContadores.Totales totales() {
+            return new ActivoContadores.Totales(total, disponibles, resguardados, enMantenimiento, reportados);
+        }
+    }
+
+    private static final String CAPTURAR = """
+            INSERT INTO ACTIVO_HISTORICO (ambito, id_ambito, fecha, total, disponibles, resguardados, en_mantenimiento, reportados)
+            SELECT ambito, id_ambito, ?, total, disponibles, resguardados, en_mantenimiento, reportados
+            FROM ACTIVO_CONTADOR""";
+
+    private static final String COLUMNAS = """
+            SELECT fecha, ambito, id_ambito, total, disponibles, resguardados, en_mantenimiento, reportados
+            FROM ACTIVO_HISTORICO""";
+
+    private static final RowMapper<Punto> MAPPER = (rs, i) -> new Punto(
+            rs.getObject("fecha", LocalDate.class),
+            ActivoContadores.Ambito.valueOf(rs.getString("ambito")),
+            rs.getLong("id_ambito"),
+            rs.getLong("total"),
+            rs.getLong("disponibles"),
+            rs.getLong("resguardados"),
+            rs.getLong("en_mantenimiento"),
+            rs.getLong("reportados"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Indica si ya hay foto de ese día (se revisa con la fila global, que siempre existe).
+     * @param fecha Día de la foto
+     * @return true si ya se capturó
+     */
+    public boolean existe(LocalDate fecha) {
+        Integer n = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ACTIVO_HISTORICO WHERE ambito = 'GLOBAL' AND id_ambito = 0 AND fecha = ?",
+                Integer.class, Date.valueOf(fecha));
+        return n != null && n > 0;
+    }
+
+    /**
+     * Copia los contadores actuales como la foto del día.
+     * @param fecha Día de la foto
+     * @return Filas escritas (una por ámbito)
+     */
+    public int capturar(LocalDate fecha) {
+        return jdbcTemplate.update(CAPTURAR, Date.valueOf(fecha));
+    }
+
+    /**
+     * Borra la foto de un día para volver a tomarla.
+     * @param fecha Día de la foto
+     */
+    public void borrar(LocalDate fecha) {
+        jdbcTemplate.update("DELETE FROM ACTIVO_HISTORICO WHERE fecha = ?", Date.valueOf(fecha));
+    }
+
+    /**
+     * Borra las fotos viejas.
+     * @param antesDe Se borran las fechas anteriores a esta
+     * @return Filas borradas
+     */
+    public int purgar(LocalDate antesDe) {
+        return jdbcTemplate.update("DELETE FROM ACTIVO_HISTORICO WHERE fecha < ?", Date.valueOf(antesDe));
+    }
+
+    /**
+     * Última foto de un ámbito en o antes de una fecha.
+     * @param ambito GLOBAL, TIPO o CAMPUS
+     * @param idAmbito Id del tipo o campus (0 para GLOBAL)
+     * @param fecha Fecha tope (inclusiva)
+     * @return La foto, si hay alguna
+     */
+    public Optional<Punto> ultimoAl(ActivoContadores.Ambito ambito, long idAmbito, LocalDate fecha) {
+        return jdbcTemplate.query(COLUMNAS + " WHERE ambito = ? AND id_ambito = ? AND fecha <= ? ORDER BY fecha DESC LIMIT 1",
+                MAPPER, ambito.name(), idAmbito, Date.valueOf(fecha)).stream().findFirst();
+    }
+
+    /**
+     * Serie diaria de un ámbito entre dos fechas.
+     * @param ambito GLOBAL, TIPO o CAMPUS
+     * @param idAmbito Id del tipo o campus; null trae todos los del ámbito
+     * @param desde Fecha inicial (inclusiva)
+     * @param hasta Fecha final (inclusiva)
+     * @return Puntos ordenados por id y fecha
+     */
+    public List<Punto> rango(ActivoContadores.Ambito ambito, Long idAmbito, LocalDate desde, LocalDate hasta) {
+        List<Object> args = new ArrayList<>(List.of(ambito.name()));
+        String sql = COLUMNAS + " WHERE ambito = ?";
+        if (idAmbito != null) {
+            sql += " AND id_ambito = ?";
+            args.add(idAmbito);
+        }
+        sql += " AND fecha BETWEEN ? AND ? ORDER BY id_ambito, fecha";
+        args.add(Date.valueOf(desde));
+        args.add(Date.valueOf(hasta));
+        return jdbcTemplate.query(sql, MAPPER, args.toArray());
+    }
+}
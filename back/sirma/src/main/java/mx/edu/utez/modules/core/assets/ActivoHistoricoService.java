@@ -0,0 +1,123 @@
+package mx.edu.utez.modules.core.assets;
+
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.kernel.ApiResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Foto diaria del inventario y tendencias a partir de ella.
+ * Al cierre de cada día se copian los contadores de {@link ActivoContadores} a <code>ACTIVO_HISTORICO</code>;
+ * así "cómo estaba la semana pasada" se lee de una fila en vez de adivinarlo con la fecha de alta
+ * (que no dice nada de en qué estado estaba cada activo).
+ *
+ * <p>Si ningún nodo estaba arriba a la hora del cierre, al arrancar se toma la foto de hoy (la de cierre
+ * la reemplaza después). Los días anteriores que se perdieron se quedan sin foto: los contadores de ahora
+ * ya no son los de aquel cierre y no se inventan. La tendencia simplemente no trae esos puntos y la
+ * comparación semanal del dashboard usa la foto más cercana anterior ({@code ultimoAl}).</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Service
+public class ActivoHistoricoService {
+
+    /** Días máximos que se pueden pedir en una tendencia. */
+    static final int MAX_DIAS = 366;
+
+    private final ActivoHistoricoRepository activoHistoricoRepository;
+    private final int diasRetencion;
+
+    public ActivoHistoricoService(ActivoHistoricoRepository activoHistoricoRepository,
+                                  @Value("${app.activos.historico.dias:730}") int diasRetencion) {
+        this.activoHistoricoRepository = activoHistoricoRepository;
+        this.diasRetencion = diasRetencion;
+    }
+
+    /**
+     * Captura la foto de cierre de hoy y borra las que pasaron la retención. Reemplaza la que se haya
+     * tomado al arrancar; si dos nodos corren a la vez, las dos fotos salen de los mismos contadores.
+     * Si algo falla se revierte todo, incluido el borrado: mejor la foto anterior de hoy que ninguna.
+     */
+    @Scheduled(cron = "${app.activos.historico.captura:0 55 23 * * *}")
+    @Transactional
+    public void capturar() {
+        LocalDate hoy = LocalDate.now();
+        try {
+            activoHistoricoRepository.borrar(hoy);
+            int filas = activoHistoricoRepository.capturar(hoy);
+            int borradas = activoHistoricoRepository.purgar(hoy.minusDays(diasRetencion));
+            log.info("Histórico de activos {}: {} fila(s) capturada(s), {} vieja(s) borrada(s)", hoy, filas, borradas);
+        } catch (DuplicateKeyException e) {
+            // El repositorio es JDBC directo: sin esto se confirmaría el borrado de la foto de hoy
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.debug("La foto de activos de {} ya la tomó otro nodo", hoy);
+        } catch (DataAccessException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.warn("No se pudo capturar el histórico de activos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Al arrancar toma la foto de hoy si aún no hay, por si el nodo no alcanza a llegar al cierre
+     * (o estuvo caído en el de ayer y no quedó ninguna reciente). Sin transacción: es un solo INSERT y,
+     * si la BD no responde, el arranque no debe fallar por esto. Corre después de
+     * {@link ActivoContadores#inicializar()}, que en el primer despliegue llena los contadores.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(ActivoContadores.ORDEN_INICIALIZAR + 1)
+    public void capturarAlArrancar() {
+        LocalDate hoy = LocalDate.now();
+        try {
+            if (activoHistoricoRepository.existe(hoy)) return;
+            int filas = activoHistoricoRepository.capturar(hoy);
+            if (filas > 0) log.info("Histórico de activos {}: foto tomada al arrancar ({} fila(s))", hoy, filas);
+        } catch (DuplicateKeyException e) {
+            log.debug("La foto de activos de {} ya la tomó otro nodo", hoy);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo capturar el histórico de activos al arrancar: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Serie diaria de contadores de un ámbito.
+     *
+     * @param ambito GLOBAL, TIPO o CAMPUS
+     * @param id Id del tipo o campus; sin él trae todos los del ámbito (se ignora en GLOBAL)
+     * @param desde Fecha inicial; por defecto hace 30 días
+     * @param hasta Fecha final; por defecto hoy
+     * @return ApiResponse con los puntos ordenados por id y fecha
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse tendencia(String ambito, Long id, LocalDate desde, LocalDate hasta) {
+        ActivoContadores.Ambito a;
+        try {
+            a = ActivoContadores.Ambito.valueOf(ambito.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return new ApiResponse("Ámbito no válido. Usa GLOBAL, TIPO o CAMPUS", true, HttpStatus.BAD_REQUEST);
+        }
+        LocalDate fin = hasta != null ? hasta : LocalDate.now();
+        LocalDate inicio = desde != null ? desde : fin.minusDays(30);
+        if (inicio.isAfter(fin))
+            return new ApiResponse("La fecha inicial no puede ser posterior a la final", true, HttpStatus.BAD_REQUEST);
+        if (ChronoUnit.DAYS.between(inicio, fin) >= MAX_DIAS)
+            return new ApiResponse("El rango no puede pasar de " + MAX_DIAS + " días", true, HttpStatus.BAD_REQUEST);
+
+        Long idAmbito = a == ActivoContadores.Ambito.GLOBAL ? Long.valueOf(0L) : id;
+        return new ApiResponse("Tendencia de activos",
+                activoHistoricoRepository.rango(a, idAmbito, inicio, fin), HttpStatus.OK);
+    }
+}
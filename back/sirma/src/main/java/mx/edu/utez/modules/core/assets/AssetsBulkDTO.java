@@ -0,0 +1,43 @@
+package mx.edu.utez.modules.core.assets;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Petición de una operación masiva sobre activos (<code>POST /api/activos/bulk</code>).
+ * Según la operación se usan unos u otros campos; los que no apliquen se ignoran.
+ *
+ * @author Ithera Team
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class AssetsBulkDTO {
+
+    /** Operaciones que se pueden aplicar en bloque. */
+    public enum Operacion { MOVER_ESPACIO, CAMBIAR_ESTADO, DESACTIVAR, REACTIVAR }
+
+    /** Qué se les hace a los activos. */
+    @NotNull
+    private Operacion operacion;
+
+    /** Activos a los que se aplica; los repetidos cuentan una vez. */
+    @NotEmpty
+    @Size(max = AssetsBulkService.MAX_IDS)
+    private List<Long> ids;
+
+    /** Espacio destino (solo MOVER_ESPACIO). */
+    private Long idEspacio;
+
+    /** No se acepta: la custodia solo cambia con un resguardo. Si viene, la petición se rechaza. */
+    private String estadoCustodia;
+
+    /** Nuevo estado operativo (solo CAMBIAR_ESTADO). */
+    private String estadoOperativo;
+}
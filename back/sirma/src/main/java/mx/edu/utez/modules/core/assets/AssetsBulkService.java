@@ -0,0 +1,202 @@
+package mx.edu.utez.modules.core.assets;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.kernel.sse.SseEmitterService;
+import mx.edu.utez.modules.core.assets.utils.AssetEstados;
+import mx.edu.utez.modules.core.qr.QRService;
+import mx.edu.utez.modules.location.espacios.EspacioRepository;
+import mx.edu.utez.modules.security.auth.user_details.UserDetailsImp;
+import mx.edu.utez.security.jwt.JwtProvider;
+import mx.edu.utez.util.CustomException;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Operaciones masivas sobre activos (mover de espacio, cambiar estado, desactivar y reactivar).
+ * Por operación se hace un solo UPDATE, un solo batch de bitácora, una sola invalidación de caché
+ * (solo las llaves de esos activos, más las páginas) y un solo evento SSE, sin importar cuántos activos sean.
+ *
+ * <p>Los activos que no existen o a los que la operación no les cambia nada se omiten y se reportan
+ * en la respuesta; no hacen fallar a los demás.</p>
+ *
+ * <p>La custodia no se cambia en bloque: la lleva {@code ResguardoService} junto con su fila de
+ * <code>RESGUARDO</code>. Por lo mismo, los activos con un resguardo vigente no se desactivan aquí.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@AllArgsConstructor
+@Service
+public class AssetsBulkService {
+
+    /** Activos máximos por operación. */
+    static final int MAX_IDS = 5_000;
+
+    private static final List<String> OPERATIVOS = List.of(AssetEstados.OPERATIVO_OK, AssetEstados.OPERATIVO_REPORTADO,
+            AssetEstados.OPERATIVO_MANTENIMIENTO, AssetEstados.OPERATIVO_BAJA);
+
+    /**
+     * Resumen de la operación.
+     * @param solicitados Ids distintos recibidos
+     * @param afectados Activos que sí cambiaron
+     * @param omitidos Ids que no existen, que ya estaban así o que tienen resguardo vigente
+     * @param conResguardo De los omitidos, los que no se tocaron por tener resguardo vigente
+     */
+    public record Resultado(AssetsBulkDTO.Operacion operacion, int solicitados, int afectados,
+                            List<Long> omitidos, List<Long> conResguardo) {}
+
+    private final AssetsBulkWriter assetsBulkWriter;
+    private final EspacioRepository espacioRepository;
+    private final ActivoContadores activoContadores;
+    private final CacheManager cacheManager;
+    private final SseEmitterService sseEmitterService;
+    private final JwtProvider jwtProvider;
+    private final QRService qrService;
+
+    /**
+     * Aplica la operación a todos los activos en una sola transacción.
+     *
+     * @param dto Operación, ids y los datos que pida la operación
+     * @return ApiResponse con un {@link Resultado}
+     */
+    @Transactional
+    public ApiResponse aplicar(AssetsBulkDTO dto) {
+        List<Long> ids = dto.getIds() == null ? List.of()
+                : dto.getIds().stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty())
+            return new ApiResponse("No se enviaron activos", true, HttpStatus.BAD_REQUEST);
+        if (ids.size() > MAX_IDS)
+            return new ApiResponse("Máximo " + MAX_IDS + " activos por operación", true, HttpStatus.BAD_REQUEST);
+
+        if (dto.getEstadoCustodia() != null)
+            return new ApiResponse("La custodia no se cambia en bloque; se asigna o libera con un resguardo", true, HttpStatus.BAD_REQUEST);
+
+        String operativo = null;
+        switch (dto.getOperacion()) {
+            case MOVER_ESPACIO -> {
+                if (dto.getIdEspacio() == null)
+                    return new ApiResponse("Indica el espacio destino", true, HttpStatus.BAD_REQUEST);
+                if (!espacioRepository.existsById(dto.getIdEspacio()))
+                    return new ApiResponse("Espacio no encontrado", true, HttpStatus.NOT_FOUND);
+            }
+            case CAMBIAR_ESTADO -> {
+                if (dto.getEstadoOperativo() == null)
+                    return new ApiResponse("Indica el estado operativo", true, HttpStatus.BAD_REQUEST);
+                operativo = canonico(dto.getEstadoOperativo(), OPERATIVOS);
+                if (operativo == null)
+                    return new ApiResponse("Estado operativo no válido. Usa " + String.join(", ", OPERATIVOS), true, HttpStatus.BAD_REQUEST);
+            }
+            default -> { }
+        }
+
+        Long usuarioId = jwtProvider.getCurrentUser().map(UserDetailsImp::getId)
+                .orElseThrow(() -> new CustomException("Usuario no encontrado", HttpStatus.UNAUTHORIZED));
+
+        // Solo los que cambian: así el UPDATE, la bitácora y la caché no tocan lo que ya estaba igual
+        String nuevoOperativo = operativo;
+        Predicate<AssetsBulkWriter.Estado> aplica = switch (dto.getOperacion()) {
+            case MOVER_ESPACIO -> a -> a.esActivo() && !dto.getIdEspacio().equals(a.idEspacio());
+            case CAMBIAR_ESTADO -> a -> a.esActivo() && !nuevoOperativo.equals(a.estadoOperativo());
+            case DESACTIVAR -> AssetsBulkWriter.Estado::esActivo;
+            case REACTIVAR -> a -> !a.esActivo();
+        };
+        List<AssetsBulkWriter.Estado> candidatos = assetsBulkWriter.bloquear(ids).stream().filter(aplica).toList();
+
+        // Desactivar deja la custodia en Disponible: no se libera así un activo que alguien tiene resguardado
+        Set<Long> conResguardo = dto.getOperacion() == AssetsBulkDTO.Operacion.DESACTIVAR
+                ? assetsBulkWriter.conResguardoVigente(candidatos.stream().map(AssetsBulkWriter.Estado::id).toList())
+                : Set.of();
+        List<AssetsBulkWriter.Estado> afectados = candidatos.stream().filter(a -> !conResguardo.contains(a.id())).toList();
+        List<Long> idsAfectados = afectados.stream().map(AssetsBulkWriter.Estado::id).toList();
+
+        Set<Long> omitidos = new LinkedHashSet<>(ids);
+        idsAfectados.forEach(omitidos::remove);
+        Resultado resultado = new Resultado(dto.getOperacion(), ids.size(), idsAfectados.size(), List.copyOf(omitidos),
+                ids.stream().filter(conResguardo::contains).toList());
+        if (idsAfectados.isEmpty())
+            return new ApiResponse("Ningún activo requería cambios", resultado, HttpStatus.OK);
+
+        List<AssetsBulkWriter.Evento> eventos = new ArrayList<>(afectados.size());
+        switch (dto.getOperacion()) {
+            case MOVER_ESPACIO -> {
+                activoContadores.registrar(idsAfectados, () -> assetsBulkWriter.moverEspacio(idsAfectados, dto.getIdEspacio()));
+                afectados.forEach(a -> eventos.add(new AssetsBulkWriter.Evento(a, "Actualizacion Activo",
+                        "Activo movido al espacio " + dto.getIdEspacio() + " (operación masiva)",
+                        a.estadoCustodia(), a.estadoOperativo())));
+            }
+            case CAMBIAR_ESTADO -> {
+                activoContadores.registrar(idsAfectados, () -> assetsBulkWriter.cambiarEstadoOperativo(idsAfectados, nuevoOperativo));
+                afectados.forEach(a -> eventos.add(new AssetsBulkWriter.Evento(a, "Actualizacion Activo",
+                        "Cambio de estado operativo (operación masiva)",
+                        a.estadoCustodia(), nuevoOperativo)));
+            }
+            case DESACTIVAR -> {
+                activoContadores.registrar(idsAfectados, () -> assetsBulkWriter.desactivar(idsAfectados));
+                // Como la baja individual, sin QR publicado; Cloudinary lo borra el worker del outbox
+                qrService.retirarQrs(idsAfectados);
+                afectados.forEach(a -> eventos.add(new AssetsBulkWriter.Evento(a, "Baja Aprobada",
+                        "Activo dado de baja (desactivado, operación masiva)",
+                        AssetEstados.CUSTODIA_DISPONIBLE, a.estadoOperativo())));
+            }
+            case REACTIVAR -> {
+                activoContadores.registrar(idsAfectados, () -> assetsBulkWriter.reactivar(idsAfectados));
+                afectados.forEach(a -> eventos.add(new AssetsBulkWriter.Evento(a, "Actualizacion Activo",
+                        "Activo reactivado (operación masiva)",
+                        a.estadoCustodia(), a.estadoOperativo())));
+            }
+        }
+        assetsBulkWriter.insertarBitacora(eventos, usuarioId);
+
+        evictar(idsAfectados, dto.getOperacion() == AssetsBulkDTO.Operacion.DESACTIVAR);
+        notificarAlConfirmar();
+        log.info("Operación masiva {}: {} activo(s) afectado(s), {} omitido(s)", dto.getOperacion(), idsAfectados.size(), omitidos.size());
+        return new ApiResponse("Operación aplicada", resultado, HttpStatus.OK);
+    }
+
+    /**
+     * Quita de la caché solo esos activos; las páginas sí completas (cualquiera pudo incluirlos).
+     * @param conQr También sus QRs (en la baja, como {@code QRService.deleteQrByAssetId})
+     */
+    private void evictar(List<Long> ids, boolean conQr) {
+        Cache assets = cacheManager.getCache("assets");
+        if (assets != null) ids.forEach(assets::evict);
+        if (conQr) {
+            for (String nombre : List.of("qr_images", "qr_pdfs")) {
+                Cache qr = cacheManager.getCache(nombre);
+                if (qr != null) ids.forEach(qr::evict);
+            }
+        }
+        Cache paginas = cacheManager.getCache("assets_page");
+        if (paginas != null) paginas.clear();
+    }
+
+    /** Un solo aviso "inventario", después del commit para que el cliente que recargue ya vea los cambios. */
+    private void notificarAlConfirmar() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sseEmitterService.notificar("inventario");
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sseEmitterService.notificar("inventario");
+            }
+        });
+    }
+
+    /** El valor de la lista que coincide sin importar mayúsculas, o null si no está. */
+    private static String canonico(String valor, List<String> validos) {
+        String v = valor.trim();
+        return validos.stream().filter(x -> x.equalsIgnoreCase(v)).findFirst().orElse(null);
+    }
+}
@@ -0,0 +1,147 @@
+package mx.edu.utez.modules.core.assets;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Escritura de las operaciones masivas sobre activos por JDBC directo: un solo UPDATE por operación
+ * (<code>WHERE id_activo IN (...)</code>) y la bitácora en un solo batch, en lugar de cargar y guardar
+ * cada entidad. Corre dentro de la transacción del servicio (misma conexión que JPA).
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class AssetsBulkWriter {
+
+    private static final String INSERT_BITACORA = """
+            INSERT INTO BITACORA (id_activo, id_usuario, tipo_evento, descripcion,
+                                  estado_custodia_anterior, estado_custodia_nuevo,
+                                  estado_operativo_anterior, estado_operativo_nuevo)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    /**
+     * Cómo estaba un activo antes de la operación.
+     * @param idEspacio Espacio actual (para no "mover" al mismo lugar)
+     */
+    public record Estado(long id, String etiqueta, Long idEspacio, String estadoCustodia,
+                         String estadoOperativo, boolean esActivo) {}
+
+    /**
+     * Renglón de bitácora de un activo afectado.
+     * @param antes Estado previo del activo
+     */
+    public record Evento(Estado antes, String tipoEvento, String descripcion,
+                         String estadoCustodiaNuevo, String estadoOperativoNuevo) {}
+
+    private static final RowMapper<Estado> MAPPER = (rs, i) -> new Estado(
+            rs.getLong("id_activo"),
+            rs.getString("etiqueta"),
+            rs.getObject("id_espacio", Long.class),
+            rs.getString("estado_custodia"),
+            rs.getString("estado_operativo"),
+            rs.getBoolean("es_activo"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Lee y bloquea (<code>FOR UPDATE</code>) los activos, para que nadie los cambie entre que se decide
+     * a cuáles aplica la operación y el UPDATE.
+     * @param ids Ids sin repetir; los que no existan simplemente no vienen
+     * @return Estado actual de cada activo encontrado
+     */
+    public List<Estado> bloquear(Collection<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        return jdbcTemplate.query("""
+                SELECT id_activo, etiqueta, id_espacio, estado_custodia, estado_operativo, es_activo
+                FROM ACTIVO WHERE id_activo IN (%s) FOR UPDATE""".formatted(marcas(ids)), MAPPER, ids.toArray());
+    }
+
+    /**
+     * De esos activos, los que tienen un resguardo vigente (Pendiente o Confirmado).
+     * @param ids Ids sin repetir
+     * @return Ids con resguardo vigente
+     */
+    public Set<Long> conResguardoVigente(Collection<Long> ids) {
+        if (ids.isEmpty()) return Set.of();
+        return new HashSet<>(jdbcTemplate.queryForList("""
+                SELECT DISTINCT id_activo FROM RESGUARDO
+                WHERE id_activo IN (%s) AND estado_resguardo IN ('Pendiente', 'Confirmado')""".formatted(marcas(ids)),
+                Long.class, ids.toArray()));
+    }
+
+    /** Mueve los activos al espacio en un solo UPDATE. */
+    public int moverEspacio(Collection<Long> ids, long idEspacio) {
+        return actualizar("id_espacio = ?", List.of(idEspacio), ids);
+    }
+
+    /**
+     * Cambia el estado operativo en un solo UPDATE. La custodia no se toca aquí: esa la lleva
+     * el resguardo.
+     */
+    public int cambiarEstadoOperativo(Collection<Long> ids, String estadoOperativo) {
+        return actualizar("estado_operativo = ?", List.of(estadoOperativo), ids);
+    }
+
+    /** Baja lógica en un solo UPDATE; igual que la individual, la custodia vuelve a Disponible. */
+    public int desactivar(Collection<Long> ids) {
+        return actualizar("es_activo = FALSE, estado_custodia = 'Disponible'", List.of(), ids);
+    }
+
+    /** Reactiva los activos en un solo UPDATE. */
+    public int reactivar(Collection<Long> ids) {
+        return actualizar("es_activo = TRUE", List.of(), ids);
+    }
+
+    /**
+     * Registra en bitácora un renglón por activo afectado, en un solo batch.
+     * @param eventos Un evento por activo
+     * @param usuarioId Usuario que lanzó la operación
+     */
+    public void insertarBitacora(List<Evento> eventos, Long usuarioId) {
+        if (eventos.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(INSERT_BITACORA, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Evento e = eventos.get(i);
+                ps.setLong(1, e.antes().id());
+                ps.setLong(2, usuarioId);
+                ps.setString(3, e.tipoEvento());
+                ps.setString(4, e.descripcion());
+                ps.setString(5, e.antes().estadoCustodia());
+                ps.setString(6, e.estadoCustodiaNuevo());
+                ps.setString(7, e.antes().estadoOperativo());
+                ps.setString(8, e.estadoOperativoNuevo());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return eventos.size();
+            }
+        });
+    }
+
+    private int actualizar(String set, List<Object> valores, Collection<Long> ids) {
+        if (ids.isEmpty()) return 0;
+        List<Object> args = new ArrayList<>(valores);
+        args.addAll(ids);
+        return jdbcTemplate.update("UPDATE ACTIVO SET " + set + " WHERE id_activo IN (" + marcas(ids) + ")", args.toArray());
+    }
+
+    private static String marcas(Collection<?> ids) {
+        return String.join(",", Collections.nCopies(ids.size(), "?"));
+    }
+}
@@ -7,11 +7,19 @@ import mx.edu.utez.util.QrPayloadCodec;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,16 +33,90 @@ import java.util.concurrent.TimeUnit;
 public class AssetsController {
 
     private final AssetsService assetsService;
+    private final AssetsExportService assetsExportService;
     private final QrPayloadCodec qrPayloadCodec;
+    private final ActivoHistoricoService activoHistoricoService;
+    private final AssetsBulkService assetsBulkService;
 
     /**
      * Recupera una lista paginada de activos activos.
      * @param pageable Configuración de paginación y ordenamiento.
+     * @param after Cursor opaco de la página anterior; si viene (aunque sea vacío) se pagina por cursor, sin COUNT, usando solo <code>size</code>.
      * @return ResponseEntity con la lista de activos.
      */
     @GetMapping
-    public ResponseEntity<ApiResponse> findAll(@PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
-        ApiResponse response = assetsService.findAll(pageable);
+    public ResponseEntity<ApiResponse> findAll(@PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
+                                               @RequestParam(required = false) String after) {
+        ApiResponse response = after != null
+                ? assetsService.findAll(after, pageable.getPageSize())
+                : assetsService.findAll(pageable);
+        return ResponseEntity.status(response.getStatus())
+                .cacheControl(CacheControl.noStore().mustRevalidate())
+                .body(response);
+    }
+
+    /**
+     * Exporta el inventario (activos habilitados) con el mismo layout de columnas de la importación.
+     * La respuesta se escribe conforme se lee la BD, sin armar el archivo completo en memoria.
+     * @param format <code>xlsx</code> (default) o <code>csv</code>
+     * @param campusId Filtro opcional por campus
+     * @param edificioId Filtro opcional por edificio
+     * @param tipoId Filtro opcional por tipo de activo
+     * @param estados Filtro opcional por estado de custodia u operativo (se pueden mandar varios)
+     * @return Archivo descargable
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> export(@RequestParam(defaultValue = "xlsx") String format,
+                                    @RequestParam(required = false) Long campusId,
+                                    @RequestParam(required = false) Long edificioId,
+                                    @RequestParam(required = false) Long tipoId,
+                                    @RequestParam(required = false) Set<String> estados) {
+        AssetsExportService.Filtros filtros = new AssetsExportService.Filtros(campusId, edificioId, tipoId, estados);
+        String nombre = "inventario-" + LocalDate.now();
+
+        if ("csv".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> assetsExportService.exportarCsv(filtros, out);
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + nombre + ".csv\"")
+                    .body(body);
+        }
+
+        if (!"xlsx".equalsIgnoreCase(format))
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse("Formato no soportado. Usa xlsx o csv", true, HttpStatus.BAD_REQUEST));
+
+        StreamingResponseBody body = out -> assetsExportService.exportarXlsx(filtros, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + nombre + ".xlsx\"")
+                .body(body);
+    }
+
+    /**
+     * Busca activos vigentes combinando filtros; los que no vengan no aplican.
+     * Etiqueta y serie buscan por prefijo (ej. <code>etiqueta=LAHPADU-1</code>).
+     * @param pageable Configuración de paginación y ordenamiento.
+     * @param after Cursor opaco de la página anterior; si viene se pagina por cursor, sin COUNT.
+     * @return ResponseEntity con la página de activos encontrados.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse> search(@PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
+                                              @RequestParam(required = false) String etiqueta,
+                                              @RequestParam(required = false) String serie,
+                                              @RequestParam(required = false) Long tipoId,
+                                              @RequestParam(required = false) String marca,
+                                              @RequestParam(required = false) Long campusId,
+                                              @RequestParam(required = false) Long edificioId,
+                                              @RequestParam(required = false) Long espacioId,
+                                              @RequestParam(required = false) String estadoCustodia,
+                                              @RequestParam(required = false) String estadoOperativo,
+                                              @RequestParam(required = false) String after) {
+        AssetsSpecifications.Filtros filtros = new AssetsSpecifications.Filtros(etiqueta, serie, tipoId, marca,
+                campusId, edificioId, espacioId, estadoCustodia, estadoOperativo);
+        ApiResponse response = after != null
+                ? assetsService.search(filtros, after, pageable.getPageSize())
+                : assetsService.search(filtros, pageable);
         return ResponseEntity.status(response.getStatus())
                 .cacheControl(CacheControl.noStore().mustRevalidate())
                 .body(response);
@@ -55,6 +137,16 @@ public class AssetsController {
         }
     }
 
+    /**
+     * Resuelve varios tokens escaneados en una sola petición (una sola consulta a BD).
+     * El resultado trae una entrada por token, en el mismo orden, con el activo o el error.
+     */
+    @PostMapping("/qr/resolver/batch")
+    public ResponseEntity<ApiResponse> resolveQrPayloadBatch(@RequestBody List<String> tokens) {
+        ApiResponse res = assetsService.resolverQrLote(tokens);
+        return ResponseEntity.status(res.getStatus()).body(res);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse> findById(@PathVariable Long id) {
         ApiResponse response = assetsService.findById(id);
@@ -73,6 +165,24 @@ public class AssetsController {
         return new ResponseEntity<>(response, response.getStatus());
     }
 
+    /**
+     * Tendencia diaria de los contadores (total, disponibles, resguardados, en mantenimiento, reportados),
+     * leída del histórico que se captura cada noche.
+     * @param ambito GLOBAL, TIPO o CAMPUS
+     * @param id Id del tipo o campus; sin él vienen todos los del ámbito
+     * @param desde Fecha inicial (yyyy-MM-dd), por defecto hace 30 días
+     * @param hasta Fecha final (yyyy-MM-dd), por defecto hoy
+     * @return ResponseEntity con un punto por ámbito y día
+     */
+    @GetMapping("/tendencias")
+    public ResponseEntity<ApiResponse> getTendencias(@RequestParam(defaultValue = "GLOBAL") String ambito,
+                                                     @RequestParam(required = false) Long id,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        ApiResponse response = activoHistoricoService.tendencia(ambito, id, desde, hasta);
+        return new ResponseEntity<>(response, response.getStatus());
+    }
+
     /**
      * Registra un nuevo activo.
      * @param dto Datos del activo a registrar.
@@ -96,6 +206,18 @@ public class AssetsController {
         return new ResponseEntity<>(response, response.getStatus());
     }
 
+    /**
+     * Aplica una operación a muchos activos de una vez (mover de espacio, cambiar estado, desactivar o reactivar).
+     * Los ids que no existen o que ya estaban así se omiten y se devuelven en el resumen.
+     * @param dto Operación, ids (máximo 5000) y los datos que pida la operación.
+     * @return ResponseEntity con el resumen de afectados y omitidos.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiResponse> bulk(@Valid @RequestBody AssetsBulkDTO dto) {
+        ApiResponse response = assetsBulkService.aplicar(dto);
+        return new ResponseEntity<>(response, response.getStatus());
+    }
+
     /**
      * Cambia el estatus de un activo a inactivo (baja lógica).
      * @param id Identificador del activo.
@@ -0,0 +1,174 @@
+package mx.edu.utez.modules.core.assets;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.modules.core.assets.projections.AssetsExportRow;
+import mx.edu.utez.modules.core.imports.ImportColumnas;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Exportación del inventario completo a .xlsx o .csv.
+ * Las columnas A–H son las mismas de la plantilla de importación (para que lo exportado se pueda
+ * volver a subir) y después van etiqueta y estados, que el importador ignora.
+ *
+ * <p>Se lee por bloques con keyset (id &gt; último) y proyección plana, cada bloque en su propia
+ * consulta corta, y se va escribiendo a la respuesta: SXSSF para Excel (ventana de filas en memoria,
+ * el resto a temporal) o directo al writer para CSV. La memoria no depende del tamaño del inventario.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Service
+@AllArgsConstructor
+public class AssetsExportService {
+
+    /** Filas por consulta. */
+    private static final int BLOQUE = 1000;
+
+    /** Filas de Excel que se mantienen en memoria antes de bajarlas a disco. */
+    private static final int VENTANA_FILAS = 200;
+
+    private static final List<String> COLUMNAS_EXTRA = List.of("Etiqueta", "Estado custodia", "Estado operativo");
+
+    private final AssetsRepository assetsRepository;
+
+    /**
+     * Filtros de la exportación; los que vienen en null no aplican.
+     * @param campusId Solo activos de este campus
+     * @param edificioId Solo activos de este edificio
+     * @param tipoId Solo activos de este tipo
+     * @param estados Estados de custodia u operativos aceptados (vacío = todos)
+     */
+    public record Filtros(Long campusId, Long edificioId, Long tipoId, Set<String> estados) {}
+
+    /**
+     * Escribe la exportación en formato .xlsx.
+     * @param filtros Filtros de la exportación
+     * @param out Stream de la respuesta
+     */
+    public void exportarXlsx(Filtros filtros, OutputStream out) throws IOException {
+        // close() también borra los temporales de las filas ya bajadas a disco
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(VENTANA_FILAS)) {
+            workbook.setCompressTempFiles(true);
+            SXSSFSheet hoja = workbook.createSheet("Activos");
+
+            CellStyle negritas = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setBold(true);
+            negritas.setFont(font);
+
+            List<String> encabezados = encabezados();
+            Row encabezado = hoja.createRow(0);
+            for (int i = 0; i < encabezados.size(); i++) {
+                encabezado.createCell(i).setCellValue(encabezados.get(i));
+                encabezado.getCell(i).setCellStyle(negritas);
+            }
+
+            int[] fila = {1};
+            int total = recorrer(filtros, a -> {
+                Row row = hoja.createRow(fila[0]++);
+                String[] valores = valores(a);
+                for (int i = 0; i < valores.length; i++)
+                    row.createCell(i).setCellValue(valores[i]);
+            });
+
+            workbook.write(out);
+            log.info("Exportación xlsx: {} activo(s)", total);
+        }
+    }
+
+    /**
+     * Escribe la exportación en formato .csv (UTF-8 con BOM para que Excel respete los acentos).
+     * Los valores que Excel tomaría como fórmula (empiezan con =, +, -, @, tab o CR) van con un <code>'</code> al inicio.
+     * @param filtros Filtros de la exportación
+     * @param out Stream de la respuesta
+     */
+    public void exportarCsv(Filtros filtros, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+        escribirCsv(writer, encabezados().toArray(String[]::new));
+
+        int total = recorrer(filtros, a -> {
+            try {
+                escribirCsv(writer, valores(a));
+            } catch (IOException e) {
+                // El cliente cortó la descarga
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        writer.flush();
+        log.info("Exportación csv: {} activo(s)", total);
+    }
+
+    /**
+     * Recorre todos los activos que cumplen los filtros, bloque por bloque.
+     * @return Total de filas recorridas
+     */
+    private int recorrer(Filtros filtros, Consumer<AssetsExportRow> consumidor) {
+        Collection<String> estados = filtros.estados() == null ? Set.of() : filtros.estados();
+        boolean filtrarEstados = !estados.isEmpty();
+        // Un IN vacío no es válido en todas las BD; si no se filtra se manda un valor de relleno
+        Collection<String> parametroEstados = filtrarEstados ? estados : List.of("");
+
+        long after = 0;
+        int total = 0;
+        List<AssetsExportRow> bloque;
+        do {
+            bloque = assetsRepository.findExportChunk(after, filtros.campusId(), filtros.edificioId(),
+                    filtros.tipoId(), filtrarEstados, parametroEstados, Limit.of(BLOQUE));
+            bloque.forEach(consumidor);
+            total += bloque.size();
+            if (!bloque.isEmpty())
+                after = bloque.getLast().id();
+        } while (bloque.size() == BLOQUE);
+        return total;
+    }
+
+    private static List<String> encabezados() {
+        List<String> encabezados = new ArrayList<>(ImportColumnas.ENCABEZADOS);
+        encabezados.addAll(COLUMNAS_EXTRA);
+        return encabezados;
+    }
+
+    /** Valores en el orden de {@link #encabezados()}. */
+    private static String[] valores(AssetsExportRow a) {
+        return new String[]{
+                a.numeroSerie(), a.campus(), a.tipoActivo(), a.marca(), a.tipoBien(), a.modelo(),
+                a.edificio(), a.espacio(), a.etiqueta(), a.estadoCustodia(), a.estadoOperativo()
+        };
+    }
+
+    private static void escribirCsv(Writer writer, String[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) writer.write(',');
+            String v = valores[i] == null ? "" : valores[i];
+            // Excel evalúa como fórmula la celda que empieza así (ej. una serie "=HYPERLINK(...)"); con ' queda como texto
+            if (!v.isEmpty() && "=+-@\t\r".indexOf(v.charAt(0)) >= 0)
+                v = "'" + v;
+            if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0)
+                v = '"' + v.replace("\"", "\"\"") + '"';
+            writer.write(v);
+        }
+        writer.write("\r\n");
+    }
+}
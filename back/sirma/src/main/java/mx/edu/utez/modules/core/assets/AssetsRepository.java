@@ -1,28 +1,34 @@
 package mx.edu.utez.modules.core.assets;
 
+import mx.edu.utez.modules.core.assets.projections.AssetsExportRow;
+import mx.edu.utez.modules.core.assets.projections.QrLabelRow;
 import mx.edu.utez.modules.core.assets.projections.AssetsProjection;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 /**
- * Repositorio de datos JPA para la entidad Activos.
+ * Repositorio de datos JPA para la entidad Activos (también acepta Specifications, ver {@link AssetsSpecifications}).
  * Ejecuta operaciones CRUD y consultas avanzadas sobre las propiedades de cada activo,
  * incluyendo actualización optimizada de estados.
  *
  * @author Ithera Team
  */
 @Repository
-public interface AssetsRepository extends JpaRepository<Assets, Long> {
+public interface AssetsRepository extends JpaRepository<Assets, Long>, JpaSpecificationExecutor<Assets> {
 
     /**
      * Actualiza solo estado_custodia sin tocar el resto de columnas (evita Data truncated).
@@ -79,6 +85,17 @@ public interface AssetsRepository extends JpaRepository<Assets, Long> {
            "  AND r.estadoResguardo IN ('Pendiente', 'Confirmado'))")
     void liberarCustodiaDeEmpleado(@Param("empleadoId") Long empleadoId);
 
+    /**
+     * Ids de los activos que {@link #liberarCustodiaDeEmpleado(Long)} va a liberar.
+     *
+     * @param empleadoId ID del empleado.
+     * @return Ids de los activos bajo su custodia (resguardo Pendiente o Confirmado).
+     */
+    @Query("SELECT r.activo.id FROM Resguardo r " +
+           "WHERE r.usuarioEmpleado.id = :empleadoId " +
+           "AND r.estadoResguardo IN ('Pendiente', 'Confirmado')")
+    List<Long> findIdsBajoCustodiaDeEmpleado(@Param("empleadoId") Long empleadoId);
+
     /**
      * Busca un activo utilizando su etiqueta única.
      *
@@ -111,21 +128,33 @@ public interface AssetsRepository extends JpaRepository<Assets, Long> {
      */
     boolean existsByNumeroSerie(String numeroSerie);
 
+    /**
+     * Comprueba que el activo exista y siga vigente (no dado de baja).
+     *
+     * @param id Identificador del activo.
+     * @return booleano true si existe y está activo.
+     */
+    boolean existsByIdAndEsActivoTrue(Long id);
+
     /**
      * Configura y extrae un listado paginado filtrando únicamente por elementos activos.
+     * Tipo y ubicación completa vienen en el mismo SELECT (sin él, cada relación EAGER era otra consulta por fila).
      *
      * @param pageable Configuración de paginación.
      * @return Página de activos correspondientes.
      */
+    @EntityGraph(attributePaths = {"tipoActivo", "espacio", "espacio.edificio", "espacio.edificio.campus"})
     Page<Assets> findByEsActivoTrue(Pageable pageable);
 
     /**
-     * Cuenta la cantidad de activos activos agrupados por su respectivo tipo de activo.
+     * Mismo listado que {@link #findByEsActivoTrue(Pageable)} pero por cursor (keyset): sin OFFSET ni COUNT.
      *
-     * @return Lista de objetos de conteo donde el primer elemento es el id de tipo activo.
+     * @param cursor Id a partir del cual seguir (exclusivo).
+     * @param limit Filas a leer.
+     * @return Activos con id menor al cursor, del más nuevo al más viejo.
      */
-    @Query("SELECT a.tipoActivo.id, COUNT(a) FROM Assets a WHERE a.esActivo = true GROUP BY a.tipoActivo.id")
-    List<Object[]> countActiveAssetsByTipoActivoId();
+    @EntityGraph(attributePaths = {"tipoActivo", "espacio", "espacio.edificio", "espacio.edificio.campus"})
+    List<Assets> findByEsActivoTrueAndIdLessThanOrderByIdDesc(Long cursor, Limit limit);
 
     /**
      * Localiza etiquetas filtrando por medio de una lista comparada.
@@ -172,9 +201,10 @@ public interface AssetsRepository extends JpaRepository<Assets, Long> {
     AssetsProjection findAssetsStatsGlobal();
 
     /**
-     * Ejecuta sumatorias SQL de rendimiento centradas sobre activos registrados previamente a un periodo especifico.
-     * @param lastWeek La fecha tope a calificar.
-     * @return Resultados con métricas del histórico.
+     * Mismas sumatorias que {@link #findAssetsStatsGlobal()} pero solo de los activos dados de alta desde una fecha.
+     * Con el índice de <code>fecha_alta</code> solo se leen esas altas, no toda la tabla.
+     * @param desde Fecha de alta mínima (inclusiva).
+     * @return Métricas de las altas recientes.
      */
     @Query("""
     SELECT 
@@ -183,8 +213,140 @@ public interface AssetsRepository extends JpaRepository<Assets, Long> {
       SUM(CASE WHEN a.estadoCustodia = 'Resguardado' THEN 1 ELSE 0 END) as resguardados,
       SUM(CASE WHEN a.estadoOperativo = 'Mantenimiento' THEN 1 ELSE 0 END) as enMantenimiento,
       SUM(CASE WHEN a.estadoOperativo = 'Reportado' THEN 1 ELSE 0 END) as reportados
-    FROM Assets a WHERE a.esActivo = true AND a.fechaAlta < :lastWeek
+    FROM Assets a WHERE a.esActivo = true AND a.fechaAlta >= :desde
 """)
-    AssetsProjection findAssetsStatsOfLastWeek(LocalDate lastWeek);
-}
+    AssetsProjection findAssetsStatsDesde(@Param("desde") LocalDate desde);
+
+    /**
+     * Trae un bloque de la exportación por keyset (id mayor al último exportado), ya aplanado.
+     * Los filtros en null no aplican; <code>estados</code> compara contra custodia u operativo.
+     * @param after Último id exportado (0 para empezar)
+     * @param campusId Filtro de campus
+     * @param edificioId Filtro de edificio
+     * @param tipoId Filtro de tipo de activo
+     * @param filtrarEstados true si se debe aplicar <code>estados</code>
+     * @param estados Estados de custodia u operativos aceptados
+     * @param limit Tamaño del bloque
+     * @return Filas ordenadas por id
+     */
+    @Query("""
+    SELECT new mx.edu.utez.modules.core.assets.projections.AssetsExportRow(
+        a.id, a.numeroSerie, c.nombre, t.nombre, t.marca, t.tipoBien, t.modelo,
+        ed.nombre, es.nombreEspacio, a.etiqueta, a.estadoCustodia, a.estadoOperativo)
+    FROM Assets a
+    JOIN a.tipoActivo t
+    JOIN a.espacio es
+    JOIN es.edificio ed
+    JOIN ed.campus c
+    WHERE a.esActivo = true AND a.id > :after
+      AND (:campusId IS NULL OR c.id = :campusId)
+      AND (:edificioId IS NULL OR ed.id = :edificioId)
+      AND (:tipoId IS NULL OR t.id = :tipoId)
+      AND (:filtrarEstados = false OR a.estadoCustodia IN :estados OR a.estadoOperativo IN :estados)
+    ORDER BY a.id
+""")
+    List<AssetsExportRow> findExportChunk(@Param("after") Long after,
+                                          @Param("campusId") Long campusId,
+                                          @Param("edificioId") Long edificioId,
+                                          @Param("tipoId") Long tipoId,
+                                          @Param("filtrarEstados") boolean filtrarEstados,
+                                          @Param("estados") Collection<String> estados,
+                                          Limit limit);
+
+    /**
+     * Bloque de etiquetas QR por ubicación, con keyset sobre el id (solo activos vigentes).
+     * Los filtros en null no aplican.
+     * @param after Último id leído (0 para empezar)
+     * @param campusId Filtro de campus
+     * @param edificioId Filtro de edificio
+     * @param espacioId Filtro de espacio
+     * @param limit Tamaño del bloque
+     * @return Filas ordenadas por id
+     */
+    @Query("""
+    SELECT new mx.edu.utez.modules.core.assets.projections.QrLabelRow(a.id, a.etiqueta, a.qrCodigo)
+    FROM Assets a
+    JOIN a.espacio es
+    JOIN es.edificio ed
+    WHERE a.esActivo = true AND a.id > :after
+      AND (:campusId IS NULL OR ed.campus.id = :campusId)
+      AND (:edificioId IS NULL OR ed.id = :edificioId)
+      AND (:espacioId IS NULL OR es.id = :espacioId)
+    ORDER BY a.id
+""")
+    List<QrLabelRow> findQrLabelChunk(@Param("after") Long after,
+                                      @Param("campusId") Long campusId,
+                                      @Param("edificioId") Long edificioId,
+                                      @Param("espacioId") Long espacioId,
+                                      Limit limit);
+
+    /**
+     * Bloque de activos con payload QR legado (cualquier contenido que no sea el cifrado),
+     * con keyset sobre el id. Incluye los dados de baja.
+     * @param after Último id revisado (0 para empezar)
+     * @param limit Tamaño del bloque
+     * @return Filas ordenadas por id
+     */
+    @Query("""
+    SELECT new mx.edu.utez.modules.core.assets.projections.QrLabelRow(a.id, a.etiqueta, a.qrCodigo)
+    FROM Assets a
+    WHERE a.id > :after AND a.qrCodigo IS NOT NULL AND a.qrCodigo <> ''
+      AND a.qrCodigo NOT LIKE '{"v":2,%'
+    ORDER BY a.id
+""")
+    List<QrLabelRow> findQrLegadoChunk(@Param("after") Long after, Limit limit);
+
+    /** Id más alto de activo (0 si no hay), para saber desde dónde quedó lo que se inserte después. */
+    @Query("SELECT COALESCE(MAX(a.id), 0) FROM Assets a")
+    Long findMaxId();
+
+    /**
+     * Etiquetas QR de activos puntuales, ordenadas por id.
+     * @param ids Ids de los activos
+     * @return Filas de los activos que existen
+     */
+    @Query("""
+    SELECT new mx.edu.utez.modules.core.assets.projections.QrLabelRow(a.id, a.etiqueta, a.qrCodigo)
+    FROM Assets a
+    WHERE a.id IN :ids
+    ORDER BY a.id
+""")
+    List<QrLabelRow> findQrLabelsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Como {@link #findQrLabelsByIdIn} pero solo los vigentes (la hoja de etiquetas no imprime los dados de baja,
+     * igual que {@link #findQrLabelChunk}).
+     * @param ids Ids de los activos
+     * @return Filas de los activos que existen y siguen activos
+     */
+    @Query("""
+    SELECT new mx.edu.utez.modules.core.assets.projections.QrLabelRow(a.id, a.etiqueta, a.qrCodigo)
+    FROM Assets a
+    WHERE a.id IN :ids AND a.esActivo = true
+    ORDER BY a.id
+""")
+    List<QrLabelRow> findQrLabelsVigentesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Comprueba si al menos uno de esos activos sigue vigente.
+     *
+     * @param ids Ids de los activos.
+     * @return booleano true si alguno existe y está activo.
+     */
+    boolean existsByIdInAndEsActivoTrue(Collection<Long> ids);
 
+    /**
+     * Activos con tipo y ubicación completa en una sola consulta (para resolver QRs por lote).
+     * @param ids Ids de los activos
+     * @return Activos encontrados, en cualquier orden
+     */
+    @Query("""
+    SELECT a FROM Assets a
+    JOIN FETCH a.tipoActivo
+    JOIN FETCH a.espacio es
+    JOIN FETCH es.edificio ed
+    JOIN FETCH ed.campus
+    WHERE a.id IN :ids
+""")
+    List<Assets> findAllWithCatalogosByIdIn(@Param("ids") Collection<Long> ids);
+}
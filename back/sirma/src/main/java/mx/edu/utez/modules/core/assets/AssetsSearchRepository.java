@@ -0,0 +1,51 @@
+package mx.edu.utez.modules.core.assets;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Primer paso de la búsqueda de activos: solo los ids que cumplen los filtros, en una consulta
+ * sobre <code>ACTIVO</code> sin joins (ubicación y marca van como subconsultas en
+ * {@link AssetsSpecifications}). Así el optimizador elige el índice del filtro en lugar de
+ * arrancar por los catálogos, y las filas completas se cargan después solo para la página.
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class AssetsSearchRepository {
+
+    private final EntityManager entityManager;
+
+    /**
+     * Ids de la página pedida.
+     * @param spec Filtros de la búsqueda
+     * @param sort Orden (propiedades de <code>Assets</code>, se aceptan rutas como <code>tipoActivo.nombre</code>)
+     * @param offset Filas a saltar
+     * @param limite Filas a leer
+     * @return Ids en el orden pedido
+     */
+    public List<Long> findIds(Specification<Assets> spec, Sort sort, long offset, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Assets> root = query.from(Assets.class);
+
+        query.select(root.get("id"))
+                .where(spec.toPredicate(root, query, cb))
+                .orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
@@ -3,7 +3,9 @@ package mx.edu.utez.modules.core.assets;
 import lombok.AllArgsConstructor;
 
 import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.kernel.pagination.CursorPage;
 import mx.edu.utez.modules.core.assets.projections.AssetsProjection;
+import mx.edu.utez.modules.core.assets.projections.ResguardoActivoRow;
 import mx.edu.utez.modules.location.espacios.Espacio;
 import mx.edu.utez.modules.location.espacios.EspacioRepository;
 import mx.edu.utez.modules.media.imagen_activo.ImagenActivo;
@@ -13,9 +15,13 @@ import mx.edu.utez.modules.core.resguardos.ResguardoRepository;
 import mx.edu.utez.modules.core.tipo_activos.TipoActivo;
 import mx.edu.utez.modules.core.tipo_activos.TipoActivoRepository;
 import mx.edu.utez.modules.core.qr.QRService;
+import mx.edu.utez.util.QrPayloadCodec;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -49,8 +55,14 @@ public class AssetsService {
     // Inyectamos repositorio de imágenes para detalle extendido
     private final ImagenActivoRepository imagenActivoRepository;
     private final QRService qrService;
-
-    private static final String QR_FILENAME = "QR_CODE";
+    private final EtiquetaAllocator etiquetaAllocator;
+    private final QrPayloadCodec qrPayloadCodec;
+    private final AssetsSearchRepository assetsSearchRepository;
+    private final ActivoContadores activoContadores;
+    private final ActivoHistoricoRepository activoHistoricoRepository;
+
+    /** Tokens por petición en la resolución por lote. */
+    private static final int MAX_QR_LOTE = 500;
     private static final List<String> ESTADOS_RESGUARDO_ACTIVO = List.of("Pendiente", "Confirmado");
 
     /**
@@ -63,18 +75,94 @@ public class AssetsService {
     public ApiResponse findAll(Pageable pageable) {
 
         Page<Assets> page = assetsRepository.findByEsActivoTrue(pageable);
-        List<String> estados = List.of("Pendiente", "Confirmado");
 
-        // Mapear cada activo a DTO con su resguardo activo
-        Page<AssetsDTO> dtoPage = page.map(asset -> {
-            AssetsDTO dto = toDTO(asset);
-            enrichWithResguardo(dto);
-            return dto;
-        });
+        // Los resguardos de toda la página en una consulta, no una por activo
+        Map<Long, ResguardoActivoRow> resguardos = resguardosActivos(
+                page.getContent().stream().map(Assets::getId).toList());
+
+        Page<AssetsDTO> dtoPage = page.map(asset -> toListado(asset, resguardos));
 
         return new ApiResponse("OK", dtoPage, HttpStatus.OK);
     }
 
+    /**
+     * Listado de activos por cursor (keyset): sin OFFSET ni COUNT, así las páginas profundas
+     * cuestan lo mismo que la primera.
+     *
+     * @param after Cursor devuelto por la página anterior (vacío = primera página).
+     * @param size Tamaño de página.
+     * @return ApiResponse con un {@link CursorPage} de activos y el cursor de la siguiente página.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse findAll(String after, int size) {
+        CursorPage<Assets> pagina = CursorPage.of(assetsRepository.findByEsActivoTrueAndIdLessThanOrderByIdDesc(
+                CursorPage.decodificar(after), CursorPage.limite(size)), size, Assets::getId);
+
+        Map<Long, ResguardoActivoRow> resguardos = resguardosActivos(
+                pagina.content().stream().map(Assets::getId).toList());
+
+        return new ApiResponse("OK", pagina.map(asset -> toListado(asset, resguardos)), HttpStatus.OK);
+    }
+
+    /**
+     * Búsqueda de activos vigentes por etiqueta o serie (prefijo), tipo, marca, ubicación y estados.
+     *
+     * @param filtros Filtros de la búsqueda; los nulos no aplican.
+     * @param pageable Configuración de paginación y ordenamiento.
+     * @return ApiResponse con la página de activos encontrados.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse search(AssetsSpecifications.Filtros filtros, Pageable pageable) {
+        Specification<Assets> spec = AssetsSpecifications.de(filtros);
+        List<Long> ids = assetsSearchRepository.findIds(spec, pageable.getSort(), pageable.getOffset(), pageable.getPageSize());
+        // El COUNT solo corre si no se puede deducir el total (ej. la última página no se cuenta)
+        Page<Assets> page = PageableExecutionUtils.getPage(cargarEnOrden(ids), pageable, () -> assetsRepository.count(spec));
+        Map<Long, ResguardoActivoRow> resguardos = resguardosActivos(ids);
+        return new ApiResponse("OK", page.map(asset -> toListado(asset, resguardos)), HttpStatus.OK);
+    }
+
+    /**
+     * La misma búsqueda por cursor (sin OFFSET ni COUNT), del activo más nuevo al más viejo.
+     *
+     * @param filtros Filtros de la búsqueda; los nulos no aplican.
+     * @param after Cursor de la página anterior (vacío = primera página).
+     * @param size Tamaño de página.
+     * @return ApiResponse con un {@link CursorPage} de activos.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse search(AssetsSpecifications.Filtros filtros, String after, int size) {
+        // En la primera página no se agrega "id < MAX": con ese rango el optimizador tiende a recorrer la PK
+        // completa en lugar de usar el índice del filtro
+        Specification<Assets> spec = AssetsSpecifications.de(filtros);
+        if (!after.isBlank())
+            spec = spec.and(AssetsSpecifications.antesDe(CursorPage.decodificar(after)));
+        List<Long> ids = assetsSearchRepository.findIds(spec, Sort.by(Sort.Direction.DESC, "id"), 0,
+                CursorPage.limite(size).max());
+        CursorPage<Assets> pagina = CursorPage.of(cargarEnOrden(ids), size, Assets::getId);
+        Map<Long, ResguardoActivoRow> resguardos = resguardosActivos(
+                pagina.content().stream().map(Assets::getId).toList());
+        return new ApiResponse("OK", pagina.map(asset -> toListado(asset, resguardos)), HttpStatus.OK);
+    }
+
+    /** Segundo paso de la búsqueda: las filas de esos ids con tipo y ubicación, en el mismo orden. */
+    private List<Assets> cargarEnOrden(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Long, Assets> porId = new HashMap<>();
+        assetsRepository.findAllWithCatalogosByIdIn(ids).forEach(a -> porId.put(a.getId(), a));
+        return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+    }
+
+    /** DTO del listado con su resguardo activo, si tiene. */
+    private AssetsDTO toListado(Assets asset, Map<Long, ResguardoActivoRow> resguardos) {
+        AssetsDTO dto = toDTO(asset);
+        ResguardoActivoRow r = resguardos.get(asset.getId());
+        if (r != null) {
+            dto.setAsignadoA(r.nombreEmpleado());
+            dto.setIdResguardo(r.idResguardo());
+        }
+        return dto;
+    }
+
     /**
      * Busca un activo por ID y enriquece la respuesta con las URLs de sus imágenes
      * y el resguardo activo asociado.
@@ -99,6 +187,50 @@ public class AssetsService {
         return new ApiResponse("OK", dto, HttpStatus.OK);
     }
 
+    /**
+     * Resuelve varios tokens escaneados de una vez (recorridos de inventario): se descifran todos
+     * y los activos se traen en una sola consulta <code>IN</code>. La respuesta conserva el orden
+     * de los tokens; los inválidos o de activos que no existen llevan su error en lugar de activo.
+     *
+     * @param tokens Tokens opacos (campo {@code p} del QR)
+     * @return ApiResponse con una {@link QrResolucion} por token.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse resolverQrLote(List<String> tokens) {
+        if (tokens == null || tokens.isEmpty())
+            return new ApiResponse("No se enviaron códigos", true, HttpStatus.BAD_REQUEST);
+        if (tokens.size() > MAX_QR_LOTE)
+            return new ApiResponse("Máximo " + MAX_QR_LOTE + " códigos por lote", true, HttpStatus.BAD_REQUEST);
+
+        Long[] ids = new Long[tokens.size()];
+        Set<Long> validos = new HashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                ids[i] = qrPayloadCodec.decode(tokens.get(i));
+                validos.add(ids[i]);
+            } catch (IllegalArgumentException ex) {
+                ids[i] = null;
+            }
+        }
+
+        Map<Long, AssetsDTO> activos = new HashMap<>();
+        if (!validos.isEmpty())
+            assetsRepository.findAllWithCatalogosByIdIn(validos)
+                    .forEach(a -> activos.put(a.getId(), toDTO(a)));
+
+        List<QrResolucion> resultado = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            String token = tokens.get(i);
+            if (ids[i] == null)
+                resultado.add(new QrResolucion(token, null, null, "Código QR no reconocido"));
+            else if (!activos.containsKey(ids[i]))
+                resultado.add(new QrResolucion(token, ids[i], null, "Activo no encontrado"));
+            else
+                resultado.add(new QrResolucion(token, ids[i], activos.get(ids[i]), null));
+        }
+        return new ApiResponse("OK", resultado, HttpStatus.OK);
+    }
+
     /**
      * Enriquece el DTO del activo con las URLs de imágenes de perfil.
      * Excluye la imagen que corresponde al código QR generado.
@@ -110,12 +242,27 @@ public class AssetsService {
 
         // Imágenes Activo (excluyendo QR)
         List<String> perfilImgs = imagenActivoRepository.findByActivoId(dto.getId()).stream()
-                .filter(img -> !QR_FILENAME.equals(img.getNombreArchivo()))
+                .filter(img -> !ImagenActivo.NOMBRE_ARCHIVO_QR.equals(img.getNombreArchivo()))
                 .map(ImagenActivo::getUrlCloudinary)
                 .toList();
         dto.setImagenesPerfil(perfilImgs);
     }
 
+    /**
+     * Resguardo activo (Pendiente o Confirmado) de cada activo, para una página completa.
+     * Si un activo tuviera más de uno se queda el de menor id.
+     *
+     * @param ids Ids de los activos de la página.
+     * @return Id del activo → su resguardo activo.
+     */
+    private Map<Long, ResguardoActivoRow> resguardosActivos(List<Long> ids) {
+        Map<Long, ResguardoActivoRow> resultado = new HashMap<>();
+        if (ids.isEmpty()) return resultado;
+        for (ResguardoActivoRow r : resguardosRepository.findResguardosActivos(ids, ESTADOS_RESGUARDO_ACTIVO))
+            resultado.putIfAbsent(r.idActivo(), r);
+        return resultado;
+    }
+
     /**
      * Enriquece el DTO del activo con el nombre del empleado resguardante activo
      * y el ID del resguardo correspondiente.
@@ -161,7 +308,7 @@ public class AssetsService {
         dto.setEspacio(espacioActual);
 
         Assets entity = new Assets();
-        entity.setEtiqueta(generateProductTag(dto));
+        entity.setEtiqueta(etiquetaAllocator.siguiente(prefijoEtiqueta(dto)));
         entity.setNumeroSerie(truncate(dto.getNumeroSerie(), 100));
         entity.setTipoActivo(tipoActivoActual);
         entity.setEspacio(espacioActual);
@@ -173,6 +320,7 @@ public class AssetsService {
         entity.setFechaAlta(dto.getFechaAlta() != null ? LocalDate.parse(dto.getFechaAlta()) : LocalDate.now());
         entity.setEsActivo(true);
         assetsRepository.save(entity);
+        activoContadores.sumar(List.of(entity.getId()));
         bitacoraService.registrarEvento(
                 entity.getId(), null,
                 "Registro Activo",
@@ -214,7 +362,7 @@ public class AssetsService {
         entity.setCosto(safeCosto(dto.getCosto()));
         entity.setQrCodigo(truncate(dto.getQrCodigo(), 255));
         if (dto.getEsActivo() != null) entity.setEsActivo(dto.getEsActivo());
-        assetsRepository.save(entity);
+        activoContadores.registrar(List.of(id), () -> assetsRepository.save(entity));
         String custNuevo = entity.getEstadoCustodia();
         String opNuevo = entity.getEstadoOperativo();
         bitacoraService.registrarEvento(id, null, "Actualizacion Activo",
@@ -240,7 +388,7 @@ public class AssetsService {
         String opAnt = entity.getEstadoOperativo();
 
         qrService.deleteQrByAssetId(id);
-        assetsRepository.updateEstadoYActivo(id, "Disponible", false);
+        activoContadores.registrar(List.of(id), () -> assetsRepository.updateEstadoYActivo(id, "Disponible", false));
         entity.setEstadoCustodia("Disponible");
         entity.setEsActivo(false);
         bitacoraService.registrarEvento(id, null, "Baja Aprobada",
@@ -251,6 +399,8 @@ public class AssetsService {
     /**
      * Se encarga de juntar las estadisticas de los activos de esta semana vs la semana pasada,
      * para luego calcular el porcentaje de cambio semanal.
+     * Lo actual sale de {@link ActivoContadores} (una fila) y lo de la semana pasada de la foto de ese día
+     * en <code>ACTIVO_HISTORICO</code>, así el % también vale para los estados y no solo para las altas.
      *
      * @return ApiResponse con las estadisticas mapeadas
      */
@@ -258,8 +408,14 @@ public class AssetsService {
     public ApiResponse getAssetsStats() {
         LocalDate week = LocalDate.now().minusWeeks(1);
 
-        AssetsProjection global = assetsRepository.findAssetsStatsGlobal();
-        AssetsProjection lastWeek = assetsRepository.findAssetsStatsOfLastWeek(week);
+        ActivoContadores.Totales global = activoContadores.global();
+        // Aún sin contadores (recién desplegado): se calcula como antes
+        if (global == null) global = ActivoContadores.Totales.de(assetsRepository.findAssetsStatsGlobal());
+        ActivoContadores.Totales actual = global;
+        // Mientras el histórico no cumpla una semana: lo de hoy menos las altas de la última semana
+        AssetsProjection lastWeek = activoHistoricoRepository.ultimoAl(ActivoContadores.Ambito.GLOBAL, 0L, week)
+                .map(ActivoHistoricoRepository.Punto::totales)
+                .orElseGet(() -> actual.menos(ActivoContadores.Totales.de(assetsRepository.findAssetsStatsDesde(week))));
 
         Map<String, Long> json = getJson(global, lastWeek);
 
@@ -291,8 +447,32 @@ public class AssetsService {
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void cambiarEstadoOperativoIndependiente(Long id, String estado) {
-        assetsRepository.updateEstadoOperativo(id, estado);
+        cambiarEstadoOperativo(id, estado);
         evictAssetCache(id);
     }
 
+    /**
+     * Actualiza solo el estado de custodia del activo y ajusta los contadores del dashboard
+     * en la misma transacción. La caché la sigue invalidando quien llama.
+     *
+     * @param id     Identificador del activo.
+     * @param estado Nuevo valor de estadoCustodia.
+     */
+    @Transactional
+    public void cambiarEstadoCustodia(Long id, String estado) {
+        activoContadores.registrar(List.of(id), () -> assetsRepository.updateEstadoCustodia(id, estado));
+    }
+
+    /**
+     * Actualiza solo el estado operativo del activo y ajusta los contadores del dashboard
+     * en la misma transacción. La caché la sigue invalidando quien llama.
+     *
+     * @param id     Identificador del activo.
+     * @param estado Nuevo valor de estadoOperativo.
+     */
+    @Transactional
+    public void cambiarEstadoOperativo(Long id, String estado) {
+        activoContadores.registrar(List.of(id), () -> assetsRepository.updateEstadoOperativo(id, estado));
+    }
+
 }
@@ -0,0 +1,132 @@
+package mx.edu.utez.modules.core.assets;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import mx.edu.utez.modules.core.tipo_activos.TipoActivo;
+import mx.edu.utez.modules.location.espacios.Espacio;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arma la consulta de la búsqueda de activos a partir de los filtros que vengan.
+ * Cada filtro se traduce a una condición que los índices de <code>db/005_activo_busqueda.sql</code>
+ * pueden resolver: igualdad sobre llaves y estados, y prefijo (<code>LIKE 'abc%'</code>) sobre
+ * etiqueta y serie. Ubicación y marca van como subconsultas sobre los catálogos (no como joins),
+ * así la consulta principal solo toca <code>ACTIVO</code>. No se usa <code>LIKE '%abc%'</code> ni <code>UPPER()</code> porque eso obliga
+ * a recorrer toda la tabla (la collation de la BD ya compara sin mayúsculas).
+ *
+ * @author Ithera Team
+ */
+public final class AssetsSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private AssetsSpecifications() {}
+
+    /**
+     * Filtros de la búsqueda; los que vienen en null o vacíos no aplican.
+     * @param etiqueta Prefijo de la etiqueta
+     * @param serie Prefijo del número de serie
+     * @param tipoId Tipo de activo
+     * @param marca Marca del tipo de activo (exacta)
+     * @param campusId Campus
+     * @param edificioId Edificio
+     * @param espacioId Espacio
+     * @param estadoCustodia Disponible, Resguardado...
+     * @param estadoOperativo OK, Reportado, Mantenimiento...
+     */
+    public record Filtros(String etiqueta, String serie, Long tipoId, String marca,
+                          Long campusId, Long edificioId, Long espacioId,
+                          String estadoCustodia, String estadoOperativo) {}
+
+    /**
+     * Solo activos vigentes que cumplan todos los filtros.
+     * @param f Filtros de la búsqueda
+     * @return Especificación lista para <code>findAll</code>/<code>findBy</code>
+     */
+    public static Specification<Assets> de(Filtros f) {
+        List<Specification<Assets>> condiciones = new ArrayList<>();
+        condiciones.add((root, query, cb) -> cb.isTrue(root.get("esActivo")));
+
+        if (hayTexto(f.etiqueta()))
+            condiciones.add(prefijo("etiqueta", f.etiqueta()));
+        if (hayTexto(f.serie()))
+            condiciones.add(prefijo("numeroSerie", f.serie()));
+        if (f.tipoId() != null)
+            condiciones.add((root, query, cb) -> cb.equal(root.get("tipoActivo").get("id"), f.tipoId()));
+        if (hayTexto(f.marca()))
+            condiciones.add((root, query, cb) -> {
+                Subquery<Long> tipos = query.subquery(Long.class);
+                Root<TipoActivo> t = tipos.from(TipoActivo.class);
+                tipos.select(t.get("id")).where(cb.equal(t.get("marca"), f.marca().trim()));
+                return root.get("tipoActivo").get("id").in(tipos);
+            });
+        if (f.espacioId() != null)
+            condiciones.add((root, query, cb) -> cb.equal(root.get("espacio").get("id"), f.espacioId()));
+        if (f.edificioId() != null)
+            condiciones.add((root, query, cb) -> {
+                Subquery<Long> espacios = query.subquery(Long.class);
+                Root<Espacio> e = espacios.from(Espacio.class);
+                espacios.select(e.get("id")).where(cb.equal(e.get("edificio").get("id"), f.edificioId()));
+                return root.get("espacio").get("id").in(espacios);
+            });
+        if (f.campusId() != null)
+            condiciones.add((root, query, cb) -> {
+                Subquery<Long> espacios = query.subquery(Long.class);
+                Root<Espacio> e = espacios.from(Espacio.class);
+                espacios.select(e.get("id")).where(cb.equal(e.get("edificio").get("campus").get("id"), f.campusId()));
+                return root.get("espacio").get("id").in(espacios);
+            });
+        if (hayTexto(f.estadoCustodia()))
+            condiciones.add((root, query, cb) -> cb.equal(root.get("estadoCustodia"), f.estadoCustodia().trim()));
+        if (hayTexto(f.estadoOperativo()))
+            condiciones.add((root, query, cb) -> cb.equal(root.get("estadoOperativo"), f.estadoOperativo().trim()));
+
+        return Specification.allOf(condiciones);
+    }
+
+    /** Condición de keyset para el modo cursor: id menor al cursor (exclusivo). */
+    public static Specification<Assets> antesDe(long cursor) {
+        return (root, query, cb) -> cb.lessThan(root.get("id"), cursor);
+    }
+
+    /**
+     * <code>campo LIKE 'valor%'</code>, escapando los comodines que escriba el usuario, más el mismo
+     * prefijo como rango (<code>campo &gt;= 'abc' AND campo &lt; 'abd'</code>). El LIKE va como parámetro y no
+     * todos los motores arman el rango del índice con un patrón que no conocen al preparar la consulta;
+     * con el rango explícito siempre lo usan.
+     */
+    private static Specification<Assets> prefijo(String campo, String valor) {
+        String texto = valor.trim();
+        String patron = texto
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        String tope = siguientePrefijo(texto);
+        return (root, query, cb) -> {
+            Path<String> path = root.get(campo);
+            return tope == null
+                    ? cb.and(cb.greaterThanOrEqualTo(path, texto), cb.like(path, patron, ESCAPE))
+                    : cb.and(cb.greaterThanOrEqualTo(path, texto), cb.lessThan(path, tope), cb.like(path, patron, ESCAPE));
+        };
+    }
+
+    /**
+     * Primer texto que ya no empieza con <code>prefijo</code> ("AB7" → "AB8"). Solo se sube el último carácter
+     * si es dígito o letra y no es el último de su grupo: así el orden vale igual en collations binarias y
+     * sin mayúsculas/acentos. En otro caso no hay tope y queda solo el <code>&gt;=</code>.
+     */
+    private static String siguientePrefijo(String prefijo) {
+        if (prefijo.isEmpty()) return null;
+        char c = prefijo.charAt(prefijo.length() - 1);
+        boolean subible = (c >= '0' && c < '9') || (c >= 'a' && c < 'z') || (c >= 'A' && c < 'Z');
+        return subible ? prefijo.substring(0, prefijo.length() - 1) + (char) (c + 1) : null;
+    }
+
+    private static boolean hayTexto(String s) {
+        return s != null && !s.isBlank();
+    }
+}
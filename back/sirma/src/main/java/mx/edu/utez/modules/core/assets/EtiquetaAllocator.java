@@ -0,0 +1,138 @@
+package mx.edu.utez.modules.core.assets;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reparte etiquetas de activo únicas por construcción: <code>PREFIJO-NNNNNNN</code>, donde el sufijo
+ * es un consecutivo del prefijo en base 36 (7 caracteres).
+ *
+ * <p>Antes el sufijo eran 6 hex de un UUID y con cientos de miles de activos chocaba contra el
+ * índice único de <code>etiqueta</code> (paradoja del cumpleaños); un solo choque tiraba todo un lote
+ * de la importación. Ahora cada prefijo tiene su secuencia en <code>ETIQUETA_SECUENCIA</code>: se reserva
+ * un bloque de números con un upsert y se reparte en memoria con un contador atómico, sin candados.
+ * Solo al agotarse un bloque se vuelve a la BD, y solo se espera a otros hilos del mismo prefijo.</p>
+ *
+ * <p>La reserva se confirma en su propia transacción (y conexión). Quien ya tiene una transacción
+ * abierta, como un lote de la importación, debe pedir sus etiquetas antes con {@link #siguientes}
+ * para no ocupar dos conexiones del pool a la vez.</p>
+ *
+ * <p>Las etiquetas viejas tienen sufijo de 6 caracteres, así que nunca chocan con las nuevas (7).
+ * Si la app se reinicia, lo que quedaba del bloque se pierde (no se reutiliza), y está bien así.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Component
+public class EtiquetaAllocator {
+
+    /** Caracteres del sufijo: 36^7 ≈ 78 mil millones de etiquetas por prefijo. */
+    static final int LARGO_SUFIJO = 7;
+
+    private static final char[] DIGITOS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    /** Reserva el bloque y regresa el nuevo tope en la misma transacción. */
+    private static final String UPSERT = """
+            INSERT INTO ETIQUETA_SECUENCIA (prefijo, siguiente) VALUES (?, ?)
+            ON DUPLICATE KEY UPDATE siguiente = siguiente + ?""";
+
+    private static final String TOPE = "SELECT siguiente FROM ETIQUETA_SECUENCIA WHERE prefijo = ?";
+
+    /** Rango [siguiente, fin) ya reservado en BD para un prefijo. */
+    private record Bloque(AtomicLong siguiente, long fin) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate nuevaTx;
+    private final int tamanoBloque;
+
+    private final Map<String, Bloque> bloques = new ConcurrentHashMap<>();
+    /** Un candado por prefijo: renovar el bloque de un prefijo no frena a los demás. */
+    private final Map<String, Object> candados = new ConcurrentHashMap<>();
+
+    public EtiquetaAllocator(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.etiquetas.bloque:500}") int tamanoBloque) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoBloque = tamanoBloque;
+        // La reserva se confirma aparte: si el lote que la pidió se revierte, esos números igual quedan usados
+        this.nuevaTx = new TransactionTemplate(transactionManager);
+        this.nuevaTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Siguiente etiqueta para el prefijo.
+     * @param prefijo Prefijo ya armado (ver {@code AssetsUtils.prefijoEtiqueta})
+     * @return Etiqueta única, ej. <code>LAHPADU-00000A3</code>
+     */
+    public String siguiente(String prefijo) {
+        while (true) {
+            Bloque bloque = bloques.get(prefijo);
+            if (bloque != null) {
+                long n = bloque.siguiente().getAndIncrement();
+                if (n < bloque.fin()) return formatear(prefijo, n);
+            }
+            reservar(prefijo, bloque);
+        }
+    }
+
+    /**
+     * Varias etiquetas del mismo prefijo de una vez.
+     * @param prefijo Prefijo ya armado
+     * @param cantidad Etiquetas a entregar
+     * @return Etiquetas únicas, en orden
+     */
+    public List<String> siguientes(String prefijo, int cantidad) {
+        List<String> etiquetas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) etiquetas.add(siguiente(prefijo));
+        return etiquetas;
+    }
+
+    /**
+     * Reserva un bloque nuevo si nadie lo hizo mientras esperábamos. Solo aquí hay candado
+     * (uno por prefijo), y solo se entra cuando un bloque se agota.
+     */
+    private void reservar(String prefijo, Bloque agotado) {
+        synchronized (candados.computeIfAbsent(prefijo, p -> new Object())) {
+            if (bloques.get(prefijo) != agotado) return; // otro hilo ya lo renovó
+
+            Long fin = nuevaTx.execute(status -> {
+                jdbcTemplate.update(UPSERT, prefijo, tamanoBloque, tamanoBloque);
+                return jdbcTemplate.queryForObject(TOPE, Long.class, prefijo);
+            });
+            if (fin == null)
+                throw new IllegalStateException("No se pudo reservar la secuencia de etiquetas para " + prefijo);
+
+            bloques.put(prefijo, new Bloque(new AtomicLong(fin - tamanoBloque), fin));
+            log.debug("Etiquetas {}: bloque [{}, {}) reservado", prefijo, fin - tamanoBloque, fin);
+        }
+    }
+
+    /**
+     * Arma <code>prefijo-sufijo</code> en un solo arreglo de chars (una sola String por etiqueta).
+     * @param prefijo Prefijo de la etiqueta
+     * @param n Consecutivo del prefijo
+     * @return Etiqueta con el sufijo en base 36 rellenado a {@value #LARGO_SUFIJO} caracteres
+     */
+    public static String formatear(String prefijo, long n) {
+        int largo = prefijo.length();
+        char[] chars = new char[largo + 1 + LARGO_SUFIJO];
+        prefijo.getChars(0, largo, chars, 0);
+        chars[largo] = '-';
+        for (int i = chars.length - 1; i > largo; i--) {
+            chars[i] = DIGITOS[(int) (n % 36)];
+            n /= 36;
+        }
+        return new String(chars);
+    }
+}
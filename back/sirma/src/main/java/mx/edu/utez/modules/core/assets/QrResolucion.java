@@ -0,0 +1,15 @@
+package mx.edu.utez.modules.core.assets;
+
+/**
+ * Resultado de resolver un token escaneado dentro de un lote.
+ * Si el token no se pudo descifrar o el activo no existe, <code>activo</code> va en null
+ * y <code>error</code> dice por qué; el lote sigue con los demás.
+ *
+ * @param p      Token tal como llegó
+ * @param id     Id del activo (null si el token no es válido)
+ * @param activo Activo resuelto
+ * @param error  Motivo del fallo, null si se resolvió
+ * @author Ithera Team
+ */
+public record QrResolucion(String p, Long id, AssetsDTO activo, String error) {
+}
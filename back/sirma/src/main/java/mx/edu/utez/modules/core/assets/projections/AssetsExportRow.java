@@ -0,0 +1,21 @@
+package mx.edu.utez.modules.core.assets.projections;
+
+/**
+ * Fila plana de la exportación de inventario. Se arma directo en la consulta JPQL
+ * (sin cargar entidades), así el contexto de persistencia no crece mientras se exporta.
+ *
+ * @author Ithera Team
+ */
+public record AssetsExportRow(Long id,
+                              String numeroSerie,
+                              String campus,
+                              String tipoActivo,
+                              String marca,
+                              String tipoBien,
+                              String modelo,
+                              String edificio,
+                              String espacio,
+                              String etiqueta,
+                              String estadoCustodia,
+                              String estadoOperativo) {
+}
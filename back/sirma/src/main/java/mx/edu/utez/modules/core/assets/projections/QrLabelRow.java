@@ -0,0 +1,14 @@
+package mx.edu.utez.modules.core.assets.projections;
+
+/**
+ * Lo mínimo para imprimir la etiqueta QR de un activo: id, etiqueta y contenido del QR.
+ * Se arma directo en la consulta JPQL (sin cargar entidades).
+ *
+ * @author Ithera Team
+ */
+public record QrLabelRow(Long id, String etiqueta, String qrCodigo) {
+
+    public QrLabelRow conQrCodigo(String qrCodigo) {
+        return new QrLabelRow(id, etiqueta, qrCodigo);
+    }
+}
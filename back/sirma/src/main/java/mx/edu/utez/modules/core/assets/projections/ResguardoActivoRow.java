@@ -0,0 +1,10 @@
+package mx.edu.utez.modules.core.assets.projections;
+
+/**
+ * Resguardo vigente de un activo para el listado: id del activo, id del resguardo y nombre del empleado.
+ * Se arma directo en la consulta JPQL (sin cargar el resguardo ni sus usuarios).
+ *
+ * @author Ithera Team
+ */
+public record ResguardoActivoRow(Long idActivo, Long idResguardo, String nombreEmpleado) {
+}
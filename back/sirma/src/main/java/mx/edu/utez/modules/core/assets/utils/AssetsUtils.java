@@ -12,7 +12,6 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 public class AssetsUtils {
 
@@ -63,15 +62,15 @@ public class AssetsUtils {
     }
 
     /**
-     * La etiqueta del producto se genera automáticamente a partir de los dos primeros caracteres
-     * del nombre seguido de los dos primeros caracteres de la marca seguido de los primeros
-     * caracteres de cada elemento de la ubicación.
+     * Prefijo de la etiqueta del producto: los dos primeros caracteres del nombre seguido de los dos
+     * primeros caracteres de la marca seguido de los primeros caracteres de cada elemento de la ubicación.
+     * El consecutivo lo pone {@code EtiquetaAllocator}.
      * @param dto DTO que contiene la información del Activo.
-     * @return <code>String</code> con la etiqueta generada automáticamente.
+     * @return <code>String</code> con el prefijo de la etiqueta.
      */
-    public static String generateProductTag(AssetsDTO dto) {
+    public static String prefijoEtiqueta(AssetsDTO dto) {
 
-        if (dto == null || dto.getTipoActivo() == null || dto.getEspacio() == null) return "XXXX-XXXX-XXXX";
+        if (dto == null || dto.getTipoActivo() == null || dto.getEspacio() == null) return "XXXXXXX";
 
         // Se desglosan los objetos intermedios para evitar nulos xd
         TipoActivo tipoActivo = dto.getTipoActivo();
@@ -79,37 +78,39 @@ public class AssetsUtils {
         Edificio edificio     = espacio.getEdificio();
         Campus campus         = (edificio != null) ? edificio.getCampus() : null;
 
-        // Se esxtraen los valores finales
-        String nombreStr   = tipoActivo.getNombre();
-        String marcaStr    = tipoActivo.getMarca();
-        String espacioStr  = espacio.getNombreEspacio();
-        String edificioStr = (edificio != null)  ? edificio.getNombre() : null;
-        String campusStr   = (campus != null)    ? campus.getNombre() : null;
-
-        // Se generan los tags finales
-        String tagSerie    = getTwoChars(nombreStr);
-        String tagMarca    = getTwoChars(marcaStr);
-        char tagEspacio    = getFirstChar(espacioStr);
-        char tagEdificio   = getFirstChar(edificioStr);
-        char tagCampus     = getFirstChar(campusStr);
-
-        // Opción más segura: UUID corto
-        String base = tagSerie + tagMarca + tagEspacio + tagEdificio + tagCampus;
-        String uid = UUID.randomUUID().toString().replace("-", "").substring(0, 6).toUpperCase();
-
-        return base + "-" + uid;
+        return prefijoEtiqueta(
+                tipoActivo.getNombre(),
+                tipoActivo.getMarca(),
+                espacio.getNombreEspacio(),
+                (edificio != null) ? edificio.getNombre() : null,
+                (campus != null)   ? campus.getNombre()   : null
+        );
     }
 
     /**
-     * Helper que ayuda a obtener las 2 primeras letras del string que recibe.
-     * @param s <code>String</code> que vamos a obtener las 2 letras.
-     * @return <code>String</code> con las 2 letras :D.
+     * Misma regla del prefijo pero con los nombres sueltos (la usa la importación, que trae texto del Excel).
+     * @return <code>String</code> de 7 caracteres con el prefijo de la etiqueta.
      */
-    private static String getTwoChars(String s) {
-        if (s == null || s.isEmpty()) return "XX";
-        if (s.length() < 2) return s.toUpperCase() + "X";
+    public static String prefijoEtiqueta(String nombreStr, String marcaStr, String espacioStr,
+                                         String edificioStr, String campusStr) {
+        char[] prefijo = new char[7];
+        twoChars(nombreStr, prefijo, 0);
+        twoChars(marcaStr, prefijo, 2);
+        prefijo[4] = getFirstChar(espacioStr);
+        prefijo[5] = getFirstChar(edificioStr);
+        prefijo[6] = getFirstChar(campusStr);
+        return new String(prefijo);
+    }
 
-        return s.substring(0, 2).toUpperCase();
+    /**
+     * Helper que pone las 2 primeras letras del string (en mayúsculas, rellenando con X) en el arreglo.
+     * @param s <code>String</code> del que vamos a obtener las 2 letras.
+     * @param destino Arreglo donde se escriben
+     * @param pos Posición inicial
+     */
+    private static void twoChars(String s, char[] destino, int pos) {
+        destino[pos]     = (s != null && !s.isEmpty()) ? Character.toUpperCase(s.charAt(0)) : 'X';
+        destino[pos + 1] = (s != null && s.length() >= 2) ? Character.toUpperCase(s.charAt(1)) : 'X';
     }
 
     /**
@@ -0,0 +1,19 @@
+package mx.edu.utez.modules.core.imports;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Fila del Excel que no pasó las reglas de importación.
+ * @param fila Número de fila tal como se ve en Excel
+ * @param error Motivo del rechazo
+ * @param datos Celdas originales de la fila (índice 0 es el número de fila interno)
+ * @author Ithera Team
+ */
+public record FilaRechazada(int fila, String error, @JsonIgnore String[] datos) {
+
+    /** Formato de siempre para la lista de errores: "Fila N: motivo". */
+    @Override
+    public String toString() {
+        return "Fila " + fila + ": " + error;
+    }
+}
@@ -0,0 +1,115 @@
+package mx.edu.utez.modules.core.imports;
+
+import lombok.AllArgsConstructor;
+import mx.edu.utez.modules.core.assets.Assets;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escritura masiva de la importación por JDBC directo.
+ * Con IDENTITY, Hibernate no puede agrupar INSERTs (necesita el id de cada fila), así que un lote
+ * de 500 activos eran 500 viajes a TiDB más otros 500 de bitácora. Aquí cada tabla se inserta con
+ * un solo batch que el driver reescribe como INSERT multi-fila (<code>rewriteBatchedStatements=true</code>).
+ *
+ * <p>Corre dentro de la transacción del lote (misma conexión que JPA), así que si el lote falla
+ * se revierte completo igual que antes.</p>
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class ImportBulkWriter {
+
+    private static final String INSERT_ACTIVO = """
+            INSERT INTO ACTIVO (etiqueta, numero_serie, id_tipo_activo, id_espacio,
+                                estado_custodia, estado_operativo, fecha_alta, es_activo)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private static final String INSERT_BITACORA = """
+            INSERT INTO BITACORA (id_activo, id_usuario, tipo_evento, descripcion,
+                                  estado_custodia_anterior, estado_custodia_nuevo,
+                                  estado_operativo_anterior, estado_operativo_nuevo)
+            VALUES (?, ?, ?, ?, NULL, ?, NULL, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserta los activos en un solo batch y les asigna el id generado por la BD
+     * (en el mismo orden de la lista).
+     *
+     * @param activos Activos nuevos ya validados (sin id)
+     */
+    public void insertarActivos(List<Assets> activos) {
+        if (activos.isEmpty()) return;
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_ACTIVO, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Assets a = activos.get(i);
+                        ps.setString(1, a.getEtiqueta());
+                        ps.setString(2, a.getNumeroSerie());
+                        ps.setLong(3, a.getTipoActivo().getId());
+                        ps.setLong(4, a.getEspacio().getId());
+                        ps.setString(5, a.getEstadoCustodia());
+                        ps.setString(6, a.getEstadoOperativo());
+                        ps.setDate(7, Date.valueOf(a.getFechaAlta()));
+                        ps.setBoolean(8, a.getEsActivo());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return activos.size();
+                    }
+                },
+                keys);
+
+        List<Map<String, Object>> ids = keys.getKeyList();
+        if (ids.size() != activos.size())
+            throw new IllegalStateException("La BD devolvió " + ids.size() + " id(s) para " + activos.size() + " activo(s)");
+
+        for (int i = 0; i < activos.size(); i++)
+            activos.get(i).setId(((Number) ids.get(i).values().iterator().next()).longValue());
+    }
+
+    /**
+     * Registra en bitácora el alta por importación de cada activo, en un solo batch.
+     * Mismo contenido que {@code BitacoraService.registrarEvento(List)}.
+     *
+     * @param activos   Activos ya insertados (con id)
+     * @param usuarioId Usuario que subió el archivo
+     */
+    public void insertarBitacora(List<Assets> activos, Long usuarioId) {
+        if (activos.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(INSERT_BITACORA, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Assets a = activos.get(i);
+                ps.setLong(1, a.getId());
+                ps.setLong(2, usuarioId);
+                ps.setString(3, "Registro Activo");
+                ps.setString(4, "Activo " + a.getEtiqueta() + " importado desde Excel");
+                ps.setString(5, "Disponible");
+                ps.setString(6, "OK");
+            }
+
+            @Override
+            public int getBatchSize() {
+                return activos.size();
+            }
+        });
+    }
+}
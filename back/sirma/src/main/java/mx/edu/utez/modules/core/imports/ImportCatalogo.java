@@ -0,0 +1,206 @@
+package mx.edu.utez.modules.core.imports;
+
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.modules.core.tipo_activos.TipoActivo;
+import mx.edu.utez.modules.core.tipo_activos.TipoActivoRepository;
+import mx.edu.utez.modules.location.campus.Campus;
+import mx.edu.utez.modules.location.campus.CampusRepository;
+import mx.edu.utez.modules.location.edificios.Edificio;
+import mx.edu.utez.modules.location.edificios.EdificioRepository;
+import mx.edu.utez.modules.location.espacios.Espacio;
+import mx.edu.utez.modules.location.espacios.EspacioRepository;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Catálogos resueltos durante una importación (campus, edificios, espacios y tipos).
+ * Antes cada lote de 500 filas volvía a consultar los cuatro catálogos y a traer todos los
+ * edificios y espacios de sus campus; aquí se cargan una vez por importación y se van
+ * extendiendo solo cuando aparece un campus que aún no se había usado.
+ *
+ * <p>Las llaves van normalizadas (sin espacios a los lados y en minúsculas), así "Campus Norte"
+ * y "campus norte " apuntan al mismo registro. Lo comparten los workers de la importación,
+ * por eso las cargas van sincronizadas y las lecturas sobre mapas concurrentes.</p>
+ *
+ * <p>Si dos registros solo difieren en mayúsculas o espacios (p. ej. "Lab 1" y "LAB 1" en el mismo edificio)
+ * no se escoge uno al azar: se avisa en el log al cargarlos y la fila solo se acepta si escribe el nombre
+ * exactamente como uno de ellos; si no, se rechaza por ambigua.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+class ImportCatalogo {
+
+    private final CampusRepository campusRepository;
+    private final EdificioRepository edificioRepository;
+    private final EspacioRepository espacioRepository;
+    private final TipoActivoRepository tipoActivoRepository;
+
+    private final Indice<Campus> campus = new Indice<>("El campus");
+    private final Indice<TipoActivo> tipos = new Indice<>("El tipo de activo");
+    /** campusId-nombre → edificio */
+    private final Indice<Edificio> edificios = new Indice<>("El edificio");
+    /** edificioId-nombre → espacio */
+    private final Indice<Espacio> espacios = new Indice<>("El espacio");
+
+    /** Campus cuyo árbol de edificios y espacios ya está en memoria. */
+    private final Set<Long> campusCargados = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean catalogosCargados;
+
+    ImportCatalogo(CampusRepository campusRepository,
+                   EdificioRepository edificioRepository,
+                   EspacioRepository espacioRepository,
+                   TipoActivoRepository tipoActivoRepository) {
+        this.campusRepository = campusRepository;
+        this.edificioRepository = edificioRepository;
+        this.espacioRepository = espacioRepository;
+        this.tipoActivoRepository = tipoActivoRepository;
+    }
+
+    static String normalizar(String nombre) {
+        return nombre == null ? "" : nombre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Deja en memoria lo que necesita un lote: la primera vez carga campus y tipos completos
+     * (son catálogos chicos) y, para los campus del lote que aún no se habían usado,
+     * sus edificios y espacios en dos consultas.
+     *
+     * @param campusLote Nombres de campus tal como vienen en el archivo
+     */
+    void preparar(Collection<String> campusLote) {
+        if (!catalogosCargados) cargarCatalogos();
+
+        // Un campus ambiguo carga los árboles de todos con los que choca; la fila se valida después
+        Set<Long> nuevos = campusLote.stream()
+                .flatMap(nombre -> campus.candidatos("", nombre).stream())
+                .filter(c -> !campusCargados.contains(c.getId()))
+                .map(Campus::getId)
+                .collect(Collectors.toSet());
+
+        if (!nuevos.isEmpty()) cargarArbol(nuevos);
+    }
+
+    /**
+     * Las búsquedas regresan null si no existe y lanzan {@link ImportException} si el nombre
+     * es ambiguo (ver la nota de la clase).
+     */
+    Campus campus(String nombre) {
+        return campus.buscar("", nombre);
+    }
+
+    Edificio edificio(Campus campus, String nombre) {
+        return edificios.buscar(campus.getId() + "-", nombre);
+    }
+
+    Espacio espacio(Edificio edificio, String nombre) {
+        return espacios.buscar(edificio.getId() + "-", nombre);
+    }
+
+    TipoActivo tipo(String nombre) {
+        return tipos.buscar("", nombre);
+    }
+
+    /** true si hay al menos un tipo con ese nombre normalizado (aunque sea ambiguo), o sea que no hay que crearlo. */
+    boolean existeTipo(String nombre) {
+        return tipos.contiene("", nombre);
+    }
+
+    /** Agrega tipos creados (o encontrados) durante la importación. */
+    void registrarTipos(Collection<TipoActivo> nuevos) {
+        nuevos.forEach(t -> tipos.agregar("", t.getNombre(), t));
+    }
+
+    private synchronized void cargarCatalogos() {
+        if (catalogosCargados) return;
+        campusRepository.findAll().forEach(c -> campus.agregar("", c.getNombre(), c));
+        registrarTipos(tipoActivoRepository.findAll());
+        catalogosCargados = true;
+    }
+
+    private synchronized void cargarArbol(Set<Long> campusIds) {
+        // Otro worker pudo cargarlos mientras esperábamos el candado
+        List<Long> pendientes = campusIds.stream().filter(id -> !campusCargados.contains(id)).toList();
+        if (pendientes.isEmpty()) return;
+
+        List<Edificio> listaEdificios = edificioRepository.findByCampusIdIn(pendientes);
+        listaEdificios.forEach(e -> edificios.agregar(e.getCampus().getId() + "-", e.getNombre(), e));
+
+        if (!listaEdificios.isEmpty()) {
+            Set<Long> edificioIds = listaEdificios.stream().map(Edificio::getId).collect(Collectors.toSet());
+            espacioRepository.findByEdificioIdIn(edificioIds)
+                    .forEach(e -> espacios.agregar(e.getEdificio().getId() + "-", e.getNombreEspacio(), e));
+        }
+
+        campusCargados.addAll(pendientes);
+    }
+
+    /**
+     * Registros por <code>ámbito + nombre normalizado</code>. Cuando dos nombres distintos caen en la misma
+     * llave se guardan los dos por su nombre exacto (solo quitando espacios a los lados).
+     */
+    private static final class Indice<T> {
+
+        /** "El campus", "El espacio"... para los mensajes */
+        private final String descripcion;
+        private final Map<String, T> porLlave = new ConcurrentHashMap<>();
+        /** llave → nombre exacto → registro, solo para las llaves donde chocan dos o más */
+        private final Map<String, Map<String, T>> ambiguos = new ConcurrentHashMap<>();
+        /** llave → nombre exacto del registro en porLlave */
+        private final Map<String, String> nombres = new ConcurrentHashMap<>();
+
+        Indice(String descripcion) {
+            this.descripcion = descripcion;
+        }
+
+        synchronized void agregar(String ambito, String nombre, T registro) {
+            String llave = ambito + normalizar(nombre);
+            String exacto = nombre == null ? "" : nombre.trim();
+            String previo = nombres.putIfAbsent(llave, exacto);
+            if (previo == null) {
+                porLlave.put(llave, registro);
+                return;
+            }
+            if (previo.equals(exacto)) return; // el mismo registro que ya estaba
+
+            Map<String, T> chocan = new LinkedHashMap<>(ambiguos.getOrDefault(llave, Map.of(previo, porLlave.get(llave))));
+            if (chocan.putIfAbsent(exacto, registro) != null) return;
+            ambiguos.put(llave, Map.copyOf(chocan));
+            log.warn("Importación: {} '{}' coincide con {} registros que solo difieren en mayúsculas o espacios: {}",
+                    descripcion.toLowerCase(Locale.ROOT), exacto, chocan.size(), chocan.keySet());
+        }
+
+        T buscar(String ambito, String nombre) {
+            String llave = ambito + normalizar(nombre);
+            Map<String, T> chocan = ambiguos.get(llave);
+            if (chocan == null) return porLlave.get(llave);
+
+            T exacto = chocan.get(nombre.trim());
+            if (exacto != null) return exacto;
+            throw new ImportException(descripcion + " '" + nombre.trim() + "' es ambiguo: coincide con "
+                    + String.join(", ", chocan.keySet().stream().sorted().map(n -> "'" + n + "'").toList())
+                    + ". Escríbelo exactamente como uno de ellos.");
+        }
+
+        /** Todos los registros que caen en la llave del nombre, sin importar si es ambiguo. */
+        Collection<T> candidatos(String ambito, String nombre) {
+            String llave = ambito + normalizar(nombre);
+            Map<String, T> chocan = ambiguos.get(llave);
+            if (chocan != null) return chocan.values();
+            T registro = porLlave.get(llave);
+            return registro == null ? List.of() : List.of(registro);
+        }
+
+        boolean contiene(String ambito, String nombre) {
+            return porLlave.containsKey(ambito + normalizar(nombre));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package mx.edu.utez.modules.core.imports;
+
+import java.util.List;
+
+/**
+ * Layout de columnas del Excel de importación (el mismo de la plantilla que descarga el front).
+ * Lo comparten el reporte de filas rechazadas y la exportación, para que lo que se descarga
+ * se pueda corregir y volver a subir tal cual.
+ *
+ * @author Ithera Team
+ */
+public final class ImportColumnas {
+
+    /** Encabezados de las columnas A–H. (*) obligatorio, (**) solo si el tipo se crea al vuelo. */
+    public static final List<String> ENCABEZADOS = List.of(
+            "Numero de Serie *", "Campus *", "Tipo de Activo *", "Marca **",
+            "Bien **", "Modelo **", "Edificio *", "Espacio *"
+    );
+
+    private ImportColumnas() {}
+}
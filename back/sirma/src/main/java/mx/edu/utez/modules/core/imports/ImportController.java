@@ -3,7 +3,9 @@ package mx.edu.utez.modules.core.imports;
 import lombok.RequiredArgsConstructor;
 import mx.edu.utez.kernel.ApiResponse;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.*;
@@ -12,7 +14,8 @@ import org.springframework.web.multipart.MultipartFile;
 
 /**
  * Controlador REST que se encarga de la importación masiva de datos provenientes de un excel.
- * Recibe un archivo a través de una solicitud POST, delega el procesamiento al servicio de importación y devuelve una respuesta con el resultado de la operación.
+ * Recibe un archivo a través de una solicitud POST, lo encola como trabajo en segundo plano y devuelve
+ * el id del trabajo para consultar su avance (por SSE, en el evento "importacion", solo llega el aviso con el id).
  * @author Ithera Team
  */
 @RestController
@@ -20,23 +23,89 @@ import org.springframework.web.multipart.MultipartFile;
 @RequiredArgsConstructor
 public class ImportController {
 
+    private static final MediaType XLSX =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
     /** La fokin inyeccion de la dependecia del servicio XD */
-    private final ImportService importService;
+    private final ImportJobService importJobService;
 
     /**
-     * Recibe un archivo de Excel o similar al cual guardaremos los activos que tenga en el excel,
-     * el servicio se encarga de procesar el archivo y devolver un resultado con el número de filas procesadas,
-     * filas exitosas, filas con errores y mensajes de error.
+     * Recibe un archivo de Excel o similar al cual guardaremos los activos que tenga en el excel.
+     * La importación corre en segundo plano; la respuesta llega de inmediato con el id del trabajo.
+     * Con <code>dryRun=true</code> solo se valida (no se guarda nada) y los errores llegan como NDJSON
+     * conforme se lee el archivo, o como libro .xlsx con <code>formato=xlsx</code>.
      * @param file <code>MultipartFile</code> que es el archivo de excel
-     * @return <code>ResponseEntity</code> con un <code>ApiResponse</code> que contiene el resultado de la importación.
+     * @param dryRun true para validar sin importar
+     * @param formato Formato de los rechazos en la simulación: <code>ndjson</code> (default) o <code>xlsx</code>
+     * @return <code>ResponseEntity</code> 202 con un <code>ApiResponse</code> que contiene el estado inicial del trabajo,
+     * o el flujo NDJSON de la validación.
      */
     @PostMapping("/")
-    public ResponseEntity<ApiResponse> save(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> save(@RequestParam("file") MultipartFile file,
+                                  @RequestParam(defaultValue = "false") boolean dryRun,
+                                  @RequestParam(defaultValue = "ndjson") String formato) {
+        if (dryRun && "xlsx".equalsIgnoreCase(formato))
+            return ResponseEntity.ok()
+                    .contentType(XLSX)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rechazos.xlsx\"")
+                    .body(importJobService.simularXlsx(file));
+
+        if (dryRun)
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(importJobService.simular(file));
+
+        ImportJob job = importJobService.iniciar(file);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse("Importación en proceso", job.progreso(), HttpStatus.ACCEPTED));
+    }
+
+    /**
+     * Consulta el estado de un trabajo de importación, incluyendo el detalle de las primeras filas rechazadas
+     * (el resto se descarga de <code>/{jobId}/rechazos</code>).
+     * @param jobId Identificador devuelto al subir el archivo
+     * @return <code>ApiResponse</code> con el avance o 404 si el trabajo no existe (o ya expiró)
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse> status(@PathVariable String jobId) {
+        return importJobService.buscar(jobId)
+                .map(estado -> ResponseEntity.ok(new ApiResponse("OK", estado, HttpStatus.OK)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse("Importación no encontrada", true, HttpStatus.NOT_FOUND)));
+    }
 
-        ImportResult result = importService.save(file);
-        HttpStatus status = result.tieneErrores() ? HttpStatus.MULTI_STATUS : HttpStatus.CREATED;
-        // return new ResponseEntity<>(new ApiResponse(result.mensaje(), result.tieneErrores(), status), status);
-        return ResponseEntity.status(status).body(new ApiResponse(result.mensaje(), result.tieneErrores(), status));
+    /**
+     * Descarga las filas rechazadas de una importación terminada como .xlsx
+     * (columnas originales + error), para corregirlas y volver a subir solo esas.
+     * @param jobId Identificador del trabajo
+     * @return El libro o 404 si el trabajo no existe, no ha terminado o no tuvo rechazos
+     */
+    @GetMapping("/{jobId}/rechazos")
+    public ResponseEntity<?> rechazos(@PathVariable String jobId) {
+        return importJobService.buscarRechazos(jobId)
+                .<ResponseEntity<?>>map(libro -> ResponseEntity.ok()
+                        .contentType(XLSX)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rechazos-" + jobId + ".xlsx\"")
+                        .body(libro))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse("No hay filas rechazadas para descargar", true, HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * Cancela un trabajo de importación. Los lotes ya confirmados se conservan.
+     * @param jobId Identificador del trabajo
+     * @return <code>ApiResponse</code> con el estado del trabajo tras solicitar la cancelación
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<ApiResponse> cancel(@PathVariable String jobId) {
+        return importJobService.cancelar(jobId)
+                .map(estado -> ResponseEntity.ok(new ApiResponse(
+                        estado.estado().terminal() && estado.estado() != ImportJob.Estado.CANCELADO
+                                ? "La importación ya había terminado"
+                                : "Cancelación solicitada",
+                        estado, HttpStatus.OK)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse("Importación no encontrada", true, HttpStatus.NOT_FOUND)));
     }
 
 }
@@ -0,0 +1,21 @@
+package mx.edu.utez.modules.core.imports;
+
+/**
+ * Destino de las filas rechazadas de una importación.
+ * La tubería las entrega en orden de lectura; cada implementación decide si las guarda
+ * (trabajo en segundo plano) o las escribe de inmediato a la respuesta (simulación).
+ *
+ * @author Ithera Team
+ */
+@FunctionalInterface
+interface ImportErrorSink {
+
+    /**
+     * Recibe una fila rechazada.
+     * @param rechazo Fila con su motivo
+     */
+    void rechazar(FilaRechazada rechazo);
+
+    /** Aviso de que terminó de publicarse un lote (útil para hacer flush de lo escrito). */
+    default void loteTerminado() {}
+}
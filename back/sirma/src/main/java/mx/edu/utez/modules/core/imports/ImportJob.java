@@ -0,0 +1,113 @@
+package mx.edu.utez.modules.core.imports;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estado en memoria de una importación que corre en segundo plano.
+ * Los contadores son atómicos porque los lee el hilo HTTP (consulta de estado)
+ * mientras el hilo de la importación los va actualizando lote por lote.
+ * Los demás nodos lo ven por la copia en <code>IMPORT_JOB</code> que {@link ImportJobService} refresca cada segundo.
+ *
+ * @author Ithera Team
+ */
+@Getter
+public class ImportJob implements ImportErrorSink {
+
+    /** Estados por los que pasa una importación. */
+    public enum Estado {
+        EN_COLA, PROCESANDO, COMPLETADO, FALLIDO, CANCELADO;
+
+        /** true si ya no va a cambiar. */
+        public boolean terminal() {
+            return this == COMPLETADO || this == FALLIDO || this == CANCELADO;
+        }
+    }
+
+    /** Rechazos que se guardan con detalle; los demás solo cuentan (el libro de rechazos los trae todos). */
+    static final int MAX_ERRORES = 100;
+
+    private final String id;
+    private final String archivo;
+    private final LocalDateTime creadoEn = LocalDateTime.now();
+
+    private final AtomicInteger filasLeidas  = new AtomicInteger();
+    private final AtomicInteger insertados   = new AtomicInteger();
+    private final AtomicInteger reactivados  = new AtomicInteger();
+    private final AtomicInteger rechazados   = new AtomicInteger();
+    private final AtomicBoolean cancelado    = new AtomicBoolean();
+
+    private final List<String> errores = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile Estado estado = Estado.EN_COLA;
+    private volatile String mensaje;
+    private volatile LocalDateTime terminadoEn;
+    private volatile Future<?> future;
+
+    public ImportJob(String id, String archivo) {
+        this.id = id;
+        this.archivo = archivo;
+    }
+
+    void setFuture(Future<?> future) { this.future = future; }
+
+    void iniciar() { this.estado = Estado.PROCESANDO; }
+
+    /**
+     * Marca el trabajo como terminado con el estado y mensaje finales.
+     * @param estadoFinal COMPLETADO, FALLIDO o CANCELADO
+     * @param mensajeFinal Mensaje para el cliente
+     */
+    void terminar(Estado estadoFinal, String mensajeFinal) {
+        this.estado = estadoFinal;
+        this.mensaje = mensajeFinal;
+        this.terminadoEn = LocalDateTime.now();
+    }
+
+    /**
+     * Guarda el detalle de una fila rechazada ("Fila N: ...") para la consulta de estado,
+     * solo de las primeras {@value #MAX_ERRORES}: un archivo con miles de errores no debe crecer la memoria.
+     */
+    @Override
+    public void rechazar(FilaRechazada rechazo) {
+        synchronized (errores) {
+            if (errores.size() < MAX_ERRORES) errores.add(rechazo.toString());
+        }
+    }
+
+    public boolean isCancelado() { return cancelado.get(); }
+
+    public boolean isTerminado() {
+        return estado.terminal();
+    }
+
+    /**
+     * Foto del avance sin la lista de errores, para el endpoint de estado mientras corre.
+     * @return Estado actual del trabajo
+     */
+    public ImportJobStatus progreso() {
+        return new ImportJobStatus(id, archivo, estado, filasLeidas.get(), insertados.get(),
+                reactivados.get(), rechazados.get(), mensaje, null, null);
+    }
+
+    /**
+     * Foto completa del trabajo, incluyendo el detalle de las primeras filas rechazadas.
+     * @return Estado actual del trabajo con errores
+     */
+    public ImportJobStatus detalle() {
+        List<String> copia;
+        synchronized (errores) {
+            copia = List.copyOf(errores);
+        }
+        int omitidos = rechazados.get() - copia.size();
+        return new ImportJobStatus(id, archivo, estado, filasLeidas.get(), insertados.get(),
+                reactivados.get(), rechazados.get(), mensaje, copia, omitidos > 0 ? omitidos : null);
+    }
+}
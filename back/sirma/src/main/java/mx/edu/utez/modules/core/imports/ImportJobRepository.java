@@ -0,0 +1,192 @@
+package mx.edu.utez.modules.core.imports;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Acceso por JDBC a <code>IMPORT_JOB</code> e <code>IMPORT_JOB_RECHAZOS</code>: el estado de cada importación
+ * y su libro de rechazos, para que cualquier nodo pueda consultarla, cancelarla o descargar los rechazos
+ * aunque la haya recibido otro.
+ * Solo el nodo dueño escribe avance y estado final; los demás solo marcan <code>cancelado</code>.
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class ImportJobRepository {
+
+    /** Tamaño de cada trozo del libro de rechazos (cabe en una fila de TiDB). */
+    static final int TAMANO_PARTE = 1024 * 1024;
+
+    /**
+     * Importación tal como está en la tabla.
+     * @param errores Primeras filas rechazadas como arreglo JSON, o null
+     */
+    public record Trabajo(String id, String archivo, String nodo, ImportJob.Estado estado,
+                          int filasLeidas, int insertados, int reactivados, int rechazados,
+                          String mensaje, String errores, boolean cancelado) {}
+
+    private static final String COLUMNAS = """
+            SELECT id, archivo, nodo, estado, filas_leidas, insertados, reactivados, rechazados,
+                   mensaje, errores, cancelado
+            FROM IMPORT_JOB""";
+
+    private static final String AVANZAR = """
+            UPDATE IMPORT_JOB
+            SET estado = ?, filas_leidas = ?, insertados = ?, reactivados = ?, rechazados = ?, errores = ?,
+                actualizado_en = NOW()
+            WHERE id = ? AND nodo = ? AND estado IN ('EN_COLA', 'PROCESANDO')""";
+
+    private static final String TERMINAR = """
+            UPDATE IMPORT_JOB
+            SET estado = ?, filas_leidas = ?, insertados = ?, reactivados = ?, rechazados = ?, errores = ?,
+                mensaje = ?, actualizado_en = NOW(), terminado_en = NOW()
+            WHERE id = ? AND nodo = ? AND estado IN ('EN_COLA', 'PROCESANDO')""";
+
+    private static final String ABANDONADO = """
+            UPDATE IMPORT_JOB
+            SET estado = 'FALLIDO', mensaje = 'El servidor que procesaba la importación dejó de responder.',
+                terminado_en = NOW()
+            WHERE id = ? AND estado IN ('EN_COLA', 'PROCESANDO') AND actualizado_en < TIMESTAMPADD(SECOND, -?, NOW())""";
+
+    private static final RowMapper<Trabajo> MAPPER = (rs, i) -> new Trabajo(
+            rs.getString("id"),
+            rs.getString("archivo"),
+            rs.getString("nodo"),
+            ImportJob.Estado.valueOf(rs.getString("estado")),
+            rs.getInt("filas_leidas"),
+            rs.getInt("insertados"),
+            rs.getInt("reactivados"),
+            rs.getInt("rechazados"),
+            rs.getString("mensaje"),
+            rs.getString("errores"),
+            rs.getBoolean("cancelado"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Registra una importación recién encolada a nombre del nodo que la va a correr. */
+    public void crear(String id, String archivo, String nodo) {
+        String nombre = archivo == null ? null : archivo.substring(0, Math.min(archivo.length(), 255));
+        jdbcTemplate.update("INSERT INTO IMPORT_JOB (id, archivo, nodo) VALUES (?, ?, ?)", id, nombre, nodo);
+    }
+
+    public Optional<Trabajo> buscar(String id) {
+        return jdbcTemplate.query(COLUMNAS + " WHERE id = ?", MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * Guarda el avance de una importación en curso (también sirve de latido del nodo dueño).
+     * @param errores Primeras filas rechazadas como arreglo JSON
+     * @return true si alguien pidió cancelarla
+     */
+    public boolean avanzar(ImportJobStatus avance, String errores, String nodo) {
+        jdbcTemplate.update(AVANZAR, avance.estado().name(), avance.filasLeidas(), avance.insertados(),
+                avance.reactivados(), avance.rechazados(), errores, avance.id(), nodo);
+        List<Boolean> cancelado = jdbcTemplate.queryForList("SELECT cancelado FROM IMPORT_JOB WHERE id = ?",
+                Boolean.class, avance.id());
+        return !cancelado.isEmpty() && Boolean.TRUE.equals(cancelado.getFirst());
+    }
+
+    /** Estado final con sus contadores, solo si la importación sigue siendo de ese nodo. */
+    public void terminar(ImportJobStatus fin, String errores, String nodo) {
+        jdbcTemplate.update(TERMINAR, fin.estado().name(), fin.filasLeidas(), fin.insertados(),
+                fin.reactivados(), fin.rechazados(), errores, fin.mensaje(), fin.id(), nodo);
+    }
+
+    /**
+     * Pide la cancelación; la aplica el nodo dueño en su siguiente sincronización.
+     * @return true si la importación seguía en curso
+     */
+    public boolean solicitarCancelacion(String id) {
+        return jdbcTemplate.update(
+                "UPDATE IMPORT_JOB SET cancelado = TRUE WHERE id = ? AND estado IN ('EN_COLA', 'PROCESANDO')", id) > 0;
+    }
+
+    /**
+     * Da por fallida una importación en curso cuyo nodo lleva más de <code>vencimientoSegundos</code>
+     * sin sincronizar (se cayó o se reinició a medias).
+     */
+    public void marcarAbandonado(String id, int vencimientoSegundos) {
+        jdbcTemplate.update(ABANDONADO, id, vencimientoSegundos);
+    }
+
+    /**
+     * Stream que guarda en <code>IMPORT_JOB_RECHAZOS</code> lo que se le escriba, en trozos de
+     * {@value #TAMANO_PARTE} bytes; el último se guarda al cerrarlo. Cada trozo se confirma por separado,
+     * por eso la importación se marca terminada solo después de cerrarlo.
+     */
+    public OutputStream rechazos(String id) {
+        return new OutputStream() {
+            private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(TAMANO_PARTE);
+            private int parte;
+
+            @Override
+            public void write(int b) {
+                buffer.write(b);
+                if (buffer.size() >= TAMANO_PARTE) guardarParte();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                while (len > 0) {
+                    int n = Math.min(len, TAMANO_PARTE - buffer.size());
+                    buffer.write(b, off, n);
+                    off += n;
+                    len -= n;
+                    if (buffer.size() >= TAMANO_PARTE) guardarParte();
+                }
+            }
+
+            @Override
+            public void close() {
+                if (buffer.size() > 0) guardarParte();
+            }
+
+            private void guardarParte() {
+                jdbcTemplate.update("INSERT INTO IMPORT_JOB_RECHAZOS (id_job, parte, datos) VALUES (?, ?, ?)",
+                        id, parte++, buffer.toByteArray());
+                buffer.reset();
+            }
+        };
+    }
+
+    /** true si la importación tiene libro de rechazos guardado. */
+    public boolean tieneRechazos(String id) {
+        return !jdbcTemplate.queryForList("SELECT parte FROM IMPORT_JOB_RECHAZOS WHERE id_job = ? AND parte = 0",
+                Integer.class, id).isEmpty();
+    }
+
+    /** Escribe el libro de rechazos trozo por trozo, sin cargarlo completo en memoria. */
+    public void escribirRechazos(String id, OutputStream out) throws IOException {
+        for (int parte = 0; ; parte++) {
+            List<byte[]> datos = jdbcTemplate.query("SELECT datos FROM IMPORT_JOB_RECHAZOS WHERE id_job = ? AND parte = ?",
+                    (rs, i) -> rs.getBytes("datos"), id, parte);
+            if (datos.isEmpty()) return;
+            out.write(datos.getFirst());
+        }
+    }
+
+    /** Borra los trozos que se alcanzaron a guardar de un libro que no se terminó de escribir. */
+    public void borrarRechazos(String id) {
+        jdbcTemplate.update("DELETE FROM IMPORT_JOB_RECHAZOS WHERE id_job = ?", id);
+    }
+
+    /**
+     * Borra las importaciones terminadas hace más de <code>horas</code> horas, con sus rechazos.
+     * @return Importaciones borradas
+     */
+    public int purgar(long horas) {
+        jdbcTemplate.update("""
+                DELETE FROM IMPORT_JOB_RECHAZOS WHERE id_job IN (
+                    SELECT id FROM IMPORT_JOB WHERE terminado_en < TIMESTAMPADD(HOUR, -?, NOW()))""", horas);
+        return jdbcTemplate.update("DELETE FROM IMPORT_JOB WHERE terminado_en < TIMESTAMPADD(HOUR, -?, NOW())", horas);
+    }
+}
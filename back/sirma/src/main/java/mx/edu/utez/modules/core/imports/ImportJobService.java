@@ -0,0 +1,463 @@
+package mx.edu.utez.modules.core.imports;
+
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.kernel.sse.SseEmitterService;
+import mx.edu.utez.modules.core.qr.QrPregeneracionService;
+import mx.edu.utez.util.CustomException;
+import mx.edu.utez.util.NodoLocal;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Orquesta las importaciones en segundo plano: guarda el archivo en disco temporal,
+ * lo encola en el pool acotado de importaciones y lleva el registro de los trabajos
+ * para poder consultarlos o cancelarlos mientras corren.
+ *
+ * <p>El trabajo corre en el nodo que recibió el archivo, pero su estado y su libro de rechazos
+ * quedan en <code>IMPORT_JOB</code>: la consulta, la descarga de rechazos y la cancelación
+ * funcionan aunque el balanceador mande la petición a otro nodo.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Service
+public class ImportJobService {
+
+    /** Evento SSE de que una importación avanzó (solo el id; el avance se pide a <code>/api/imports/{id}</code>). */
+    public static final String EVENTO_SSE = "importacion";
+
+    /** Tiempo que se conserva un trabajo terminado para que el cliente consulte su resultado. */
+    private static final long RETENCION_HORAS = 2;
+
+    /** Segundos sin sincronizar tras los que se da por caído al nodo que corría una importación. */
+    private static final int VENCIMIENTO_SEGUNDOS = 60;
+
+    /** Minutos tras los que se borra el archivo de una simulación cuya respuesta nunca empezó a escribirse. */
+    private static final long SIMULACION_MINUTOS = 10;
+
+    private final ImportService importService;
+    private final SseEmitterService sseEmitterService;
+    private final AsyncTaskExecutor importExecutor;
+    private final ObjectMapper objectMapper;
+    private final QrPregeneracionService qrPregeneracionService;
+    private final ImportJobRepository importJobRepository;
+
+    /** Trabajos que corren (o corrieron) en este nodo. */
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    /**
+     * Archivos de simulaciones cuyo cuerpo todavía no corre, con la hora en que se guardaron.
+     * Si el cliente se desconecta o la petición falla antes, el cuerpo nunca los borra y los limpia el barrido.
+     */
+    private final Map<Path, LocalDateTime> simulacionesPendientes = new ConcurrentHashMap<>();
+    /** Dueño de las filas de <code>IMPORT_JOB</code> que crea este nodo (distinto en cada arranque). */
+    private final String nodo;
+
+    public ImportJobService(ImportService importService,
+                            SseEmitterService sseEmitterService,
+                            @Qualifier("importExecutor") AsyncTaskExecutor importExecutor,
+                            ObjectMapper objectMapper,
+                            QrPregeneracionService qrPregeneracionService,
+                            ImportJobRepository importJobRepository) {
+        this.importService = importService;
+        this.sseEmitterService = sseEmitterService;
+        this.importExecutor = importExecutor;
+        this.objectMapper = objectMapper;
+        this.qrPregeneracionService = qrPregeneracionService;
+        this.importJobRepository = importJobRepository;
+        this.nodo = NodoLocal.nombre() + "-" + UUID.randomUUID();
+    }
+
+    /**
+     * Valida el archivo, lo copia a disco y encola la importación.
+     * El archivo multipart deja de existir al terminar la petición, por eso se copia antes de responder.
+     *
+     * @param file Archivo Excel recibido
+     * @return Trabajo registrado (en cola)
+     */
+    public ImportJob iniciar(MultipartFile file) {
+        importService.validarArchivo(file);
+        Path temporal = guardarTemporal(file);
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename());
+        jobs.put(job.getId(), job);
+        registrar(job);
+
+        try {
+            job.setFuture(importExecutor.submit(() -> ejecutar(job, temporal)));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getId());
+            borrarTemporal(temporal);
+            job.terminar(ImportJob.Estado.FALLIDO, "Hay demasiadas importaciones en curso.");
+            persistirFin(job);
+            throw new CustomException("Hay demasiadas importaciones en curso, intenta en unos minutos.", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        log.info("Importación {} encolada ({})", job.getId(), job.getArchivo());
+        return job;
+    }
+
+    /**
+     * Busca un trabajo de importación por su id, en este nodo o en <code>IMPORT_JOB</code>.
+     * @param jobId Identificador del trabajo
+     * @return Estado del trabajo (con el detalle de las primeras filas rechazadas) si sigue registrado
+     */
+    public Optional<ImportJobStatus> buscar(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job != null) return Optional.of(job.detalle());
+        try {
+            // Si el nodo que la corría se cayó, nadie más la va a terminar
+            importJobRepository.marcarAbandonado(jobId, VENCIMIENTO_SEGUNDOS);
+            return importJobRepository.buscar(jobId).map(this::estado);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo consultar la importación {}: {}", jobId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Solicita la cancelación de un trabajo. Si aún estaba en cola no llega a ejecutarse;
+     * si ya corría, se detiene al terminar el lote actual (los lotes ya confirmados se conservan).
+     * Si corre en otro nodo, ese nodo la aplica en su siguiente sincronización (a lo más un segundo).
+     *
+     * @param jobId Identificador del trabajo
+     * @return Estado del trabajo afectado si existía
+     */
+    public Optional<ImportJobStatus> cancelar(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job != null) {
+            cancelarLocal(job);
+            return Optional.of(job.progreso());
+        }
+        try {
+            importJobRepository.solicitarCancelacion(jobId);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo solicitar la cancelación de la importación {}: {}", jobId, e.getMessage());
+        }
+        return buscar(jobId);
+    }
+
+    private void cancelarLocal(ImportJob job) {
+        if (job.isTerminado()) return;
+
+        job.getCancelado().set(true);
+        if (job.getEstado() == ImportJob.Estado.EN_COLA && job.getFuture() != null && job.getFuture().cancel(false)) {
+            job.terminar(ImportJob.Estado.CANCELADO, "Importación cancelada antes de iniciar.");
+            persistirFin(job);
+            sseEmitterService.notificarTrabajo(EVENTO_SSE, job.getId());
+        }
+    }
+
+    /**
+     * Busca el libro de filas rechazadas de un trabajo terminado.
+     * @param jobId Identificador del trabajo
+     * @return Cuerpo que escribe el .xlsx si el trabajo existe, ya terminó y tuvo rechazos
+     */
+    public Optional<StreamingResponseBody> buscarRechazos(String jobId) {
+        if (!buscar(jobId).map(s -> s.estado().terminal()).orElse(false)) return Optional.empty();
+        try {
+            if (!importJobRepository.tieneRechazos(jobId)) return Optional.empty();
+        } catch (DataAccessException e) {
+            log.warn("No se pudo consultar el libro de rechazos de la importación {}: {}", jobId, e.getMessage());
+            return Optional.empty();
+        }
+        return Optional.of(out -> importJobRepository.escribirRechazos(jobId, out));
+    }
+
+    /**
+     * Simulación que regresa las filas rechazadas como libro .xlsx (columnas originales + error)
+     * en lugar de NDJSON. El libro se arma con SXSSF y se escribe directo a la respuesta.
+     *
+     * @param file Archivo Excel recibido
+     * @return Cuerpo que escribe el libro de rechazos
+     */
+    public StreamingResponseBody simularXlsx(MultipartFile file) {
+        Path temporal = guardarSimulacion(file);
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename());
+
+        return out -> {
+            simulacionesPendientes.remove(temporal);
+            try (RechazosWorkbook libro = new RechazosWorkbook()) {
+                try {
+                    job.iniciar();
+                    importService.simular(temporal, job, libro);
+                } catch (CustomException e) {
+                    libro.anotarFallo(e.getMessage());
+                }
+                libro.escribir(out);
+            } finally {
+                borrarTemporal(temporal);
+            }
+        };
+    }
+
+    /**
+     * Simulación de una importación (dry run): valida el archivo con todas las reglas sin escribir nada
+     * y va mandando cada fila rechazada como una línea NDJSON <code>{"fila":N,"error":"..."}</code>
+     * mientras se lee el archivo. La última línea es <code>{"resumen":{...}}</code> con los contadores,
+     * o <code>{"fallo":"..."}</code> si el archivo no se pudo procesar.
+     *
+     * @param file Archivo Excel recibido
+     * @return Cuerpo que escribe la validación directo a la respuesta
+     */
+    public StreamingResponseBody simular(MultipartFile file) {
+        Path temporal = guardarSimulacion(file);
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename());
+
+        return out -> {
+            simulacionesPendientes.remove(temporal);
+            try {
+                job.iniciar();
+                ImportResult result = importService.simular(temporal, job, ndjson(out));
+                job.terminar(ImportJob.Estado.COMPLETADO, result.rechazos() == 0
+                        ? "El archivo es válido: se importarían " + result.inserciones() + " activo(s)."
+                        : result.rechazos() + " fila(s) con errores; se importarían " + result.inserciones() + " activo(s).");
+                escribirLinea(out, Map.of("resumen", job.progreso()));
+            } catch (CustomException e) {
+                escribirLinea(out, Map.of("fallo", e.getMessage()));
+            } finally {
+                borrarTemporal(temporal);
+            }
+            out.flush();
+        };
+    }
+
+    /** Sink que escribe cada rechazo como una línea JSON; hace flush al terminar cada lote. */
+    private ImportErrorSink ndjson(OutputStream out) {
+        return new ImportErrorSink() {
+            @Override
+            public void rechazar(FilaRechazada rechazo) {
+                escribirLinea(out, rechazo);
+            }
+
+            @Override
+            public void loteTerminado() {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private void escribirLinea(OutputStream out, Object valor) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(valor));
+            out.write('\n');
+        } catch (IOException e) {
+            // El cliente cerró la conexión; se corta la simulación
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copia el archivo a disco: el multipart deja de existir al terminar la petición.
+     */
+    private Path guardarTemporal(MultipartFile file) {
+        try {
+            Path temporal = Files.createTempFile("sirma-import-", ".xlsx");
+            file.transferTo(temporal);
+            return temporal;
+        } catch (IOException e) {
+            log.error("No se pudo guardar temporalmente el archivo de importación", e);
+            throw new CustomException("Error interno al recibir el archivo Excel", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Valida y copia a disco el archivo de una simulación; queda pendiente hasta que su cuerpo empiece a correr.
+     */
+    private Path guardarSimulacion(MultipartFile file) {
+        importService.validarArchivo(file);
+        Path temporal = guardarTemporal(file);
+        simulacionesPendientes.put(temporal, LocalDateTime.now());
+        return temporal;
+    }
+
+    private void ejecutar(ImportJob job, Path archivo) {
+        RechazosWorkbook libro = new RechazosWorkbook();
+        ImportJob.Estado estadoFinal;
+        String mensajeFinal;
+        int inserciones = 0;
+        long ultimoIdPrevio = -1;
+        try {
+            if (job.isCancelado()) {
+                estadoFinal = ImportJob.Estado.CANCELADO;
+                mensajeFinal = "Importación cancelada antes de iniciar.";
+            } else {
+                job.iniciar();
+                sseEmitterService.notificarTrabajo(EVENTO_SSE, job.getId());
+                ultimoIdPrevio = qrPregeneracionService.ultimoIdActivo();
+
+                // Cada rechazo va al detalle del trabajo y al libro descargable
+                ImportResult result = importService.importar(archivo, job, rechazo -> {
+                    job.rechazar(rechazo);
+                    libro.rechazar(rechazo);
+                });
+                inserciones = result.inserciones();
+
+                if (job.isCancelado()) {
+                    estadoFinal = ImportJob.Estado.CANCELADO;
+                    mensajeFinal = "Importación cancelada. Se conservaron " + result.inserciones() + " activo(s) ya procesados.";
+                } else {
+                    estadoFinal = ImportJob.Estado.COMPLETADO;
+                    mensajeFinal = result.mensaje();
+                }
+            }
+        } catch (CustomException e) {
+            estadoFinal = ImportJob.Estado.FALLIDO;
+            mensajeFinal = e.getMessage();
+        } catch (Exception e) {
+            log.error("Importación {} falló", job.getId(), e);
+            estadoFinal = ImportJob.Estado.FALLIDO;
+            mensajeFinal = "Error interno al procesar el archivo Excel";
+        }
+
+        borrarTemporal(archivo);
+        // El libro se guarda antes de marcar el fin, así al ver el estado terminal ya se puede descargar
+        guardarRechazos(job, libro);
+        job.terminar(estadoFinal, mensajeFinal);
+        persistirFin(job);
+        sseEmitterService.notificarTrabajo(EVENTO_SSE, job.getId());
+        sseEmitterService.notificar("inventario");
+
+        // Los QRs de lo recién importado se preparan en segundo plano (también si se canceló a medias)
+        if (inserciones > 0 && ultimoIdPrevio >= 0) pregenerarQrs(job, ultimoIdPrevio);
+    }
+
+    private void pregenerarQrs(ImportJob job, long ultimoIdPrevio) {
+        try {
+            qrPregeneracionService.despuesDeImportar(ultimoIdPrevio);
+        } catch (Exception e) {
+            // Los QRs se siguen generando al abrirse cada activo
+            log.warn("No se pudo lanzar la pregeneración de QRs de la importación {}", job.getId(), e);
+        }
+    }
+
+    /** Guarda en la BD el libro de rechazos (si hubo) para que se pueda descargar desde cualquier nodo. */
+    private void guardarRechazos(ImportJob job, RechazosWorkbook libro) {
+        try (libro) {
+            if (libro.getTotal() == 0) return;
+            try (OutputStream out = importJobRepository.rechazos(job.getId())) {
+                libro.escribir(out);
+            }
+        } catch (IOException | DataAccessException e) {
+            log.warn("No se pudo guardar el libro de rechazos de la importación {}", job.getId(), e);
+            try {
+                importJobRepository.borrarRechazos(job.getId());
+            } catch (DataAccessException ex) {
+                log.debug("No se pudieron borrar los rechazos incompletos de la importación {}", job.getId(), ex);
+            }
+        }
+    }
+
+    /** Crea la fila del trabajo; sin ella el trabajo sigue, pero solo se puede consultar en este nodo. */
+    private void registrar(ImportJob job) {
+        try {
+            importJobRepository.crear(job.getId(), job.getArchivo(), nodo);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo registrar la importación {} en la BD; solo se verá desde este nodo: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private void persistirFin(ImportJob job) {
+        try {
+            ImportJobStatus fin = job.detalle();
+            importJobRepository.terminar(fin, json(fin.errores()), nodo);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo guardar el estado final de la importación {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Cada segundo copia a <code>IMPORT_JOB</code> el avance de las importaciones que corren en este nodo
+     * (también es su latido) y aplica las cancelaciones que se pidieron desde otros nodos.
+     */
+    @Scheduled(fixedDelayString = "${app.imports.sincronizacion-ms:1000}")
+    public void sincronizar() {
+        for (ImportJob job : jobs.values()) {
+            if (job.isTerminado()) continue;
+            try {
+                ImportJobStatus avance = job.detalle();
+                if (importJobRepository.avanzar(avance, json(avance.errores()), nodo))
+                    cancelarLocal(job);
+            } catch (DataAccessException e) {
+                log.debug("No se pudo sincronizar la importación {}", job.getId(), e);
+            }
+        }
+    }
+
+    /** Estado de un trabajo leído de <code>IMPORT_JOB</code>. */
+    private ImportJobStatus estado(ImportJobRepository.Trabajo t) {
+        List<String> errores = t.errores() == null ? List.of() : List.of(objectMapper.readValue(t.errores(), String[].class));
+        int omitidos = t.rechazados() - errores.size();
+        return new ImportJobStatus(t.id(), t.archivo(), t.estado(), t.filasLeidas(), t.insertados(),
+                t.reactivados(), t.rechazados(), t.mensaje(), errores, omitidos > 0 ? omitidos : null);
+    }
+
+    private String json(List<String> errores) {
+        return errores == null || errores.isEmpty() ? null : objectMapper.writeValueAsString(errores);
+    }
+
+    private void borrarTemporal(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el archivo temporal {}", archivo, e);
+        }
+    }
+
+    /**
+     * Limpia cada 10 minutos los trabajos terminados hace más de {@value #RETENCION_HORAS} horas,
+     * en memoria y en la BD (cualquier nodo puede borrar los de todos), y los archivos de simulaciones
+     * que llevan más de {@value #SIMULACION_MINUTOS} minutos sin que su respuesta empiece.
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void limpiarTerminados() {
+        LocalDateTime limite = LocalDateTime.now().minusHours(RETENCION_HORAS);
+        jobs.values().removeIf(j -> j.isTerminado() && j.getTerminadoEn() != null && j.getTerminadoEn().isBefore(limite));
+        limpiarSimulaciones(LocalDateTime.now().minusMinutes(SIMULACION_MINUTOS));
+        try {
+            importJobRepository.purgar(RETENCION_HORAS);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron purgar las importaciones terminadas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Borra los archivos de simulaciones que se guardaron antes del límite y cuyo cuerpo nunca empezó.
+     * @param limite Hora de guardado a partir de la cual todavía se esperan
+     * @return Cuántos archivos se borraron
+     */
+    int limpiarSimulaciones(LocalDateTime limite) {
+        int borrados = 0;
+        for (Map.Entry<Path, LocalDateTime> e : simulacionesPendientes.entrySet()) {
+            if (e.getValue().isBefore(limite) && simulacionesPendientes.remove(e.getKey(), e.getValue())) {
+                borrarTemporal(e.getKey());
+                borrados++;
+            }
+        }
+        if (borrados > 0) log.info("Se borraron {} archivo(s) de simulaciones abandonadas", borrados);
+        return borrados;
+    }
+}
@@ -0,0 +1,33 @@
+package mx.edu.utez.modules.core.imports;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Foto del avance de una importación en segundo plano, para el endpoint de estado (solo admin).
+ * @param id Identificador del trabajo
+ * @param archivo Nombre original del archivo subido
+ * @param estado Estado actual del trabajo
+ * @param filasLeidas Filas con datos leídas del Excel hasta el momento
+ * @param insertados Activos nuevos insertados
+ * @param reactivados Activos desactivados que se reactivaron
+ * @param rechazados Filas rechazadas por validación
+ * @param mensaje Mensaje final (solo cuando el trabajo terminó)
+ * @param errores Detalle de las primeras filas rechazadas (se omite en los eventos de progreso)
+ * @param erroresOmitidos Rechazos que no vienen en <code>errores</code>; el detalle completo se descarga
+ *                        de <code>GET /api/imports/{id}/rechazos</code> cuando el trabajo termina
+ * @author Ithera Team
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportJobStatus(String id,
+                              String archivo,
+                              ImportJob.Estado estado,
+                              int filasLeidas,
+                              int insertados,
+                              int reactivados,
+                              int rechazados,
+                              String mensaje,
+                              List<String> errores,
+                              Integer erroresOmitidos) {
+}
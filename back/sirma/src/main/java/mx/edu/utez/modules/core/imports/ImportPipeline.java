@@ -0,0 +1,172 @@
+package mx.edu.utez.modules.core.imports;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Tubería productor/consumidor de una importación.
+ * El hilo que lee el Excel (SAX) deja lotes en una cola acotada y un grupo pequeño de workers
+ * los valida y persiste en paralelo; así el parser no se detiene mientras la BD trabaja.
+ *
+ * <p>Los resultados de cada lote se publican en el orden en que se leyeron (número de secuencia),
+ * aunque los workers terminen en otro orden, para que los errores salgan ordenados por fila.</p>
+ *
+ * <p>Con cero workers no hay cola: cada lote se procesa en el mismo hilo del parser
+ * (lo usa la simulación, que solo lee y no necesita ocupar el pool).</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+class ImportPipeline implements AutoCloseable {
+
+    /** Cada cuánto revisan productor y workers si deben detenerse mientras esperan la cola. */
+    private static final long ESPERA_MS = 200;
+
+    /** Lote de filas con su número de secuencia de lectura. */
+    private record Lote(long seq, List<String[]> filas) {}
+
+    /** Resultado de procesar un lote, listo para aplicarse al trabajo en orden. */
+    record ResultadoLote(List<FilaRechazada> rechazos, int insertados, int reactivados) {}
+
+    private final BlockingQueue<Lote> cola;
+    private final Function<List<String[]>, ResultadoLote> procesador;
+    private final Consumer<ResultadoLote> publicador;
+    private final List<Future<?>> workers = new ArrayList<>();
+    private final AtomicReference<Throwable> fallo = new AtomicReference<>();
+
+    private volatile boolean productorTerminado;
+    private volatile boolean detenido;
+
+    private long siguienteSeq;
+
+    /** Resultados que terminaron antes que un lote anterior; se guardan hasta que les toque. */
+    private final Map<Long, ResultadoLote> pendientes = new HashMap<>();
+    private long siguienteAPublicar;
+
+    /**
+     * Arranca los workers de la tubería.
+     *
+     * @param executor     Pool acotado donde corren los workers
+     * @param numWorkers   Workers para esta importación (0 = procesar en el hilo del parser)
+     * @param capacidad    Lotes que pueden esperar en cola antes de frenar al parser
+     * @param procesador   Valida y persiste un lote (en su propia transacción)
+     * @param publicador   Recibe los resultados en orden de lectura
+     */
+    ImportPipeline(AsyncTaskExecutor executor, int numWorkers, int capacidad,
+                   Function<List<String[]>, ResultadoLote> procesador,
+                   Consumer<ResultadoLote> publicador) {
+        this.cola = new ArrayBlockingQueue<>(Math.max(capacidad, 1));
+        this.procesador = procesador;
+        this.publicador = publicador;
+        try {
+            for (int i = 0; i < numWorkers; i++)
+                workers.add(executor.submit(this::consumir));
+        } catch (RuntimeException e) {
+            // Si el pool rechaza a alguno, los que sí arrancaron se detienen para no quedar colgados
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Encola un lote; bloquea mientras la cola esté llena (contrapresión sobre el parser).
+     * @param filas Filas del lote (la lista pasa a ser de la tubería)
+     */
+    void enviar(List<String[]> filas) {
+        Lote lote = new Lote(siguienteSeq++, filas);
+        if (workers.isEmpty()) {
+            publicar(lote.seq(), procesador.apply(lote.filas()));
+            return;
+        }
+        try {
+            while (!cola.offer(lote, ESPERA_MS, TimeUnit.MILLISECONDS))
+                verificarFallo();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importación interrumpida", e);
+        }
+        verificarFallo();
+    }
+
+    /**
+     * Indica que ya no hay más lotes y espera a que los workers vacíen la cola.
+     * @throws IllegalStateException si algún lote falló al persistirse
+     */
+    void terminar() {
+        productorTerminado = true;
+        esperarWorkers();
+        verificarFallo();
+    }
+
+    /** Detiene los workers tras el lote que estén procesando (cancelación o error del parser). */
+    @Override
+    public void close() {
+        if (!productorTerminado) {
+            detenido = true;
+            productorTerminado = true;
+            cola.clear();
+            esperarWorkers();
+        }
+    }
+
+    private void consumir() {
+        try {
+            while (!detenido) {
+                Lote lote = cola.poll(ESPERA_MS, TimeUnit.MILLISECONDS);
+                if (lote == null) {
+                    // El productor marca el fin después de su último offer, así que aquí la cola ya es definitiva
+                    if (productorTerminado && cola.isEmpty()) return;
+                    continue;
+                }
+                publicar(lote.seq(), procesador.apply(lote.filas()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            log.error("Falló un lote de la importación", t);
+            fallo.compareAndSet(null, t);
+            detenido = true;
+        }
+    }
+
+    private synchronized void publicar(long seq, ResultadoLote resultado) {
+        pendientes.put(seq, resultado);
+        ResultadoLote siguiente;
+        while ((siguiente = pendientes.remove(siguienteAPublicar)) != null) {
+            publicador.accept(siguiente);
+            siguienteAPublicar++;
+        }
+    }
+
+    private void esperarWorkers() {
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                fallo.compareAndSet(null, e.getCause());
+            }
+        }
+    }
+
+    private void verificarFallo() {
+        Throwable t = fallo.get();
+        if (t != null)
+            throw new IllegalStateException("Falló el procesamiento de un lote de la importación", t);
+    }
+}
@@ -6,7 +6,7 @@ import java.util.List;
  * Encargado de mandar
  * @param inserciones Número de inserciones hechas en la BD
  * @param rechazos Número de rechazos hechos por el servicio
- * @param errores Los errores o mensajes que tenga el servicio parra el cliente
+ * @param errores Los errores o mensajes que tenga el servicio parra el cliente (solo los primeros, ver {@link ImportJob#MAX_ERRORES})
  * @author Ithera Team
  */
 public record ImportResult(int inserciones, int rechazos, List<String> errores) {
@@ -23,6 +23,9 @@ public record ImportResult(int inserciones, int rechazos, List<String> errores)
               .append(" fila").append(rechazos == 1 ? "" : "s")
               .append(" fueron rechazadas.\n\nDetalle de rechazos:\n")
               .append(String.join("\n", errores));
+            if (errores.size() < rechazos)
+                sb.append("\n... y ").append(rechazos - errores.size())
+                  .append(" más. Descarga el libro de rechazos para verlas todas.");
         } else {
             sb.append("Se importaron ").append(inserciones)
               .append(" activo").append(inserciones == 1 ? "" : "s")
@@ -1,10 +1,12 @@
 package mx.edu.utez.modules.core.imports;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.kernel.sse.SseEmitterService;
+import mx.edu.utez.modules.core.assets.ActivoContadores;
 import mx.edu.utez.modules.core.assets.Assets;
 import mx.edu.utez.modules.core.assets.AssetsRepository;
-import mx.edu.utez.modules.reporting.bitacora.BitacoraService;
+import mx.edu.utez.modules.core.assets.EtiquetaAllocator;
+import mx.edu.utez.modules.core.assets.utils.AssetsUtils;
 import mx.edu.utez.modules.location.campus.Campus;
 import mx.edu.utez.modules.location.campus.CampusRepository;
 import mx.edu.utez.modules.location.edificios.Edificio;
@@ -13,27 +15,34 @@ import mx.edu.utez.modules.location.espacios.Espacio;
 import mx.edu.utez.modules.location.espacios.EspacioRepository;
 import mx.edu.utez.modules.core.tipo_activos.TipoActivo;
 import mx.edu.utez.modules.core.tipo_activos.TipoActivoRepository;
+import mx.edu.utez.modules.security.auth.user_details.UserDetailsImp;
+import mx.edu.utez.security.jwt.JwtProvider;
 import mx.edu.utez.util.CustomException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.util.XMLHelper;
 import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
 import org.apache.poi.xssf.model.StylesTable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.xml.sax.InputSource;
 import org.xml.sax.XMLReader;
 
-import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import java.time.LocalDate;
 import java.util.LinkedHashMap;
@@ -50,28 +59,80 @@ import java.util.LinkedHashMap;
  * La Etiqueta se genera automáticamente con la misma lógica del alta manual.
  * </pre>
  *
+ * <p>La importación corre en segundo plano (ver {@link ImportJobService}) y cada lote de
+ * {@value #BATCH_SIZE} filas se confirma en su propia transacción, así no se retiene una
+ * conexión de BD durante todo el archivo y el avance se puede reportar lote por lote.</p>
+ *
+ * <p>La lectura y la persistencia van en paralelo ({@link ImportPipeline}): el parser SAX solo
+ * arma lotes y detecta series repetidas en el archivo, y los workers resuelven catálogos y guardan.</p>
+ *
  * @author Ithera Team
  */
 @Log4j2
 @Service
-@AllArgsConstructor
 public class ImportService {
 
     private final AssetsRepository assetsRepository;
-    private final BitacoraService bitacoraService;
+    private final ImportBulkWriter importBulkWriter;
+    private final ActivoContadores activoContadores;
+    private final EtiquetaAllocator etiquetaAllocator;
+    private final JwtProvider jwtProvider;
     private final TipoActivoRepository tipoActivoRepository;
     private final CampusRepository campusRepository;
     private final EdificioRepository edificioRepository;
     private final EspacioRepository espacioRepository;
+    private final SseEmitterService sseEmitterService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate txSoloLectura;
+    private final AsyncTaskExecutor importWorkerExecutor;
+    private final int workersPorImportacion;
+
+    /** Procesamos de 500 en 500 para no reventar la RAM */
+    static final int BATCH_SIZE = 500;
+
+    /** Lotes leídos que pueden esperar a un worker antes de frenar al parser. */
+    private static final int LOTES_EN_COLA = 4;
+
+    /** Serializa la creación automática de tipos entre workers (el nombre es único en BD). */
+    private final Object tipoLock = new Object();
+
+    public ImportService(AssetsRepository assetsRepository,
+                         ImportBulkWriter importBulkWriter,
+                         ActivoContadores activoContadores,
+                         EtiquetaAllocator etiquetaAllocator,
+                         JwtProvider jwtProvider,
+                         TipoActivoRepository tipoActivoRepository,
+                         CampusRepository campusRepository,
+                         EdificioRepository edificioRepository,
+                         EspacioRepository espacioRepository,
+                         SseEmitterService sseEmitterService,
+                         TransactionTemplate transactionTemplate,
+                         @Qualifier("importWorkerExecutor") AsyncTaskExecutor importWorkerExecutor,
+                         @Value("${app.imports.workers:3}") int workersPorImportacion) {
+        this.assetsRepository = assetsRepository;
+        this.importBulkWriter = importBulkWriter;
+        this.activoContadores = activoContadores;
+        this.etiquetaAllocator = etiquetaAllocator;
+        this.jwtProvider = jwtProvider;
+        this.tipoActivoRepository = tipoActivoRepository;
+        this.campusRepository = campusRepository;
+        this.edificioRepository = edificioRepository;
+        this.espacioRepository = espacioRepository;
+        this.sseEmitterService = sseEmitterService;
+        this.transactionTemplate = transactionTemplate;
+        this.txSoloLectura = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.txSoloLectura.setReadOnly(true);
+        this.importWorkerExecutor = importWorkerExecutor;
+        this.workersPorImportacion = workersPorImportacion;
+    }
 
     /**
-     * Recibe y valida un archivo Excel multipart para la importación masiva de activos.
+     * Valida que el archivo multipart sea un Excel (.xlsx) con contenido.
      *
      * @param file Archivo Excel con formato .xlsx
-     * @return ApiResponse con el resultado de la operación (éxito o lista de errores)
+     * @throws CustomException Si el archivo viene vacío o no es .xlsx
      */
-    @Transactional(rollbackFor = {Exception.class})
-    public ImportResult save(MultipartFile file) {
+    public void validarArchivo(MultipartFile file) {
 
         final String SHEETS_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
 
@@ -80,8 +141,32 @@ public class ImportService {
 
         if (!SHEETS_TYPE.equals(file.getContentType())) // || Objects.requireNonNull(file.getOriginalFilename()).toLowerCase().endsWith(".xlsx") si no jalaba era por esto XD
             throw new CustomException("Tipo de archivo no soportado. Debe ser .xlsx o similar");
+    }
 
-        return handleExcel(file);
+    /**
+     * Importa los activos de un archivo .xlsx ya guardado en disco, reportando el avance en el trabajo.
+     *
+     * @param archivo Ruta del archivo Excel ya validado
+     * @param job     Trabajo donde se acumulan los contadores
+     * @param sink    Destino de las filas rechazadas (el propio trabajo, el libro de rechazos, etc.)
+     * @return Resumen de inserciones y rechazos
+     */
+    public ImportResult importar(Path archivo, ImportJob job, ImportErrorSink sink) {
+        return handleExcel(archivo, job, sink, false);
+    }
+
+    /**
+     * Simulación: aplica todas las reglas de la importación sin escribir nada en la BD.
+     * Los rechazos se entregan al <code>sink</code> conforme se leen, en orden de fila, y no se
+     * acumulan en memoria. Los tipos que se crearían al vuelo solo existen durante la simulación.
+     *
+     * @param archivo Ruta del archivo Excel ya validado
+     * @param job     Trabajo (no registrado) donde se llevan los contadores
+     * @param sink    Destino de cada fila rechazada
+     * @return Resumen: <code>inserciones</code> son las filas que sí se importarían
+     */
+    public ImportResult simular(Path archivo, ImportJob job, ImportErrorSink sink) {
+        return handleExcel(archivo, job, sink, true);
     }
 
     // ========================================================= \\
@@ -95,22 +180,46 @@ public class ImportService {
 
     /**
      * Se encarga de procesar el acrhivo de excel, y aplicar las reglas de negocio que estan en el DFR.
-     * @param file Tipo <code>Multifile</code> que es el archiivo de excel.
-     * @return <code>ApiResponse</code> o sea un resumen de las inserciones rechazos (si hubo) y su respectivo estatus Http
+     * @param archivo Ruta del archivo de excel en disco.
+     * @param job Trabajo de importación que lleva los contadores.
+     * @param sink Destino de las filas rechazadas.
+     * @param simulacro true para validar sin escribir nada (dry run).
+     * @return <code>ImportResult</code> o sea un resumen de las inserciones rechazos (si hubo)
      */
-    private ImportResult handleExcel(MultipartFile file) throws ImportException {
-
-        AtomicInteger inserciones   = new AtomicInteger();
-        List<String>  errores       = new ArrayList<>();
-
-        Set<String> etiquetasVistas = new HashSet<>();
-        Set<String> seriesVistas    = new HashSet<>();
-
-        List<String[]> batch = new ArrayList<>();
-        final int BATCH_SIZE = 500; // Procesamos de 500 en 500 para no reventar la RAM
-
-        try(InputStream inputStream = file.getInputStream(); // Aqui lo abrimos en un inputStream
-            OPCPackage pkg      = OPCPackage.open(inputStream) // Y aqui lo convertimos a un paquete de excel, se llama PKG PQ POR LO GENERLA SE COMPRIMEN EN ZIP LOS EXCEL Xd
+    private ImportResult handleExcel(Path archivo, ImportJob job, ImportErrorSink sink, boolean simulacro) throws ImportException {
+
+        // El autor de la bitácora se resuelve una vez aquí (el contexto de seguridad viene del que subió el archivo)
+        Long usuarioId = simulacro ? null : jwtProvider.getCurrentUser().map(UserDetailsImp::getId)
+                .orElseThrow(() -> new CustomException("Usuario no encontrado", HttpStatus.UNAUTHORIZED));
+
+        // serie → fila que la reclamó primero; lo llena solo el parser, en orden de lectura,
+        // asi la regla de "serie repetida en el archivo" no depende de qué worker llegue antes
+        Map<String, Integer> seriesVistas = new ConcurrentHashMap<>();
+        // Tipos que alguna fila ya leída trae con Marca + Bien + Modelo (se crearán al vuelo); solo lo usa el parser
+        Set<String> tiposCreables = new HashSet<>();
+
+        List<List<String[]>> batch = new ArrayList<>(List.of(new ArrayList<>(BATCH_SIZE)));
+
+        // Campus, edificios, espacios y tipos se resuelven una vez por importación, no por lote
+        ImportCatalogo catalogo = new ImportCatalogo(campusRepository, edificioRepository, espacioRepository, tipoActivoRepository);
+
+        // Se abre directo del archivo en modo lectura, asi POI no tiene que cargar todo el zip a memoria
+        try(OPCPackage pkg = OPCPackage.open(archivo.toFile(), PackageAccess.READ); // se llama PKG PQ POR LO GENERLA SE COMPRIMEN EN ZIP LOS EXCEL Xd
+            // La simulación solo lee: va en el hilo del parser, en transacción de solo lectura que nunca confirma
+            ImportPipeline pipeline = simulacro
+                    ? new ImportPipeline(importWorkerExecutor, 0, 0,
+                            lote -> txSoloLectura.execute(status -> {
+                                status.setRollbackOnly();
+                                return processBatch(lote, seriesVistas, catalogo, null, null);
+                            }),
+                            resultado -> publicarLote(resultado, job, sink, false))
+                    : new ImportPipeline(importWorkerExecutor, workersPorImportacion, LOTES_EN_COLA,
+                            lote -> {
+                                // Las etiquetas se piden antes de abrir la transacción del lote (ver reservarEtiquetas)
+                                Map<String, Deque<String>> etiquetas = reservarEtiquetas(lote, seriesVistas, catalogo);
+                                return transactionTemplate.execute(status -> processBatch(lote, seriesVistas, catalogo, usuarioId, etiquetas));
+                            },
+                            resultado -> publicarLote(resultado, job, sink, true))
         ) {
             XSSFReader xssfReader = new XSSFReader(pkg);
             StylesTable styles  = xssfReader.getStylesTable();
@@ -125,11 +234,17 @@ public class ImportService {
             parser.setContentHandler(new XSSFSheetXMLHandler(
                     styles, null, sst,
                     new RowCollectorHandler(row -> {
-                        batch.add(row);
+                        reclamarSerie(row, seriesVistas, catalogo, tiposCreables);
+                        batch.getFirst().add(row);
+                        job.getFilasLeidas().incrementAndGet();
 
-                        if (batch.size() >= BATCH_SIZE)
-                            inserciones.addAndGet(processBatch(batch, errores, etiquetasVistas, seriesVistas));
+                        if (batch.getFirst().size() >= BATCH_SIZE) {
+                            pipeline.enviar(batch.getFirst());
+                            batch.set(0, new ArrayList<>(BATCH_SIZE));
+                        }
 
+                        if (job.isCancelado())
+                            throw new ImportCancelada();
                     }),
                     new DataFormatter(),
                     false
@@ -142,30 +257,137 @@ public class ImportService {
             if (sheets.hasNext())
                 parser.parse(new InputSource(sheets.next())); // es la primera hoja del fokin excel
 
-            if (!batch.isEmpty()) // Si al terminar de leer el archivo quedan filas en el lote, las procesamos
-                inserciones.addAndGet(processBatch(batch, errores, etiquetasVistas, seriesVistas));
+            if (!batch.getFirst().isEmpty()) // Si al terminar de leer el archivo quedan filas en el lote, las procesamos
+                pipeline.enviar(batch.getFirst());
+
+            pipeline.terminar(); // Esperamos a que los workers terminen los lotes en cola
 
         } catch (Exception e) {
+            // El parser puede envolver la señal de cancelación, por eso se revisa la bandera del trabajo
+            if (e instanceof ImportCancelada || job.isCancelado()) {
+                log.info("Importación {} cancelada tras {} fila(s)", job.getId(), job.getFilasLeidas().get());
+                return new ImportResult(job.getInsertados().get() + job.getReactivados().get(),
+                        job.getRechazados().get(), job.detalle().errores());
+            }
+
             log.error("Error al leer el archivo Excel", e);
-            throw new CustomException("Error interno al leer el archivo Excel", HttpStatus.INTERNAL_SERVER_ERROR);
+            int procesados = job.getInsertados().get() + job.getReactivados().get();
+            throw new CustomException("Error interno al leer el archivo Excel"
+                    + (procesados > 0 ? ". Se conservaron " + procesados + " activo(s) de lotes anteriores." : ""),
+                    HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
-        if (inserciones.get() == 0 && errores.isEmpty())
+        int inserciones = job.getInsertados().get() + job.getReactivados().get();
+        if (inserciones == 0 && job.getRechazados().get() == 0 && !job.isCancelado())
             throw new CustomException("El archivo no contiene datos.");
 
 
         // FASE 6: RESPUESTA
         // Mandarle el mensajemediante ImportResult pal front y ya xD
-        return new ImportResult(inserciones.get(), errores.size(), errores);
+        return new ImportResult(inserciones, job.getRechazados().get(), job.detalle().errores());
     }
 
-    private int processBatch(List<String[]> batch, List<String> errores, Set<String> etiquetasVistas, Set<String> seriesVistas) {
+    /**
+     * Registra la primera fila de cada número de serie que sí se puede dar de alta. Corre en el hilo del parser,
+     * en orden de lectura, antes de que el lote llegue a los workers.
+     * Solo reclaman la serie las filas completas con campus, edificio y espacio existentes y con un tipo que
+     * existe o que se puede crear: si la primera aparición se va a rechazar por eso, no le quita la serie
+     * a la siguiente fila que la trae bien.
+     */
+    private static void reclamarSerie(String[] r, Map<String, Integer> seriesVistas, ImportCatalogo catalogo,
+                                      Set<String> tiposCreables) {
+        if (!r[3].isEmpty() && puedeCrearTipo(new String[]{r[4], r[5], r[6]}))
+            tiposCreables.add(ImportCatalogo.normalizar(r[3]));
+
+        if (r[1].isEmpty() || r[2].isEmpty() || r[3].isEmpty() || r[7].isEmpty() || r[8].isEmpty()) return;
+        if (seriesVistas.containsKey(r[1])) return;
+
+        catalogo.preparar(List.of(r[2])); // solo consulta la BD la primera vez que aparece el campus
+        try {
+            Campus campus = catalogo.campus(r[2]);
+            Edificio edificio = campus == null ? null : catalogo.edificio(campus, r[7]);
+            if (edificio == null || catalogo.espacio(edificio, r[8]) == null) return;
+            if (catalogo.tipo(r[3]) == null && !tiposCreables.contains(ImportCatalogo.normalizar(r[3]))) return;
+        } catch (ImportException e) {
+            return; // nombre ambiguo: la fila se rechazará al validarla
+        }
+
+        seriesVistas.put(r[1], Integer.parseInt(r[0]));
+    }
+
+    /**
+     * true si ninguna fila anterior reclamó la serie. Las que van antes de la que la reclamó no son repetidas:
+     * se rechazan por su propio error (campus, espacio, tipo...).
+     */
+    private static boolean esPrimeraAparicion(String[] r, Map<String, Integer> seriesVistas) {
+        Integer fila = seriesVistas.get(r[1]);
+        return fila == null || Integer.parseInt(r[0]) <= fila;
+    }
+
+    /**
+     * Aplica al trabajo el resultado de un lote. La tubería lo llama en orden de lectura,
+     * así los errores quedan ordenados por número de fila.
+     */
+    private void publicarLote(ImportPipeline.ResultadoLote resultado, ImportJob job, ImportErrorSink sink, boolean notificar) {
+        resultado.rechazos().forEach(sink::rechazar);
+        job.getRechazados().addAndGet(resultado.rechazos().size());
+        job.getInsertados().addAndGet(resultado.insertados());
+        job.getReactivados().addAndGet(resultado.reactivados());
+        sink.loteTerminado();
+        if (notificar)
+            sseEmitterService.notificarTrabajo(ImportJobService.EVENTO_SSE, job.getId());
+    }
+
+    /**
+     * Reserva, sin transacción abierta, las etiquetas que puede necesitar un lote: una por fila completa
+     * que reclamó su serie, agrupadas por prefijo. Así la reserva de un bloque nuevo (que se confirma en su
+     * propia conexión) no se hace mientras el lote tiene tomada la suya, y los workers no se quedan
+     * esperando conexiones del pool unos a otros. Las que sobren por filas rechazadas se pierden,
+     * igual que el resto de un bloque al reiniciar.
+     *
+     * @return prefijo → etiquetas reservadas para el lote
+     */
+    private Map<String, Deque<String>> reservarEtiquetas(List<String[]> lote, Map<String, Integer> seriesVistas,
+                                                         ImportCatalogo catalogo) {
+        catalogo.preparar(lote.stream().map(r -> r[2]).filter(c -> !c.isEmpty()).collect(Collectors.toSet()));
+
+        Map<String, Integer> porPrefijo = new HashMap<>();
+        for (String[] r : lote) {
+            if (r[1].isEmpty() || r[2].isEmpty() || r[3].isEmpty() || r[7].isEmpty() || r[8].isEmpty()
+                    || !esPrimeraAparicion(r, seriesVistas)) continue;
+            // Si el tipo aún no existe se creará con la marca de la fila
+            TipoActivo tipo;
+            try {
+                tipo = catalogo.tipo(r[3]);
+            } catch (ImportException e) {
+                continue; // tipo ambiguo: la fila se rechazará
+            }
+            String prefijo = tipo != null
+                    ? AssetsUtils.prefijoEtiqueta(tipo.getNombre(), tipo.getMarca(), r[8], r[7], r[2])
+                    : AssetsUtils.prefijoEtiqueta(r[3], r[4], r[8], r[7], r[2]);
+            porPrefijo.merge(prefijo, 1, Integer::sum);
+        }
+
+        Map<String, Deque<String>> etiquetas = new HashMap<>();
+        porPrefijo.forEach((prefijo, n) -> etiquetas.put(prefijo, new ArrayDeque<>(etiquetaAllocator.siguientes(prefijo, n))));
+        return etiquetas;
+    }
+
+    /**
+     * Valida y guarda un lote. Sin <code>usuarioId</code> es simulación: se corren las mismas
+     * reglas pero no se escribe nada (ni activos, ni bitácora, ni tipos nuevos).
+     * @param etiquetas Etiquetas ya reservadas por prefijo (null en la simulación)
+     */
+    private ImportPipeline.ResultadoLote processBatch(List<String[]> batch, Map<String, Integer> seriesVistas,
+                                                      ImportCatalogo catalogo, Long usuarioId,
+                                                      Map<String, Deque<String>> etiquetas) {
+        boolean simulacro = usuarioId == null;
+
         // Columnas: [0]=fila, [1]=Serie, [2]=Campus, [3]=TipoActivo,
         //           [4]=Marca, [5]=Bien, [6]=Modelo, [7]=Edificio, [8]=Espacio
         //           (Etiqueta se genera automáticamente)
         Set<String> seriesLote  = new HashSet<>();
         Set<String> campusLote  = new HashSet<>();
-        Set<String> nombresLote = new HashSet<>();
 
         // Guardamos datos de creación de tipo: nombre → {marca, bien, modelo}
         // (primera aparición por nombre, ya que nombre es único)
@@ -174,10 +396,8 @@ public class ImportService {
         for (String[] r : batch) {
             if (!r[1].isEmpty()) seriesLote.add(r[1]);
             if (!r[2].isEmpty()) campusLote.add(r[2]);
-            if (!r[3].isEmpty()) {
-                nombresLote.add(r[3]);
+            if (!r[3].isEmpty())
                 tipoCreacionDatos.putIfAbsent(r[3], new String[]{r[4], r[5], r[6]});
-            }
         }
 
         // Solo series de activos ACTIVOS bloquean la importación
@@ -189,48 +409,99 @@ public class ImportService {
                 assetsRepository.findInactivosByNumeroSerieIn(seriesLote).stream()
                 .collect(Collectors.toMap(Assets::getNumeroSerie, Function.identity()));
 
-        Map<String, Campus> campusCache = campusRepository.findByNombreIn(campusLote)
-                .stream().collect(Collectors.toMap(Campus::getNombre, Function.identity()));
+        catalogo.preparar(campusLote);
+
+        // Solo vale la pena tomar el candado si algún tipo faltante trae datos para crearlo
+        if (tipoCreacionDatos.entrySet().stream().anyMatch(e -> !catalogo.existeTipo(e.getKey()) && puedeCrearTipo(e.getValue())))
+            crearTiposFaltantes(tipoCreacionDatos, catalogo, simulacro);
+
+        List<Assets> activosNuevos      = new ArrayList<>();
+        List<Assets> activosReactivados = new ArrayList<>();
+        List<FilaRechazada> rechazos    = new ArrayList<>();
+
+        for (String[] r : batch) {
+            int rowNum = Integer.parseInt(r[0]) + 1;
+            String serie = r[1];
+            try {
+                if (!serie.isEmpty() && inactivosMap.containsKey(serie) && esPrimeraAparicion(r, seriesVistas)) {
+                    // Activo previamente desactivado → reactivar
+                    activosReactivados.add(reactivarAsset(inactivosMap.get(serie), r, catalogo));
+                } else {
+                    activosNuevos.add(buildAsset(r, seriesVistas, seriesEnBD, catalogo, etiquetas));
+                }
+            } catch (ImportException e) {
+                log.error("Error en fila {}: {}", rowNum, e.getMessage());
+                rechazos.add(new FilaRechazada(rowNum, e.getMessage(), r));
+            }
+        }
+
+        if (simulacro)
+            return new ImportPipeline.ResultadoLote(rechazos, activosNuevos.size(), activosReactivados.size());
 
-        Set<Long> campusIds = campusCache.values().stream()
-                .map(Campus::getId).collect(Collectors.toSet());
+        // Altas por JDBC en batch (INSERT multi-fila); las reactivaciones son pocas y siguen por JPA
+        importBulkWriter.insertarActivos(activosNuevos);
+        importBulkWriter.insertarBitacora(activosNuevos, usuarioId);
 
-        Map<String, Edificio> edificioCache = campusIds.isEmpty() ? new HashMap<>() :
-                edificioRepository.findByCampusIdIn(campusIds).stream()
-                .collect(Collectors.toMap(
-                        e -> e.getCampus().getId() + "-" + e.getNombre(),
-                        Function.identity()
-                ));
+        if (!activosReactivados.isEmpty()) {
+            assetsRepository.saveAll(activosReactivados);
+            log.info("Importación: {} activo(s) desactivado(s) reactivado(s).", activosReactivados.size());
+        }
 
-        Set<Long> edificioIds = edificioCache.values().stream()
-                .map(Edificio::getId).collect(Collectors.toSet());
+        // Altas y reactivaciones no contaban antes (no existían o no eran vigentes): solo se suman
+        activoContadores.sumar(Stream.concat(activosNuevos.stream(), activosReactivados.stream())
+                .map(Assets::getId).toList());
 
-        Map<String, Espacio> espacioCache = edificioIds.isEmpty() ? new HashMap<>() :
-                espacioRepository.findByEdificioIdIn(edificioIds).stream()
-                .collect(Collectors.toMap(
-                        e -> e.getEdificio().getId() + "-" + e.getNombreEspacio(),
-                        Function.identity()
-                ));
+        return new ImportPipeline.ResultadoLote(rechazos, activosNuevos.size(), activosReactivados.size());
+    }
 
-        // Buscar tipos existentes por nombre (único en BD)
-        Map<String, TipoActivo> tipoCache = new HashMap<>(
-                nombresLote.isEmpty() ? new HashMap<>() :
-                tipoActivoRepository.findByNombreIn(nombresLote).stream()
-                .collect(Collectors.toMap(TipoActivo::getNombre, Function.identity()))
-        );
+    /**
+     * Crea los tipos de activo que aún no existen y traen Marca + Bien + Modelo, y los registra en el catálogo.
+     * Corre bajo candado y en una transacción propia que se confirma de inmediato: así otro worker
+     * que necesite el mismo tipo lo encuentra ya creado en vez de chocar con el índice único del nombre.
+     *
+     * @param tipoCreacionDatos nombre → {marca, bien, modelo} de las filas del lote
+     * @param catalogo Catálogo de la importación
+     * @param simulacro true para solo registrarlos en el catálogo, sin guardarlos
+     */
+    private void crearTiposFaltantes(Map<String, String[]> tipoCreacionDatos, ImportCatalogo catalogo, boolean simulacro) {
+        if (simulacro) {
+            crearTipos(tipoCreacionDatos, catalogo, false);
+            return;
+        }
+
+        TransactionTemplate nuevaTx = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        nuevaTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        synchronized (tipoLock) {
+            // Otro worker pudo crearlos mientras esperábamos el candado
+            Map<String, String[]> faltantes = new LinkedHashMap<>();
+            tipoCreacionDatos.forEach((nombre, datos) -> {
+                if (!catalogo.existeTipo(nombre)) faltantes.putIfAbsent(nombre, datos);
+            });
+            if (faltantes.isEmpty()) return;
+
+            nuevaTx.executeWithoutResult(status -> {
+                // Otra importación o un alta manual también pudo crearlos desde que se cargó el catálogo
+                catalogo.registrarTipos(tipoActivoRepository.findByNombreIn(faltantes.keySet()));
+                crearTipos(faltantes, catalogo, true);
+            });
+        }
+    }
 
+    private void crearTipos(Map<String, String[]> tipoCreacionDatos, ImportCatalogo catalogo, boolean guardar) {
         // Auto-crear tipos que no existen si se proporcionó Marca + Bien + Modelo
         List<TipoActivo> nuevosTipos = new ArrayList<>();
+        Set<String> nombresNuevos = new HashSet<>();
         for (Map.Entry<String, String[]> entry : tipoCreacionDatos.entrySet()) {
             String nombre = entry.getKey();
-            if (tipoCache.containsKey(nombre)) continue;
+            if (catalogo.existeTipo(nombre) || !nombresNuevos.add(ImportCatalogo.normalizar(nombre))) continue;
 
             String[] datos = entry.getValue();
             String marca  = datos[0];
             String bien   = datos[1];
             String modelo = datos[2];
 
-            if (!marca.isEmpty() && !bien.isEmpty() && !modelo.isEmpty()) {
+            if (puedeCrearTipo(datos)) {
                 TipoActivo nuevo = new TipoActivo();
                 nuevo.setNombre(nombre);
                 nuevo.setMarca(marca);
@@ -241,52 +512,23 @@ public class ImportService {
             }
         }
 
-        if (!nuevosTipos.isEmpty()) {
+        if (!nuevosTipos.isEmpty() && guardar) {
             tipoActivoRepository.saveAll(nuevosTipos);
-            nuevosTipos.forEach(t -> tipoCache.put(t.getNombre(), t));
             log.info("Importación: {} tipo(s) de activo creado(s) automáticamente.", nuevosTipos.size());
         }
+        catalogo.registrarTipos(nuevosTipos);
+    }
 
-        List<Assets> activosNuevos      = new ArrayList<>();
-        List<Assets> activosReactivados = new ArrayList<>();
-
-        for (String[] r : batch) {
-            int rowNum = Integer.parseInt(r[0]) + 1;
-            String serie = r[1];
-            try {
-                if (!serie.isEmpty() && inactivosMap.containsKey(serie) && !seriesVistas.contains(serie)) {
-                    // Activo previamente desactivado → reactivar
-                    activosReactivados.add(reactivarAsset(inactivosMap.get(serie), r, tipoCache, campusCache, edificioCache, espacioCache));
-                    seriesVistas.add(serie);
-                } else {
-                    activosNuevos.add(buildAsset(r, seriesVistas, seriesEnBD, tipoCache, campusCache, edificioCache, espacioCache));
-                }
-            } catch (ImportException e) {
-                log.error("Error en fila {}: {}", rowNum, e.getMessage());
-                errores.add("Fila " + rowNum + ": " + e.getMessage());
-            }
-        }
-
-        if (!activosNuevos.isEmpty()) {
-            assetsRepository.saveAll(activosNuevos);
-            bitacoraService.registrarEvento(activosNuevos);
-            activosNuevos.forEach(a -> seriesEnBD.add(a.getNumeroSerie()));
-        }
-
-        if (!activosReactivados.isEmpty()) {
-            assetsRepository.saveAll(activosReactivados);
-            log.info("Importación: {} activo(s) desactivado(s) reactivado(s).", activosReactivados.size());
-        }
-
-        batch.clear();
-        return activosNuevos.size() + activosReactivados.size();
+    /** Un tipo se puede crear al vuelo solo si la fila trae Marca, Bien y Modelo. */
+    private static boolean puedeCrearTipo(String[] datos) {
+        return !datos[0].isEmpty() && !datos[1].isEmpty() && !datos[2].isEmpty();
     }
 
     private Assets buildAsset(String[] r,
-                              Set<String> seriesVistas,
+                              Map<String, Integer> seriesVistas,
                               Set<String> seriesEnBD,
-                              Map<String, TipoActivo> tipoCache, Map<String, Campus> campusCache,
-                              Map<String, Edificio> edificioCache, Map<String, Espacio> espacioCache) throws ImportException {
+                              ImportCatalogo catalogo,
+                              Map<String, Deque<String>> etiquetas) throws ImportException {
 
         // Columnas: [0]=fila, [1]=Serie, [2]=Campus, [3]=TipoActivo,
         //           [4]=Marca*, [5]=Bien*, [6]=Modelo*, [7]=Edificio, [8]=Espacio
@@ -301,30 +543,31 @@ public class ImportService {
             edificioStr.isEmpty() || espacioStr.isEmpty())
             throw new ImportException("Faltan campos obligatorios (Serie, Campus, Tipo, Edificio, Espacio).");
 
-        if (!seriesVistas.add(serie))
+        if (!esPrimeraAparicion(r, seriesVistas))
             throw new ImportException("El número de serie '" + serie + "' está repetido en el archivo.");
 
         if (seriesEnBD.contains(serie))
             throw new ImportException("El número de serie '" + serie + "' ya existe en el sistema.");
 
-        TipoActivo tipoActivo = tipoCache.get(tipoNombre);
+        TipoActivo tipoActivo = catalogo.tipo(tipoNombre);
         if (tipoActivo == null)
             throw new ImportException("El tipo de activo '" + tipoNombre + "' no existe en el catálogo y no se proporcionaron Marca, Bien y Modelo para crearlo.");
 
-        Campus campus = campusCache.get(campusStr);
+        Campus campus = catalogo.campus(campusStr);
         if (campus == null)
             throw new ImportException("El campus '" + campusStr + "' no existe.");
 
-        Edificio edificio = edificioCache.get(campus.getId() + "-" + edificioStr);
+        Edificio edificio = catalogo.edificio(campus, edificioStr);
         if (edificio == null)
             throw new ImportException("El edificio '" + edificioStr + "' no existe en el campus '" + campusStr + "'.");
 
-        Espacio espacio = espacioCache.get(edificio.getId() + "-" + espacioStr);
+        Espacio espacio = catalogo.espacio(edificio, espacioStr);
         if (espacio == null)
             throw new ImportException("El espacio '" + espacioStr + "' no existe en el edificio '" + edificioStr + "'.");
 
         // Generar etiqueta automáticamente con la misma lógica del alta manual
-        String etiqueta = generarEtiqueta(tipoActivo, campusStr, edificioStr, espacioStr);
+        // (la simulación no guarda nada, así que no gasta números de la secuencia)
+        String etiqueta = etiquetas == null ? null : generarEtiqueta(tipoActivo, campusStr, edificioStr, espacioStr, etiquetas);
 
         Assets asset = new Assets();
         asset.setEtiqueta(etiqueta);
@@ -343,11 +586,7 @@ public class ImportService {
      * Reactiva un activo que estaba desactivado (esActivo = false) actualizando su
      * ubicación y tipo según los datos de la fila del Excel.
      */
-    private Assets reactivarAsset(Assets activo, String[] r,
-                                   Map<String, TipoActivo> tipoCache,
-                                   Map<String, Campus> campusCache,
-                                   Map<String, Edificio> edificioCache,
-                                   Map<String, Espacio> espacioCache) throws ImportException {
+    private Assets reactivarAsset(Assets activo, String[] r, ImportCatalogo catalogo) throws ImportException {
 
         String campusStr   = r[2];
         String tipoNombre  = r[3];
@@ -357,19 +596,19 @@ public class ImportService {
         if (campusStr.isEmpty() || tipoNombre.isEmpty() || edificioStr.isEmpty() || espacioStr.isEmpty())
             throw new ImportException("Faltan campos obligatorios (Campus, Tipo, Edificio, Espacio).");
 
-        TipoActivo tipo = tipoCache.get(tipoNombre);
+        TipoActivo tipo = catalogo.tipo(tipoNombre);
         if (tipo == null)
             throw new ImportException("El tipo de activo '" + tipoNombre + "' no existe.");
 
-        Campus campus = campusCache.get(campusStr);
+        Campus campus = catalogo.campus(campusStr);
         if (campus == null)
             throw new ImportException("El campus '" + campusStr + "' no existe.");
 
-        Edificio edificio = edificioCache.get(campus.getId() + "-" + edificioStr);
+        Edificio edificio = catalogo.edificio(campus, edificioStr);
         if (edificio == null)
             throw new ImportException("El edificio '" + edificioStr + "' no existe en el campus '" + campusStr + "'.");
 
-        Espacio espacio = espacioCache.get(edificio.getId() + "-" + espacioStr);
+        Espacio espacio = catalogo.espacio(edificio, espacioStr);
         if (espacio == null)
             throw new ImportException("El espacio '" + espacioStr + "' no existe en el edificio '" + edificioStr + "'.");
 
@@ -384,20 +623,23 @@ public class ImportService {
 
     /**
      * Genera la etiqueta del activo con la misma lógica que el alta manual:
-     * 2 chars del nombre + 2 chars de la marca + inicial de espacio + edificio + campus + UUID 6 chars.
+     * prefijo de nombre, marca y ubicación + consecutivo reservado por {@link EtiquetaAllocator}.
+     * Se toma de las reservadas para el lote; solo si el prefijo no se anticipó (un tipo que otra fila
+     * creó con otra marca) se pide aquí.
      */
-    private String generarEtiqueta(TipoActivo tipo, String campusStr, String edificioStr, String espacioStr) {
-        String nombre = tipo.getNombre() != null ? tipo.getNombre() : "";
-        String marca  = tipo.getMarca()  != null ? tipo.getMarca()  : "";
-
-        String tagNombre   = nombre.length() >= 2 ? nombre.substring(0, 2).toUpperCase() : (nombre + "X").toUpperCase();
-        String tagMarca    = marca.length()  >= 2 ? marca.substring(0, 2).toUpperCase()  : (marca  + "X").toUpperCase();
-        char   tagEspacio  = !espacioStr.isEmpty()  ? Character.toUpperCase(espacioStr.charAt(0))  : 'X';
-        char   tagEdificio = !edificioStr.isEmpty() ? Character.toUpperCase(edificioStr.charAt(0)) : 'X';
-        char   tagCampus   = !campusStr.isEmpty()   ? Character.toUpperCase(campusStr.charAt(0))   : 'X';
-
-        String uid = UUID.randomUUID().toString().replace("-", "").substring(0, 6).toUpperCase();
-        return tagNombre + tagMarca + tagEspacio + tagEdificio + tagCampus + "-" + uid;
+    private String generarEtiqueta(TipoActivo tipo, String campusStr, String edificioStr, String espacioStr,
+                                   Map<String, Deque<String>> reservadas) {
+        String prefijo = AssetsUtils.prefijoEtiqueta(tipo.getNombre(), tipo.getMarca(), espacioStr, edificioStr, campusStr);
+        Deque<String> disponibles = reservadas.get(prefijo);
+        String etiqueta = disponibles == null ? null : disponibles.poll();
+        return etiqueta != null ? etiqueta : etiquetaAllocator.siguiente(prefijo);
+    }
+
+    /** Señal interna para salir del parser SAX cuando el usuario cancela la importación. */
+    private static class ImportCancelada extends RuntimeException {
+        ImportCancelada() {
+            super(null, null, false, false);
+        }
     }
 
-}
\ No newline at end of file
+}
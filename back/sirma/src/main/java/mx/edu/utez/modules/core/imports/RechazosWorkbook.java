@@ -0,0 +1,85 @@
+package mx.edu.utez.modules.core.imports;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Libro de Excel con las filas rechazadas: las columnas originales más una de error,
+ * listo para que el admin corrija solo esas filas y lo vuelva a subir.
+ *
+ * <p>Usa SXSSF: solo mantiene en memoria una ventana de filas y el resto lo baja a un temporal
+ * (comprimido), así da igual si son 10 o 100 mil rechazos. Llamar a {@link #close()} para borrar
+ * los temporales de POI.</p>
+ *
+ * @author Ithera Team
+ */
+class RechazosWorkbook implements ImportErrorSink, AutoCloseable {
+
+    /** Filas que POI mantiene en memoria antes de bajarlas a disco. */
+    private static final int VENTANA_FILAS = 100;
+
+    private final SXSSFWorkbook workbook = new SXSSFWorkbook(VENTANA_FILAS);
+    private final SXSSFSheet hoja;
+    private int siguienteFila;
+    private int total;
+
+    RechazosWorkbook() {
+        workbook.setCompressTempFiles(true);
+        hoja = workbook.createSheet("Rechazos");
+
+        CellStyle negritas = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        negritas.setFont(font);
+
+        Row encabezado = hoja.createRow(siguienteFila++);
+        for (int i = 0; i < ImportColumnas.ENCABEZADOS.size(); i++)
+            encabezado.createCell(i).setCellValue(ImportColumnas.ENCABEZADOS.get(i));
+        encabezado.createCell(ImportColumnas.ENCABEZADOS.size()).setCellValue("Error");
+        encabezado.forEach(c -> c.setCellStyle(negritas));
+    }
+
+    @Override
+    public void rechazar(FilaRechazada rechazo) {
+        Row row = hoja.createRow(siguienteFila++);
+        String[] datos = rechazo.datos();
+        // datos[0] es el número de fila interno; las columnas del Excel empiezan en datos[1]
+        for (int i = 0; i < ImportColumnas.ENCABEZADOS.size(); i++)
+            row.createCell(i).setCellValue(datos[i + 1]);
+        row.createCell(ImportColumnas.ENCABEZADOS.size()).setCellValue("Fila " + rechazo.fila() + ": " + rechazo.error());
+        total++;
+    }
+
+    /**
+     * Deja una fila solo con el mensaje en la columna de error, para cuando el archivo
+     * no se pudo terminar de procesar y el libro quedaría incompleto.
+     * @param mensaje Motivo del fallo
+     */
+    void anotarFallo(String mensaje) {
+        hoja.createRow(siguienteFila++).createCell(ImportColumnas.ENCABEZADOS.size()).setCellValue(mensaje);
+    }
+
+    /** Número de filas rechazadas escritas en el libro. */
+    int getTotal() {
+        return total;
+    }
+
+    /**
+     * Escribe el libro completo (formato .xlsx) en el stream.
+     * @param out Destino, normalmente la respuesta HTTP o un archivo temporal
+     */
+    void escribir(OutputStream out) throws IOException {
+        workbook.write(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        workbook.close(); // también borra los temporales de las filas ya bajadas a disco
+    }
+}
@@ -0,0 +1,47 @@
+package mx.edu.utez.modules.core.qr;
+
+import org.springframework.http.MediaType;
+
+import java.util.Optional;
+
+/**
+ * Formatos binarios en los que se sirve el QR de un activo, con el tamaño con el que
+ * se renderiza cada uno (el mismo de los endpoints JSON, así comparten caché en disco).
+ *
+ * @author Ithera Team
+ */
+public enum FormatoQr {
+
+    PNG("png", 300, MediaType.IMAGE_PNG),
+    PDF("pdf", 400, MediaType.APPLICATION_PDF),
+    SVG("svg", 300, MediaType.valueOf("image/svg+xml"));
+
+    private final String extension;
+    private final int tamano;
+    private final MediaType mediaType;
+
+    FormatoQr(String extension, int tamano, MediaType mediaType) {
+        this.extension = extension;
+        this.tamano = tamano;
+        this.mediaType = mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /** Formato por su extensión (<code>png</code>, <code>pdf</code>), sin importar mayúsculas. */
+    public static Optional<FormatoQr> deExtension(String extension) {
+        for (FormatoQr f : values())
+            if (f.extension.equalsIgnoreCase(extension)) return Optional.of(f);
+        return Optional.empty();
+    }
+}
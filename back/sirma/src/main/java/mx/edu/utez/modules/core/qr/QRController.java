@@ -1,12 +1,21 @@
 package mx.edu.utez.modules.core.qr;
 
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletRequest;
 import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.modules.core.assets.projections.QrLabelRow;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,6 +29,7 @@ import java.util.concurrent.TimeUnit;
 public class QRController {
 
     private final QRService qrService;
+    private final QRLabelService qrLabelService;
 
     /**
      * Endpoint para generar un código QR a partir de valores en el cuerpo.
@@ -81,4 +91,55 @@ public class QRController {
                 .cacheControl(CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic())
                 .body(response);
     }
+
+    /**
+     * Hoja de etiquetas QR en PDF (varias por página) para los activos indicados o los de una ubicación.
+     * El PDF se va armando y se manda al terminar, sin pasar por un arreglo de bytes en memoria.
+     * @param dto Ids o filtro de ubicación, rejilla y tamaño de etiqueta.
+     * @return PDF descargable.
+     */
+    @PostMapping("/labels")
+    public ResponseEntity<StreamingResponseBody> hojaEtiquetas(@RequestBody QRLabelsDTO dto) {
+        qrLabelService.validar(dto);
+        StreamingResponseBody body = out -> qrLabelService.escribir(dto, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"etiquetas-qr-" + LocalDate.now() + ".pdf\"")
+                .body(body);
+    }
+
+    /**
+     * QR del activo como binario (<code>png</code>, <code>svg</code> o <code>pdf</code>), sin envolverlo en
+     * <code>ApiResponse</code>: sin base64 ni copias extra. Lleva ETag fuerte derivado del payload;
+     * si el cliente manda el mismo en <code>If-None-Match</code> se responde 304 sin renderizar.
+     * Soporta <code>Range</code> (el archivo sale del caché en disco y se regenera si la limpieza lo borra
+     * antes de terminar de mandarlo).
+     * @param id Identificador del activo.
+     * @param formato <code>png</code>, <code>svg</code> o <code>pdf</code>.
+     * @return El archivo, 304, o 404 si el activo o el formato no existen.
+     */
+    @GetMapping("/{id}/raw/{formato}")
+    public ResponseEntity<?> qrBinario(@PathVariable Long id, @PathVariable String formato,
+                                       WebRequest webRequest, HttpServletRequest request) {
+        Optional<FormatoQr> tipo = FormatoQr.deExtension(formato);
+        if (tipo.isEmpty())
+            return new ResponseEntity<>(new ApiResponse("Formato no soportado", true, HttpStatus.NOT_FOUND), HttpStatus.NOT_FOUND);
+
+        Optional<QrLabelRow> fila = qrService.buscarParaRender(id);
+        if (fila.isEmpty())
+            return new ResponseEntity<>(new ApiResponse("Activo no encontrado", true, HttpStatus.NOT_FOUND), HttpStatus.NOT_FOUND);
+
+        // El ETag ya es nuestro; que el filtro global no copie y vuelva a hashear el cuerpo
+        ShallowEtagHeaderFilter.disableContentCaching(request);
+
+        String etag = qrService.etagRender(fila.get(), tipo.get());
+        if (webRequest.checkNotModified(etag))
+            return null;
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate())
+                .contentType(tipo.get().mediaType())
+                .body(qrService.renderArchivo(fila.get(), tipo.get()));
+    }
 }
@@ -0,0 +1,291 @@
+package mx.edu.utez.modules.core.qr;
+
+import com.google.zxing.common.BitMatrix;
+
+import lombok.extern.log4j.Log4j2;
+
+import mx.edu.utez.modules.core.assets.AssetsRepository;
+import mx.edu.utez.modules.core.assets.projections.QrLabelRow;
+import mx.edu.utez.util.CustomException;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Hojas de etiquetas QR (varias por página) para etiquetar un edificio completo de una vez.
+ *
+ * <p>Los activos se leen por bloques (proyección plana, keyset por id) y mientras se dibuja
+ * un bloque el siguiente ya se está codificando en paralelo en el pool de render. Cada QR se
+ * dibuja como vector ({@link QrVectorial}): sin imágenes, nítido a cualquier tamaño.</p>
+ *
+ * <p>El documento usa caché de streams solo en archivo temporal: el contenido de cada página
+ * se baja a disco en cuanto la página se cierra, y al final PDFBox lo escribe
+ * directo a la respuesta. En memoria solo queda la estructura de objetos del PDF.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Service
+public class QRLabelService {
+
+    /** Activos por consulta. */
+    private static final int BLOQUE = 500;
+
+    /** Máximo de ids sueltos por petición (para más, usar el filtro de ubicación). */
+    private static final int MAX_IDS = 10_000;
+
+    private static final float PUNTOS_POR_MM = 72f / 25.4f;
+    private static final float PADDING = 2f * PUNTOS_POR_MM;
+    private static final float FUENTE_MAX = 9f;
+    private static final float FUENTE_MIN = 5f;
+
+    /** Margen (quiet zone) del QR en módulos; el padding de la etiqueta completa el resto. */
+    private static final int MARGEN_QR = 1;
+
+    private final AssetsRepository assetsRepository;
+    private final QRService qrService;
+    private final AsyncTaskExecutor qrRenderExecutor;
+
+    public QRLabelService(AssetsRepository assetsRepository,
+                          QRService qrService,
+                          @Qualifier("qrRenderExecutor") AsyncTaskExecutor qrRenderExecutor) {
+        this.assetsRepository = assetsRepository;
+        this.qrService = qrService;
+        this.qrRenderExecutor = qrRenderExecutor;
+    }
+
+    /** Geometría de la rejilla en puntos PDF, ya validada contra la hoja. */
+    private record Rejilla(int columnas, int filas, float ancho, float alto, float separacion,
+                           float origenX, float origenY) {
+
+        int porPagina() {
+            return columnas * filas;
+        }
+
+        /** Esquina inferior izquierda de la celda i de la página (se llena por renglones, de arriba abajo). */
+        float x(int i) {
+            return origenX + (i % columnas) * (ancho + separacion);
+        }
+
+        float y(int i) {
+            return origenY - (i / columnas + 1) * alto - (i / columnas) * separacion;
+        }
+    }
+
+    /** Etiqueta lista para dibujar: texto y QR codificándose. */
+    private record Pendiente(String etiqueta, Future<BitMatrix> qr) {}
+
+    /**
+     * Revisa la petición antes de empezar a mandar el PDF (después ya no se puede responder un error).
+     * @param dto Petición
+     * @throws CustomException 400 si no hay criterio, algún id viene vacío o la rejilla no cabe;
+     *         404 si no hay activos vigentes
+     */
+    public void validar(QRLabelsDTO dto) {
+        if (!dto.porIds() && !dto.porUbicacion())
+            throw new CustomException("Indica los ids de los activos o un campus, edificio o espacio.");
+
+        if (dto.porIds() && dto.getIds().size() > MAX_IDS)
+            throw new CustomException("Máximo " + MAX_IDS + " activos por hoja; usa el filtro de ubicación.");
+
+        if (dto.porIds() && dto.getIds().contains(null))
+            throw new CustomException("La lista de ids trae valores vacíos.");
+
+        rejilla(dto);
+
+        // Igual que por ubicación, los dados de baja no salen en la hoja
+        if (dto.porIds() && !assetsRepository.existsByIdInAndEsActivoTrue(dto.getIds()))
+            throw new CustomException("Ninguno de esos activos está vigente.", HttpStatus.NOT_FOUND);
+
+        if (!dto.porIds() && assetsRepository.findQrLabelChunk(0L, dto.getCampusId(), dto.getEdificioId(),
+                dto.getEspacioId(), Limit.of(1)).isEmpty())
+            throw new CustomException("No hay activos en esa ubicación.", HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Escribe la hoja de etiquetas a la respuesta.
+     * @param dto Petición ya validada
+     * @param out Stream de la respuesta
+     */
+    public void escribir(QRLabelsDTO dto, OutputStream out) throws IOException {
+        Rejilla rejilla = rejilla(dto);
+
+        try (PDDocument document = new PDDocument(IOUtils.createTempFileOnlyStreamCache())) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+            Iterator<List<QrLabelRow>> bloques = bloques(dto);
+
+            PDPageContentStream cs = null;
+            int celda = 0;
+            int total = 0;
+            try {
+                List<Pendiente> actual = bloques.hasNext() ? codificar(bloques.next()) : List.of();
+                while (!actual.isEmpty()) {
+                    // El siguiente bloque se lee y codifica mientras este se dibuja
+                    List<Pendiente> siguiente = bloques.hasNext() ? codificar(bloques.next()) : List.of();
+
+                    for (Pendiente p : actual) {
+                        if (cs == null) {
+                            PDPage page = new PDPage(PDRectangle.A4);
+                            document.addPage(page);
+                            cs = new PDPageContentStream(document, page);
+                        }
+                        dibujar(cs, font, rejilla, celda, p.etiqueta(), esperar(p.qr()));
+                        total++;
+
+                        if (++celda == rejilla.porPagina()) {
+                            // Al cerrar, el contenido de la página se baja al temporal
+                            cs.close();
+                            cs = null;
+                            celda = 0;
+                        }
+                    }
+                    actual = siguiente;
+                }
+            } finally {
+                if (cs != null) cs.close();
+            }
+
+            if (document.getNumberOfPages() == 0)
+                document.addPage(new PDPage(PDRectangle.A4));
+
+            document.save(out);
+            log.info("Hoja de etiquetas QR generada: {} etiqueta(s), {} página(s)", total, document.getNumberOfPages());
+        }
+    }
+
+    private Rejilla rejilla(QRLabelsDTO dto) {
+        int columnas = dto.getColumnas() != null ? dto.getColumnas() : 3;
+        int filas = dto.getFilas() != null ? dto.getFilas() : 7;
+        float ancho = (float) (dto.getAnchoMm() != null ? dto.getAnchoMm() : 63.5) * PUNTOS_POR_MM;
+        float alto = (float) (dto.getAltoMm() != null ? dto.getAltoMm() : 38.1) * PUNTOS_POR_MM;
+        float separacion = (float) (dto.getSeparacionMm() != null ? dto.getSeparacionMm() : 2.5) * PUNTOS_POR_MM;
+
+        if (columnas < 1 || filas < 1 || separacion < 0)
+            throw new CustomException("La rejilla debe tener al menos una columna y una fila.");
+
+        // Lo más chico que sigue siendo legible: QR de 10 mm más el renglón de la etiqueta
+        if (ancho < 12 * PUNTOS_POR_MM || alto < 16 * PUNTOS_POR_MM)
+            throw new CustomException("La etiqueta debe medir al menos 12 x 16 mm.");
+
+        float totalAncho = columnas * ancho + (columnas - 1) * separacion;
+        float totalAlto = filas * alto + (filas - 1) * separacion;
+        PDRectangle hoja = PDRectangle.A4;
+        if (totalAncho > hoja.getWidth() || totalAlto > hoja.getHeight())
+            throw new CustomException("La rejilla de etiquetas no cabe en una hoja A4.");
+
+        return new Rejilla(columnas, filas, ancho, alto, separacion,
+                (hoja.getWidth() - totalAncho) / 2f,
+                hoja.getHeight() - (hoja.getHeight() - totalAlto) / 2f);
+    }
+
+    /** Bloques perezosos de filas (ya con payload), por ids o por ubicación. */
+    private Iterator<List<QrLabelRow>> bloques(QRLabelsDTO dto) {
+        Stream<List<QrLabelRow>> filas;
+        if (dto.porIds()) {
+            List<Long> ids = dto.getIds().stream().distinct().sorted().toList();
+            filas = Stream.iterate(0, i -> i < ids.size(), i -> i + BLOQUE)
+                    .map(i -> assetsRepository.findQrLabelsVigentesByIdIn(ids.subList(i, Math.min(i + BLOQUE, ids.size()))));
+        } else {
+            filas = Stream.iterate(
+                    leerDespuesDe(dto, 0L),
+                    bloque -> !bloque.isEmpty(),
+                    bloque -> bloque.size() < BLOQUE ? List.of() : leerDespuesDe(dto, bloque.getLast().id()));
+        }
+        return filas.filter(bloque -> !bloque.isEmpty())
+                .map(qrService::asegurarPayloads)
+                .iterator();
+    }
+
+    private List<QrLabelRow> leerDespuesDe(QRLabelsDTO dto, Long after) {
+        return assetsRepository.findQrLabelChunk(after, dto.getCampusId(), dto.getEdificioId(),
+                dto.getEspacioId(), Limit.of(BLOQUE));
+    }
+
+    private List<Pendiente> codificar(List<QrLabelRow> bloque) {
+        List<Pendiente> pendientes = new ArrayList<>(bloque.size());
+        for (QrLabelRow fila : bloque) {
+            String contenido = fila.qrCodigo();
+            pendientes.add(new Pendiente(fila.etiqueta(), qrRenderExecutor.submit(() -> QrVectorial.matriz(contenido, MARGEN_QR))));
+        }
+        return pendientes;
+    }
+
+    private static BitMatrix esperar(Future<BitMatrix> qr) throws IOException {
+        try {
+            return qr.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generación de etiquetas interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("No se pudo generar un QR de la hoja", e.getCause());
+        }
+    }
+
+    /** QR centrado arriba y la etiqueta del activo al pie, dentro de la celda. */
+    private static void dibujar(PDPageContentStream cs, PDType1Font font,
+                                Rejilla rejilla, int celda, String etiqueta, BitMatrix qr) throws IOException {
+        float x = rejilla.x(celda);
+        float y = rejilla.y(celda);
+        float disponible = rejilla.ancho() - 2 * PADDING;
+
+        String texto = textoSeguro(font, etiqueta);
+        float fontSize = Math.min(FUENTE_MAX, rejilla.alto() * 0.14f);
+        float textWidth = font.getStringWidth(texto) / 1000f * fontSize;
+        if (textWidth > disponible) {
+            // Se encoge para que quepa; si ni así, se corta
+            fontSize = Math.max(FUENTE_MIN, fontSize * disponible / textWidth);
+            while (!texto.isEmpty() && font.getStringWidth(texto) / 1000f * fontSize > disponible)
+                texto = texto.substring(0, texto.length() - 1);
+            textWidth = font.getStringWidth(texto) / 1000f * fontSize;
+        }
+
+        float qrSize = Math.min(disponible, rejilla.alto() - 2 * PADDING - fontSize - 2f);
+        float qrX = x + (rejilla.ancho() - qrSize) / 2f;
+        float qrY = y + PADDING + fontSize + 2f;
+        QrVectorial.dibujarPdf(cs, qr, qrX, qrY, qrSize);
+
+        if (!texto.isEmpty()) {
+            cs.beginText();
+            cs.setFont(font, fontSize);
+            cs.newLineAtOffset(x + (rejilla.ancho() - textWidth) / 2f, y + PADDING);
+            cs.showText(texto);
+            cs.endText();
+        }
+    }
+
+    /** Helvetica estándar solo trae WinAnsi; lo que no se pueda codificar sale como '?'. */
+    private static String textoSeguro(PDType1Font font, String texto) {
+        if (texto == null) return "";
+        StringBuilder sb = new StringBuilder(texto.length());
+        texto.codePoints().forEach(cp -> {
+            String c = Character.toString(cp);
+            try {
+                font.encode(c);
+                sb.append(c);
+            } catch (IllegalArgumentException | IOException e) {
+                sb.append('?');
+            }
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package mx.edu.utez.modules.core.qr;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Petición de hoja de etiquetas QR. Se mandan ids de activos o un filtro de ubicación
+ * (campus, edificio y/o espacio). La rejilla se centra en una hoja A4; los defaults
+ * corresponden a la hoja comercial de 3 x 7 etiquetas de 63.5 x 38.1 mm.
+ */
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+public class QRLabelsDTO {
+
+    private List<Long> ids;
+
+    private Long campusId;
+    private Long edificioId;
+    private Long espacioId;
+
+    private Integer columnas = 3;
+    private Integer filas = 7;
+
+    /** Medidas de cada etiqueta y separación entre ellas, en milímetros. */
+    private Double anchoMm = 63.5;
+    private Double altoMm = 38.1;
+    private Double separacionMm = 2.5;
+
+    public boolean porIds() {
+        return ids != null && !ids.isEmpty();
+    }
+
+    public boolean porUbicacion() {
+        return campusId != null || edificioId != null || espacioId != null;
+    }
+}
@@ -12,9 +12,9 @@ import lombok.extern.log4j.Log4j2;
 import mx.edu.utez.kernel.ApiResponse;
 import mx.edu.utez.modules.core.assets.Assets;
 import mx.edu.utez.modules.core.assets.AssetsRepository;
+import mx.edu.utez.modules.core.assets.projections.QrLabelRow;
 import mx.edu.utez.modules.media.imagen_activo.ImagenActivo;
 import mx.edu.utez.modules.media.imagen_activo.ImagenActivoRepository;
-import mx.edu.utez.util.CloudinaryPaths;
 import mx.edu.utez.util.CloudinaryService;
 import mx.edu.utez.util.QrPayloadCodec;
 
@@ -24,12 +24,13 @@ import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.imageio.ImageIO;
@@ -41,7 +42,16 @@ import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -54,12 +64,16 @@ import java.util.Optional;
 @Log4j2
 public class QRService {
 
-    private static final String QR_FILENAME = "QR_CODE";
+    /** Inicio de todo payload cifrado; lo que no empieza así es legado. */
+    private static final String PREFIJO_PAYLOAD = "{\"v\":2,";
 
     private final AssetsRepository assetsRepository;
     private final ImagenActivoRepository imagenActivoRepository;
     private final CloudinaryService cloudinaryService;
     private final QrPayloadCodec qrPayloadCodec;
+    private final QrRenderCache qrRenderCache;
+    private final QrPublicacionRepository qrPublicacionRepository;
+    private final QrPayloadBulkWriter qrPayloadBulkWriter;
 
     // -------------------------------------------------------------------------
     // Generación de imagen QR
@@ -134,6 +148,14 @@ public class QRService {
         }
     }
 
+    /**
+     * Escribe el QR como SVG (tramos vectoriales + etiqueta en <code>&lt;text&gt;</code>),
+     * sin pasar por imagen ni PNG.
+     */
+    public void generateQrSvg(String text, int size, String label, Writer out) throws WriterException, IOException {
+        QrVectorial.escribirSvg(QrVectorial.matriz(text, 4), label, size, out);
+    }
+
     // -------------------------------------------------------------------------
     // Generación de PDF con PDFBox (sin dependencia itext/lowagie)
     // -------------------------------------------------------------------------
@@ -147,9 +169,11 @@ public class QRService {
 
     /**
      * Genera un PDF A4 con el QR centrado y etiqueta opcional debajo.
+     * El QR va como vector (rectángulos), así que <code>width</code>/<code>height</code> ya no
+     * afectan la nitidez; se conservan por compatibilidad.
      */
     public byte[] generateQrPdf(String text, int width, int height, String labelText) throws Exception {
-        byte[] qrBytes = generateQrByteArray(text, width, height);
+        BitMatrix matriz = QrVectorial.matriz(text, 4);
 
         try (PDDocument document = new PDDocument();
              ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
@@ -165,11 +189,9 @@ public class QRService {
             float imgX = (pageWidth - imgSize) / 2f;
             float imgY = (pageHeight - imgSize) / 2f + 40f; // ligeramente arriba del centro
 
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(document, qrBytes, QR_FILENAME);
-
             try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
                 // Dibujar QR
-                cs.drawImage(pdImage, imgX, imgY, imgSize, imgSize);
+                QrVectorial.dibujarPdf(cs, matriz, imgX, imgY, imgSize);
 
                 // Etiqueta opcional debajo del QR
                 if (labelText != null && !labelText.isBlank()) {
@@ -225,7 +247,9 @@ public class QRService {
                 .orElse("");
 
         try {
-            byte[] qrBytes = generateQrByteArrayWithLabel(qrContent, 300, 300, etiqueta);
+            // Primero el caché en disco: tras un reinicio no hay que volver a renderizar
+            byte[] qrBytes = qrRenderCache.recurso(qrContent, 300, 300, etiqueta, "png",
+                    out -> out.write(generateQrByteArrayWithLabel(qrContent, 300, 300, etiqueta))).getContentAsByteArray();
             return new ApiResponse("QR generado correctamente", qrBytes, false, HttpStatus.OK);
         } catch (Exception e) {
             log.error("Error al generar imagen QR para activo {}", assetId, e);
@@ -248,7 +272,8 @@ public class QRService {
                 .orElse("");
 
         try {
-            byte[] pdfBytes = generateQrPdf(qrContent, 400, 400, etiqueta);
+            byte[] pdfBytes = qrRenderCache.recurso(qrContent, 400, 400, etiqueta, "pdf",
+                    out -> out.write(generateQrPdf(qrContent, 400, 400, etiqueta))).getContentAsByteArray();
             return new ApiResponse("PDF generado correctamente", pdfBytes, false, HttpStatus.OK);
         } catch (Exception e) {
             log.error("Error al generar PDF QR para activo {}", assetId, e);
@@ -256,9 +281,70 @@ public class QRService {
         }
     }
 
+    // -------------------------------------------------------------------------
+    // QR binario (sin ApiResponse): ETag del payload y render desde el caché en disco
+    // -------------------------------------------------------------------------
+
+    /**
+     * Lo que hace falta para servir el QR binario de un activo, sin cargar la entidad.
+     * Si el activo aún no tiene payload (o tiene el legado), se le asigna aquí.
+     * @param assetId ID del activo
+     * @return Id, etiqueta y payload, o vacío si el activo no existe
+     */
+    public Optional<QrLabelRow> buscarParaRender(Long assetId) {
+        List<QrLabelRow> filas = assetsRepository.findQrLabelsByIdIn(List.of(assetId));
+        return filas.isEmpty() ? Optional.empty() : Optional.of(asegurarPayloads(filas).getFirst());
+    }
+
+    /**
+     * ETag fuerte del QR: la misma llave del caché en disco (hash de payload, tamaño, etiqueta
+     * y formato). Se calcula sin renderizar, así un 304 no cuesta nada.
+     */
+    public String etagRender(QrLabelRow fila, FormatoQr formato) {
+        return "\"" + QrRenderCache.llave(fila.qrCodigo(), formato.tamano(), formato.tamano(),
+                etiquetaDe(fila), formato.extension()) + "\"";
+    }
+
+    /**
+     * Archivo del QR en el formato pedido, renderizado solo si no estaba en el caché en disco.
+     * No sube nada a Cloudinary: es la ruta de lectura. Si la limpieza del caché lo borra antes de
+     * terminar de servirlo, el recurso lo vuelve a renderizar.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Resource renderArchivo(QrLabelRow fila, FormatoQr formato) {
+        String contenido = fila.qrCodigo();
+        String etiqueta = etiquetaDe(fila);
+        int tamano = formato.tamano();
+        return qrRenderCache.recurso(contenido, tamano, tamano, etiqueta, formato.extension(), out -> {
+            switch (formato) {
+                case PNG -> out.write(generateQrByteArrayWithLabel(contenido, tamano, tamano, etiqueta));
+                case PDF -> out.write(generateQrPdf(contenido, tamano, tamano, etiqueta));
+                case SVG -> {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    generateQrSvg(contenido, tamano, etiqueta, writer);
+                    writer.flush();
+                }
+            }
+        });
+    }
+
     /**
-     * Resuelve (o genera) el contenido del QR para un activo,
-     * subiéndolo a Cloudinary si aún no existe.
+     * PNG sin etiqueta que se publica en Cloudinary (mismo render de siempre, desde el caché en disco).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public byte[] renderParaPublicar(QrLabelRow fila) throws IOException {
+        String contenido = fila.qrCodigo();
+        return qrRenderCache.recurso(contenido, 300, 300, null, "png",
+                out -> out.write(generateQrByteArray(contenido, 300, 300))).getContentAsByteArray();
+    }
+
+    private static String etiquetaDe(QrLabelRow fila) {
+        return fila.etiqueta() != null ? fila.etiqueta() : "";
+    }
+
+    /**
+     * Resuelve (o genera) el contenido del QR para un activo y, si su imagen aún no está
+     * en Cloudinary, lo deja encolado para publicarse en segundo plano.
      */
     @Transactional
     public String resolveQrContent(Long assetId) {
@@ -268,32 +354,10 @@ public class QRService {
         Assets asset = assetOpt.get();
         String qrContent = ensureOpaqueQrPayload(asset);
 
-        boolean qrImageExists = imagenActivoRepository.findByActivoId(assetId).stream()
-                .anyMatch(img -> QR_FILENAME.equals(img.getNombreArchivo()));
-
-        if (!qrImageExists) {
-            try {
-                byte[] qrBytes = generateQrByteArray(qrContent, 300, 300);
-
-                // Carpeta por activo: sirma/activos/{ID}/qr
-                // El usuario solicitó: "por cada activo, haya una carpeta de qro q el qr este peggado a la carpeta del activo"
-                String dynamicFolder = CloudinaryPaths.ACTIVOS + "/" + asset.getId() + "/qr";
-                
-                var uploadResult = cloudinaryService.upload(qrBytes, dynamicFolder);
-                String url      = (String) uploadResult.get("secure_url");
-                String publicId = (String) uploadResult.get("public_id");
-
-                ImagenActivo qrImg = new ImagenActivo();
-                qrImg.setActivo(asset);
-                qrImg.setNombreArchivo(QR_FILENAME);
-                qrImg.setUrlCloudinary(url);
-                qrImg.setPublicIdCloudinary(publicId);
-                imagenActivoRepository.save(qrImg);
-
-                log.info("Imagen QR generada y guardada para activo ID: {}", assetId);
-            } catch (Exception e) {
-                log.error("Error al subir imagen QR a Cloudinary", e);
-            }
+        // La subida a Cloudinary la hace QrPublicacionWorker en segundo plano; aquí solo se encola
+        // (una fila por activo, así que pedirlo varias veces no duplica nada)
+        if (!imagenActivoRepository.existsByActivoIdAndNombreArchivo(assetId, ImagenActivo.NOMBRE_ARCHIVO_QR)) {
+            qrPublicacionRepository.encolar(assetId);
         }
 
         return qrContent;
@@ -301,32 +365,112 @@ public class QRService {
 
     /**
      * Garantiza que {@link Assets#getQrCodigo()} use el formato {@code {"v":2,"p":"..."}} cifrado.
-     * Si existía el formato legado {@code {"id":N}}, borra la imagen QR previa y persiste el nuevo payload.
+     * Los legados ({@code {"id":N}}) los convierte la migración de una sola vez; si aun así llega uno,
+     * se le asigna el payload nuevo y el cambio de imagen se encola (sin llamar a Cloudinary aquí).
      */
     private String ensureOpaqueQrPayload(Assets asset) {
         String current = asset.getQrCodigo();
         boolean blank = current == null || current.isBlank();
         String trimmed = blank ? "" : current.trim();
-        boolean legacy = !blank && isLegacyPlainIdJson(trimmed);
 
-        if (!blank && !legacy) {
+        if (esPayloadActual(trimmed)) {
             return trimmed;
         }
 
         Long assetId = asset.getId();
-        if (legacy) {
-            deleteQrByAssetId(assetId);
-        }
-
-        String token = qrPayloadCodec.encode(assetId);
-        String qrContent = String.format("{\"v\":2,\"p\":\"%s\"}", token);
+        String qrContent = payloadPara(assetId);
         asset.setQrCodigo(qrContent);
         assetsRepository.save(asset);
+        if (!blank) {
+            programarReemplazo(List.of(assetId));
+        }
         return qrContent;
     }
 
-    private static boolean isLegacyPlainIdJson(String s) {
-        return s.matches("\\{\\s*\"id\"\\s*:\\s*\\d+\\s*}");
+    /**
+     * Versión por lote de {@link #ensureOpaqueQrPayload(Assets)} para las hojas de etiquetas y la
+     * pregeneración: a las filas sin payload (o con el legado) les asigna uno nuevo con un solo
+     * batch de UPDATEs, sin cargar las entidades. Las que ya lo tienen pasan tal cual.
+     * @param filas Filas del bloque
+     * @return Las mismas filas, todas con su payload cifrado
+     */
+    public List<QrLabelRow> asegurarPayloads(List<QrLabelRow> filas) {
+        List<QrLabelRow> resultado = new ArrayList<>(filas.size());
+        Map<Long, String> nuevos = new LinkedHashMap<>();
+        List<Long> legados = new ArrayList<>();
+        for (QrLabelRow fila : filas) {
+            String current = fila.qrCodigo();
+            boolean blank = current == null || current.isBlank();
+            String trimmed = blank ? "" : current.trim();
+
+            if (esPayloadActual(trimmed)) {
+                resultado.add(fila.conQrCodigo(trimmed));
+                continue;
+            }
+
+            if (!blank) {
+                legados.add(fila.id());
+            }
+
+            String qrContent = payloadPara(fila.id());
+            nuevos.put(fila.id(), qrContent);
+            resultado.add(fila.conQrCodigo(qrContent));
+        }
+        qrPayloadBulkWriter.actualizar(nuevos);
+        programarReemplazo(legados);
+        return resultado;
+    }
+
+    /**
+     * Guarda los payloads nuevos de un bloque de la migración de legados y encola el cambio de sus imágenes.
+     * @param payloads Id del activo → payload nuevo (ya calculado con {@link #payloadPara(Long)})
+     */
+    public void migrarPayloads(Map<Long, String> payloads) {
+        qrPayloadBulkWriter.actualizar(payloads);
+        programarReemplazo(payloads.keySet());
+    }
+
+    /** Payload cifrado del activo: {@code {"v":2,"p":"<token>"}}. */
+    public String payloadPara(Long assetId) {
+        return String.format("{\"v\":2,\"p\":\"%s\"}", qrPayloadCodec.encode(assetId));
+    }
+
+    /** Ya tiene el payload cifrado (un prefijo fijo, sin regex en cada lectura). */
+    private static boolean esPayloadActual(String s) {
+        return s.startsWith(PREFIJO_PAYLOAD);
+    }
+
+    /**
+     * El QR de estos activos cambió de payload: se borra el registro de su imagen vieja y se encolan
+     * para que el worker suba la nueva y después borre la anterior de Cloudinary.
+     */
+    private void programarReemplazo(Collection<Long> assetIds) {
+        if (assetIds.isEmpty()) return;
+        List<ImagenActivo> viejas = imagenActivoRepository.findByActivoIdInAndNombreArchivo(assetIds, ImagenActivo.NOMBRE_ARCHIVO_QR);
+        Map<Long, String> anteriores = new HashMap<>();
+        for (ImagenActivo img : viejas)
+            anteriores.put(img.getActivo().getId(), img.getPublicIdCloudinary());
+        imagenActivoRepository.deleteAllInBatch(viejas);
+        qrPublicacionRepository.encolarReemplazos(assetIds, anteriores);
+    }
+
+    /**
+     * Como {@link #deleteQrByAssetId(Long)} pero para muchos activos dados de baja a la vez: los registros
+     * se borran en la transacción de quien llama y el borrado en Cloudinary se encola en el outbox, así no
+     * se hacen miles de llamadas a Cloudinary dentro de la petición. El worker ve que el activo ya no está
+     * vigente y solo borra la imagen vieja, sin subir una nueva. El caché de QRs lo limpia quien llama.
+     * @param assetIds Activos desactivados
+     */
+    public void retirarQrs(Collection<Long> assetIds) {
+        if (assetIds.isEmpty()) return;
+        List<ImagenActivo> imagenes = imagenActivoRepository.findByActivoIdInAndNombreArchivo(assetIds, ImagenActivo.NOMBRE_ARCHIVO_QR);
+        if (imagenes.isEmpty()) return;
+        Map<Long, String> publicIds = new HashMap<>();
+        for (ImagenActivo img : imagenes)
+            publicIds.put(img.getActivo().getId(), img.getPublicIdCloudinary());
+        imagenActivoRepository.deleteAllInBatch(imagenes);
+        qrPublicacionRepository.encolarReemplazos(publicIds.keySet(), publicIds);
+        log.info("QR retirado de {} activo(s) dados de baja; borrado en Cloudinary encolado", publicIds.size());
     }
 
     /**
@@ -338,7 +482,7 @@ public class QRService {
     @CacheEvict(value = {"qr_images", "qr_pdfs"}, key = "#assetId")
     public void deleteQrByAssetId(Long assetId) {
         Optional<ImagenActivo> qrImgOpt = imagenActivoRepository.findByActivoId(assetId).stream()
-                .filter(img -> QR_FILENAME.equals(img.getNombreArchivo()))
+                .filter(img -> ImagenActivo.NOMBRE_ARCHIVO_QR.equals(img.getNombreArchivo()))
                 .findFirst();
 
         if (qrImgOpt.isPresent()) {
@@ -0,0 +1,38 @@
+package mx.edu.utez.modules.core.qr;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Asigna payloads de QR por lote con JDBC directo: un solo batch de UPDATEs
+ * (el driver lo manda en un viaje) en lugar de un <code>UPDATE</code> JPQL por activo.
+ *
+ * <p>Corre en la transacción de quien lo llama (misma conexión que JPA).</p>
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class QrPayloadBulkWriter {
+
+    private static final String UPDATE_PAYLOAD = "UPDATE ACTIVO SET qr_codigo = ? WHERE id_activo = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Guarda los payloads nuevos.
+     * @param payloads Id del activo → payload cifrado
+     */
+    public void actualizar(Map<Long, String> payloads) {
+        if (payloads.isEmpty()) return;
+
+        List<Object[]> args = new ArrayList<>(payloads.size());
+        payloads.forEach((id, payload) -> args.add(new Object[]{payload, id}));
+        jdbcTemplate.batchUpdate(UPDATE_PAYLOAD, args);
+    }
+}
@@ -0,0 +1,83 @@
+package mx.edu.utez.modules.core.qr;
+
+import lombok.RequiredArgsConstructor;
+import mx.edu.utez.kernel.ApiResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Endpoints de administración para los trabajos masivos de QR: pregeneración y migración de payloads
+ * legados (solo admin, por estar bajo <code>/api/admin</code>). Ambos se consultan y cancelan por
+ * <code>/pregeneracion/{id}</code>; por SSE (evento "qr_pregeneracion") solo llega el aviso con el id.
+ * @author Ithera Team
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/qr")
+public class QrPregeneracionController {
+
+    private final QrPregeneracionService qrPregeneracionService;
+
+    /**
+     * Lanza la pregeneración de los QRs de una ubicación; sin filtros, de todo el inventario.
+     * @param campusId Filtro de campus (opcional)
+     * @param edificioId Filtro de edificio (opcional)
+     * @param espacioId Filtro de espacio (opcional)
+     * @return 202 con el trabajo creado
+     */
+    @PostMapping("/pregeneracion/")
+    public ResponseEntity<ApiResponse> iniciar(@RequestParam(required = false) Long campusId,
+                                               @RequestParam(required = false) Long edificioId,
+                                               @RequestParam(required = false) Long espacioId) {
+        QrPregeneracionRepository.Trabajo trabajo = qrPregeneracionService.iniciar(campusId, edificioId, espacioId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse("Pregeneración en proceso", trabajo, HttpStatus.ACCEPTED));
+    }
+
+    /**
+     * Lanza (una sola vez) la migración de los payloads legados <code>{"id":N}</code> al formato cifrado.
+     * Si ya hay una corriendo, regresa esa en lugar de lanzar otra.
+     * @return 202 con el trabajo de migración
+     */
+    @PostMapping("/migracion-legado")
+    public ResponseEntity<ApiResponse> migrarLegados() {
+        QrPregeneracionRepository.Trabajo trabajo = qrPregeneracionService.migrarLegados();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse("Migración de QRs legados en proceso", trabajo, HttpStatus.ACCEPTED));
+    }
+
+    /**
+     * Los últimos trabajos de pregeneración con su avance.
+     */
+    @GetMapping("/pregeneracion/")
+    public ResponseEntity<ApiResponse> recientes() {
+        return ResponseEntity.ok(new ApiResponse("OK", qrPregeneracionService.recientes(), HttpStatus.OK));
+    }
+
+    /**
+     * Avance de un trabajo: último id procesado, activos procesados y encolados para subir.
+     * @param id Identificador del trabajo
+     * @return El trabajo o 404
+     */
+    @GetMapping("/pregeneracion/{id}")
+    public ResponseEntity<ApiResponse> estado(@PathVariable String id) {
+        return qrPregeneracionService.buscar(id)
+                .map(t -> ResponseEntity.ok(new ApiResponse("OK", t, HttpStatus.OK)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse("Pregeneración no encontrada", true, HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * Cancela un trabajo; se detiene al terminar el bloque en curso.
+     * @param id Identificador del trabajo
+     * @return El trabajo tras la cancelación o 404
+     */
+    @DeleteMapping("/pregeneracion/{id}")
+    public ResponseEntity<ApiResponse> cancelar(@PathVariable String id) {
+        return qrPregeneracionService.cancelar(id)
+                .map(t -> ResponseEntity.ok(new ApiResponse("Cancelación solicitada", t, HttpStatus.OK)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse("Pregeneración no encontrada", true, HttpStatus.NOT_FOUND)));
+    }
+}
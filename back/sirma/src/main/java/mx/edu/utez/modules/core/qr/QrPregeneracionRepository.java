@@ -0,0 +1,128 @@
+package mx.edu.utez.modules.core.qr;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Acceso por JDBC a la tabla <code>QR_PREGENERACION</code> (trabajos masivos de QR y su checkpoint):
+ * pregeneración y migración de payloads legados.
+ * Cada avance se guarda solo si el trabajo sigue en curso y sigue siendo de quien lo corre:
+ * así una cancelación o un reclamo de otro nodo lo detienen al terminar el bloque actual.
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class QrPregeneracionRepository {
+
+    /** Qué hace el trabajo con cada bloque. */
+    public enum Tipo { PREGENERACION, MIGRACION_LEGADO }
+
+    /** Estado de un trabajo tal como está en la tabla. */
+    public record Trabajo(String id, Tipo tipo, Long campusId, Long edificioId, Long espacioId,
+                          long ultimoId, int procesados, int encolados, String estado, String mensaje,
+                          LocalDateTime creadoEn, LocalDateTime actualizadoEn, LocalDateTime terminadoEn) {}
+
+    private static final String COLUMNAS = """
+            SELECT id, tipo, id_campus, id_edificio, id_espacio, ultimo_id, procesados, encolados,
+                   estado, mensaje, creado_en, actualizado_en, terminado_en
+            FROM QR_PREGENERACION""";
+
+    private static final String CREAR = """
+            INSERT INTO QR_PREGENERACION (id, tipo, id_campus, id_edificio, id_espacio, ultimo_id, reclamado_por)
+            VALUES (?, ?, ?, ?, ?, ?, ?)""";
+
+    private static final String AVANZAR = """
+            UPDATE QR_PREGENERACION
+            SET ultimo_id = ?, procesados = procesados + ?, encolados = encolados + ?, actualizado_en = NOW()
+            WHERE id = ? AND estado = 'EN_CURSO' AND reclamado_por = ?""";
+
+    private static final String TERMINAR = """
+            UPDATE QR_PREGENERACION
+            SET estado = ?, mensaje = ?, actualizado_en = NOW(), terminado_en = NOW()
+            WHERE id = ? AND estado = 'EN_CURSO' AND reclamado_por = ?""";
+
+    private static final String CANCELAR = """
+            UPDATE QR_PREGENERACION
+            SET estado = 'CANCELADO', mensaje = 'Trabajo cancelado', terminado_en = NOW()
+            WHERE id = ? AND estado = 'EN_CURSO'""";
+
+    private static final String RECLAMAR = """
+            UPDATE QR_PREGENERACION
+            SET reclamado_por = ?, actualizado_en = NOW()
+            WHERE estado = 'EN_CURSO' AND actualizado_en < NOW() - INTERVAL ? SECOND""";
+
+    private static final RowMapper<Trabajo> MAPPER = (rs, i) -> new Trabajo(
+            rs.getString("id"),
+            Tipo.valueOf(rs.getString("tipo")),
+            rs.getObject("id_campus", Long.class),
+            rs.getObject("id_edificio", Long.class),
+            rs.getObject("id_espacio", Long.class),
+            rs.getLong("ultimo_id"),
+            rs.getInt("procesados"),
+            rs.getInt("encolados"),
+            rs.getString("estado"),
+            rs.getString("mensaje"),
+            rs.getObject("creado_en", LocalDateTime.class),
+            rs.getObject("actualizado_en", LocalDateTime.class),
+            rs.getObject("terminado_en", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Registra un trabajo nuevo ya reclamado por quien lo crea.
+     * @param desdeId Se procesan los activos con id mayor a este (0 = todos)
+     */
+    public void crear(String id, Tipo tipo, Long campusId, Long edificioId, Long espacioId, long desdeId, String reclamo) {
+        jdbcTemplate.update(CREAR, id, tipo.name(), campusId, edificioId, espacioId, desdeId, reclamo);
+    }
+
+    public Optional<Trabajo> buscar(String id) {
+        return jdbcTemplate.query(COLUMNAS + " WHERE id = ?", MAPPER, id).stream().findFirst();
+    }
+
+    /** Algún trabajo de ese tipo que siga en curso. */
+    public Optional<Trabajo> enCurso(Tipo tipo) {
+        return jdbcTemplate.query(COLUMNAS + " WHERE tipo = ? AND estado = 'EN_CURSO' LIMIT 1", MAPPER, tipo.name())
+                .stream().findFirst();
+    }
+
+    /** Los trabajos más recientes, del último al primero. */
+    public List<Trabajo> recientes(int limite) {
+        return jdbcTemplate.query(COLUMNAS + " ORDER BY creado_en DESC LIMIT ?", MAPPER, limite);
+    }
+
+    /**
+     * Guarda el checkpoint de un bloque terminado.
+     * @return false si el trabajo se canceló o lo reclamó otro nodo (hay que dejar de procesarlo)
+     */
+    public boolean avanzar(String id, String reclamo, long ultimoId, int procesados, int encolados) {
+        return jdbcTemplate.update(AVANZAR, ultimoId, procesados, encolados, id, reclamo) > 0;
+    }
+
+    /** Estado final (COMPLETADO o FALLIDO), solo si el trabajo sigue siendo nuestro. */
+    public void terminar(String id, String reclamo, String estado, String mensaje) {
+        String texto = mensaje == null ? null : mensaje.substring(0, Math.min(mensaje.length(), 500));
+        jdbcTemplate.update(TERMINAR, estado, texto, id, reclamo);
+    }
+
+    /** @return true si el trabajo seguía en curso */
+    public boolean cancelar(String id) {
+        return jdbcTemplate.update(CANCELAR, id) > 0;
+    }
+
+    /**
+     * Reclama los trabajos en curso que llevan más de <code>vencimientoSegundos</code> sin avanzar
+     * (su nodo se cayó o se reinició) y regresa todos los que quedaron a nombre de este nodo.
+     */
+    public List<Trabajo> reclamarAbandonados(String reclamo, int vencimientoSegundos) {
+        jdbcTemplate.update(RECLAMAR, reclamo, vencimientoSegundos);
+        return jdbcTemplate.query(COLUMNAS + " WHERE estado = 'EN_CURSO' AND reclamado_por = ?", MAPPER, reclamo);
+    }
+}
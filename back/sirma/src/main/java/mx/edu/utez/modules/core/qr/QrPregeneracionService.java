@@ -0,0 +1,324 @@
+package mx.edu.utez.modules.core.qr;
+
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.kernel.sse.SseEmitterService;
+import mx.edu.utez.modules.core.assets.AssetsRepository;
+import mx.edu.utez.modules.core.assets.projections.QrLabelRow;
+import mx.edu.utez.modules.media.imagen_activo.ImagenActivo;
+import mx.edu.utez.modules.media.imagen_activo.ImagenActivoRepository;
+import mx.edu.utez.util.NodoLocal;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Pregeneración masiva de QRs: después de una importación (o a pedido, por ubicación) recorre los
+ * activos por bloques y deja cada QR listo antes de que alguien lo abra.
+ *
+ * <p>Antes, tras importar 50 mil activos, el primero que abría cada uno pagaba el payload, el
+ * <code>save</code>, el render y la subida, uno por uno. Por bloque, aquí se asignan los payloads
+ * con un solo batch de UPDATEs, se renderizan en paralelo en el pool acotado de render (queda en el
+ * caché en disco) y los que no están en Cloudinary se encolan en <code>QR_PUBLICACION</code>, cuyo
+ * worker los sube al ritmo de <code>app.qr.publicacion.lote</code> por pasada.</p>
+ *
+ * <p>La migración de payloads legados (<code>{"id":N}</code>) corre como otro tipo de trabajo con la
+ * misma tabla y reanudación: recorre solo los activos con payload legado, calcula el nuevo en paralelo
+ * (junto con su render), lo guarda en batch y encola el cambio de imagen en el outbox, que sube la
+ * nueva y borra la vieja de Cloudinary. Así la lectura ya no revisa con regex ni borra imágenes
+ * dentro de la petición de un usuario.</p>
+ *
+ * <p>El avance se guarda en <code>QR_PREGENERACION</code> después de cada bloque y se avisa por SSE
+ * (evento "qr_pregeneracion", solo con el id: el canal es público). Si el nodo se cae o se reinicia, la revisión periódica reclama los
+ * trabajos que dejaron de avanzar y los sigue desde el último id guardado.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Service
+public class QrPregeneracionService {
+
+    /** Evento SSE de que un trabajo de QR avanzó (solo el id; el avance se pide a <code>/api/admin/qr/pregeneracion/{id}</code>). */
+    public static final String EVENTO_SSE = "qr_pregeneracion";
+
+    /** Activos por bloque (un checkpoint por bloque). */
+    private static final int BLOQUE = 200;
+
+    /** Un trabajo que lleva esto sin avanzar se da por abandonado y se reclama. */
+    private static final int VENCIMIENTO_SEGUNDOS = 300;
+
+    private final QrPregeneracionRepository qrPregeneracionRepository;
+    private final QrPublicacionRepository qrPublicacionRepository;
+    private final AssetsRepository assetsRepository;
+    private final ImagenActivoRepository imagenActivoRepository;
+    private final QRService qrService;
+    private final SseEmitterService sseEmitterService;
+    private final AsyncTaskExecutor pregeneracionExecutor;
+    private final AsyncTaskExecutor qrRenderExecutor;
+    private final boolean trasImportar;
+    private final String instancia;
+
+    /** Trabajos en cola o corriendo en este nodo (para no mandarlos dos veces al pool). */
+    private final Set<String> locales = ConcurrentHashMap.newKeySet();
+
+    public QrPregeneracionService(QrPregeneracionRepository qrPregeneracionRepository,
+                                  QrPublicacionRepository qrPublicacionRepository,
+                                  AssetsRepository assetsRepository,
+                                  ImagenActivoRepository imagenActivoRepository,
+                                  QRService qrService,
+                                  SseEmitterService sseEmitterService,
+                                  @Qualifier("qrPregeneracionExecutor") AsyncTaskExecutor pregeneracionExecutor,
+                                  @Qualifier("qrRenderExecutor") AsyncTaskExecutor qrRenderExecutor,
+                                  @Value("${app.qr.pregeneracion.tras-importar:true}") boolean trasImportar) {
+        this.qrPregeneracionRepository = qrPregeneracionRepository;
+        this.qrPublicacionRepository = qrPublicacionRepository;
+        this.assetsRepository = assetsRepository;
+        this.imagenActivoRepository = imagenActivoRepository;
+        this.qrService = qrService;
+        this.sseEmitterService = sseEmitterService;
+        this.pregeneracionExecutor = pregeneracionExecutor;
+        this.qrRenderExecutor = qrRenderExecutor;
+        this.trasImportar = trasImportar;
+        this.instancia = NodoLocal.nombre() + "-" + UUID.randomUUID();
+    }
+
+    /**
+     * Inicia la pregeneración de los activos de una ubicación (filtros en null = no aplican).
+     * @return El trabajo recién creado
+     */
+    public QrPregeneracionRepository.Trabajo iniciar(Long campusId, Long edificioId, Long espacioId) {
+        return crear(QrPregeneracionRepository.Tipo.PREGENERACION, campusId, edificioId, espacioId, 0);
+    }
+
+    /**
+     * Inicia la migración de todos los payloads legados. Si ya hay una en curso, regresa esa.
+     * @return El trabajo de migración
+     */
+    public QrPregeneracionRepository.Trabajo migrarLegados() {
+        return qrPregeneracionRepository.enCurso(QrPregeneracionRepository.Tipo.MIGRACION_LEGADO)
+                .orElseGet(() -> crear(QrPregeneracionRepository.Tipo.MIGRACION_LEGADO, null, null, null, 0));
+    }
+
+    /**
+     * Id más alto de activo en este momento; se toma antes de importar para después
+     * pregenerar solo lo nuevo.
+     */
+    public long ultimoIdActivo() {
+        return assetsRepository.findMaxId();
+    }
+
+    /**
+     * Pregenera los activos creados por una importación (ids mayores a <code>desdeId</code>).
+     * No hace nada si <code>app.qr.pregeneracion.tras-importar</code> está apagado.
+     */
+    public void despuesDeImportar(long desdeId) {
+        if (!trasImportar) return;
+        QrPregeneracionRepository.Trabajo trabajo =
+                crear(QrPregeneracionRepository.Tipo.PREGENERACION, null, null, null, desdeId);
+        log.info("Pregeneración {} de QRs tras importar (activos con id > {})", trabajo.id(), desdeId);
+    }
+
+    public Optional<QrPregeneracionRepository.Trabajo> buscar(String id) {
+        return qrPregeneracionRepository.buscar(id);
+    }
+
+    public List<QrPregeneracionRepository.Trabajo> recientes() {
+        return qrPregeneracionRepository.recientes(20);
+    }
+
+    /**
+     * Cancela un trabajo en curso; se detiene al terminar el bloque actual (lo ya hecho se conserva).
+     * @return El trabajo, si existe
+     */
+    public Optional<QrPregeneracionRepository.Trabajo> cancelar(String id) {
+        if (qrPregeneracionRepository.cancelar(id))
+            log.info("Trabajo de QR {} cancelado", id);
+        return qrPregeneracionRepository.buscar(id);
+    }
+
+    private QrPregeneracionRepository.Trabajo crear(QrPregeneracionRepository.Tipo tipo,
+                                                    Long campusId, Long edificioId, Long espacioId, long desdeId) {
+        String id = UUID.randomUUID().toString();
+        qrPregeneracionRepository.crear(id, tipo, campusId, edificioId, espacioId, desdeId, instancia);
+        QrPregeneracionRepository.Trabajo trabajo = qrPregeneracionRepository.buscar(id).orElseThrow();
+        encolar(trabajo);
+        return trabajo;
+    }
+
+    private void encolar(QrPregeneracionRepository.Trabajo trabajo) {
+        if (!locales.add(trabajo.id())) return;
+        try {
+            pregeneracionExecutor.submit(() -> ejecutar(trabajo));
+        } catch (TaskRejectedException e) {
+            // Se queda EN_CURSO en la tabla: la revisión periódica lo retoma cuando haya lugar
+            locales.remove(trabajo.id());
+            log.info("Pool de pregeneración lleno; el trabajo {} se retomará después", trabajo.id());
+        }
+    }
+
+    /**
+     * Cada minuto reclama los trabajos que dejaron de avanzar (nodo caído o reiniciado)
+     * y los vuelve a encolar en este nodo.
+     */
+    @Scheduled(initialDelay = 30_000, fixedDelayString = "${app.qr.pregeneracion.revision-ms:60000}")
+    public void reanudar() {
+        List<QrPregeneracionRepository.Trabajo> trabajos;
+        try {
+            trabajos = qrPregeneracionRepository.reclamarAbandonados(instancia, VENCIMIENTO_SEGUNDOS);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron revisar las pregeneraciones de QR pendientes: {}", e.getMessage());
+            return;
+        }
+        for (QrPregeneracionRepository.Trabajo t : trabajos) {
+            if (locales.contains(t.id())) continue;
+            log.info("Reanudando el trabajo de QR {} desde el activo {}", t.id(), t.ultimoId());
+            encolar(t);
+        }
+    }
+
+    private void ejecutar(QrPregeneracionRepository.Trabajo trabajo) {
+        String id = trabajo.id();
+        long after = trabajo.ultimoId();
+        try {
+            while (true) {
+                boolean migracion = trabajo.tipo() == QrPregeneracionRepository.Tipo.MIGRACION_LEGADO;
+                List<QrLabelRow> bloque = migracion
+                        ? assetsRepository.findQrLegadoChunk(after, Limit.of(BLOQUE))
+                        : assetsRepository.findQrLabelChunk(after,
+                                trabajo.campusId(), trabajo.edificioId(), trabajo.espacioId(), Limit.of(BLOQUE));
+                if (bloque.isEmpty()) {
+                    qrPregeneracionRepository.terminar(id, instancia, "COMPLETADO",
+                            migracion ? "Payloads legados migrados" : "QRs pregenerados");
+                    break;
+                }
+
+                int encolados = migracion ? migrar(bloque) : pregenerar(bloque);
+
+                after = bloque.getLast().id();
+                if (!qrPregeneracionRepository.avanzar(id, instancia, after, bloque.size(), encolados)) {
+                    log.info("Trabajo de QR {} detenido (cancelado o reclamado por otro nodo)", id);
+                    break;
+                }
+                notificar(id);
+            }
+        } catch (Exception e) {
+            log.error("Trabajo de QR {} falló en el activo {}", id, after, e);
+            try {
+                qrPregeneracionRepository.terminar(id, instancia, "FALLIDO", e.getMessage());
+            } catch (DataAccessException ex) {
+                // Sigue EN_CURSO: al vencer se reclama y se reintenta desde el último checkpoint
+                log.warn("No se pudo marcar como fallida la pregeneración {}", id, ex);
+            }
+        } finally {
+            locales.remove(id);
+            notificar(id);
+        }
+    }
+
+    /**
+     * Bloque de pregeneración: payloads en batch, render en paralelo y los que no están en
+     * Cloudinary al outbox.
+     * @return Activos encolados para subir
+     */
+    private int pregenerar(List<QrLabelRow> bloque) {
+        List<QrLabelRow> filas = qrService.asegurarPayloads(bloque);
+        List<Long> sinPublicar = sinPublicar(filas);
+        renderizar(filas, sinPublicar);
+        qrPublicacionRepository.encolarLote(sinPublicar);
+        return sinPublicar.size();
+    }
+
+    /**
+     * Bloque de migración: el payload nuevo de cada activo se calcula y se renderiza en paralelo
+     * (el PNG que subirá el worker queda en el caché en disco); luego se guardan todos en un batch
+     * y se encola el cambio de imagen de cada uno.
+     * @return Activos encolados para republicar
+     */
+    private int migrar(List<QrLabelRow> bloque) {
+        List<Future<QrLabelRow>> futuros = new ArrayList<>(bloque.size());
+        for (QrLabelRow fila : bloque) {
+            futuros.add(qrRenderExecutor.submit(() -> {
+                QrLabelRow nueva = fila.conQrCodigo(qrService.payloadPara(fila.id()));
+                try {
+                    qrService.renderParaPublicar(nueva);
+                } catch (Exception e) {
+                    log.debug("No se pudo prerenderizar el QR del activo {}", fila.id(), e);
+                }
+                return nueva;
+            }));
+        }
+
+        Map<Long, String> payloads = new LinkedHashMap<>();
+        for (Future<QrLabelRow> f : futuros) {
+            QrLabelRow nueva = esperar(f);
+            payloads.put(nueva.id(), nueva.qrCodigo());
+        }
+        qrService.migrarPayloads(payloads);
+        return payloads.size();
+    }
+
+    private static <T> T esperar(Future<T> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Trabajo de QR interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falló el cálculo de un payload", e.getCause());
+        }
+    }
+
+    /** Ids del bloque que aún no tienen su QR en Cloudinary (una sola consulta). */
+    private List<Long> sinPublicar(List<QrLabelRow> filas) {
+        List<Long> ids = filas.stream().map(QrLabelRow::id).toList();
+        Set<Long> publicados = new HashSet<>(imagenActivoRepository.findActivoIdsConArchivo(ids, ImagenActivo.NOMBRE_ARCHIVO_QR));
+        return ids.stream().filter(i -> !publicados.contains(i)).toList();
+    }
+
+    /**
+     * Renderiza el bloque en paralelo al caché en disco: el PNG con etiqueta que sirve
+     * <code>/raw/png</code> y, si falta publicarlo, el PNG que sube el worker.
+     * Un render que falla no detiene el trabajo (se hará cuando alguien lo pida).
+     */
+    private void renderizar(List<QrLabelRow> filas, List<Long> sinPublicar) {
+        Set<Long> publicar = new HashSet<>(sinPublicar);
+        List<Future<?>> pendientes = new ArrayList<>(filas.size());
+        for (QrLabelRow fila : filas) {
+            pendientes.add(qrRenderExecutor.submit(() -> {
+                qrService.renderArchivo(fila, FormatoQr.PNG);
+                if (publicar.contains(fila.id())) qrService.renderParaPublicar(fila);
+                return null;
+            }));
+        }
+        for (Future<?> f : pendientes) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Pregeneración interrumpida", e);
+            } catch (Exception e) {
+                log.debug("No se pudo pregenerar un QR", e);
+            }
+        }
+    }
+
+    private void notificar(String id) {
+        sseEmitterService.notificarTrabajo(EVENTO_SSE, id);
+    }
+}
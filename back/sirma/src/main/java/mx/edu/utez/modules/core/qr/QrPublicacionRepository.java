@@ -0,0 +1,107 @@
+package mx.edu.utez.modules.core.qr;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Acceso por JDBC a la tabla <code>QR_PUBLICACION</code> (outbox de QRs pendientes de subir).
+ * El reclamo es un solo UPDATE con LIMIT, así dos nodos nunca toman la misma fila
+ * y un nodo que se cayó a medio lote suelta sus filas al vencer el reclamo.
+ *
+ * @author Ithera Team
+ */
+@Repository
+@AllArgsConstructor
+public class QrPublicacionRepository {
+
+    /** Fila reclamada lista para procesarse. */
+    public record Pendiente(Long idActivo, int intentos, String publicIdAnterior) {}
+
+    private static final String ENCOLAR = """
+            INSERT INTO QR_PUBLICACION (id_activo) VALUES (?)
+            ON DUPLICATE KEY UPDATE id_activo = id_activo""";
+
+    /**
+     * Reemplazo de imagen: si ya estaba encolado, se reactiva y se queda con el public id viejo que haya.
+     * Si un worker la tenía reclamada se le quita, así su <code>terminar</code> ya no borra la petición nueva.
+     */
+    private static final String ENCOLAR_REEMPLAZO = """
+            INSERT INTO QR_PUBLICACION (id_activo, public_id_anterior) VALUES (?, ?)
+            ON DUPLICATE KEY UPDATE public_id_anterior = COALESCE(public_id_anterior, VALUES(public_id_anterior)),
+                                    estado = 'PENDIENTE', intentos = 0, siguiente_intento = NOW(),
+                                    reclamado_por = NULL, reclamado_en = NULL""";
+
+    private static final String RECLAMAR = """
+            UPDATE QR_PUBLICACION
+            SET reclamado_por = ?, reclamado_en = NOW(), intentos = intentos + 1
+            WHERE estado = 'PENDIENTE' AND siguiente_intento <= NOW()
+              AND (reclamado_por IS NULL OR reclamado_en < NOW() - INTERVAL ? SECOND)
+            ORDER BY siguiente_intento
+            LIMIT ?""";
+
+    private static final String RECLAMADAS =
+            "SELECT id_activo, intentos, public_id_anterior FROM QR_PUBLICACION WHERE reclamado_por = ?";
+
+    private static final String REPROGRAMAR = """
+            UPDATE QR_PUBLICACION
+            SET reclamado_por = NULL, reclamado_en = NULL, ultimo_error = ?,
+                siguiente_intento = NOW() + INTERVAL ? SECOND, estado = ?
+            WHERE id_activo = ? AND reclamado_por = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Encola el activo; si ya estaba pendiente no hace nada. */
+    public void encolar(Long idActivo) {
+        jdbcTemplate.update(ENCOLAR, idActivo);
+    }
+
+    /** Encola varios activos en un solo batch (los que ya estaban se quedan igual). */
+    public void encolarLote(List<Long> idsActivo) {
+        if (idsActivo.isEmpty()) return;
+        jdbcTemplate.batchUpdate(ENCOLAR, idsActivo.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    /**
+     * Encola activos cuyo QR cambió de payload: el worker sube la imagen nueva y luego borra la anterior.
+     * @param idsActivo Activos a republicar
+     * @param anteriores Id del activo → public id de su imagen vieja en Cloudinary (los que tenían)
+     */
+    public void encolarReemplazos(Collection<Long> idsActivo, Map<Long, String> anteriores) {
+        if (idsActivo.isEmpty()) return;
+        jdbcTemplate.batchUpdate(ENCOLAR_REEMPLAZO,
+                idsActivo.stream().map(id -> new Object[]{id, anteriores.get(id)}).toList());
+    }
+
+    /**
+     * Reclama hasta <code>limite</code> filas vencidas para este worker.
+     * @param reclamo Identificador único de esta pasada del worker
+     * @param vencimientoSegundos Tras cuánto un reclamo ajeno se da por abandonado
+     * @param limite Filas máximas
+     * @return Filas reclamadas
+     */
+    public List<Pendiente> reclamar(String reclamo, int vencimientoSegundos, int limite) {
+        if (jdbcTemplate.update(RECLAMAR, reclamo, vencimientoSegundos, limite) == 0) return List.of();
+        return jdbcTemplate.query(RECLAMADAS, (rs, i) -> new Pendiente(rs.getLong(1), rs.getInt(2), rs.getString(3)), reclamo);
+    }
+
+    /**
+     * Publicado: la fila ya no hace falta (solo si sigue siendo nuestra).
+     * @return false si la fila ya no era de este reclamo (se volvió a encolar o venció)
+     */
+    public boolean terminar(Long idActivo, String reclamo) {
+        return jdbcTemplate.update("DELETE FROM QR_PUBLICACION WHERE id_activo = ? AND reclamado_por = ?", idActivo, reclamo) > 0;
+    }
+
+    /**
+     * Suelta la fila para reintentarla más tarde, o la marca FALLIDO si ya no hay reintentos.
+     */
+    public void reprogramar(Long idActivo, String reclamo, String error, int esperaSegundos, boolean fallido) {
+        String mensaje = error == null ? null : error.substring(0, Math.min(error.length(), 500));
+        jdbcTemplate.update(REPROGRAMAR, mensaje, esperaSegundos, fallido ? "FALLIDO" : "PENDIENTE", idActivo, reclamo);
+    }
+}
@@ -0,0 +1,162 @@
+package mx.edu.utez.modules.core.qr;
+
+import lombok.extern.log4j.Log4j2;
+import mx.edu.utez.modules.core.assets.AssetsRepository;
+import mx.edu.utez.modules.core.assets.projections.QrLabelRow;
+import mx.edu.utez.modules.media.imagen_activo.ImagenActivo;
+import mx.edu.utez.modules.media.imagen_activo.ImagenActivoRepository;
+import mx.edu.utez.util.CloudinaryPaths;
+import mx.edu.utez.util.CloudinaryService;
+import mx.edu.utez.util.NodoLocal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Worker que vacía el outbox <code>QR_PUBLICACION</code>: renderiza el QR de cada activo
+ * pendiente y lo sube a Cloudinary, fuera de cualquier transacción.
+ *
+ * <p>Antes la subida pasaba dentro del GET de <code>/api/qr/{id}</code>, en un método
+ * <code>@Transactional</code>: la conexión de BD se quedaba tomada todo el viaje a Cloudinary y dos
+ * peticiones simultáneas podían subir el mismo QR dos veces. Ahora el GET solo encola el activo
+ * y este worker lo publica con reintentos (espera creciente) y sin duplicados: la tabla tiene una
+ * fila por activo, el reclamo es atómico entre nodos y antes de subir se revisa si ya existe.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Component
+public class QrPublicacionWorker {
+
+    /** Un reclamo de más de esto se da por abandonado (el nodo se cayó a medio lote). */
+    private static final int VENCIMIENTO_SEGUNDOS = 600;
+
+    /** Después de estos intentos la fila queda FALLIDO para revisarla a mano. */
+    private static final int MAX_INTENTOS = 10;
+
+    private final QrPublicacionRepository qrPublicacionRepository;
+    private final QRService qrService;
+    private final AssetsRepository assetsRepository;
+    private final ImagenActivoRepository imagenActivoRepository;
+    private final CloudinaryService cloudinaryService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    /** Activos que se reclaman por pasada: con el intervalo fija el ritmo de subida a Cloudinary. */
+    private final int lote;
+    private final String nodo;
+
+    public QrPublicacionWorker(QrPublicacionRepository qrPublicacionRepository,
+                               QRService qrService,
+                               AssetsRepository assetsRepository,
+                               ImagenActivoRepository imagenActivoRepository,
+                               CloudinaryService cloudinaryService,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${app.qr.publicacion.habilitada:true}") boolean habilitado,
+                               @Value("${app.qr.publicacion.lote:20}") int lote) {
+        this.qrPublicacionRepository = qrPublicacionRepository;
+        this.qrService = qrService;
+        this.assetsRepository = assetsRepository;
+        this.imagenActivoRepository = imagenActivoRepository;
+        this.cloudinaryService = cloudinaryService;
+        this.transactionTemplate = transactionTemplate;
+        this.habilitado = habilitado;
+        this.lote = lote;
+        this.nodo = NodoLocal.nombre();
+    }
+
+    /** Cada pocos segundos reclama un lote de pendientes y los publica uno por uno. */
+    @Scheduled(fixedDelayString = "${app.qr.publicacion.intervalo-ms:5000}")
+    public void drenar() {
+        if (!habilitado) return;
+
+        String reclamo = nodo + "-" + UUID.randomUUID();
+        List<QrPublicacionRepository.Pendiente> reclamados;
+        try {
+            reclamados = qrPublicacionRepository.reclamar(reclamo, VENCIMIENTO_SEGUNDOS, lote);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo reclamar la publicación de QRs: {}", e.getMessage());
+            return;
+        }
+
+        for (QrPublicacionRepository.Pendiente p : reclamados)
+            publicar(p, reclamo);
+    }
+
+    private void publicar(QrPublicacionRepository.Pendiente p, String reclamo) {
+        Long assetId = p.idActivo();
+        try {
+            // Alguien más ya lo subió, o el activo ya no existe o se dio de baja: solo se quita del outbox
+            // (y se borra la imagen anterior si la había, que es como se retira el QR de una baja masiva)
+            if (!assetsRepository.existsByIdAndEsActivoTrue(assetId)) {
+                qrPublicacionRepository.terminar(assetId, reclamo);
+                borrarAnterior(p);
+                return;
+            }
+            Optional<QrLabelRow> fila = qrService.buscarParaRender(assetId);
+            if (fila.isEmpty() || imagenActivoRepository.existsByActivoIdAndNombreArchivo(assetId, ImagenActivo.NOMBRE_ARCHIVO_QR)) {
+                qrPublicacionRepository.terminar(assetId, reclamo);
+                borrarAnterior(p);
+                return;
+            }
+
+            byte[] qrBytes = qrService.renderParaPublicar(fila.get());
+
+            // Carpeta por activo: sirma/activos/{ID}/qr
+            Map<String, Object> uploadResult = cloudinaryService.upload(qrBytes, CloudinaryPaths.ACTIVOS + "/" + assetId + "/qr");
+
+            String publicId = (String) uploadResult.get("public_id");
+            boolean guardada = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                ImagenActivo qrImg = new ImagenActivo();
+                qrImg.setActivo(assetsRepository.getReferenceById(assetId));
+                qrImg.setNombreArchivo(ImagenActivo.NOMBRE_ARCHIVO_QR);
+                qrImg.setUrlCloudinary((String) uploadResult.get("secure_url"));
+                qrImg.setPublicIdCloudinary(publicId);
+                imagenActivoRepository.save(qrImg);
+                if (qrPublicacionRepository.terminar(assetId, reclamo)) return true;
+                // Se volvió a encolar mientras subíamos: esta imagen ya no vale, la fila nueva sube la buena
+                status.setRollbackOnly();
+                return false;
+            }));
+            if (!guardada) {
+                log.info("El QR del activo {} se volvió a encolar mientras se publicaba; se descarta esta subida", assetId);
+                borrar(publicId, assetId);
+                return;
+            }
+            log.info("Imagen QR generada y guardada para activo ID: {}", assetId);
+            borrarAnterior(p);
+        } catch (Exception e) {
+            boolean fallido = p.intentos() >= MAX_INTENTOS;
+            // 1, 2, 4, 8... minutos, hasta una hora
+            int espera = (int) Math.min(3600, 60L << Math.min(p.intentos() - 1, 6));
+            log.warn("Falló la publicación del QR del activo {} (intento {}{}): {}",
+                    assetId, p.intentos(), fallido ? ", sin más reintentos" : "", e.getMessage());
+            try {
+                qrPublicacionRepository.reprogramar(assetId, reclamo, e.getMessage(), espera, fallido);
+            } catch (DataAccessException ex) {
+                // El reclamo vence solo y otra pasada lo vuelve a tomar
+                log.error("No se pudo reprogramar la publicación del QR del activo {}", assetId, ex);
+            }
+        }
+    }
+
+    /** La imagen vieja (payload legado) se borra ya que la nueva quedó guardada; si falla solo queda huérfana. */
+    private void borrarAnterior(QrPublicacionRepository.Pendiente p) {
+        if (p.publicIdAnterior() == null) return;
+        borrar(p.publicIdAnterior(), p.idActivo());
+    }
+
+    private void borrar(String publicId, Long assetId) {
+        try {
+            cloudinaryService.delete(publicId);
+        } catch (Exception e) {
+            log.warn("No se pudo borrar de Cloudinary la imagen QR {} del activo {}", publicId, assetId, e);
+        }
+    }
+}
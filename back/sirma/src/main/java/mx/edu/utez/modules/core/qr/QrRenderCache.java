@@ -0,0 +1,270 @@
+package mx.edu.utez.modules.core.qr;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Caché en disco de los QR ya renderizados (PNG, PDF, ...), direccionado por contenido:
+ * el nombre del archivo es el SHA-256 de (payload, tamaño, etiqueta, formato), así que el
+ * mismo QR siempre cae en el mismo archivo y uno que cambió de payload cae en otro.
+ *
+ * <p>El caché en memoria (Caffeine) se vacía con cada reinicio o despliegue y entonces se
+ * volvían a renderizar miles de QRs de golpe; este sobrevive a los reinicios. Las escrituras
+ * son atómicas (temporal + rename en el mismo directorio), así un lector nunca ve un archivo a
+ * medias, y una limpieza periódica borra los menos usados cuando se pasa del tamaño máximo.</p>
+ *
+ * @author Ithera Team
+ */
+@Log4j2
+@Component
+public class QrRenderCache {
+
+    /** Escribe el render en el stream del temporal. */
+    @FunctionalInterface
+    public interface Render {
+        void escribir(OutputStream out) throws Exception;
+    }
+
+    private static final String SUFIJO_TEMPORAL = ".tmp";
+
+    /** Un acierto solo actualiza la fecha de uso si la anterior es más vieja que esto (menos escrituras de metadatos). */
+    private static final Duration RESOLUCION_LRU = Duration.ofMinutes(10);
+
+    /** Al limpiar se baja hasta este porcentaje del máximo para no limpiar en cada pasada. */
+    private static final double OBJETIVO_LIMPIEZA = 0.9;
+
+    private final Path directorio;
+    private final long tamanoMax;
+
+    public QrRenderCache(@Value("${app.qr.cache.dir:}") String directorio,
+                         @Value("${app.qr.cache.max:512MB}") DataSize tamanoMax) throws IOException {
+        this.directorio = (directorio == null || directorio.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "sirma-qr-cache")
+                : Path.of(directorio)).toAbsolutePath();
+        this.tamanoMax = tamanoMax.toBytes();
+        Files.createDirectories(this.directorio);
+        log.info("Caché de QR en disco: {} (máx {})", this.directorio, tamanoMax);
+    }
+
+    /**
+     * Devuelve el archivo del render, generándolo si no existe.
+     * @param payload Contenido del QR
+     * @param ancho Ancho en pixeles (o el tamaño lógico del formato)
+     * @param alto Alto
+     * @param etiqueta Texto al pie (puede ser null)
+     * @param formato Extensión del archivo: png, pdf, ...
+     * @param render Genera el archivo si no estaba en caché
+     * @return Ruta del archivo listo para leerse o mandarse como <code>Resource</code>
+     */
+    public Path obtener(String payload, int ancho, int alto, String etiqueta, String formato, Render render) {
+        Path archivo = ruta(llave(payload, ancho, alto, etiqueta, formato), formato);
+        try {
+            if (Files.exists(archivo)) {
+                tocar(archivo);
+                return archivo;
+            }
+            escribir(archivo, render);
+            return archivo;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo usar el caché de QR en disco", e);
+        }
+    }
+
+    /**
+     * Como {@link #obtener}, pero listo para mandarse en la respuesta. El cuerpo se escribe ya fuera del
+     * controlador y la limpieza puede borrar el archivo en medio; si al leerlo ya no está, se vuelve a
+     * renderizar en la misma ruta en vez de tronar la descarga.
+     * @return El archivo como <code>Resource</code> (con tamaño conocido, así que admite <code>Range</code>)
+     */
+    public Resource recurso(String payload, int ancho, int alto, String etiqueta, String formato, Render render) {
+        return new Archivo(obtener(payload, ancho, alto, etiqueta, formato, render), render);
+    }
+
+    /**
+     * Llave del render: SHA-256 en hex de los parámetros, separados para que no se confundan.
+     */
+    static String llave(String payload, int ancho, int alto, String etiqueta, String formato) {
+        String base = payload + '\u0000' + ancho + 'x' + alto + '\u0000' + (etiqueta == null ? "" : etiqueta) + '\u0000' + formato;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(base.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /** Dos niveles (<code>ab/abcdef….png</code>) para no tener cientos de miles de archivos en una carpeta. */
+    private Path ruta(String llave, String formato) {
+        return directorio.resolve(llave.substring(0, 2)).resolve(llave + "." + formato);
+    }
+
+    private void escribir(Path archivo, Render render) throws IOException {
+        Files.createDirectories(archivo.getParent());
+        // Temporal en la misma carpeta, así el rename es atómico (mismo sistema de archivos)
+        Path temporal = Files.createTempFile(archivo.getParent(), archivo.getFileName().toString(), SUFIJO_TEMPORAL);
+        try {
+            try (OutputStream out = Files.newOutputStream(temporal)) {
+                render.escribir(out);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Falló el render del QR", e);
+            }
+            try {
+                Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /** Marca el uso del archivo (la limpieza borra primero los que llevan más tiempo sin usarse). */
+    private static void tocar(Path archivo) {
+        try {
+            FileTime ahora = FileTime.from(Instant.now());
+            if (Files.getLastModifiedTime(archivo).toInstant().isBefore(ahora.toInstant().minus(RESOLUCION_LRU)))
+                Files.setLastModifiedTime(archivo, ahora);
+        } catch (IOException e) {
+            // Lo pudo borrar la limpieza justo ahora; no pasa nada, solo no se marca
+            log.debug("No se pudo marcar el uso de {}", archivo, e);
+        }
+    }
+
+    /** Una lectura del archivo que puede toparse con que ya no existe. */
+    @FunctionalInterface
+    private interface Lectura<T> {
+        T leer() throws IOException;
+    }
+
+    /** Archivo del caché que, si la limpieza lo borró antes de leerlo, se regenera una vez y se vuelve a leer. */
+    private final class Archivo extends FileSystemResource {
+
+        private final Path ruta;
+        private final Render render;
+
+        Archivo(Path ruta, Render render) {
+            super(ruta);
+            this.ruta = ruta;
+            this.render = render;
+        }
+
+        private <T> T leer(Lectura<T> lectura) throws IOException {
+            try {
+                return lectura.leer();
+            } catch (NoSuchFileException | FileNotFoundException e) {
+                log.debug("La limpieza borró {} antes de servirlo; se vuelve a renderizar", ruta);
+                escribir(ruta, render);
+                return lectura.leer();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return leer(super::getInputStream);
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            return leer(super::readableChannel);
+        }
+
+        @Override
+        public byte[] getContentAsByteArray() throws IOException {
+            return leer(super::getContentAsByteArray);
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return leer(super::contentLength);
+        }
+    }
+
+    private record Entrada(Path ruta, long tamano, FileTime usado) {}
+
+    /**
+     * Cada 10 minutos: borra temporales abandonados y, si el caché pasa del máximo,
+     * los archivos menos usados hasta quedar en el {@value #OBJETIVO_LIMPIEZA} del máximo.
+     */
+    @Scheduled(fixedDelayString = "${app.qr.cache.limpieza-ms:600000}")
+    public void limpiar() {
+        List<Entrada> entradas = new ArrayList<>();
+        long total = 0;
+        Instant limiteTemporales = Instant.now().minus(Duration.ofHours(1));
+
+        try (Stream<Path> archivos = Files.walk(directorio, 2)) {
+            for (Path p : (Iterable<Path>) archivos::iterator) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (!attrs.isRegularFile()) continue;
+
+                if (p.getFileName().toString().endsWith(SUFIJO_TEMPORAL)) {
+                    if (attrs.lastModifiedTime().toInstant().isBefore(limiteTemporales)) borrar(p);
+                    continue;
+                }
+                entradas.add(new Entrada(p, attrs.size(), attrs.lastModifiedTime()));
+                total += attrs.size();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("No se pudo recorrer el caché de QR en disco", e);
+            return;
+        }
+
+        if (total <= tamanoMax) return;
+
+        long objetivo = (long) (tamanoMax * OBJETIVO_LIMPIEZA);
+        int borrados = 0;
+        entradas.sort(Comparator.comparing(Entrada::usado));
+        for (Entrada e : entradas) {
+            if (total <= objetivo) break;
+            if (borrar(e.ruta())) {
+                total -= e.tamano();
+                borrados++;
+            }
+        }
+        log.info("Caché de QR en disco: {} archivo(s) borrados, quedan {} bytes", borrados, total);
+    }
+
+    private static boolean borrar(Path archivo) {
+        try {
+            return Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.debug("No se pudo borrar {}", archivo, e);
+            return false;
+        }
+    }
+}
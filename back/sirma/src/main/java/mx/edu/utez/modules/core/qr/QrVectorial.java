@@ -0,0 +1,147 @@
+package mx.edu.utez.modules.core.qr;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * QR vectorial: la matriz de ZXing se recorre por renglones y cada tramo de módulos negros
+ * seguidos se vuelve un solo rectángulo. Así no pasa por <code>BufferedImage</code>,
+ * <code>Graphics2D</code> ni la codificación PNG, que era lo que más CPU gastaba.
+ *
+ * <p>Se usa para el SVG (un solo <code>&lt;path&gt;</code> con todos los tramos y la etiqueta
+ * como <code>&lt;text&gt;</code>) y para dibujar el QR directo en los PDF.</p>
+ *
+ * @author Ithera Team
+ */
+public final class QrVectorial {
+
+    /** Alto del pie con la etiqueta respecto al lado del QR (el mismo 50/300 del PNG). */
+    private static final double PIE = 1.0 / 6.0;
+
+    private QrVectorial() {
+    }
+
+    /** Recibe cada tramo horizontal de módulos negros. */
+    @FunctionalInterface
+    public interface Tramo {
+        void accept(int x, int y, int largo) throws IOException;
+    }
+
+    /**
+     * Matriz mínima del QR (un elemento por módulo, con la zona de silencio indicada).
+     * @param contenido Texto del QR
+     * @param margen Módulos de zona de silencio alrededor
+     */
+    public static BitMatrix matriz(String contenido, int margen) throws WriterException {
+        return new QRCodeWriter().encode(contenido, BarcodeFormat.QR_CODE, 0, 0,
+                Map.of(EncodeHintType.MARGIN, margen));
+    }
+
+    /** Recorre la matriz y entrega los tramos de módulos negros, renglón por renglón. */
+    public static void tramos(BitMatrix matriz, Tramo tramo) throws IOException {
+        int ancho = matriz.getWidth();
+        for (int y = 0; y < matriz.getHeight(); y++) {
+            int x = 0;
+            while (x < ancho) {
+                if (!matriz.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int inicio = x;
+                while (x < ancho && matriz.get(x, y)) x++;
+                tramo.accept(inicio, y, x - inicio);
+            }
+        }
+    }
+
+    /**
+     * Escribe el QR como SVG. Las coordenadas van en módulos (<code>viewBox</code>) y el tamaño
+     * final lo fijan <code>width</code>/<code>height</code>, así escala sin perder nitidez.
+     * @param matriz Matriz del QR
+     * @param etiqueta Texto al pie (null o vacío = sin pie)
+     * @param tamano Ancho en pixeles del SVG
+     * @param out Destino
+     */
+    public static void escribirSvg(BitMatrix matriz, String etiqueta, int tamano, Writer out) throws IOException {
+        int lado = matriz.getWidth();
+        boolean conPie = etiqueta != null && !etiqueta.isBlank();
+        double pie = conPie ? lado * PIE : 0;
+        double altoTotal = lado + pie;
+        long altoPx = Math.round(tamano * altoTotal / lado);
+
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + tamano + "\" height=\"" + altoPx
+                + "\" viewBox=\"0 0 " + lado + " " + num(altoTotal) + "\" shape-rendering=\"crispEdges\">");
+        out.write("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>");
+
+        out.write("<path fill=\"#000\" d=\"");
+        tramos(matriz, (x, y, largo) -> {
+            out.write('M');
+            out.write(Integer.toString(x));
+            out.write(' ');
+            out.write(Integer.toString(y));
+            out.write('h');
+            out.write(Integer.toString(largo));
+            out.write("v1h-");
+            out.write(Integer.toString(largo));
+            out.write('z');
+        });
+        out.write("\"/>");
+
+        if (conPie) {
+            out.write("<text x=\"" + num(lado / 2.0) + "\" y=\"" + num(lado + pie * 0.7)
+                    + "\" font-family=\"sans-serif\" font-weight=\"bold\" font-size=\"" + num(pie * 0.6)
+                    + "\" text-anchor=\"middle\">");
+            out.write(escaparXml(etiqueta));
+            out.write("</text>");
+        }
+        out.write("</svg>");
+    }
+
+    /**
+     * Dibuja el QR en un PDF como rectángulos rellenos (sin imagen).
+     * @param cs Contenido de la página
+     * @param matriz Matriz del QR
+     * @param x Esquina inferior izquierda, en puntos
+     * @param y Esquina inferior izquierda, en puntos
+     * @param tamano Lado del QR en puntos
+     */
+    public static void dibujarPdf(PDPageContentStream cs, BitMatrix matriz, float x, float y, float tamano) throws IOException {
+        int lado = matriz.getWidth();
+        float modulo = tamano / lado;
+        cs.saveGraphicsState();
+        cs.setNonStrokingColor(0f);
+        // En PDF el eje Y crece hacia arriba: el renglón 0 va hasta arriba
+        tramos(matriz, (mx, my, largo) ->
+                cs.addRect(x + mx * modulo, y + tamano - (my + 1) * modulo, largo * modulo, modulo));
+        cs.fill();
+        cs.restoreGraphicsState();
+    }
+
+    private static String num(double v) {
+        return v == Math.rint(v) ? Long.toString((long) v) : String.format(java.util.Locale.ROOT, "%.2f", v);
+    }
+
+    private static String escaparXml(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                case '\'' -> sb.append("&apos;");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
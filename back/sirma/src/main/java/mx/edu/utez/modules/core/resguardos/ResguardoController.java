@@ -25,11 +25,15 @@ public class ResguardoController {
      * Obtiene una página listando todos los resguardos.
      *
      * @param pageable Configuración de paginación provista por la URL.
+     * @param after Cursor opaco de la página anterior; si viene (aunque sea vacío) se pagina por cursor, sin COUNT, usando solo <code>size</code>.
      * @return ResponseEntity con la información solicitada.
      */
     @GetMapping
-    public ResponseEntity<ApiResponse> findAll(@PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
-        ApiResponse response = resguardoService.findAll(pageable);
+    public ResponseEntity<ApiResponse> findAll(@PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
+                                               @RequestParam(required = false) String after) {
+        ApiResponse response = after != null
+                ? resguardoService.findAll(after, pageable.getPageSize())
+                : resguardoService.findAll(pageable);
         return new ResponseEntity<>(response, response.getStatus());
     }
 
@@ -1,9 +1,14 @@
 package mx.edu.utez.modules.core.resguardos;
 
 import mx.edu.utez.modules.core.assets.Assets;
+import mx.edu.utez.modules.core.assets.projections.ResguardoActivoRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,10 +23,27 @@ public interface ResguardoRepository extends JpaRepository<Resguardo, Long> {
     List<Resguardo> findByUsuarioEmpleadoId(Long usuarioId);
     List<Resguardo> findByEstadoResguardo(String estado);
 
+    /** Todos los resguardos por cursor (keyset sobre el id, sin COUNT). */
+    List<Resguardo> findByIdLessThanOrderByIdDesc(Long cursor, Limit limit);
+
     Optional<Resguardo> findByActivoAndEstadoResguardo(Assets assets, String pendiente);
 
     Optional<Resguardo> findFirstByActivoIdAndEstadoResguardoIn(Long id, List<String> pendiente);
 
+    /**
+     * Resguardos en esos estados de todos los activos de una página, en una sola consulta.
+     * Van ordenados por id para que, si un activo tuviera más de uno, siempre se tome el mismo.
+     */
+    @Query("""
+    SELECT new mx.edu.utez.modules.core.assets.projections.ResguardoActivoRow(r.activo.id, r.id, u.nombreCompleto)
+    FROM Resguardo r
+    LEFT JOIN r.usuarioEmpleado u
+    WHERE r.activo.id IN :ids AND r.estadoResguardo IN :estados
+    ORDER BY r.id
+""")
+    List<ResguardoActivoRow> findResguardosActivos(@Param("ids") Collection<Long> ids,
+                                                   @Param("estados") Collection<String> estados);
+
     // empleado + activo + estado_resguardo (ej. Confirmado)
     boolean existsByUsuarioEmpleado_IdAndActivo_IdAndEstadoResguardo(
             Long usuarioEmpleadoId, Long activoId, String estadoResguardo);
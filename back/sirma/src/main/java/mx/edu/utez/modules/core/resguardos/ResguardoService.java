@@ -3,6 +3,7 @@ package mx.edu.utez.modules.core.resguardos;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.kernel.pagination.CursorPage;
 import mx.edu.utez.modules.core.assets.utils.AssetEstados;
 import mx.edu.utez.modules.core.assets.Assets;
 import mx.edu.utez.modules.core.assets.AssetsRepository;
@@ -48,6 +49,20 @@ public class ResguardoService {
         return new ApiResponse("OK", page, HttpStatus.OK);
     }
 
+    /**
+     * Lista los resguardos por cursor, del más reciente al más antiguo, sin contar el total.
+     *
+     * @param after Cursor de la página anterior (vacío = primera página).
+     * @param size Tamaño de página.
+     * @return ApiResponse con un {@link CursorPage} de resguardos.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse findAll(String after, int size) {
+        List<Resguardo> filas = resguardoRepository.findByIdLessThanOrderByIdDesc(
+                CursorPage.decodificar(after), CursorPage.limite(size));
+        return new ApiResponse("OK", CursorPage.of(filas, size, Resguardo::getId), HttpStatus.OK);
+    }
+
     /**
      * Busca un resguardo específico por su identificador.
      *
@@ -146,7 +161,7 @@ public class ResguardoService {
         bitacoraService.registrarEvento(activoId, dto.getIdUsuarioAdmin(), "Asignacion Resguardo",
                 "Asignado a " + empleado.get().getNombreCompleto(),
                 custAnt, AssetEstados.CUSTODIA_EN_PROCESO, null, null);
-        assetsRepository.updateEstadoCustodia(activoId, AssetEstados.CUSTODIA_EN_PROCESO);
+        assetsService.cambiarEstadoCustodia(activoId, AssetEstados.CUSTODIA_EN_PROCESO);
         assetsService.evictAssetCache(activoId);
 
         return new ApiResponse("Resguardo registrado", entity, HttpStatus.CREATED);
@@ -175,7 +190,7 @@ public class ResguardoService {
                 entity.setFechaConfirmacion(LocalDateTime.now());
                 Long activoId = entity.getActivo().getId();
                 String custAnt = entity.getActivo().getEstadoCustodia();
-                assetsRepository.updateEstadoCustodia(activoId, AssetEstados.CUSTODIA_RESGUARDADO);
+                assetsService.cambiarEstadoCustodia(activoId, AssetEstados.CUSTODIA_RESGUARDADO);
                 assetsService.evictAssetCache(activoId);
                 String descConf = "Resguardo confirmado por " + entity.getUsuarioEmpleado().getNombreCompleto();
                 String obs = entity.getObservacionesConf();
@@ -189,7 +204,7 @@ public class ResguardoService {
                 entity.setFechaDevolucion(LocalDateTime.now());
                 Long activoId = entity.getActivo().getId();
                 String custAnt = entity.getActivo().getEstadoCustodia();
-                assetsRepository.updateEstadoCustodia(activoId, AssetEstados.CUSTODIA_DISPONIBLE);
+                assetsService.cambiarEstadoCustodia(activoId, AssetEstados.CUSTODIA_DISPONIBLE);
                 assetsService.evictAssetCache(activoId);
                 bitacoraService.registrarEvento(activoId, null, "Devolucion Resguardo",
                         "Activo devuelto por " + entity.getUsuarioEmpleado().getNombreCompleto(),
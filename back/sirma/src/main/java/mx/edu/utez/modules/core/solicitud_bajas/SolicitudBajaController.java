@@ -25,11 +25,15 @@ public class SolicitudBajaController {
      * Recupera una lista paginada general de todas las solicitudes de baja en sistema.
      *
      * @param pageable Configuración de paginación por url.
+     * @param after Cursor opaco de la página anterior; si viene (aunque sea vacío) se pagina por cursor, sin COUNT, usando solo <code>size</code>.
      * @return Entidad completa en formato web JSON.
      */
     @GetMapping
-    public ResponseEntity<ApiResponse> findAll(@PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
-        ApiResponse response = solicitudBajaService.findAll(pageable);
+    public ResponseEntity<ApiResponse> findAll(@PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
+                                               @RequestParam(required = false) String after) {
+        ApiResponse response = after != null
+                ? solicitudBajaService.findAll(after, pageable.getPageSize())
+                : solicitudBajaService.findAll(pageable);
         return new ResponseEntity<>(response, response.getStatus());
     }
 
@@ -1,5 +1,6 @@
 package mx.edu.utez.modules.core.solicitud_bajas;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -15,5 +16,8 @@ import java.util.Optional;
 public interface SolicitudBajaRepository extends JpaRepository<SolicitudBaja, Long> {
     List<SolicitudBaja> findByActivoId(Long activoId);
     List<SolicitudBaja> findByEstado(String estado);
+
+    /** Todas las solicitudes por cursor (keyset sobre el id, sin COUNT). */
+    List<SolicitudBaja> findByIdLessThanOrderByIdDesc(Long cursor, Limit limit);
     Optional<SolicitudBaja> findByMantenimientoId(Long mantenimientoId);
 }
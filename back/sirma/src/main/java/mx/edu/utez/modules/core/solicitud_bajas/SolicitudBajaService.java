@@ -2,6 +2,7 @@ package mx.edu.utez.modules.core.solicitud_bajas;
 
 import lombok.AllArgsConstructor;
 import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.kernel.pagination.CursorPage;
 import mx.edu.utez.modules.core.assets.Assets;
 import mx.edu.utez.modules.core.assets.AssetsRepository;
 import mx.edu.utez.modules.core.assets.AssetsService;
@@ -48,6 +49,20 @@ public class SolicitudBajaService {
         return new ApiResponse("OK", page, HttpStatus.OK);
     }
 
+    /**
+     * Lista las solicitudes de baja por cursor, de la más reciente a la más antigua, sin contar el total.
+     *
+     * @param after Cursor de la página anterior (vacío = primera página).
+     * @param size Tamaño de página.
+     * @return ApiResponse con un {@link CursorPage} de solicitudes.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse findAll(String after, int size) {
+        List<SolicitudBaja> filas = solicitudBajaRepository.findByIdLessThanOrderByIdDesc(
+                CursorPage.decodificar(after), CursorPage.limite(size));
+        return new ApiResponse("OK", CursorPage.of(filas, size, SolicitudBaja::getId), HttpStatus.OK);
+    }
+
     /**
      * Busca y retorna la especificación completa de una solicitud de baja.
      *
@@ -2,6 +2,7 @@ package mx.edu.utez.modules.core.tipo_activos;
 
 import lombok.AllArgsConstructor;
 import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.modules.core.assets.ActivoContadores;
 import mx.edu.utez.modules.core.assets.AssetsRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -13,7 +14,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Servicio que contiene la lógica de negocio para la gestión de tipos de activo.
@@ -26,10 +26,11 @@ public class TipoActivoService {
 
     private final TipoActivoRepository tipoActivoRepository;
     private final AssetsRepository assetsRepository;
+    private final ActivoContadores activoContadores;
 
     /**
      * Obtiene una página de tipos de activo que se encuentran activos.
-     * También calcula y asigna la cantidad de activos asociados a cada tipo.
+     * También asigna la cantidad de activos asociados a cada tipo (de {@link ActivoContadores}, solo los de la página).
      *
      * @param pageable Información de paginación y ordenamiento.
      * @return ApiResponse con la página de tipos de activo y la cantidad asociada.
@@ -37,9 +38,8 @@ public class TipoActivoService {
     @Transactional(readOnly = true)
     public ApiResponse findAll(Pageable pageable) {
         Page<TipoActivo> page = tipoActivoRepository.findByEsActivoTrue(pageable);
-        List<Object[]> counts = assetsRepository.countActiveAssetsByTipoActivoId();
-        Map<Long, Long> cantidadPorTipo = counts.stream()
-                .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> ((Number) row[1]).longValue()));
+        Map<Long, ActivoContadores.Totales> cantidadPorTipo = activoContadores.leerAmbito(
+                ActivoContadores.Ambito.TIPO, page.getContent().stream().map(TipoActivo::getId).toList());
 
         List<TipoActivoDTO> dtos = page.getContent().stream().map(t -> {
             TipoActivoDTO dto = new TipoActivoDTO();
@@ -50,7 +50,7 @@ public class TipoActivoService {
             dto.setMarca(t.getMarca());
             dto.setModelo(t.getModelo());
             dto.setEsActivo(t.getEsActivo());
-            dto.setCantidad(cantidadPorTipo.getOrDefault(t.getId(), 0L));
+            dto.setCantidad(cantidadPorTipo.getOrDefault(t.getId(), ActivoContadores.Totales.CERO).total());
             return dto;
         }).toList();
 
@@ -148,7 +148,7 @@ public class TipoActivoService {
 
         // Al desactivar el tipo, también se ocultan todos sus activos
         if (!nuevoEstado) {
-            assetsRepository.updateEsActivoByTipoActivoId(id, false);
+            activoContadores.registrarPorTipo(id, () -> assetsRepository.updateEsActivoByTipoActivoId(id, false));
         }
 
         return new ApiResponse("Estado actualizado", entity, HttpStatus.OK);
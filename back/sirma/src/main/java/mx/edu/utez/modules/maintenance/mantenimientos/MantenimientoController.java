@@ -24,13 +24,17 @@ public class MantenimientoController {
     /**
      * Recupera una lista paginada de todos los mantenimientos registrados.
      * @param pageable Configuración de paginación y ordenamiento.
+     * @param after Cursor opaco de la página anterior; si viene (aunque sea vacío) se pagina por cursor, sin COUNT, usando solo <code>size</code>.
      * @return ResponseEntity con la lista de mantenimientos.
      */
     @GetMapping
     public ResponseEntity<ApiResponse> findAll(
             @PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
-            @RequestParam(name = "excluirAsignado", defaultValue = "false") boolean excluirAsignado) {
-        ApiResponse response = mantenimientoService.findAll(pageable, excluirAsignado);
+            @RequestParam(name = "excluirAsignado", defaultValue = "false") boolean excluirAsignado,
+            @RequestParam(required = false) String after) {
+        ApiResponse response = after != null
+                ? mantenimientoService.findAll(after, pageable.getPageSize(), excluirAsignado)
+                : mantenimientoService.findAll(pageable, excluirAsignado);
         return new ResponseEntity<>(response, response.getStatus());
     }
 
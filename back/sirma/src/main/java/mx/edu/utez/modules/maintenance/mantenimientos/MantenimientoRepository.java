@@ -2,6 +2,7 @@ package mx.edu.utez.modules.maintenance.mantenimientos;
 
 import mx.edu.utez.modules.maintenance.mantenimientos.projections.MantenimientoProjection;
 import mx.edu.utez.modules.maintenance.mantenimientos.projections.TiempoPromedioProjection;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -49,6 +50,12 @@ public interface MantenimientoRepository extends JpaRepository<Mantenimiento, Lo
      */
     Page<Mantenimiento> findByEstadoMantenimientoNot(String estado, Pageable pageable);
 
+    /** {@link #findByEstadoMantenimientoNot(String, Pageable)} por cursor (keyset sobre el id, sin COUNT). */
+    List<Mantenimiento> findByEstadoMantenimientoNotAndIdLessThanOrderByIdDesc(String estado, Long cursor, Limit limit);
+
+    /** Todos los mantenimientos por cursor (keyset sobre el id, sin COUNT). */
+    List<Mantenimiento> findByIdLessThanOrderByIdDesc(Long cursor, Limit limit);
+
     /**
      * Actualización dirigida: solo modifica <code>estado_mantenimiento</code> y <code>fecha_inicio</code>.
      * Evita tocar otras columnas que puedan tener restricciones de ENUM y previene errores de truncado.
@@ -3,6 +3,7 @@ package mx.edu.utez.modules.maintenance.mantenimientos;
 import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.kernel.pagination.CursorPage;
 import mx.edu.utez.modules.core.assets.utils.AssetEstadoHelper;
 import mx.edu.utez.modules.core.assets.utils.AssetEstados;
 import mx.edu.utez.modules.core.assets.Assets;
@@ -73,6 +74,22 @@ public class MantenimientoService {
         return new ApiResponse("OK", page, HttpStatus.OK);
     }
 
+    /**
+     * Listado general por cursor (sin OFFSET ni COUNT), del más reciente al más antiguo.
+     * @param after Cursor de la página anterior (vacío = primera página).
+     * @param size Tamaño de página.
+     * @param excluirAsignado Si true, omite los que están en estado 'Asignado'.
+     * @return {@link CursorPage} de mantenimientos.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse findAll(String after, int size, boolean excluirAsignado) {
+        long cursor = CursorPage.decodificar(after);
+        List<Mantenimiento> filas = excluirAsignado
+                ? mantenimientoRepository.findByEstadoMantenimientoNotAndIdLessThanOrderByIdDesc("Asignado", cursor, CursorPage.limite(size))
+                : mantenimientoRepository.findByIdLessThanOrderByIdDesc(cursor, CursorPage.limite(size));
+        return new ApiResponse("OK", CursorPage.of(filas, size, Mantenimiento::getId), HttpStatus.OK);
+    }
+
     /**
      * Extrae con sumo detalle una actividad o sesión en mantenimiento desde su ID principal.
      * @return El DTO procesado o falla de consulta.
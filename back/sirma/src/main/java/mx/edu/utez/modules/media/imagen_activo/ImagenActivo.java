@@ -27,6 +27,9 @@ import mx.edu.utez.modules.media.imagen.BaseImagen;
 @NoArgsConstructor
 public class ImagenActivo extends BaseImagen {
 
+    /** <code>nombre_archivo</code> de la imagen del QR de un activo (la que no es foto del bien). */
+    public static final String NOMBRE_ARCHIVO_QR = "QR_CODE";
+
     /** Activo al que pertenece la imagen. */
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_activo", nullable = false)
@@ -1,12 +1,23 @@
 package mx.edu.utez.modules.media.imagen_activo;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ImagenActivoRepository extends JpaRepository<ImagenActivo, Long> {
     List<ImagenActivo> findByActivoId(Long activoId);
+
+    boolean existsByActivoIdAndNombreArchivo(Long activoId, String nombreArchivo);
+
+    List<ImagenActivo> findByActivoIdInAndNombreArchivo(Collection<Long> activoIds, String nombreArchivo);
+
+    /** De los activos indicados, los que ya tienen una imagen con ese nombre (una consulta por lote). */
+    @Query("SELECT i.activo.id FROM ImagenActivo i WHERE i.activo.id IN :ids AND i.nombreArchivo = :nombreArchivo")
+    List<Long> findActivoIdsConArchivo(@Param("ids") Collection<Long> ids, @Param("nombreArchivo") String nombreArchivo);
 }
 
@@ -27,13 +27,17 @@ public class ReporteController {
      *
      * @param pageable Configuración enviada para ordenarlos.
      * @param sinAsignar Parámetro GET booleano definiendo si filtrar el conjunto general.
+     * @param after Cursor opaco de la página anterior; si viene (aunque sea vacío) se pagina por cursor, sin COUNT, usando solo <code>size</code>.
      * @return Formato de listado estándar.
      */
     @GetMapping
     public ResponseEntity<ApiResponse> findAll(
             @PageableDefault(page = 0, size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
-            @RequestParam(required = false, defaultValue = "false") boolean sinAsignar) {
-        ApiResponse response = reporteService.findAll(pageable, sinAsignar);
+            @RequestParam(required = false, defaultValue = "false") boolean sinAsignar,
+            @RequestParam(required = false) String after) {
+        ApiResponse response = after != null
+                ? reporteService.findAll(after, pageable.getPageSize(), sinAsignar)
+                : reporteService.findAll(pageable, sinAsignar);
         return new ResponseEntity<>(response, response.getStatus());
     }
 
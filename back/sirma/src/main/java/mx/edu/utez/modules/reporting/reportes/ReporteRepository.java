@@ -1,9 +1,11 @@
 package mx.edu.utez.modules.reporting.reportes;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
@@ -46,6 +48,15 @@ public interface ReporteRepository extends JpaRepository<Reporte, Long> {
            "(SELECT 1 FROM Mantenimiento m WHERE m.reporte.id = r.id AND m.estadoMantenimiento <> 'Asignado')")
     Page<Reporte> findAllSinMantenimiento(Pageable pageable);
 
+    /** {@link #findAllSinMantenimiento(Pageable)} por cursor (keyset sobre el id, sin COUNT). */
+    @Query("SELECT r FROM Reporte r WHERE r.id < :cursor AND NOT EXISTS " +
+           "(SELECT 1 FROM Mantenimiento m WHERE m.reporte.id = r.id AND m.estadoMantenimiento <> 'Asignado') " +
+           "ORDER BY r.id DESC")
+    List<Reporte> findSinMantenimientoAntesDe(@Param("cursor") Long cursor, Limit limit);
+
+    /** Todos los reportes por cursor (keyset sobre el id, sin COUNT). */
+    List<Reporte> findByIdLessThanOrderByIdDesc(Long cursor, Limit limit);
+
     /**
      * Mapea datos estadísticos combinados a partir del número de incidencias no resultas ni canceladas,
      * agrupadas por el nombre general y extrae el top 3 para graficados informativos.
@@ -2,6 +2,7 @@ package mx.edu.utez.modules.reporting.reportes;
 
 import lombok.AllArgsConstructor;
 import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.kernel.pagination.CursorPage;
 import mx.edu.utez.modules.core.assets.utils.AssetEstadoHelper;
 import mx.edu.utez.modules.core.assets.utils.AssetEstados;
 import mx.edu.utez.modules.core.assets.Assets;
@@ -75,6 +76,25 @@ public class ReporteService {
         return new ApiResponse("OK", page, HttpStatus.OK);
     }
 
+    /**
+     * Igual que {@link #findAll(Pageable, boolean)} pero por cursor: sin OFFSET ni COUNT.
+     *
+     * @param after Cursor de la página anterior (vacío = primera página).
+     * @param size Tamaño de página.
+     * @param sinAsignar Bandeja controlada que limita los reportes puros sin técnico asignado.
+     * @return {@link CursorPage} de <code>Reporte</code>.
+     */
+    @Transactional(readOnly = true)
+    public ApiResponse findAll(String after, int size, boolean sinAsignar) {
+        long cursor = CursorPage.decodificar(after);
+        List<Reporte> filas = sinAsignar
+                ? reporteRepository.findSinMantenimientoAntesDe(cursor, CursorPage.limite(size))
+                : reporteRepository.findByIdLessThanOrderByIdDesc(cursor, CursorPage.limite(size));
+        CursorPage<Reporte> pagina = CursorPage.of(filas, size, Reporte::getId);
+        pagina.content().forEach(this::enrichNombreTecnicoAsignado);
+        return new ApiResponse("OK", pagina, HttpStatus.OK);
+    }
+
     /**
      * Auxiliar interno que embebe forzosamente el nombre del técnico de soporte sobre
      * una propiedad Transiente para fácil renderizado.
@@ -185,7 +205,7 @@ public class ReporteService {
         Long activoId = a.getId();
         String opAnt = a.getEstadoOperativo();
         String cust = a.getEstadoCustodia();
-        assetsRepository.updateEstadoOperativo(activoId, AssetEstados.OPERATIVO_REPORTADO);
+        assetsService.cambiarEstadoOperativo(activoId, AssetEstados.OPERATIVO_REPORTADO);
         assetsService.evictAssetCache(activoId);
         String desc = dto.getDescripcionFalla();
         String descCorta = desc != null && desc.length() > 100 ? desc.substring(0, 100) + "…" : (desc != null ? desc : "Daño reportado");
@@ -251,7 +271,7 @@ public class ReporteService {
 
         reporteRepository.deleteById(id);
 
-        assetsRepository.updateEstadoOperativo(activoId, AssetEstados.OPERATIVO_OK);
+        assetsService.cambiarEstadoOperativo(activoId, AssetEstados.OPERATIVO_OK);
         assetsService.evictAssetCache(activoId);
         bitacoraService.registrarEvento(activoId, null, "Eliminación reporte",
                 "Reporte de daño eliminado; el activo vuelve a estado operativo OK.",
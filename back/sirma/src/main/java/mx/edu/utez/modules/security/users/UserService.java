@@ -33,6 +33,7 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final mx.edu.utez.modules.core.resguardos.ResguardoRepository resguardoRepository;
     private final mx.edu.utez.modules.core.assets.AssetsRepository assetsRepository;
+    private final mx.edu.utez.modules.core.assets.ActivoContadores activoContadores;
     private final mx.edu.utez.modules.maintenance.mantenimientos.MantenimientoRepository mantenimientoRepository;
 
     @Transactional(readOnly = true)
@@ -125,7 +126,8 @@ public class UserService {
             String rol = entity.getRole() != null ? entity.getRole().getNombre() : "";
             if (rol.equalsIgnoreCase("Empleado")) {
                 // 1. Poner en Disponible los activos que estaban bajo su custodia
-                assetsRepository.liberarCustodiaDeEmpleado(id);
+                activoContadores.registrar(assetsRepository.findIdsBajoCustodiaDeEmpleado(id),
+                        () -> assetsRepository.liberarCustodiaDeEmpleado(id));
                 // 2. Marcar sus resguardos activos como Devuelto
                 resguardoRepository.devolverPorEmpleado(id);
             } else if (rol.toLowerCase().contains("tecnico") || rol.toLowerCase().contains("técnico")) {
@@ -51,8 +51,11 @@ public class MainSecurity {
                         .requestMatchers("/api/mantenimientos", "/api/mantenimientos/**").permitAll() // Permite el acceso a mantenimientos para todos los roles
                         .requestMatchers("/api/auth/login", "/api/auth/request-password-reset", "/api/auth/change-password").permitAll()
                         .requestMatchers("/api/register", "/api/register/**").hasAnyAuthority("ROLE_Administrador") // Solo el admin puede crear usuarios
-                        .requestMatchers("/api/roles/**", "/api/areas/**", "/api/users/**", "/api/imports/").hasAnyAuthority("ROLE_Administrador")
+                        .requestMatchers("/api/roles/**", "/api/areas/**", "/api/users/**", "/api/imports/", "/api/imports/**", "/api/admin/**").hasAnyAuthority("ROLE_Administrador")
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/activos/export").hasAnyAuthority("ROLE_Administrador")
+                        .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/activos/bulk").hasAnyAuthority("ROLE_Administrador")
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/activos/**").hasAnyAuthority("ROLE_Administrador", "ROLE_Tecnico", "ROLE_Empleado")
+                        .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/activos/qr/resolver/batch").hasAnyAuthority("ROLE_Administrador", "ROLE_Tecnico", "ROLE_Empleado") // solo lectura, igual que el resolver individual
                         .requestMatchers("/api/qr/**", "/api/campus/**", "/api/edificios/**", "/api/espacios/**", "/api/tipo-activos/**", "/api/marcas/**", "/api/modelos/**", "/api/activos/**")
                         .hasAnyAuthority("ROLE_Administrador", "ROLE_Tecnico")
                         .requestMatchers("/api/solicitudes-baja/**").hasAnyAuthority("ROLE_Administrador")
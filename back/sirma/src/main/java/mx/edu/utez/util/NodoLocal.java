@@ -0,0 +1,27 @@
+package mx.edu.utez.util;
+
+import java.net.InetAddress;
+
+/**
+ * Nombre de esta instancia de la app, para distinguir entre los nodos detrás del balanceador
+ * quién reclamó un trabajo o quién anotó una fila.
+ *
+ * @author Ithera Team
+ */
+public final class NodoLocal {
+
+    /** Largo máximo del nombre (cabe en las columnas VARCHAR(64) junto con un UUID). */
+    private static final int LARGO_MAX = 24;
+
+    private NodoLocal() {}
+
+    /** @return Hostname de la máquina (recortado), o "nodo" si no se puede obtener. */
+    public static String nombre() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return host.length() > LARGO_MAX ? host.substring(0, LARGO_MAX) : host;
+        } catch (Exception e) {
+            return "nodo";
+        }
+    }
+}
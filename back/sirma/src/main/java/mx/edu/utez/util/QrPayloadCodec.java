@@ -6,7 +6,8 @@ import org.springframework.stereotype.Component;
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.Base64;
@@ -14,6 +15,10 @@ import java.util.Base64;
 /**
  * Cifra/descifra el identificador interno del activo para el contenido del QR (campo {@code p}),
  * sin exponer el id numérico en claro en el payload.
+ *
+ * <p>Cada hilo reutiliza su propio {@link Cipher} y sus buffers ({@code Cipher} no es thread-safe
+ * y {@code getInstance} es caro): el resolver corre en cada escaneo desde la app. GCM exige
+ * volver a inicializar con cada IV, y eso se hace en cada llamada como antes.</p>
  */
 @Component
 public class QrPayloadCodec {
@@ -23,9 +28,31 @@ public class QrPayloadCodec {
     private static final int GCM_TAG_BITS = 128;
     /** Versión interna del plaintext (1 byte) + long (8 bytes). */
     private static final int PLAIN_LEN = 9;
+    /** IV + plaintext cifrado + tag: el único largo válido de un token. */
+    private static final int TOKEN_LEN = GCM_IV_LEN + PLAIN_LEN + GCM_TAG_BITS / 8;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /** Cipher y buffers de un hilo. */
+    private static final class Estado {
+        final Cipher cipher;
+        final byte[] iv = new byte[GCM_IV_LEN];
+        final byte[] plain = new byte[PLAIN_LEN];
+        final byte[] token = new byte[TOKEN_LEN];
+
+        Estado() {
+            try {
+                cipher = Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES/GCM no disponible", e);
+            }
+        }
+    }
 
     private final SecretKeySpec keySpec;
     private final SecureRandom secureRandom = new SecureRandom();
+    private final ThreadLocal<Estado> estado = ThreadLocal.withInitial(Estado::new);
 
     public QrPayloadCodec(@Value("${jwt.secret}") String jwtSecret) {
         byte[] key = sha256(jwtSecret + "|SIRMA_QR_PAYLOAD_V1");
@@ -35,7 +62,7 @@ public class QrPayloadCodec {
     private static byte[] sha256(String input) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
-            return md.digest(input.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            return md.digest(input.getBytes(StandardCharsets.UTF_8));
         } catch (Exception e) {
             throw new IllegalStateException("SHA-256 no disponible", e);
         }
@@ -45,24 +72,26 @@ public class QrPayloadCodec {
      * Genera el token opaco (Base64 URL sin padding) para incluir en {@code {"v":2,"p":"..."}}.
      */
     public String encode(long assetId) {
-        byte[] plain = ByteBuffer.allocate(PLAIN_LEN)
-                .put((byte) 1)
-                .putLong(assetId)
-                .array();
-        byte[] iv = new byte[GCM_IV_LEN];
+        Estado e = estado.get();
+        byte[] plain = e.plain;
+        byte[] token = e.token;
+
+        plain[0] = 1;
+        for (int i = 8; i >= 1; i--) {
+            plain[i] = (byte) assetId;
+            assetId >>>= 8;
+        }
+
+        // El IV va al inicio del token y el cifrado se escribe justo después
+        byte[] iv = e.iv;
         secureRandom.nextBytes(iv);
+        System.arraycopy(iv, 0, token, 0, GCM_IV_LEN);
         try {
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_BITS, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, spec);
-            byte[] cipherText = cipher.doFinal(plain);
-            byte[] combined = ByteBuffer.allocate(iv.length + cipherText.length)
-                    .put(iv)
-                    .put(cipherText)
-                    .array();
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(combined);
-        } catch (Exception e) {
-            throw new IllegalStateException("Error al cifrar payload QR", e);
+            e.cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            e.cipher.doFinal(plain, 0, PLAIN_LEN, token, GCM_IV_LEN);
+            return ENCODER.encodeToString(token);
+        } catch (Exception ex) {
+            throw new IllegalStateException("Error al cifrar payload QR", ex);
         }
     }
 
@@ -73,28 +102,34 @@ public class QrPayloadCodec {
         if (token == null || token.isBlank()) {
             throw new IllegalArgumentException("token vacío");
         }
-        byte[] combined = Base64.getUrlDecoder().decode(token.trim());
-        if (combined.length < GCM_IV_LEN + PLAIN_LEN) {
+        Estado e = estado.get();
+        byte[] combined = e.token;
+
+        byte[] src = token.trim().getBytes(StandardCharsets.ISO_8859_1);
+        // Base64 sin padding: 37 bytes son 50 caracteres; cualquier otro largo no es un token nuestro
+        if (src.length != (TOKEN_LEN * 4 + 2) / 3) {
+            throw new IllegalArgumentException(src.length < (TOKEN_LEN * 4 + 2) / 3 ? "token corto" : "token largo");
+        }
+        if (DECODER.decode(src, combined) != TOKEN_LEN) {
             throw new IllegalArgumentException("token corto");
         }
-        ByteBuffer bb = ByteBuffer.wrap(combined);
-        byte[] iv = new byte[GCM_IV_LEN];
-        bb.get(iv);
-        byte[] cipherBytes = new byte[bb.remaining()];
-        bb.get(cipherBytes);
+
+        byte[] plain = e.plain;
         try {
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_BITS, iv);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, spec);
-            byte[] plain = cipher.doFinal(cipherBytes);
-            if (plain.length != PLAIN_LEN || plain[0] != 1) {
+            e.cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(GCM_TAG_BITS, combined, 0, GCM_IV_LEN));
+            int n = e.cipher.doFinal(combined, GCM_IV_LEN, TOKEN_LEN - GCM_IV_LEN, plain, 0);
+            if (n != PLAIN_LEN || plain[0] != 1) {
                 throw new IllegalArgumentException("formato plaintext");
             }
-            return ByteBuffer.wrap(plain, 1, 8).getLong();
-        } catch (IllegalArgumentException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new IllegalArgumentException("token inválido", e);
+            long id = 0;
+            for (int i = 1; i <= 8; i++) {
+                id = (id << 8) | (plain[i] & 0xFF);
+            }
+            return id;
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("token inválido", ex);
         }
     }
 }
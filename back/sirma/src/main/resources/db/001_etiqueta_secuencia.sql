@@ -0,0 +1,11 @@
+-- ======================================================================
+-- Secuencia por prefijo para las etiquetas de activo
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- Cada fila guarda el siguiente número libre de un prefijo de etiqueta (ej. 'LAHPADU').
+-- La aplicación reserva bloques completos con un solo upsert y los reparte en memoria.
+CREATE TABLE IF NOT EXISTS ETIQUETA_SECUENCIA (
+    prefijo    VARCHAR(20) NOT NULL,
+    siguiente  BIGINT      NOT NULL,
+    PRIMARY KEY (prefijo)
+);
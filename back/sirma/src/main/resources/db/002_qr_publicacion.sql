@@ -0,0 +1,19 @@
+-- ======================================================================
+-- Outbox de publicación de QRs a Cloudinary
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- Una fila por activo cuyo QR falta subir (la PK evita encolarlo dos veces).
+-- El worker reclama filas con reclamado_por/reclamado_en, sube la imagen y borra la fila;
+-- si falla, la reprograma con espera creciente hasta marcarla FALLIDO.
+CREATE TABLE IF NOT EXISTS QR_PUBLICACION (
+    id_activo          BIGINT       NOT NULL,
+    estado             VARCHAR(20)  NOT NULL DEFAULT 'PENDIENTE',
+    intentos           INT          NOT NULL DEFAULT 0,
+    siguiente_intento  DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    reclamado_por      VARCHAR(64)  NULL,
+    reclamado_en       DATETIME     NULL,
+    ultimo_error       VARCHAR(500) NULL,
+    creado_en          DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id_activo),
+    KEY idx_qr_publicacion_pendientes (estado, siguiente_intento)
+);
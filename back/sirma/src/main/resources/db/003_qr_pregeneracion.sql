@@ -0,0 +1,23 @@
+-- ======================================================================
+-- Trabajos de pregeneración masiva de QRs (checkpoint para reanudar)
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- Una fila por trabajo. ultimo_id es el keyset ya procesado: si el nodo se cae, otro
+-- (o el mismo al reiniciar) reclama el trabajo al vencer actualizado_en y sigue desde ahí.
+CREATE TABLE IF NOT EXISTS QR_PREGENERACION (
+    id              VARCHAR(36)  NOT NULL,
+    id_campus       BIGINT       NULL,
+    id_edificio     BIGINT       NULL,
+    id_espacio      BIGINT       NULL,
+    ultimo_id       BIGINT       NOT NULL DEFAULT 0,
+    procesados      INT          NOT NULL DEFAULT 0,
+    encolados       INT          NOT NULL DEFAULT 0,
+    estado          VARCHAR(20)  NOT NULL DEFAULT 'EN_CURSO',
+    mensaje         VARCHAR(500) NULL,
+    reclamado_por   VARCHAR(64)  NULL,
+    actualizado_en  DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    creado_en       DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    terminado_en    DATETIME     NULL,
+    PRIMARY KEY (id),
+    KEY idx_qr_pregeneracion_estado (estado, actualizado_en)
+);
@@ -0,0 +1,9 @@
+-- ======================================================================
+-- Migración de payloads QR legados ({"id":N}) a payloads cifrados
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- La migración corre como un trabajo más de QR_PREGENERACION (mismo checkpoint y reanudación).
+ALTER TABLE QR_PREGENERACION ADD COLUMN tipo VARCHAR(20) NOT NULL DEFAULT 'PREGENERACION';
+
+-- Al cambiar el payload, la imagen vieja se borra de Cloudinary después de subir la nueva.
+ALTER TABLE QR_PUBLICACION ADD COLUMN public_id_anterior VARCHAR(255) NULL;
@@ -0,0 +1,21 @@
+-- ======================================================================
+-- Índices para la búsqueda de activos (GET /api/activos/search)
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- Cada índice empieza por la columna del filtro y sigue con es_activo (la búsqueda solo trae
+-- vigentes); la llave primaria (id_activo) ya va implícita al final, así que con el filtro de
+-- igualdad resuelto el ORDER BY id DESC LIMIT n se lee del índice hacia atrás sin ordenar.
+-- No se pone es_activo al inicio: casi todo el inventario es vigente y el optimizador terminaría
+-- prefiriendo ese índice (poco selectivo) en vez del de etiqueta o serie.
+-- etiqueta y numero_serie ya tienen su índice UNIQUE, que resuelve el LIKE 'prefijo%'.
+CREATE INDEX IF NOT EXISTS idx_activo_espacio   ON ACTIVO (id_espacio, es_activo);
+CREATE INDEX IF NOT EXISTS idx_activo_tipo      ON ACTIVO (id_tipo_activo, es_activo);
+CREATE INDEX IF NOT EXISTS idx_activo_custodia  ON ACTIVO (estado_custodia, es_activo);
+CREATE INDEX IF NOT EXISTS idx_activo_operativo ON ACTIVO (estado_operativo, es_activo);
+
+-- Campus y edificio se resuelven bajando por la jerarquía: campus -> edificios -> espacios -> activos
+CREATE INDEX IF NOT EXISTS idx_edificio_campus  ON EDIFICIO (id_campus);
+CREATE INDEX IF NOT EXISTS idx_espacio_edificio ON ESPACIO (id_edificio);
+
+-- Filtro por marca: tipo_activo es chico, pero así no se recorre en cada búsqueda
+CREATE INDEX IF NOT EXISTS idx_tipo_activo_marca ON TIPO_ACTIVO (marca);
@@ -0,0 +1,21 @@
+-- ======================================================================
+-- Contadores de activos para el dashboard (global, por tipo y por campus)
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- Una fila por ámbito: ('GLOBAL', 0), ('TIPO', id_tipo_activo), ('CAMPUS', id_campus).
+-- Solo cuentan activos vigentes (es_activo). Cada cambio de estado suma o resta su diferencia
+-- en la misma transacción, y una tarea programada los vuelve a derivar de ACTIVO por si algo se
+-- desfasó. No hace falta llenarla: si está vacía, la app la reconstruye al arrancar.
+CREATE TABLE IF NOT EXISTS ACTIVO_CONTADOR (
+    ambito            VARCHAR(10) NOT NULL,
+    id_ambito         BIGINT      NOT NULL,
+    total             BIGINT      NOT NULL DEFAULT 0,
+    disponibles       BIGINT      NOT NULL DEFAULT 0,
+    resguardados      BIGINT      NOT NULL DEFAULT 0,
+    en_mantenimiento  BIGINT      NOT NULL DEFAULT 0,
+    reportados        BIGINT      NOT NULL DEFAULT 0,
+    PRIMARY KEY (ambito, id_ambito)
+);
+
+-- El % semanal resta al global las altas de la última semana; con este índice solo se leen esas
+CREATE INDEX IF NOT EXISTS idx_activo_fecha_alta ON ACTIVO (fecha_alta);
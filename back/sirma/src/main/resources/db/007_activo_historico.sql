@@ -0,0 +1,20 @@
+-- ======================================================================
+-- Histórico diario del inventario (tendencias del dashboard)
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- Cada noche (y al arrancar, si aún no hay la de hoy) se copia ACTIVO_CONTADOR con la fecha del día: una fila por ámbito
+-- ('GLOBAL', 0), ('TIPO', id_tipo_activo) y ('CAMPUS', id_campus). Las tendencias leen rangos
+-- de esta tabla; nunca se recorre ACTIVO ni BITACORA para saber cómo estaba el inventario.
+-- La llave empieza por el ámbito para que el rango de fechas de una serie sea contiguo.
+CREATE TABLE IF NOT EXISTS ACTIVO_HISTORICO (
+    ambito            VARCHAR(10) NOT NULL,
+    id_ambito         BIGINT      NOT NULL,
+    fecha             DATE        NOT NULL,
+    total             BIGINT      NOT NULL DEFAULT 0,
+    disponibles       BIGINT      NOT NULL DEFAULT 0,
+    resguardados      BIGINT      NOT NULL DEFAULT 0,
+    en_mantenimiento  BIGINT      NOT NULL DEFAULT 0,
+    reportados        BIGINT      NOT NULL DEFAULT 0,
+    PRIMARY KEY (ambito, id_ambito, fecha),
+    KEY idx_activo_historico_fecha (fecha)
+);
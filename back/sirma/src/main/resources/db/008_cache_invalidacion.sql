@@ -0,0 +1,17 @@
+-- ======================================================================
+-- Bitácora de invalidaciones de caché entre nodos
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- Cada nodo agrega una fila al invalidar una entrada (llave) o un caché completo (llave NULL),
+-- después del commit. Todos los nodos leen las filas recientes cada segundo y aplican las de los
+-- demás en su Caffeine local. Las filas solo sirven unos segundos: se borran después de una hora.
+-- Se lee por creado_en y no por id porque en TiDB el AUTO_INCREMENT no es creciente entre servidores.
+CREATE TABLE IF NOT EXISTS CACHE_INVALIDACION (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    cache      VARCHAR(50)  NOT NULL,
+    llave      VARCHAR(255) NULL,
+    nodo       VARCHAR(64)  NOT NULL,
+    creado_en  DATETIME(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (id),
+    KEY idx_cache_invalidacion_creado (creado_en)
+);
@@ -0,0 +1,34 @@
+-- ======================================================================
+-- Trabajos de importación visibles desde cualquier nodo
+-- (ddl-auto=none: aplicar a mano en TiDB antes de desplegar)
+-- ======================================================================
+-- Una fila por importación. El nodo que la corre (nodo) actualiza los contadores cada segundo;
+-- los demás leen de aquí el estado y piden la cancelación con cancelado = TRUE, que el dueño
+-- aplica en su siguiente sincronización. Si actualizado_en deja de avanzar, el nodo se cayó y
+-- la importación se da por fallida. errores trae solo las primeras filas rechazadas (JSON).
+CREATE TABLE IF NOT EXISTS IMPORT_JOB (
+    id              VARCHAR(36)  NOT NULL,
+    archivo         VARCHAR(255) NULL,
+    nodo            VARCHAR(64)  NOT NULL,
+    estado          VARCHAR(20)  NOT NULL DEFAULT 'EN_COLA',
+    filas_leidas    INT          NOT NULL DEFAULT 0,
+    insertados      INT          NOT NULL DEFAULT 0,
+    reactivados     INT          NOT NULL DEFAULT 0,
+    rechazados      INT          NOT NULL DEFAULT 0,
+    mensaje         TEXT         NULL,
+    errores         TEXT         NULL,
+    cancelado       BOOLEAN      NOT NULL DEFAULT FALSE,
+    creado_en       DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    actualizado_en  DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    terminado_en    DATETIME     NULL,
+    PRIMARY KEY (id),
+    KEY idx_import_job_terminado (terminado_en)
+);
+
+-- Libro .xlsx de filas rechazadas, partido en trozos de 1 MB (TiDB limita el tamaño de cada fila).
+CREATE TABLE IF NOT EXISTS IMPORT_JOB_RECHAZOS (
+    id_job  VARCHAR(36) NOT NULL,
+    parte   INT         NOT NULL,
+    datos   MEDIUMBLOB  NOT NULL,
+    PRIMARY KEY (id_job, parte)
+);
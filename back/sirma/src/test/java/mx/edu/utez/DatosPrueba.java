@@ -0,0 +1,208 @@
+package mx.edu.utez;
+
+import jakarta.persistence.EntityManager;
+import mx.edu.utez.modules.core.assets.Assets;
+import mx.edu.utez.modules.core.imports.ImportColumnas;
+import mx.edu.utez.modules.core.tipo_activos.TipoActivo;
+import mx.edu.utez.modules.location.areas.Area;
+import mx.edu.utez.modules.location.campus.Campus;
+import mx.edu.utez.modules.location.edificios.Edificio;
+import mx.edu.utez.modules.location.espacios.Espacio;
+import mx.edu.utez.modules.security.auth.user_details.UserDetailsImp;
+import mx.edu.utez.modules.security.roles.Role;
+import mx.edu.utez.modules.security.users.User;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Datos y ajustes comunes de las pruebas que corren sobre H2 (<code>ddl-auto=create-drop</code>):
+ * catálogos mínimos, los scripts de <code>db/</code> que Hibernate no crea y el usuario en sesión.
+ *
+ * @author Ithera Team
+ */
+public final class DatosPrueba {
+
+    private DatosPrueba() {}
+
+    /** Catálogos sembrados: dos campus con un espacio cada uno (el primero con dos), dos tipos y dos usuarios. */
+    public record Catalogo(Campus campus, Edificio edificio, Espacio espacio, Espacio otroEspacio,
+                           Campus otroCampus, Espacio espacioOtroCampus,
+                           TipoActivo tipo, TipoActivo otroTipo, User admin, User empleado) {}
+
+    /** Scripts ya aplicados por BD (url + script): las clases de {@link PruebaH2} comparten la misma. */
+    private static final Set<String> APLICADOS = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Corre scripts de <code>src/main/resources/db</code> (cada uno una sola vez por BD, porque no todos
+     * se pueden repetir) y deja <code>BITACORA.fecha_evento</code> con su default (en TiDB lo pone la BD;
+     * Hibernate la crea sin él).
+     * @param scripts Nombres dentro de <code>db/</code>, ej. <code>006_activo_contador.sql</code>
+     */
+    public static void prepararBd(JdbcTemplate jdbcTemplate, String... scripts) {
+        jdbcTemplate.execute((Connection c) -> {
+            String url = c.getMetaData().getURL();
+            for (String s : scripts)
+                if (APLICADOS.add(url + " " + s)) ScriptUtils.executeSqlScript(c, new ClassPathResource("db/" + s));
+            return null;
+        });
+        jdbcTemplate.execute("ALTER TABLE BITACORA ALTER COLUMN fecha_evento SET DEFAULT CURRENT_TIMESTAMP");
+    }
+
+    /** Siembra los catálogos; debe llamarse dentro de una transacción. */
+    public static Catalogo sembrarCatalogo(EntityManager em) {
+        Role rolAdmin = rol(em, "Administrador");
+        Role rolEmpleado = rol(em, "Empleado");
+
+        Area area = new Area();
+        area.setNombre("Sistemas");
+        em.persist(area);
+
+        Campus campus = campus(em, "Campus Norte");
+        Edificio edificio = edificio(em, campus, "Docencia 1");
+        Espacio espacio = espacio(em, edificio, "Laboratorio");
+        Espacio otroEspacio = espacio(em, edificio, "Almacén");
+        Campus otroCampus = campus(em, "Campus Sur");
+        Espacio espacioOtroCampus = espacio(em, edificio(em, otroCampus, "Docencia 2"), "Aula 1");
+
+        TipoActivo tipo = tipo(em, "Computadora");
+        TipoActivo otroTipo = tipo(em, "Proyector");
+
+        User admin = usuario(em, rolAdmin, area, "Administrador", 0);
+        User empleado = usuario(em, rolEmpleado, area, "Empleado", 1);
+        em.flush();
+        return new Catalogo(campus, edificio, espacio, otroEspacio, otroCampus, espacioOtroCampus,
+                tipo, otroTipo, admin, empleado);
+    }
+
+    /** Activo vigente, Disponible y OK, con etiqueta <code>ET-n</code> y serie <code>NS-n</code>. */
+    public static Assets activo(EntityManager em, TipoActivo tipo, Espacio espacio, int n) {
+        Assets a = new Assets();
+        a.setEtiqueta("ET-" + n);
+        a.setNumeroSerie("NS-" + n);
+        a.setTipoActivo(tipo);
+        a.setEspacio(espacio);
+        a.setFechaAlta(LocalDate.now());
+        em.persist(a);
+        return a;
+    }
+
+    /**
+     * Archivo .xlsx con el layout de la importación: encabezados en la fila 1 y una fila por arreglo.
+     * @param filas Columnas A–H de cada fila (ver {@link ImportColumnas#ENCABEZADOS})
+     */
+    public static byte[] excel(List<String[]> filas) {
+        try (SXSSFWorkbook libro = new SXSSFWorkbook(100)) {
+            Sheet hoja = libro.createSheet("Activos");
+            Row encabezado = hoja.createRow(0);
+            for (int i = 0; i < ImportColumnas.ENCABEZADOS.size(); i++)
+                encabezado.createCell(i).setCellValue(ImportColumnas.ENCABEZADOS.get(i));
+            for (int f = 0; f < filas.size(); f++) {
+                Row row = hoja.createRow(f + 1);
+                for (int i = 0; i < filas.get(f).length; i++)
+                    row.createCell(i).setCellValue(filas.get(f)[i]);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            libro.write(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Fila de importación válida contra {@link #sembrarCatalogo}: Campus Norte, Docencia 1, Laboratorio, Computadora. */
+    public static String[] filaValida(String serie) {
+        return new String[]{serie, "Campus Norte", "Computadora", "", "", "", "Docencia 1", "Laboratorio"};
+    }
+
+    /** Deja al usuario como el de la sesión (lo que lee {@code JwtProvider.getCurrentUser}). */
+    public static void comoUsuario(User user) {
+        UserDetailsImp detalles = new UserDetailsImp(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(detalles, null, detalles.getAuthorities()));
+    }
+
+    /**
+     * Todas las filas de <code>ACTIVO_CONTADOR</code>, sin las que quedaron en cero (un recálculo no las
+     * vuelve a crear), para comparar contra un recálculo completo.
+     * @return "AMBITO:id" → [total, disponibles, resguardados, en mantenimiento, reportados]
+     */
+    public static Map<String, List<Long>> contadores(JdbcTemplate jdbcTemplate) {
+        Map<String, List<Long>> filas = new TreeMap<>();
+        jdbcTemplate.query("SELECT * FROM ACTIVO_CONTADOR", rs -> {
+            List<Long> valores = List.of(rs.getLong("total"), rs.getLong("disponibles"), rs.getLong("resguardados"),
+                    rs.getLong("en_mantenimiento"), rs.getLong("reportados"));
+            if (valores.stream().anyMatch(v -> v != 0) || "GLOBAL".equals(rs.getString("ambito")))
+                filas.put(rs.getString("ambito") + ":" + rs.getLong("id_ambito"), valores);
+        });
+        return filas;
+    }
+
+    private static Role rol(EntityManager em, String nombre) {
+        Role r = new Role();
+        r.setNombre(nombre);
+        em.persist(r);
+        return r;
+    }
+
+    private static Campus campus(EntityManager em, String nombre) {
+        Campus c = new Campus();
+        c.setNombre(nombre);
+        em.persist(c);
+        return c;
+    }
+
+    public static Edificio edificio(EntityManager em, Campus campus, String nombre) {
+        Edificio e = new Edificio();
+        e.setNombre(nombre);
+        e.setCampus(campus);
+        em.persist(e);
+        return e;
+    }
+
+    public static Espacio espacio(EntityManager em, Edificio edificio, String nombre) {
+        Espacio e = new Espacio();
+        e.setNombreEspacio(nombre);
+        e.setEdificio(edificio);
+        em.persist(e);
+        return e;
+    }
+
+    private static TipoActivo tipo(EntityManager em, String nombre) {
+        TipoActivo t = new TipoActivo();
+        t.setNombre(nombre);
+        t.setTipoBien("Mueble");
+        em.persist(t);
+        return t;
+    }
+
+    private static User usuario(EntityManager em, Role rol, Area area, String nombre, int n) {
+        User u = new User();
+        u.setNombreCompleto(nombre);
+        u.setCorreo("usuario" + n + "@utez.edu.mx");
+        u.setCurp(String.format("CURP%014d", n));
+        u.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        u.setNumeroEmpleado("E" + n);
+        u.setRole(rol);
+        u.setArea(area);
+        u.setPasswordHash("x");
+        em.persist(u);
+        return u;
+    }
+}
@@ -0,0 +1,40 @@
+package mx.edu.utez;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
+
+import java.util.List;
+
+/**
+ * Antes de cada clase de {@link PruebaH2}: vacía todas las tablas y los cachés del contexto compartido.
+ * <code>ETIQUETA_SECUENCIA</code> no se toca: el asignador guarda su bloque en memoria y, si la secuencia
+ * regresara a cero, volvería a repartir etiquetas que ya dio. Los ids tampoco se reinician, así una
+ * llave vieja nunca apunta a otro registro.
+ *
+ * @author Ithera Team
+ */
+public class LimpiezaH2 implements TestExecutionListener {
+
+    @Override
+    public void beforeTestClass(TestContext testContext) {
+        ApplicationContext contexto = testContext.getApplicationContext();
+        // Primero los cachés: lo que anotan en CACHE_INVALIDACION se va con el TRUNCATE
+        CacheManager cacheManager = contexto.getBean(CacheManager.class);
+        cacheManager.getCacheNames().forEach(nombre -> cacheManager.getCache(nombre).clear());
+
+        JdbcTemplate jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        List<String> tablas = jdbcTemplate.queryForList("""
+                SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES
+                WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE' AND TABLE_NAME <> 'ETIQUETA_SECUENCIA'""",
+                String.class);
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            tablas.forEach(t -> jdbcTemplate.execute("TRUNCATE TABLE \"" + t + "\""));
+        } finally {
+            jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package mx.edu.utez;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestExecutionListeners;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Prueba de integración sobre H2 con el perfil <code>test</code> (<code>application-test.properties</code>).
+ * Como todas las clases llevan la misma configuración, Spring reutiliza un solo contexto y una sola BD;
+ * {@link LimpiezaH2} la deja vacía antes de cada clase para que no se vean los datos de las demás.
+ *
+ * @author Ithera Team
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest
+@ActiveProfiles("test")
+@TestExecutionListeners(listeners = LimpiezaH2.class, mergeMode = TestExecutionListeners.MergeMode.MERGE_WITH_DEFAULTS)
+public @interface PruebaH2 {
+}
@@ -0,0 +1,157 @@
+package mx.edu.utez.kernel.cache;
+
+import mx.edu.utez.SirmaApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dos instancias de la aplicación (dos contextos en la misma JVM) contra la misma BD H2:
+ * lo que una invalida debe desaparecer del caché local de la otra, sin nada más que la tabla
+ * <code>CACHE_INVALIDACION</code> de por medio.
+ *
+ * @author Ithera Team
+ */
+class CacheInvalidacionDosNodosTest {
+
+    private static final String URL = "jdbc:h2:mem:cache_nodos;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static ConfigurableApplicationContext nodoA;
+    private static ConfigurableApplicationContext nodoB;
+
+    @BeforeAll
+    static void levantar() throws Exception {
+        try (Connection c = DriverManager.getConnection(URL, "sa", "")) {
+            ScriptUtils.executeSqlScript(c, new ClassPathResource("db/008_cache_invalidacion.sql"));
+        }
+        nodoA = nodo();
+        nodoB = nodo();
+    }
+
+    @AfterAll
+    static void apagar() {
+        if (nodoA != null) nodoA.close();
+        if (nodoB != null) nodoB.close();
+    }
+
+    @Test
+    void invalidacionLlegaAlOtroNodo() {
+        Cache assetsA = nodoA.getBean(CacheManager.class).getCache("assets");
+        Cache assetsB = nodoB.getBean(CacheManager.class).getCache("assets");
+        Cache paginasB = nodoB.getBean(CacheManager.class).getCache("assets_page");
+        assetsA.put(42L, "viejo");
+        assetsB.put(42L, "viejo");
+        assetsB.put(43L, "sigue");
+        paginasB.put("pagina-0", "viejo");
+
+        // Por llave: solo esa entrada
+        assetsA.evict(42L);
+        esperar(() -> assetsB.get(42L) == null, "el nodo B no invalidó la llave 42");
+        assertNotNull(assetsB.get(43L));
+
+        // Caché completo (@CacheEvict allEntries = true)
+        nodoA.getBean(CacheManager.class).getCache("assets_page").clear();
+        esperar(() -> paginasB.get("pagina-0") == null, "el nodo B no limpió assets_page");
+
+        // Si la transacción que invalida se revierte, el otro nodo no se entera
+        nodoA.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            assetsA.evict(43L);
+            status.setRollbackOnly();
+        });
+        dormir(1_000);
+        assertEquals("sigue", assetsB.get(43L).get());
+    }
+
+    @Test
+    void transaccionAnotaSusInvalidacionesEnUnSoloLote() {
+        Cache assetsA = nodoA.getBean(CacheManager.class).getCache("assets");
+        Cache assetsB = nodoB.getBean(CacheManager.class).getCache("assets");
+        for (long id = 100; id < 110; id++) assetsB.put(id, "viejo");
+        assetsB.put(110L, "sigue");
+        long ultimo = ultimaFila();
+
+        nodoA.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            for (long id = 100; id < 110; id++) assetsA.evict(id);
+            assetsA.evict(100L); // repetida: se anota una vez
+            // Nada se anota antes del commit
+            assertEquals(0, filasDesde(ultimo));
+        });
+
+        assertEquals(10, filasDesde(ultimo));
+        esperar(() -> assetsB.get(109L) == null, "el nodo B no aplicó el lote");
+        for (long id = 100; id < 110; id++) assertNull(assetsB.get(id));
+        assertNotNull(assetsB.get(110L));
+    }
+
+    @Test
+    void muchasLlavesSeAnotanComoCacheCompleto() {
+        Cache assetsA = nodoA.getBean(CacheManager.class).getCache("assets");
+        Cache assetsB = nodoB.getBean(CacheManager.class).getCache("assets");
+        assetsB.put(1L, "viejo");
+        assetsB.put(-1L, "no se invalidó por llave");
+        long ultimo = ultimaFila();
+
+        nodoA.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            for (long id = 1; id <= CacheManagerDistribuido.MAX_LLAVES + 1; id++) assetsA.evict(id);
+        });
+
+        JdbcTemplate jdbc = nodoA.getBean(JdbcTemplate.class);
+        assertEquals(1, filasDesde(ultimo));
+        assertEquals(1, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM CACHE_INVALIDACION WHERE id > ? AND cache = 'assets' AND llave IS NULL",
+                Integer.class, ultimo));
+        esperar(() -> assetsB.get(-1L) == null, "el nodo B no limpió assets completo");
+        assertNull(assetsB.get(1L));
+    }
+
+    private static long ultimaFila() {
+        return nodoA.getBean(JdbcTemplate.class).queryForObject("SELECT COALESCE(MAX(id), 0) FROM CACHE_INVALIDACION", Long.class);
+    }
+
+    private static int filasDesde(long id) {
+        return nodoA.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM CACHE_INVALIDACION WHERE id > ?", Integer.class, id);
+    }
+
+    private static ConfigurableApplicationContext nodo() {
+        return new SpringApplicationBuilder(SirmaApplication.class).run(
+                "--server.port=0",
+                // Lo común sale del perfil de pruebas; cada par de nodos tiene su propia BD
+                "--spring.profiles.active=test",
+                "--spring.datasource.url=" + URL,
+                "--spring.jpa.hibernate.ddl-auto=none",
+                "--app.cache.invalidacion.intervalo-ms=100");
+    }
+
+    private static void esperar(BooleanSupplier condicion, String mensaje) {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, mensaje);
+            dormir(50);
+        }
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package mx.edu.utez.kernel.pagination;
+
+import mx.edu.utez.util.CustomException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cursor opaco y armado de páginas de {@link CursorPage}, sin BD.
+ *
+ * @author Ithera Team
+ */
+class CursorPageTest {
+
+    @Test
+    void cursorIdaYVuelta() {
+        for (long id : new long[]{1, 42, 1_000_000_007L, Long.MAX_VALUE - 1})
+            assertEquals(id, CursorPage.decodificar(CursorPage.codificar(id)));
+    }
+
+    @Test
+    void sinCursorEsLaPrimeraPagina() {
+        assertEquals(Long.MAX_VALUE, CursorPage.decodificar(null));
+        assertEquals(Long.MAX_VALUE, CursorPage.decodificar(""));
+        assertEquals(Long.MAX_VALUE, CursorPage.decodificar("  "));
+    }
+
+    @Test
+    void cursorInvalidoEs400() {
+        String sinPrefijo = Base64.getUrlEncoder().encodeToString("42".getBytes(StandardCharsets.UTF_8));
+        String noNumerico = Base64.getUrlEncoder().encodeToString("id:abc".getBytes(StandardCharsets.UTF_8));
+        for (String cursor : List.of("no-es-base64!", sinPrefijo, noNumerico)) {
+            CustomException e = assertThrows(CustomException.class, () -> CursorPage.decodificar(cursor), cursor);
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+        }
+    }
+
+    @Test
+    void paginaConFilaDeMasTieneSiguiente() {
+        // Se leyeron 4 con limite(3): hay siguiente y sigue después del último mostrado
+        CursorPage<Long> pagina = CursorPage.of(ids(10, 9, 8, 7), 3, Function.identity());
+
+        assertEquals(List.of(10L, 9L, 8L), pagina.content());
+        assertTrue(pagina.hasNext());
+        assertEquals(8L, CursorPage.decodificar(pagina.nextCursor()));
+        assertEquals(4, CursorPage.limite(3).max());
+    }
+
+    @Test
+    void ultimaPaginaNoTieneCursor() {
+        CursorPage<Long> llena = CursorPage.of(ids(3, 2, 1), 3, Function.identity());
+        CursorPage<Long> corta = CursorPage.of(ids(2, 1), 3, Function.identity());
+        CursorPage<Long> vacia = CursorPage.of(List.of(), 3, Function.identity());
+
+        for (CursorPage<Long> pagina : List.of(llena, corta, vacia)) {
+            assertFalse(pagina.hasNext());
+            assertNull(pagina.nextCursor());
+        }
+        assertEquals(3, llena.content().size());
+    }
+
+    @Test
+    void tamanoSeAcotaYMapConservaElCursor() {
+        assertEquals(CursorPage.MAX_SIZE + 1, CursorPage.limite(10_000).max());
+        assertEquals(2, CursorPage.limite(0).max());
+
+        List<Long> filas = LongStream.rangeClosed(1, CursorPage.MAX_SIZE + 5).map(i -> 1_000 - i).boxed().toList();
+        CursorPage<Long> pagina = CursorPage.of(filas, 10_000, Function.identity());
+        CursorPage<String> mapeada = pagina.map(String::valueOf);
+
+        assertEquals(CursorPage.MAX_SIZE, pagina.size());
+        assertEquals(CursorPage.MAX_SIZE, mapeada.content().size());
+        assertEquals(pagina.nextCursor(), mapeada.nextCursor());
+        assertTrue(mapeada.hasNext());
+    }
+
+    private static List<Long> ids(long... ids) {
+        return LongStream.of(ids).boxed().toList();
+    }
+}
@@ -0,0 +1,145 @@
+package mx.edu.utez.kernel.pagination;
+
+import jakarta.persistence.EntityManager;
+import mx.edu.utez.DatosPrueba;
+import mx.edu.utez.PruebaH2;
+import mx.edu.utez.kernel.BaseEntity;
+import mx.edu.utez.modules.core.assets.Assets;
+import mx.edu.utez.modules.maintenance.mantenimientos.Mantenimiento;
+import mx.edu.utez.modules.maintenance.mantenimientos.MantenimientoRepository;
+import mx.edu.utez.modules.maintenance.prioridades.Prioridad;
+import mx.edu.utez.modules.maintenance.tipo_fallas.TipoFalla;
+import mx.edu.utez.modules.reporting.reportes.Reporte;
+import mx.edu.utez.modules.reporting.reportes.ReporteRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Las consultas por cursor recorren exactamente lo mismo que su versión paginada con OFFSET,
+ * filtros incluidos (<code>sinAsignar</code> en reportes y <code>excluirAsignado</code> en mantenimientos), sobre H2.
+ *
+ * @author Ithera Team
+ */
+@PruebaH2
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CursorRepositoriosTest {
+
+    /** Estados de los mantenimientos sembrados; los reportes sin entrada aquí no tienen mantenimiento. */
+    private static final List<String> ESTADOS = List.of("Asignado", "En Proceso", "Finalizado");
+    private static final int REPORTES = 13;
+    private static final int TAMANO = 2;
+
+    @Autowired
+    private ReporteRepository reporteRepository;
+
+    @Autowired
+    private MantenimientoRepository mantenimientoRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void sembrar() {
+        transactionTemplate.executeWithoutResult(status -> {
+            DatosPrueba.Catalogo catalogo = DatosPrueba.sembrarCatalogo(entityManager);
+            TipoFalla falla = new TipoFalla();
+            falla.setNombre("Hardware");
+            entityManager.persist(falla);
+            Prioridad prioridad = new Prioridad();
+            prioridad.setNivel("Alta");
+            entityManager.persist(prioridad);
+
+            for (int i = 0; i < REPORTES; i++) {
+                Assets activo = DatosPrueba.activo(entityManager, catalogo.tipo(), catalogo.espacio(), i);
+                Reporte r = new Reporte();
+                r.setActivo(activo);
+                r.setUsuarioReporta(catalogo.empleado());
+                r.setTipoFalla(falla);
+                r.setPrioridad(prioridad);
+                r.setDescripcionFalla("Falla " + i);
+                entityManager.persist(r);
+
+                // Los primeros nueve con mantenimiento en los tres estados; los últimos cuatro sin él
+                if (i < 9) {
+                    Mantenimiento m = new Mantenimiento();
+                    m.setReporte(r);
+                    m.setActivo(activo);
+                    m.setUsuarioAdmin(catalogo.admin());
+                    m.setPrioridad(prioridad);
+                    m.setTipoAsignado("Correctivo");
+                    m.setEstadoMantenimiento(ESTADOS.get(i % ESTADOS.size()));
+                    entityManager.persist(m);
+                }
+            }
+        });
+    }
+
+    @Test
+    void reportesSinAsignarPorCursorIgualQuePorOffset() {
+        List<Long> porCursor = recorrer((cursor, limite) -> reporteRepository.findSinMantenimientoAntesDe(cursor, limite));
+        List<Long> porOffset = reporteRepository.findAllSinMantenimiento(todoDescendente()).map(Reporte::getId).getContent();
+
+        // 4 sin mantenimiento + 3 con mantenimiento aún "Asignado"
+        assertEquals(7, porCursor.size());
+        assertEquals(porOffset, porCursor);
+
+        List<Long> todos = recorrer((cursor, limite) -> reporteRepository.findByIdLessThanOrderByIdDesc(cursor, limite));
+        assertEquals(reporteRepository.findAll(todoDescendente()).map(Reporte::getId).getContent(), todos);
+        assertEquals(REPORTES, todos.size());
+    }
+
+    @Test
+    void mantenimientosSinAsignadosPorCursorIgualQuePorOffset() {
+        List<Long> porCursor = recorrer((cursor, limite) ->
+                mantenimientoRepository.findByEstadoMantenimientoNotAndIdLessThanOrderByIdDesc("Asignado", cursor, limite));
+        List<Long> porOffset = mantenimientoRepository.findByEstadoMantenimientoNot("Asignado", todoDescendente())
+                .map(Mantenimiento::getId).getContent();
+
+        assertEquals(6, porCursor.size());
+        assertEquals(porOffset, porCursor);
+
+        List<Long> todos = recorrer((cursor, limite) -> mantenimientoRepository.findByIdLessThanOrderByIdDesc(cursor, limite));
+        assertEquals(9, todos.size());
+    }
+
+    /**
+     * Pide páginas de {@value #TAMANO} siguiendo <code>nextCursor</code> como lo haría el cliente hasta la última.
+     * @return Ids en el orden en que llegaron
+     */
+    private <T extends BaseEntity> List<Long> recorrer(BiFunction<Long, Limit, List<T>> consulta) {
+        List<Long> ids = new ArrayList<>();
+        String after = "";
+        while (true) {
+            CursorPage<T> pagina = CursorPage.of(
+                    consulta.apply(CursorPage.decodificar(after), CursorPage.limite(TAMANO)), TAMANO, BaseEntity::getId);
+            pagina.content().forEach(e -> ids.add(e.getId()));
+            if (!pagina.hasNext()) {
+                assertNull(pagina.nextCursor());
+                return ids;
+            }
+            // Solo hay siguiente si esta vino llena, así la última nunca llega vacía de más
+            assertEquals(TAMANO, pagina.content().size());
+            after = pagina.nextCursor();
+        }
+    }
+
+    private static PageRequest todoDescendente() {
+        return PageRequest.of(0, 100, Sort.by(Sort.Direction.DESC, "id"));
+    }
+}
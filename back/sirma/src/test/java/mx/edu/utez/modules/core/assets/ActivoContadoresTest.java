@@ -0,0 +1,124 @@
+package mx.edu.utez.modules.core.assets;
+
+import jakarta.persistence.EntityManager;
+import mx.edu.utez.DatosPrueba;
+import mx.edu.utez.PruebaH2;
+import mx.edu.utez.modules.core.assets.utils.AssetEstados;
+import mx.edu.utez.modules.core.imports.ImportJob;
+import mx.edu.utez.modules.core.imports.ImportJobService;
+import mx.edu.utez.modules.core.tipo_activos.TipoActivoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Los contadores de <code>ACTIVO_CONTADOR</code> no se desfasan: después de una serie de cambios por
+ * cada camino que los toca (edición, estados, baja, importación con reactivación y baja de un tipo),
+ * lo que dejaron los deltas debe ser igual a recalcular todo con {@link ActivoContadores#reconciliar()}.
+ * Corre sobre H2.
+ *
+ * @author Ithera Team
+ */
+@PruebaH2
+class ActivoContadoresTest {
+
+    @Autowired
+    private ActivoContadores activoContadores;
+
+    @Autowired
+    private AssetsService assetsService;
+
+    @Autowired
+    private TipoActivoService tipoActivoService;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void sinSesion() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void secuenciaDeCambiosQuedaIgualQueUnRecalculo() throws Exception {
+        DatosPrueba.prepararBd(jdbcTemplate, "001_etiqueta_secuencia.sql", "006_activo_contador.sql",
+                "008_cache_invalidacion.sql", "009_import_job.sql");
+        DatosPrueba.Catalogo catalogo = transactionTemplate.execute(status -> DatosPrueba.sembrarCatalogo(entityManager));
+        List<Long> ids = transactionTemplate.execute(status -> List.of(
+                DatosPrueba.activo(entityManager, catalogo.tipo(), catalogo.espacio(), 0).getId(),
+                DatosPrueba.activo(entityManager, catalogo.tipo(), catalogo.espacio(), 1).getId(),
+                DatosPrueba.activo(entityManager, catalogo.tipo(), catalogo.otroEspacio(), 2).getId(),
+                DatosPrueba.activo(entityManager, catalogo.tipo(), catalogo.espacioOtroCampus(), 3).getId(),
+                DatosPrueba.activo(entityManager, catalogo.otroTipo(), catalogo.espacio(), 4).getId()));
+        DatosPrueba.comoUsuario(catalogo.admin());
+        activoContadores.reconciliar();
+
+        // Edición: cambia tipo, campus y estado operativo a la vez
+        AssetsDTO dto = new AssetsDTO();
+        dto.setNumeroSerie("NS-0");
+        dto.setIdTipoActivo(catalogo.otroTipo().getId());
+        dto.setIdEspacio(catalogo.espacioOtroCampus().getId());
+        dto.setEstadoOperativo(AssetEstados.OPERATIVO_REPORTADO);
+        assertEquals(HttpStatus.OK, assetsService.update(ids.get(0), dto).getStatus());
+        assertComoRecalculo();
+
+        assetsService.cambiarEstadoCustodia(ids.get(1), AssetEstados.CUSTODIA_RESGUARDADO);
+        assetsService.cambiarEstadoOperativo(ids.get(2), AssetEstados.OPERATIVO_MANTENIMIENTO);
+        assertComoRecalculo();
+
+        // Baja de un activo que después reactiva la importación por su serie
+        assertEquals(HttpStatus.OK, assetsService.toggleStatus(ids.get(3)).getStatus());
+        assertComoRecalculo();
+
+        ImportJob job = importJobService.iniciar(new MockMultipartFile("file", "activos.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", DatosPrueba.excel(List.of(
+                        DatosPrueba.filaValida("NS-3"),
+                        DatosPrueba.filaValida("CT-1"),
+                        new String[]{"CT-2", "Campus Sur", "Proyector", "", "", "", "Docencia 2", "Aula 1"}))));
+        long limite = System.currentTimeMillis() + 30_000;
+        while (!job.isTerminado()) {
+            assertTrue(System.currentTimeMillis() < limite, "la importación no terminó");
+            Thread.sleep(50);
+        }
+        assertEquals(ImportJob.Estado.COMPLETADO, job.getEstado(), job.getMensaje());
+        assertEquals(1, job.getReactivados().get());
+        assertEquals(2, job.getInsertados().get());
+        assertComoRecalculo();
+
+        // Baja del tipo: apaga en bloque todos sus activos (registrarPorTipo)
+        assertEquals(HttpStatus.OK, tipoActivoService.toggleStatus(catalogo.otroTipo().getId()).getStatus());
+        assertComoRecalculo();
+
+        Map<String, List<Long>> finales = DatosPrueba.contadores(jdbcTemplate);
+        // Vigentes: 5 sembrados - 1 dado de baja + 1 reactivado + 2 importados - 3 del tipo apagado (0, 4 y CT-2)
+        assertEquals(4L, finales.get("GLOBAL:0").getFirst());
+        assertEquals(4L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ACTIVO WHERE es_activo = TRUE", Long.class));
+    }
+
+    /** Lo que dejaron los deltas debe ser exactamente lo que da recalcular todo desde ACTIVO. */
+    private void assertComoRecalculo() {
+        Map<String, List<Long>> incrementales = DatosPrueba.contadores(jdbcTemplate);
+        activoContadores.reconciliar();
+        assertEquals(DatosPrueba.contadores(jdbcTemplate), incrementales);
+    }
+}
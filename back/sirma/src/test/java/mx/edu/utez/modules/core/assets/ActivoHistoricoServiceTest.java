@@ -0,0 +1,93 @@
+package mx.edu.utez.modules.core.assets;
+
+import jakarta.persistence.EntityManager;
+import mx.edu.utez.DatosPrueba;
+import mx.edu.utez.PruebaH2;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Foto del histórico al arrancar y al cierre sobre H2: la de arranque solo llena el hueco de hoy
+ * y la de cierre la reemplaza con los contadores de ese momento (o no toca nada si falla).
+ *
+ * @author Ithera Team
+ */
+@PruebaH2
+class ActivoHistoricoServiceTest {
+
+    @Autowired
+    private ActivoHistoricoService activoHistoricoService;
+
+    @Autowired
+    private ActivoHistoricoRepository activoHistoricoRepository;
+
+    @Autowired
+    private ActivoContadores activoContadores;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void fotoAlArrancarYDeCierre() {
+        DatosPrueba.prepararBd(jdbcTemplate, "006_activo_contador.sql", "007_activo_historico.sql");
+        DatosPrueba.Catalogo catalogo = transactionTemplate.execute(status -> {
+            DatosPrueba.Catalogo c = DatosPrueba.sembrarCatalogo(entityManager);
+            DatosPrueba.activo(entityManager, c.tipo(), c.espacio(), 0);
+            DatosPrueba.activo(entityManager, c.tipo(), c.espacio(), 1);
+            return c;
+        });
+        activoContadores.reconciliar();
+        LocalDate hoy = LocalDate.now();
+
+        // Sin foto de hoy (el nodo no estuvo al cierre): la toma al arrancar
+        activoHistoricoService.capturarAlArrancar();
+        assertEquals(2, totalGlobal(hoy));
+
+        // Ya hay foto: otro arranque el mismo día no la toca
+        transactionTemplate.executeWithoutResult(status ->
+                DatosPrueba.activo(entityManager, catalogo.tipo(), catalogo.espacio(), 2));
+        activoContadores.reconciliar();
+        activoHistoricoService.capturarAlArrancar();
+        assertEquals(2, totalGlobal(hoy));
+
+        // El cierre la reemplaza con lo de ese momento, sin duplicar filas
+        activoHistoricoService.capturar();
+        assertEquals(3, totalGlobal(hoy));
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ACTIVO_CONTADOR", Integer.class),
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ACTIVO_HISTORICO WHERE fecha = ?", Integer.class, hoy));
+
+        // Si la captura de cierre falla a medias, se queda la foto que ya había (no se confirma el borrado)
+        transactionTemplate.executeWithoutResult(status ->
+                DatosPrueba.activo(entityManager, catalogo.tipo(), catalogo.espacio(), 3));
+        activoContadores.reconciliar();
+        jdbcTemplate.execute("ALTER TABLE ACTIVO_CONTADOR RENAME TO ACTIVO_CONTADOR_FUERA");
+        try {
+            activoHistoricoService.capturar();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE ACTIVO_CONTADOR_FUERA RENAME TO ACTIVO_CONTADOR");
+        }
+        assertEquals(3, totalGlobal(hoy));
+
+        // Los días perdidos no se inventan: la serie solo trae los que sí tienen foto
+        List<ActivoHistoricoRepository.Punto> serie = activoHistoricoRepository.rango(
+                ActivoContadores.Ambito.GLOBAL, 0L, hoy.minusDays(7), hoy);
+        assertEquals(List.of(hoy), serie.stream().map(ActivoHistoricoRepository.Punto::fecha).toList());
+    }
+
+    private long totalGlobal(LocalDate fecha) {
+        return activoHistoricoRepository.ultimoAl(ActivoContadores.Ambito.GLOBAL, 0L, fecha).orElseThrow().total();
+    }
+}
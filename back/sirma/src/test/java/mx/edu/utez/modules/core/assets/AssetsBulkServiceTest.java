@@ -0,0 +1,310 @@
+package mx.edu.utez.modules.core.assets;
+
+import jakarta.persistence.EntityManager;
+import mx.edu.utez.DatosPrueba;
+import mx.edu.utez.PruebaH2;
+import mx.edu.utez.kernel.ApiResponse;
+import mx.edu.utez.modules.core.qr.QrPublicacionRepository;
+import mx.edu.utez.modules.core.resguardos.Resguardo;
+import mx.edu.utez.modules.security.users.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Operaciones masivas de activos sobre H2: qué se aplica y qué se omite, la bitácora, la caché
+ * y que los contadores del dashboard queden igual que un recálculo completo.
+ *
+ * @author Ithera Team
+ */
+@PruebaH2
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AssetsBulkServiceTest {
+
+    /** Para que cada prueba use sus propias etiquetas y series. */
+    private static final AtomicInteger SIGUIENTE = new AtomicInteger(1);
+
+    @Autowired
+    private AssetsBulkService assetsBulkService;
+
+    @Autowired
+    private ActivoContadores activoContadores;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private QrPublicacionRepository qrPublicacionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private DatosPrueba.Catalogo catalogo;
+
+    @BeforeAll
+    void preparar() {
+        DatosPrueba.prepararBd(jdbcTemplate, "002_qr_publicacion.sql", "003_qr_pregeneracion.sql", "004_qr_migracion_legado.sql", "006_activo_contador.sql", "008_cache_invalidacion.sql");
+        catalogo = transactionTemplate.execute(status -> DatosPrueba.sembrarCatalogo(entityManager));
+        activoContadores.reconciliar();
+    }
+
+    @BeforeEach
+    void sesion() {
+        DatosPrueba.comoUsuario(catalogo.admin());
+    }
+
+    @AfterEach
+    void sinSesion() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void moverEspacioCincoMilActivos() {
+        List<Long> ids = insertar(AssetsBulkService.MAX_IDS, catalogo.espacio().getId());
+        long inactivo = ids.get(0);
+        long yaEnDestino = ids.get(1);
+        jdbcTemplate.update("UPDATE ACTIVO SET es_activo = FALSE WHERE id_activo = ?", inactivo);
+        jdbcTemplate.update("UPDATE ACTIVO SET id_espacio = ? WHERE id_activo = ?", catalogo.espacioOtroCampus().getId(), yaEnDestino);
+        activoContadores.reconciliar();
+        long bitacoraAntes = bitacora();
+
+        List<Long> pedidos = new ArrayList<>(ids.subList(0, AssetsBulkService.MAX_IDS - 1));
+        pedidos.add(999_999L);       // no existe
+        pedidos.add(ids.get(5));     // repetido
+        AssetsBulkService.Resultado r = aplicar(AssetsBulkDTO.Operacion.MOVER_ESPACIO, pedidos,
+                dto -> dto.setIdEspacio(catalogo.espacioOtroCampus().getId()));
+
+        assertEquals(AssetsBulkService.MAX_IDS, r.solicitados());
+        assertEquals(AssetsBulkService.MAX_IDS - 3, r.afectados());
+        assertEquals(List.of(inactivo, yaEnDestino, 999_999L), r.omitidos());
+        // Los pedidos, menos el inactivo (el que ya estaba ahí cuenta)
+        assertEquals(AssetsBulkService.MAX_IDS - 2L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ACTIVO WHERE id_espacio = ? AND id_activo BETWEEN ? AND ?", Long.class,
+                catalogo.espacioOtroCampus().getId(), ids.get(0), ids.get(ids.size() - 1)));
+        // El último no se pidió
+        assertEquals(catalogo.espacio().getId(), jdbcTemplate.queryForObject(
+                "SELECT id_espacio FROM ACTIVO WHERE id_activo = ?", Long.class, ids.get(ids.size() - 1)));
+        assertEquals(bitacoraAntes + r.afectados(), bitacora());
+        assertContadoresComoRecalculo();
+    }
+
+    @Test
+    void cambiarEstadoOperativo() {
+        List<Long> ids = insertar(4, catalogo.espacio().getId());
+        jdbcTemplate.update("UPDATE ACTIVO SET estado_operativo = 'Reportado' WHERE id_activo = ?", ids.get(0));
+        activoContadores.reconciliar();
+
+        AssetsBulkService.Resultado r = aplicar(AssetsBulkDTO.Operacion.CAMBIAR_ESTADO, ids,
+                dto -> dto.setEstadoOperativo("reportado"));
+
+        assertEquals(3, r.afectados());
+        assertEquals(List.of(ids.get(0)), r.omitidos());
+        assertEquals(4L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ACTIVO WHERE estado_operativo = 'Reportado' AND id_activo IN (?, ?, ?, ?)",
+                Long.class, ids.toArray()));
+        assertEquals(3L, jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM BITACORA WHERE estado_operativo_anterior = 'OK' AND estado_operativo_nuevo = 'Reportado'
+                AND estado_custodia_anterior = estado_custodia_nuevo AND id_activo IN (?, ?, ?, ?)""",
+                Long.class, ids.toArray()));
+        assertContadoresComoRecalculo();
+    }
+
+    @Test
+    void rechazaCustodiaYEstadosNoValidos() {
+        List<Long> ids = insertar(1, catalogo.espacio().getId());
+
+        AssetsBulkDTO custodia = dto(AssetsBulkDTO.Operacion.CAMBIAR_ESTADO, ids);
+        custodia.setEstadoCustodia("Resguardado");
+        assertEquals(HttpStatus.BAD_REQUEST, assetsBulkService.aplicar(custodia).getStatus());
+
+        AssetsBulkDTO desactivarConCustodia = dto(AssetsBulkDTO.Operacion.DESACTIVAR, ids);
+        desactivarConCustodia.setEstadoCustodia("Disponible");
+        assertEquals(HttpStatus.BAD_REQUEST, assetsBulkService.aplicar(desactivarConCustodia).getStatus());
+
+        AssetsBulkDTO operativo = dto(AssetsBulkDTO.Operacion.CAMBIAR_ESTADO, ids);
+        operativo.setEstadoOperativo("Roto");
+        assertEquals(HttpStatus.BAD_REQUEST, assetsBulkService.aplicar(operativo).getStatus());
+
+        AssetsBulkDTO espacio = dto(AssetsBulkDTO.Operacion.MOVER_ESPACIO, ids);
+        espacio.setIdEspacio(999_999L);
+        assertEquals(HttpStatus.NOT_FOUND, assetsBulkService.aplicar(espacio).getStatus());
+
+        assertEquals("Disponible", jdbcTemplate.queryForObject(
+                "SELECT estado_custodia FROM ACTIVO WHERE id_activo = ?", String.class, ids.get(0)));
+    }
+
+    @Test
+    void desactivarOmiteResguardadosYReactivar() {
+        List<Long> ids = insertar(4, catalogo.espacio().getId());
+        long resguardado = ids.get(0);
+        long pendiente = ids.get(1);
+        transactionTemplate.executeWithoutResult(status -> {
+            resguardo(resguardado, "Confirmado");
+            resguardo(pendiente, "Pendiente");
+        });
+        jdbcTemplate.update("UPDATE ACTIVO SET estado_custodia = 'Resguardado' WHERE id_activo = ?", resguardado);
+        jdbcTemplate.update("UPDATE ACTIVO SET estado_custodia = 'En Proceso' WHERE id_activo = ?", pendiente);
+        activoContadores.reconciliar();
+
+        AssetsBulkService.Resultado baja = aplicar(AssetsBulkDTO.Operacion.DESACTIVAR, ids, dto -> {});
+        assertEquals(2, baja.afectados());
+        assertEquals(List.of(resguardado, pendiente), baja.conResguardo());
+        assertEquals(List.of(resguardado, pendiente), baja.omitidos());
+        assertEquals("Resguardado", jdbcTemplate.queryForObject(
+                "SELECT estado_custodia FROM ACTIVO WHERE id_activo = ? AND es_activo = TRUE", String.class, resguardado));
+        assertEquals(2L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM BITACORA WHERE tipo_evento = 'Baja Aprobada' AND id_activo IN (?, ?, ?, ?)",
+                Long.class, ids.toArray()));
+        assertContadoresComoRecalculo();
+
+        AssetsBulkService.Resultado alta = aplicar(AssetsBulkDTO.Operacion.REACTIVAR, ids, dto -> {});
+        assertEquals(2, alta.afectados());
+        assertEquals(List.of(resguardado, pendiente), alta.omitidos());
+        assertEquals(4L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ACTIVO WHERE es_activo = TRUE AND id_activo IN (?, ?, ?, ?)", Long.class, ids.toArray()));
+        assertContadoresComoRecalculo();
+    }
+
+    @Test
+    void desactivarRetiraElQrPublicado() {
+        List<Long> ids = insertar(3, catalogo.espacio().getId());
+        for (Long id : ids.subList(0, 2))
+            jdbcTemplate.update("""
+                    INSERT INTO IMAGEN_ACTIVO (id_activo, url_cloudinary, public_id_cloudinary, nombre_archivo, fecha_subida)
+                    VALUES (?, ?, ?, 'QR_CODE', CURRENT_TIMESTAMP)""", id, "https://res.cloudinary.com/qr-" + id, "qr-" + id);
+        // Foto del bien: no es el QR y se queda
+        jdbcTemplate.update("""
+                INSERT INTO IMAGEN_ACTIVO (id_activo, url_cloudinary, public_id_cloudinary, nombre_archivo, fecha_subida)
+                VALUES (?, 'https://res.cloudinary.com/foto', 'foto', 'foto.jpg', CURRENT_TIMESTAMP)""", ids.get(0));
+        Cache qrImages = cacheManager.getCache("qr_images");
+        qrImages.put(ids.get(0), "cacheado");
+
+        // El tercero queda fuera: conserva su QR (no tiene) y nada se encola para él
+        assertEquals(2, aplicar(AssetsBulkDTO.Operacion.DESACTIVAR, ids.subList(0, 2), dto -> {}).afectados());
+
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM IMAGEN_ACTIVO WHERE nombre_archivo = 'QR_CODE' AND id_activo IN (?, ?, ?)", Long.class, ids.toArray()));
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM IMAGEN_ACTIVO WHERE id_activo = ?", Long.class, ids.get(0)));
+        // El borrado en Cloudinary queda en el outbox con el public id de cada imagen
+        assertEquals(List.of("qr-" + ids.get(0), "qr-" + ids.get(1)), jdbcTemplate.queryForList(
+                "SELECT public_id_anterior FROM QR_PUBLICACION WHERE id_activo IN (?, ?, ?) ORDER BY id_activo",
+                String.class, ids.toArray()));
+        assertNull(qrImages.get(ids.get(0)));
+    }
+
+    @Test
+    void reencolarUnQrReclamadoSeLoQuitaAlWorker() {
+        Long id = insertar(1, catalogo.espacio().getId()).get(0);
+        jdbcTemplate.update("""
+                INSERT INTO IMAGEN_ACTIVO (id_activo, url_cloudinary, public_id_cloudinary, nombre_archivo, fecha_subida)
+                VALUES (?, 'https://res.cloudinary.com/qr', 'qr-viejo', 'QR_CODE', CURRENT_TIMESTAMP)""", id);
+        aplicar(AssetsBulkDTO.Operacion.DESACTIVAR, List.of(id), dto -> {});
+
+        // Un worker la toma (el UPDATE ... LIMIT del reclamo es de MySQL) y, mientras publica, se vuelve a pedir el reemplazo
+        jdbcTemplate.update("UPDATE QR_PUBLICACION SET reclamado_por = 'worker-1', reclamado_en = NOW() WHERE id_activo = ?", id);
+        qrPublicacionRepository.encolarReemplazos(List.of(id), Map.of());
+
+        assertFalse(qrPublicacionRepository.terminar(id, "worker-1"));
+        Map<String, Object> fila = jdbcTemplate.queryForMap(
+                "SELECT estado, reclamado_por, public_id_anterior FROM QR_PUBLICACION WHERE id_activo = ?", id);
+        assertEquals("PENDIENTE", fila.get("ESTADO"));
+        assertNull(fila.get("RECLAMADO_POR"));
+        assertEquals("qr-viejo", fila.get("PUBLIC_ID_ANTERIOR"));
+    }
+
+    @Test
+    void soloSeInvalidanLosActivosAfectados() {
+        List<Long> ids = insertar(3, catalogo.espacio().getId());
+        Cache assets = cacheManager.getCache("assets");
+        Cache paginas = cacheManager.getCache("assets_page");
+        ids.forEach(id -> assets.put(id, "cacheado"));
+        paginas.put("pagina-0", "cacheado");
+
+        aplicar(AssetsBulkDTO.Operacion.MOVER_ESPACIO, ids.subList(0, 2), dto -> dto.setIdEspacio(catalogo.otroEspacio().getId()));
+
+        assertNull(assets.get(ids.get(0)));
+        assertNull(assets.get(ids.get(1)));
+        assertNotNull(assets.get(ids.get(2)));
+        assertNull(paginas.get("pagina-0"));
+    }
+
+    private AssetsBulkService.Resultado aplicar(AssetsBulkDTO.Operacion operacion, List<Long> ids,
+                                                Consumer<AssetsBulkDTO> datos) {
+        AssetsBulkDTO dto = dto(operacion, ids);
+        datos.accept(dto);
+        ApiResponse response = assetsBulkService.aplicar(dto);
+        assertEquals(HttpStatus.OK, response.getStatus(), response.getMessage());
+        return (AssetsBulkService.Resultado) response.getData();
+    }
+
+    private static AssetsBulkDTO dto(AssetsBulkDTO.Operacion operacion, List<Long> ids) {
+        AssetsBulkDTO dto = new AssetsBulkDTO();
+        dto.setOperacion(operacion);
+        dto.setIds(ids);
+        return dto;
+    }
+
+    /** Inserta activos vigentes por JDBC (miles en un batch) y devuelve sus ids en orden. */
+    private List<Long> insertar(int cuantos, long idEspacio) {
+        int desde = SIGUIENTE.getAndAdd(cuantos);
+        List<Object[]> filas = new ArrayList<>(cuantos);
+        for (int i = desde; i < desde + cuantos; i++)
+            filas.add(new Object[]{"ET-" + i, "NS-" + i, catalogo.tipo().getId(), idEspacio, Date.valueOf(LocalDate.now())});
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO ACTIVO (etiqueta, numero_serie, id_tipo_activo, id_espacio, estado_custodia, estado_operativo, fecha_alta, es_activo)
+                VALUES (?, ?, ?, ?, 'Disponible', 'OK', ?, TRUE)""", filas);
+        long primero = jdbcTemplate.queryForObject("SELECT id_activo FROM ACTIVO WHERE etiqueta = ?", Long.class, "ET-" + desde);
+        List<Long> ids = LongStream.range(primero, primero + cuantos).boxed().toList();
+        activoContadores.reconciliar();
+        return ids;
+    }
+
+    private void resguardo(long idActivo, String estado) {
+        Resguardo r = new Resguardo();
+        r.setActivo(entityManager.getReference(Assets.class, idActivo));
+        r.setUsuarioEmpleado(entityManager.getReference(User.class, catalogo.empleado().getId()));
+        r.setUsuarioAdmin(entityManager.getReference(User.class, catalogo.admin().getId()));
+        r.setFechaAsignacion(LocalDateTime.now());
+        r.setEstadoResguardo(estado);
+        entityManager.persist(r);
+    }
+
+    private long bitacora() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BITACORA", Long.class);
+    }
+
+    /** Lo que dejaron los deltas debe ser exactamente lo que da recalcular todo desde ACTIVO. */
+    private void assertContadoresComoRecalculo() {
+        Map<String, List<Long>> incrementales = DatosPrueba.contadores(jdbcTemplate);
+        activoContadores.reconciliar();
+        assertEquals(DatosPrueba.contadores(jdbcTemplate), incrementales);
+    }
+}
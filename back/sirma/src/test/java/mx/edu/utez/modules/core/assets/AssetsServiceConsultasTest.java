@@ -0,0 +1,157 @@
+package mx.edu.utez.modules.core.assets;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import mx.edu.utez.PruebaH2;
+import mx.edu.utez.modules.core.resguardos.Resguardo;
+import mx.edu.utez.modules.core.tipo_activos.TipoActivo;
+import mx.edu.utez.modules.location.areas.Area;
+import mx.edu.utez.modules.location.campus.Campus;
+import mx.edu.utez.modules.location.edificios.Edificio;
+import mx.edu.utez.modules.location.espacios.Espacio;
+import mx.edu.utez.modules.security.roles.Role;
+import mx.edu.utez.modules.security.users.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El listado de activos debe costar las mismas consultas sin importar el tamaño de la página
+ * (antes era una consulta de resguardo por activo más las relaciones EAGER de cada uno).
+ * Corre sobre H2 en memoria con las estadísticas de Hibernate encendidas.
+ *
+ * @author Ithera Team
+ */
+@PruebaH2
+class AssetsServiceConsultasTest {
+
+    private static final int ACTIVOS = 30;
+
+    @Autowired
+    private AssetsService assetsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void listadoConConsultasConstantesPorPagina() {
+        transactionTemplate.executeWithoutResult(status -> sembrar(entityManager));
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        stats.clear();
+        Page<AssetsDTO> chica = pagina(5);
+        long consultasChica = stats.getPrepareStatementCount();
+
+        stats.clear();
+        Page<AssetsDTO> grande = pagina(ACTIVOS);
+        long consultasGrande = stats.getPrepareStatementCount();
+
+        assertEquals(5, chica.getNumberOfElements());
+        assertEquals(ACTIVOS, grande.getNumberOfElements());
+        // Activos + resguardos (+ el count de la página cuando no es la última)
+        assertTrue(consultasGrande <= 3, "Consultas del listado: " + consultasGrande);
+        assertTrue(consultasChica <= 3, "Consultas del listado: " + consultasChica);
+
+        // Los pares tienen resguardo; los nones no
+        for (AssetsDTO dto : grande.getContent()) {
+            int n = Integer.parseInt(dto.getNumeroSerie().substring(3));
+            if (n % 2 == 0) {
+                assertEquals("Empleado " + n, dto.getAsignadoA());
+                assertTrue(dto.getIdResguardo() != null);
+            } else {
+                assertNull(dto.getAsignadoA());
+                assertNull(dto.getIdResguardo());
+            }
+            assertEquals("Campus Norte", dto.getEspacio().getEdificio().getCampus().getNombre());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<AssetsDTO> pagina(int tamano) {
+        return (Page<AssetsDTO>) assetsService.findAll(PageRequest.of(0, tamano, Sort.by("id"))).getData();
+    }
+
+    private void sembrar(EntityManager em) {
+        Role rol = new Role();
+        rol.setNombre("Empleado");
+        em.persist(rol);
+
+        Area area = new Area();
+        area.setNombre("Sistemas");
+        em.persist(area);
+
+        Campus campus = new Campus();
+        campus.setNombre("Campus Norte");
+        em.persist(campus);
+
+        Edificio edificio = new Edificio();
+        edificio.setNombre("Docencia 1");
+        edificio.setCampus(campus);
+        em.persist(edificio);
+
+        Espacio espacio = new Espacio();
+        espacio.setNombreEspacio("Laboratorio");
+        espacio.setEdificio(edificio);
+        em.persist(espacio);
+
+        TipoActivo tipo = new TipoActivo();
+        tipo.setNombre("Computadora");
+        tipo.setTipoBien("Mueble");
+        em.persist(tipo);
+
+        User admin = usuario(em, rol, area, "Administrador", 0);
+
+        for (int i = 1; i <= ACTIVOS; i++) {
+            Assets activo = new Assets();
+            activo.setEtiqueta("ET-" + i);
+            activo.setNumeroSerie("NS-" + i);
+            activo.setTipoActivo(tipo);
+            activo.setEspacio(espacio);
+            activo.setFechaAlta(LocalDate.now());
+            em.persist(activo);
+
+            if (i % 2 == 0) {
+                Resguardo resguardo = new Resguardo();
+                resguardo.setActivo(activo);
+                resguardo.setUsuarioEmpleado(usuario(em, rol, area, "Empleado " + i, i));
+                resguardo.setUsuarioAdmin(admin);
+                resguardo.setFechaAsignacion(LocalDateTime.now());
+                resguardo.setEstadoResguardo(i % 4 == 0 ? "Confirmado" : "Pendiente");
+                em.persist(resguardo);
+            }
+        }
+        em.flush();
+    }
+
+    private User usuario(EntityManager em, Role rol, Area area, String nombre, int n) {
+        User u = new User();
+        u.setNombreCompleto(nombre);
+        u.setCorreo("usuario" + n + "@utez.edu.mx");
+        u.setCurp(String.format("CURP%014d", n));
+        u.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        u.setNumeroEmpleado("E" + n);
+        u.setRole(rol);
+        u.setArea(area);
+        u.setPasswordHash("x");
+        em.persist(u);
+        return u;
+    }
+}
@@ -0,0 +1,89 @@
+package mx.edu.utez.modules.core.assets;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Etiquetas únicas con muchos hilos, varios prefijos y dos allocators (como dos nodos) sobre la misma
+ * <code>ETIQUETA_SECUENCIA</code> en H2. Los bloques son chicos para que se renueven todo el tiempo.
+ *
+ * @author Ithera Team
+ */
+class EtiquetaAllocatorTest {
+
+    private static final List<String> PREFIJOS = List.of("LAHPADU", "PRMONDN", "ESXXLDS");
+    private static final int HILOS = 8;
+    private static final int POR_HILO = 1_500;
+
+    private static DriverManagerDataSource dataSource;
+
+    @BeforeAll
+    static void preparar() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:etiquetas;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/001_etiqueta_secuencia.sql")).execute(dataSource);
+    }
+
+    @Test
+    void etiquetasUnicasEntreHilosPrefijosYNodos() throws Exception {
+        List<EtiquetaAllocator> nodos = List.of(allocator(7), allocator(13));
+        Set<String> etiquetas = ConcurrentHashMap.newKeySet();
+        List<String> repetidas = new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            EtiquetaAllocator allocator = nodos.get(h % nodos.size());
+            int hilo = h;
+            tareas.add(pool.submit(() -> {
+                salida.await();
+                for (int i = 0; i < POR_HILO; i++) {
+                    String prefijo = PREFIJOS.get((hilo + i) % PREFIJOS.size());
+                    // Mezcla de una en una y por lote, como el alta manual y la importación
+                    List<String> nuevas = i % 10 == 0 ? allocator.siguientes(prefijo, 5) : List.of(allocator.siguiente(prefijo));
+                    for (String e : nuevas) {
+                        assertTrue(e.startsWith(prefijo + "-"), e);
+                        if (!etiquetas.add(e)) synchronized (repetidas) { repetidas.add(e); }
+                    }
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> t : tareas) t.get();
+        pool.shutdown();
+
+        assertEquals(List.of(), repetidas);
+        int porHiloConLotes = POR_HILO + (POR_HILO / 10) * 4;
+        assertEquals(HILOS * porHiloConLotes, etiquetas.size());
+        for (String prefijo : PREFIJOS)
+            assertTrue(etiquetas.stream().anyMatch(e -> e.startsWith(prefijo)), prefijo);
+    }
+
+    @Test
+    void formatearRellenaEnBase36() {
+        assertEquals("LAHPADU-0000000", EtiquetaAllocator.formatear("LAHPADU", 0));
+        assertEquals("LAHPADU-00000A3", EtiquetaAllocator.formatear("LAHPADU", 10 * 36 + 3));
+    }
+
+    private static EtiquetaAllocator allocator(int tamanoBloque) {
+        return new EtiquetaAllocator(new JdbcTemplate(dataSource), new DataSourceTransactionManager(dataSource), tamanoBloque);
+    }
+}
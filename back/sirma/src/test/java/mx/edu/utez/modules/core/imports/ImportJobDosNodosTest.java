@@ -0,0 +1,163 @@
+package mx.edu.utez.modules.core.imports;
+
+import jakarta.persistence.EntityManager;
+import mx.edu.utez.DatosPrueba;
+import mx.edu.utez.SirmaApplication;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dos instancias de la aplicación contra la misma BD H2: una importación que corre en un nodo
+ * se consulta, se descarga y se cancela desde el otro, con solo <code>IMPORT_JOB</code> de por medio.
+ *
+ * @author Ithera Team
+ */
+class ImportJobDosNodosTest {
+
+    private static final String URL = "jdbc:h2:mem:import_nodos;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static ConfigurableApplicationContext nodoA;
+    private static ConfigurableApplicationContext nodoB;
+    private static DatosPrueba.Catalogo catalogo;
+
+    @BeforeAll
+    static void levantar() {
+        // El primero crea el esquema; el segundo lo usa tal cual, como en producción
+        nodoA = nodo("create");
+        DatosPrueba.prepararBd(nodoA.getBean(JdbcTemplate.class), "001_etiqueta_secuencia.sql",
+                "006_activo_contador.sql", "008_cache_invalidacion.sql", "009_import_job.sql");
+        catalogo = nodoA.getBean(TransactionTemplate.class)
+                .execute(status -> DatosPrueba.sembrarCatalogo(nodoA.getBean(EntityManager.class)));
+        nodoB = nodo("none");
+    }
+
+    @AfterAll
+    static void apagar() {
+        if (nodoA != null) nodoA.close();
+        if (nodoB != null) nodoB.close();
+    }
+
+    @AfterEach
+    void limpiarSesion() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void estadoYRechazosSeVenDesdeElOtroNodo() throws Exception {
+        DatosPrueba.comoUsuario(catalogo.admin());
+        List<String[]> filas = List.of(
+                DatosPrueba.filaValida("DN-1"),
+                new String[]{"DN-2", "Campus Inexistente", "Computadora", "", "", "", "Docencia 1", "Laboratorio"},
+                new String[]{"DN-3", "Campus Norte", "Computadora", "", "", "", "Docencia 1", "Sótano"});
+
+        ImportJob job = servicio(nodoA).iniciar(archivo(filas));
+        ImportJobStatus fin = esperar(servicio(nodoB), job.getId(), s -> s.estado().terminal());
+
+        assertEquals(ImportJob.Estado.COMPLETADO, fin.estado());
+        assertEquals(1, fin.insertados());
+        assertEquals(2, fin.rechazados());
+        assertEquals(2, fin.errores().size());
+        assertNull(fin.erroresOmitidos());
+
+        StreamingResponseBody libro = servicio(nodoB).buscarRechazos(job.getId()).orElseThrow();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        libro.writeTo(out);
+        try (XSSFWorkbook rechazos = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(2, rechazos.getSheetAt(0).getLastRowNum()); // encabezado + 2
+            assertEquals("DN-2", rechazos.getSheetAt(0).getRow(1).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    void cancelacionDesdeElOtroNodo() {
+        DatosPrueba.comoUsuario(catalogo.admin());
+        List<String[]> filas = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) filas.add(DatosPrueba.filaValida("CN-" + i));
+        MockMultipartFile grande = archivo(filas);
+
+        // Con un solo hilo de importación la segunda espera en cola mientras corre la primera
+        ImportJob corriendo = servicio(nodoA).iniciar(grande);
+        ImportJob enCola = servicio(nodoA).iniciar(grande);
+        esperar(servicio(nodoB), corriendo.getId(), s -> s.estado() == ImportJob.Estado.PROCESANDO);
+
+        assertEquals(ImportJob.Estado.EN_COLA, servicio(nodoB).cancelar(enCola.getId()).orElseThrow().estado());
+        ImportJobStatus cancelada = esperar(servicio(nodoB), enCola.getId(), s -> s.estado().terminal());
+        assertEquals(ImportJob.Estado.CANCELADO, cancelada.estado());
+        assertEquals(0, cancelada.filasLeidas());
+
+        servicio(nodoB).cancelar(corriendo.getId());
+        ImportJobStatus detenida = esperar(servicio(nodoB), corriendo.getId(), s -> s.estado().terminal());
+        assertEquals(ImportJob.Estado.CANCELADO, detenida.estado());
+        assertTrue(detenida.insertados() < filas.size());
+    }
+
+    @Test
+    void importacionDeUnNodoCaidoSeDaPorFallida() {
+        String id = UUID.randomUUID().toString();
+        JdbcTemplate jdbc = nodoA.getBean(JdbcTemplate.class);
+        jdbc.update("""
+                INSERT INTO IMPORT_JOB (id, archivo, nodo, estado, filas_leidas, actualizado_en)
+                VALUES (?, 'viejo.xlsx', 'nodo-caido', 'PROCESANDO', 500, TIMESTAMPADD(MINUTE, -5, NOW()))""", id);
+
+        ImportJobStatus estado = servicio(nodoB).buscar(id).orElseThrow();
+
+        assertEquals(ImportJob.Estado.FALLIDO, estado.estado());
+        assertEquals(500, estado.filasLeidas());
+        assertNotNull(estado.mensaje());
+        assertTrue(servicio(nodoB).buscar(UUID.randomUUID().toString()).isEmpty());
+    }
+
+    private static ImportJobService servicio(ConfigurableApplicationContext nodo) {
+        return nodo.getBean(ImportJobService.class);
+    }
+
+    private static MockMultipartFile archivo(List<String[]> filas) {
+        return new MockMultipartFile("file", "activos.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", DatosPrueba.excel(filas));
+    }
+
+    private static ImportJobStatus esperar(ImportJobService servicio, String id, Predicate<ImportJobStatus> condicion) {
+        long limite = System.currentTimeMillis() + 30_000;
+        while (true) {
+            ImportJobStatus estado = servicio.buscar(id).orElse(null);
+            if (estado != null && condicion.test(estado)) return estado;
+            assertTrue(System.currentTimeMillis() < limite, "la importación " + id + " no llegó al estado esperado: " + estado);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext nodo(String ddl) {
+        return new SpringApplicationBuilder(SirmaApplication.class).run(
+                "--server.port=0",
+                // Lo común sale del perfil de pruebas; cada par de nodos tiene su propia BD
+                "--spring.profiles.active=test",
+                "--spring.datasource.url=" + URL,
+                "--spring.jpa.hibernate.ddl-auto=" + ddl,
+                "--app.imports.hilos=1",
+                "--app.imports.sincronizacion-ms=100");
+    }
+}
@@ -0,0 +1,129 @@
+package mx.edu.utez.modules.core.imports;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * La tubería sola, sin BD: orden de publicación, modo sin workers, cierre a medias y fallo de un lote.
+ * Cada lote lleva su número en la única celda de su única fila y el procesador lo regresa en <code>insertados</code>.
+ *
+ * @author Ithera Team
+ */
+class ImportPipelineTest {
+
+    private final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("pipeline-test-");
+
+    @Test
+    void publicaEnOrdenDeLecturaAunqueLosWorkersTerminenDesordenados() {
+        CountDownLatch segundoProcesado = new CountDownLatch(1);
+        List<Integer> procesados = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> publicados = Collections.synchronizedList(new ArrayList<>());
+
+        try (ImportPipeline pipeline = new ImportPipeline(executor, 3, 4, filas -> {
+            int n = numero(filas);
+            // El primero espera a que otro worker termine el segundo, así se publican fuera de orden de llegada
+            if (n == 0) esperar(segundoProcesado);
+            procesados.add(n);
+            if (n == 1) segundoProcesado.countDown();
+            return new ImportPipeline.ResultadoLote(List.of(), n, 0);
+        }, resultado -> publicados.add(resultado.insertados()))) {
+            for (int i = 0; i < 20; i++) pipeline.enviar(lote(i));
+            pipeline.terminar();
+        }
+
+        assertTrue(procesados.indexOf(1) < procesados.indexOf(0), procesados.toString());
+        assertEquals(IntStream.range(0, 20).boxed().toList(), publicados);
+    }
+
+    @Test
+    void sinWorkersProcesaEnElHiloDelParser() {
+        Thread parser = Thread.currentThread();
+        List<Integer> publicados = new ArrayList<>();
+
+        try (ImportPipeline pipeline = new ImportPipeline(executor, 0, 0, filas -> {
+            assertSame(parser, Thread.currentThread());
+            return new ImportPipeline.ResultadoLote(List.of(), numero(filas), 0);
+        }, resultado -> publicados.add(resultado.insertados()))) {
+            for (int i = 0; i < 5; i++) {
+                pipeline.enviar(lote(i));
+                assertEquals(i + 1, publicados.size()); // ya quedó publicado al regresar
+            }
+            pipeline.terminar();
+        }
+
+        assertEquals(List.of(0, 1, 2, 3, 4), publicados);
+    }
+
+    @Test
+    void cerrarAMediasDescartaLoQueSigueEnCola() throws Exception {
+        CountDownLatch enProceso = new CountDownLatch(2);
+        CountDownLatch soltar = new CountDownLatch(1);
+        List<Integer> procesados = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> publicados = Collections.synchronizedList(new ArrayList<>());
+
+        ImportPipeline pipeline = new ImportPipeline(executor, 2, 2, filas -> {
+            enProceso.countDown();
+            esperar(soltar);
+            procesados.add(numero(filas));
+            return new ImportPipeline.ResultadoLote(List.of(), numero(filas), 0);
+        }, resultado -> publicados.add(resultado.insertados()));
+
+        // Dos lotes los toman los workers y los otros dos se quedan en la cola
+        for (int i = 0; i < 4; i++) pipeline.enviar(lote(i));
+        assertTrue(enProceso.await(10, TimeUnit.SECONDS));
+
+        // Como la cancelación: close() vacía la cola y espera a que los workers suelten su lote
+        Thread cierre = new Thread(pipeline::close);
+        cierre.start();
+        while (cierre.getState() != Thread.State.WAITING) Thread.sleep(5);
+        soltar.countDown();
+        cierre.join(10_000);
+
+        assertFalse(cierre.isAlive());
+        assertEquals(List.of(0, 1), procesados.stream().sorted().toList());
+        assertEquals(List.of(0, 1), publicados);
+    }
+
+    @Test
+    void unLoteQueFallaDetieneLaImportacion() {
+        ImportPipeline pipeline = new ImportPipeline(executor, 2, 2, filas -> {
+            if (numero(filas) == 1) throw new IllegalArgumentException("lote roto");
+            return new ImportPipeline.ResultadoLote(List.of(), numero(filas), 0);
+        }, resultado -> {});
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 50; i++) pipeline.enviar(lote(i));
+            pipeline.terminar();
+        });
+        assertEquals("lote roto", e.getCause().getMessage());
+        pipeline.close();
+    }
+
+    private static List<String[]> lote(int n) {
+        List<String[]> filas = new ArrayList<>();
+        filas.add(new String[]{String.valueOf(n)});
+        return filas;
+    }
+
+    private static int numero(List<String[]> filas) {
+        return Integer.parseInt(filas.getFirst()[0]);
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package mx.edu.utez.modules.core.imports;
+
+import jakarta.persistence.EntityManager;
+import mx.edu.utez.DatosPrueba;
+import mx.edu.utez.PruebaH2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Importación completa de archivos .xlsx generados al vuelo, sobre H2: reglas de series repetidas,
+ * nombres ambiguos, orden de los errores entre lotes, simulación, cancelación a medias y lo que queda en la BD.
+ * También que el archivo de una simulación cuya respuesta nunca se escribió no se queda en disco.
+ *
+ * @author Ithera Team
+ */
+@PruebaH2
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ImportServiceTest {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private DatosPrueba.Catalogo catalogo;
+
+    @BeforeAll
+    void preparar() {
+        DatosPrueba.prepararBd(jdbcTemplate, "001_etiqueta_secuencia.sql", "006_activo_contador.sql", "008_cache_invalidacion.sql");
+        catalogo = transactionTemplate.execute(status -> DatosPrueba.sembrarCatalogo(entityManager));
+    }
+
+    @BeforeEach
+    void sesion() {
+        DatosPrueba.comoUsuario(catalogo.admin());
+    }
+
+    @AfterEach
+    void sinSesion() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filaRechazadaNoLeQuitaLaSerieALaSiguiente() throws IOException {
+        ImportJob job = importar(List.of(
+                new String[]{"SR-1", "Campus Inexistente", "Computadora", "", "", "", "Docencia 1", "Laboratorio"},
+                new String[]{"SR-1", "Campus Norte", "Computadora", "", "", "", "Docencia 1", "Sótano"},
+                DatosPrueba.filaValida("SR-1"),
+                DatosPrueba.filaValida("SR-1")));
+
+        assertEquals(1, job.getInsertados().get());
+        assertEquals(3, job.getRechazados().get());
+        List<String> errores = job.detalle().errores();
+        assertTrue(errores.get(0).startsWith("Fila 2: El campus"), errores.get(0));
+        assertTrue(errores.get(1).startsWith("Fila 3: El espacio"), errores.get(1));
+        assertEquals("Fila 5: El número de serie 'SR-1' está repetido en el archivo.", errores.get(2));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ACTIVO WHERE numero_serie = 'SR-1'", Integer.class));
+    }
+
+    @Test
+    void nombreQueSoloDifiereEnMayusculasSeRechazaSiNoEsExacto() throws IOException {
+        List<Long> salas = transactionTemplate.execute(status -> {
+            var edificio = DatosPrueba.edificio(entityManager, catalogo.campus(), "Docencia 3");
+            return List.of(DatosPrueba.espacio(entityManager, edificio, "Sala A").getId(),
+                    DatosPrueba.espacio(entityManager, edificio, "SALA A").getId());
+        });
+
+        ImportJob job = importar(List.of(
+                new String[]{"AM-1", "Campus Norte", "Computadora", "", "", "", "Docencia 3", "sala a"},
+                new String[]{"AM-2", " campus norte ", "computadora", "", "", "", "docencia 3", "Sala A"},
+                new String[]{"AM-3", "Campus Norte", "Computadora", "", "", "", "Docencia 3", " SALA A "}));
+
+        assertEquals(2, job.getInsertados().get());
+        assertEquals(List.of("Fila 2: El espacio 'sala a' es ambiguo: coincide con 'SALA A', 'Sala A'. "
+                + "Escríbelo exactamente como uno de ellos."), job.detalle().errores());
+        assertEquals(salas, jdbcTemplate.queryForList(
+                "SELECT id_espacio FROM ACTIVO WHERE numero_serie IN ('AM-2', 'AM-3') ORDER BY numero_serie", Long.class));
+    }
+
+    @Test
+    void variosLotesPublicanEnOrdenYCadaBitacoraApuntaASuActivo() throws IOException {
+        // 1 200 filas son tres lotes repartidos entre los workers; una de cada siete se rechaza
+        List<String[]> filas = new ArrayList<>();
+        List<String> esperados = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            if (i % 7 == 0) {
+                filas.add(new String[]{"BK-" + i, "Campus Inexistente", "Computadora", "", "", "", "Docencia 1", "Laboratorio"});
+                esperados.add("Fila " + (i + 2) + ": El campus 'Campus Inexistente' no existe.");
+            } else {
+                filas.add(DatosPrueba.filaValida("BK-" + i));
+            }
+        }
+
+        ImportJob job = importar(filas);
+
+        assertEquals(1_200 - esperados.size(), job.getInsertados().get());
+        assertEquals(esperados.size(), job.getRechazados().get());
+        assertEquals(esperados.subList(0, ImportJob.MAX_ERRORES), job.detalle().errores());
+
+        // Los ids que regresa el INSERT en batch se asignan en orden: la bitácora de cada activo menciona su etiqueta
+        assertEquals(job.getInsertados().get(), jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM BITACORA b JOIN ACTIVO a ON a.id_activo = b.id_activo
+                WHERE a.numero_serie LIKE 'BK-%' AND b.descripcion = CONCAT('Activo ', a.etiqueta, ' importado desde Excel')""",
+                Integer.class));
+        assertEquals(job.getInsertados().get(), jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT etiqueta) FROM ACTIVO WHERE numero_serie LIKE 'BK-%'", Integer.class));
+    }
+
+    @Test
+    void simulacionValidaSinEscribirNada() throws IOException {
+        ImportJob job = conArchivo(List.of(
+                DatosPrueba.filaValida("SM-1"),
+                new String[]{"SM-2", "Campus Inexistente", "Computadora", "", "", "", "Docencia 1", "Laboratorio"},
+                new String[]{"SM-3", "Campus Norte", "Impresora Nueva", "HP", "Mueble", "LaserJet", "Docencia 1", "Laboratorio"}),
+                (archivo, j) -> importService.simular(archivo, j, j));
+
+        assertEquals(2, job.getInsertados().get());
+        assertEquals(1, job.getRechazados().get());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ACTIVO WHERE numero_serie LIKE 'SM-%'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TIPO_ACTIVO WHERE nombre = 'Impresora Nueva'", Integer.class));
+    }
+
+    @Test
+    void simulacionAbandonadaNoDejaElArchivoEnDisco() throws IOException {
+        MockMultipartFile archivo = new MockMultipartFile("file", "prueba.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                DatosPrueba.excel(List.<String[]>of(DatosPrueba.filaValida("AB-1"))));
+
+        // Una se escribe completa (su cuerpo borra el archivo); la otra se abandona antes de escribir nada
+        importJobService.simular(archivo).writeTo(new ByteArrayOutputStream());
+        importJobService.simular(archivo);
+
+        assertEquals(1, importJobService.limpiarSimulaciones(LocalDateTime.now().plusMinutes(1)));
+        assertEquals(0, importJobService.limpiarSimulaciones(LocalDateTime.now().plusMinutes(1)));
+    }
+
+    @Test
+    void cancelarAMediasConservaSoloLosLotesPublicados() throws IOException {
+        List<String[]> filas = new ArrayList<>();
+        filas.add(new String[]{"CX-0", "Campus Inexistente", "Computadora", "", "", "", "Docencia 1", "Laboratorio"});
+        for (int i = 1; i < 20_000; i++) filas.add(DatosPrueba.filaValida("CX-" + i));
+
+        // Se cancela en cuanto se publica el primer lote, con el parser todavía leyendo
+        ImportJob job = conArchivo(filas, (archivo, j) -> importService.importar(archivo, j, rechazo -> {
+            j.rechazar(rechazo);
+            j.getCancelado().set(true);
+        }));
+
+        assertTrue(job.getFilasLeidas().get() < filas.size(), "el parser no se detuvo");
+        assertTrue(job.getInsertados().get() >= ImportService.BATCH_SIZE - 1);
+        assertEquals(job.getInsertados().get(), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ACTIVO WHERE numero_serie LIKE 'CX-%'", Integer.class));
+    }
+
+    /** Corre la importación completa del archivo y regresa el trabajo con sus contadores. */
+    private ImportJob importar(List<String[]> filas) throws IOException {
+        return conArchivo(filas, (archivo, job) -> importService.importar(archivo, job, job));
+    }
+
+    private static ImportJob conArchivo(List<String[]> filas, BiConsumer<Path, ImportJob> corrida) throws IOException {
+        Path archivo = Files.createTempFile("import-test-", ".xlsx");
+        try {
+            Files.write(archivo, DatosPrueba.excel(filas));
+            ImportJob job = new ImportJob(UUID.randomUUID().toString(), "prueba.xlsx");
+            job.iniciar();
+            corrida.accept(archivo, job);
+            return job;
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package mx.edu.utez.modules.core.qr;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El recurso que se manda en <code>/raw/{formato}</code> sigue sirviendo aunque la limpieza
+ * borre el archivo entre que se resolvió y que se escribe la respuesta.
+ *
+ * @author Ithera Team
+ */
+class QrRenderCacheTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void seRegeneraSiLaLimpiezaLoBorraAntesDeServirlo() throws Exception {
+        // Máximo de 1 byte: cualquier pasada de la limpieza borra todo
+        QrRenderCache cache = new QrRenderCache(directorio.toString(), DataSize.ofBytes(1));
+        AtomicInteger renders = new AtomicInteger();
+        byte[] contenido = "qr-de-prueba".getBytes(StandardCharsets.UTF_8);
+
+        Resource recurso = cache.recurso("payload", 300, 300, "ET-1", "png", out -> {
+            renders.incrementAndGet();
+            out.write(contenido);
+        });
+        assertEquals(1, renders.get());
+
+        cache.limpiar();
+        assertFalse(recurso.exists());
+
+        // Como lo hace el convertidor de la respuesta: primero el tamaño y luego el cuerpo
+        assertEquals(contenido.length, recurso.contentLength());
+        assertEquals(2, renders.get());
+        cache.limpiar();
+        try (InputStream in = recurso.getInputStream()) {
+            assertArrayEquals(contenido, in.readAllBytes());
+        }
+        assertEquals(3, renders.get());
+        // Si sigue ahí no se vuelve a renderizar
+        assertArrayEquals(contenido, recurso.getContentAsByteArray());
+        assertEquals(3, renders.get());
+    }
+}
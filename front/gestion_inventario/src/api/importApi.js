@@ -1,18 +1,122 @@
 import { request } from "./base";
 
+const API_BASE = import.meta.env.VITE_API_URL || "";
+
+// Cada cuánto se consulta el avance de una importación en segundo plano
+const POLL_INTERVAL_MS = 1500;
+
+const ESTADOS_TERMINALES = ["COMPLETADO", "FALLIDO", "CANCELADO"];
+
+const esperar = (ms) => new Promise((resolve) => setTimeout(resolve, ms));
+
 export const importApi = {
   /**
    * Sube un archivo Excel para importar activos.
+   * El backend responde de inmediato con el trabajo en cola; aquí se espera
+   * a que termine para devolver el mismo formato { message, error } de siempre.
    * @param {File} file Archivo Excel
+   * @param {(estado: any) => void} [onProgress] Recibe el avance del trabajo en cada consulta
    * @returns {Promise<any>}
    */
-  upload: (file) => {
+  upload: async (file, onProgress) => {
     const formData = new FormData();
     formData.append("file", file);
 
-    return request(`/api/imports/`, {
+    const inicio = await request(`/api/imports/`, {
       method: "POST",
       body: formData,
     });
+
+    let estado = inicio?.data;
+    while (estado && !ESTADOS_TERMINALES.includes(estado.estado)) {
+      onProgress?.(estado);
+      await esperar(POLL_INTERVAL_MS);
+      estado = (await importApi.status(estado.id))?.data;
+    }
+
+    return {
+      message: estado?.mensaje,
+      error: estado?.estado !== "COMPLETADO" || estado?.rechazados > 0,
+      data: estado,
+    };
   },
+
+  /**
+   * Valida un Excel sin importarlo (dry run). El backend responde NDJSON:
+   * una línea por fila rechazada y al final el resumen (o el fallo).
+   * @param {File} file Archivo Excel
+   * @param {(rechazo: {fila: number, error: string}) => void} [onRechazo] Recibe cada error en cuanto llega
+   * @returns {Promise<{resumen?: any, fallo?: string}>}
+   */
+  validate: async (file, onRechazo) => {
+    const formData = new FormData();
+    formData.append("file", file);
+
+    const token = sessionStorage.getItem("token");
+    const res = await fetch(`${API_BASE}/api/imports/?dryRun=true`, {
+      method: "POST",
+      body: formData,
+      headers: token ? { Authorization: `Bearer ${token}` } : {},
+    });
+
+    if (!res.ok) {
+      const data = await res.json().catch(() => ({}));
+      throw new Error(data.message || "No se pudo validar el archivo.");
+    }
+
+    const reader = res.body.getReader();
+    const decoder = new TextDecoder();
+    let pendiente = "";
+    let final = {};
+
+    const procesar = (linea) => {
+      if (!linea.trim()) return;
+      const obj = JSON.parse(linea);
+      if (obj.resumen || obj.fallo) final = obj;
+      else onRechazo?.(obj);
+    };
+
+    for (;;) {
+      const { done, value } = await reader.read();
+      if (done) break;
+      pendiente += decoder.decode(value, { stream: true });
+      const lineas = pendiente.split("\n");
+      pendiente = lineas.pop();
+      lineas.forEach(procesar);
+    }
+    procesar(pendiente);
+
+    return final;
+  },
+
+  /**
+   * Consulta el estado de una importación en segundo plano.
+   * @param {string} jobId Id del trabajo devuelto al subir el archivo
+   * @returns {Promise<any>}
+   */
+  status: (jobId) => request(`/api/imports/${jobId}`),
+
+  /**
+   * Descarga las filas rechazadas de una importación terminada (.xlsx con columna de error).
+   * @param {string} jobId Id del trabajo
+   * @returns {Promise<Blob>}
+   */
+  downloadRejected: async (jobId) => {
+    const token = sessionStorage.getItem("token");
+    const res = await fetch(`${API_BASE}/api/imports/${jobId}/rechazos`, {
+      headers: token ? { Authorization: `Bearer ${token}` } : {},
+    });
+    if (!res.ok) throw new Error("No hay filas rechazadas para descargar.");
+    return res.blob();
+  },
+
+  /**
+   * Cancela una importación en curso (los lotes ya guardados se conservan).
+   * @param {string} jobId Id del trabajo
+   * @returns {Promise<any>}
+   */
+  cancel: (jobId) =>
+    request(`/api/imports/${jobId}`, {
+      method: "DELETE",
+    }),
 };
@@ -1,5 +1,7 @@
 import { request } from "./base";
 
+const API_BASE = import.meta.env.VITE_API_URL || "";
+
 export const qrApi = {
   /**
    * GET /api/qr/{id}
@@ -18,6 +20,23 @@ export const qrApi = {
    */
   getPdfByActivo: (id) => request(`/api/qr/${id}/pdf`),
 
+  /**
+   * GET /api/qr/{id}/raw/{formato}
+   * Descarga el QR de un activo como binario (sin base64). El navegador revalida con ETag,
+   * así que pedirlo otra vez cuesta un 304.
+   * @param {number} id - ID del activo
+   * @param {"png"|"pdf"|"svg"} [formato="png"]
+   * @returns {Promise<Blob>}
+   */
+  getQrBlob: async (id, formato = "png") => {
+    const token = sessionStorage.getItem("token");
+    const res = await fetch(`${API_BASE}/api/qr/${id}/raw/${formato}`, {
+      headers: token ? { Authorization: `Bearer ${token}` } : {},
+    });
+    if (!res.ok) throw new Error("No se pudo obtener el QR del activo.");
+    return res.blob();
+  },
+
   /**
    * POST /api/qr/
    * Genera un QR a partir de un texto arbitrario.
@@ -38,4 +57,28 @@ export const qrApi = {
    */
   downloadCustomPdf: (texto) =>
     request(`/api/qr/?texto=${encodeURIComponent(texto)}`),
+
+  /**
+   * POST /api/qr/labels
+   * Descarga una hoja de etiquetas QR en PDF (varias por página).
+   * @param {{ ids?: number[], campusId?: number, edificioId?: number, espacioId?: number,
+   *           columnas?: number, filas?: number, anchoMm?: number, altoMm?: number, separacionMm?: number }} body
+   * @returns {Promise<Blob>} PDF
+   */
+  downloadLabelSheet: async (body) => {
+    const token = sessionStorage.getItem("token");
+    const res = await fetch(`${API_BASE}/api/qr/labels`, {
+      method: "POST",
+      body: JSON.stringify(body),
+      headers: {
+        "Content-Type": "application/json",
+        ...(token ? { Authorization: `Bearer ${token}` } : {}),
+      },
+    });
+    if (!res.ok) {
+      const data = await res.json().catch(() => ({}));
+      throw new Error(data.message || "No se pudo generar la hoja de etiquetas.");
+    }
+    return res.blob();
+  },
 };